@@ -0,0 +1,34 @@
+@echo off
+REM Generate an AppCDS archive (app.jsa) for faster application startup (Windows)
+REM Class data sharing only maps classes loaded from jars, so the compiled
+REM classes are packaged into stocktrading.jar first. The GUI is then started
+REM once, up to the login frame with its services warm, and the classes it
+REM loaded are recorded. run.bat uses the jar and archive when both exist;
+REM compile.bat deletes them, so rerun this after recompiling or changing the JDK.
+
+if not exist bin (
+    call compile.bat || exit /b 1
+)
+
+REM The driver must be on the classpath the archive is dumped with, or run.bat's CDS is disabled
+if not exist sqlite-jdbc.jar (
+    echo SQLite JDBC driver not found. Please download it from:
+    echo https://github.com/xerial/sqlite-jdbc/releases/download/3.43.0.0/sqlite-jdbc-3.43.0.0.jar
+    echo Place it in the project root directory and run this script again.
+    exit /b 1
+)
+
+echo Packaging stocktrading.jar...
+if exist stocktrading.jar del stocktrading.jar
+if exist app.jsa del app.jsa
+jar cf stocktrading.jar -C bin . || exit /b 1
+
+echo Generating AppCDS archive app.jsa...
+java -XX:ArchiveClassesAtExit=app.jsa -Dstartup.exitAfterFirstFrame=true -cp "stocktrading.jar;sqlite-jdbc.jar" com.stocktrading.Main
+
+if exist app.jsa (
+    echo Archive created: app.jsa
+) else (
+    echo Archive generation failed!
+    exit /b 1
+)
@@ -0,0 +1,34 @@
+#!/bin/bash
+
+# Generate an AppCDS archive (app.jsa) for faster application startup
+# Class data sharing only maps classes loaded from jars, so the compiled
+# classes are packaged into stocktrading.jar first. The GUI is then started
+# once, up to the login frame with its services warm, and the classes it
+# loaded are recorded. run.sh uses the jar and archive when both exist;
+# compile.sh deletes them, so rerun this after recompiling or changing the
+# JDK. Needs a display.
+
+if [ ! -d "bin" ]; then
+    ./compile.sh || exit 1
+fi
+
+# The driver must be on the classpath the archive is dumped with, or run.sh's CDS is disabled
+if [ ! -f "sqlite-jdbc.jar" ]; then
+    echo "Downloading SQLite JDBC driver..."
+    curl -L -o sqlite-jdbc.jar https://github.com/xerial/sqlite-jdbc/releases/download/3.43.0.0/sqlite-jdbc-3.43.0.0.jar || exit 1
+fi
+
+echo "Packaging stocktrading.jar..."
+rm -f stocktrading.jar app.jsa
+jar cf stocktrading.jar -C bin . || exit 1
+
+echo "Generating AppCDS archive app.jsa..."
+java -XX:ArchiveClassesAtExit=app.jsa -Dstartup.exitAfterFirstFrame=true \
+    -cp stocktrading.jar:sqlite-jdbc.jar com.stocktrading.Main
+
+if [ -f "app.jsa" ]; then
+    echo "Archive created: app.jsa"
+else
+    echo "Archive generation failed!"
+    exit 1
+fi
@@ -13,10 +13,14 @@ javac -d bin -sourcepath src src\com\stocktrading\*.java ^
     src\com\stocktrading\services\*.java ^
     src\com\stocktrading\api\*.java ^
     src\com\stocktrading\database\*.java ^
-    src\com\stocktrading\gui\*.java
+    src\com\stocktrading\gui\*.java ^
+    src\com\stocktrading\tools\*.java
 
 if %ERRORLEVEL% EQU 0 (
     echo Compilation successful!
+    REM The jar and CDS archive from cds.bat now hold stale classes
+    if exist stocktrading.jar del stocktrading.jar
+    if exist app.jsa del app.jsa
     echo To run the application, use: run.bat
 ) else (
     echo Compilation failed!
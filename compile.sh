@@ -14,10 +14,16 @@ javac -d bin -sourcepath src src/com/stocktrading/*.java \
     src/com/stocktrading/services/*.java \
     src/com/stocktrading/api/*.java \
     src/com/stocktrading/database/*.java \
-    src/com/stocktrading/gui/*.java
+    src/com/stocktrading/gui/*.java \
+    src/com/stocktrading/tools/*.java
 
 if [ $? -eq 0 ]; then
     echo "Compilation successful!"
+    # The jar and CDS archive from cds.sh now hold stale classes
+    if [ -f "stocktrading.jar" ] || [ -f "app.jsa" ]; then
+        rm -f stocktrading.jar app.jsa
+        echo "Removed stocktrading.jar and app.jsa; run ./cds.sh to regenerate them"
+    fi
     echo "To run the application, use: ./run.sh"
 else
     echo "Compilation failed!"
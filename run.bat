@@ -19,5 +19,13 @@ if not exist sqlite-jdbc.jar (
     exit /b 1
 )
 
+REM Use the class data sharing archive from cds.bat if present
+set CLASSPATH_OPTS=bin;sqlite-jdbc.jar
+set CDS_OPTS=
+if exist app.jsa if exist stocktrading.jar (
+    set CLASSPATH_OPTS=stocktrading.jar;sqlite-jdbc.jar
+    set CDS_OPTS=-XX:SharedArchiveFile=app.jsa
+)
+
 REM Run the application
-java -cp "bin;sqlite-jdbc.jar" com.stocktrading.Main
+java %CDS_OPTS% -cp "%CLASSPATH_OPTS%" com.stocktrading.Main
@@ -16,5 +16,13 @@ if [ ! -f "sqlite-jdbc.jar" ]; then
     curl -L -o sqlite-jdbc.jar https://github.com/xerial/sqlite-jdbc/releases/download/3.43.0.0/sqlite-jdbc-3.43.0.0.jar
 fi
 
+# Use the class data sharing archive from cds.sh if present
+CLASSPATH_OPTS="bin:sqlite-jdbc.jar"
+CDS_OPTS=""
+if [ -f "app.jsa" ] && [ -f "stocktrading.jar" ]; then
+    CLASSPATH_OPTS="stocktrading.jar:sqlite-jdbc.jar"
+    CDS_OPTS="-XX:SharedArchiveFile=app.jsa"
+fi
+
 # Run the application
-java -cp bin:sqlite-jdbc.jar com.stocktrading.Main
+java $CDS_OPTS -cp $CLASSPATH_OPTS com.stocktrading.Main
@@ -1,8 +1,16 @@
 package com.stocktrading;
 
+import com.stocktrading.api.TradingServer;
 import com.stocktrading.database.DatabaseManager;
 import com.stocktrading.gui.LoginFrame;
 import com.stocktrading.services.AuthenticationService;
+import com.stocktrading.services.Lazy;
+import com.stocktrading.services.Metrics;
+import java.awt.GraphicsEnvironment;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 
 /**
@@ -15,9 +23,37 @@ import javax.swing.*;
  * - Interfaces (AuthService, PortfolioService, StockPredictor)
  * - Collections (List, Map, Set throughout)
  * - Generics (List<Stock>, Map<String, Stock>, etc.)
+ *
+ * Usage: java -cp bin com.stocktrading.Main [--server [port]]
+ * With --server, runs headless and serves the JSON API instead of the GUI.
+ * -Dmetrics.dump.seconds=N prints the latency metrics every N seconds
+ * (default 60 for the server, off for the GUI; 0 turns it off). They are
+ * always available over JMX under com.stocktrading:type=Latency.
+ *
+ * The GUI shows the login frame before opening the database; the
+ * services are built on first use and warmed in the background once the
+ * frame is up. Time to first frame is printed and kept as the
+ * "startup.firstFrame" metric. -Dstartup.exitAfterFirstFrame=true exits
+ * once the services are warm, for cds.sh and StartupBenchmark.
  */
 public class Main {
     public static void main(String[] args) {
+        long mainEntered = System.currentTimeMillis();
+        boolean server = args.length > 0 && args[0].equals("--server");
+        long dumpSeconds = Long.getLong("metrics.dump.seconds", server ? 60 : 0);
+        if (dumpSeconds > 0) {
+            Metrics.startReporter(dumpSeconds, System.out);
+        }
+        if (server) {
+            startServer(args.length > 1 ? Integer.parseInt(args[1]) : TradingServer.DEFAULT_PORT);
+            return;
+        }
+        
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("No display available; use --server to run headless");
+            System.exit(1);
+        }
+        
         // Set look and feel to system default
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -25,15 +61,29 @@ public class Main {
             System.err.println("Could not set look and feel: " + e.getMessage());
         }
         
-        // Initialize database
-        DatabaseManager dbManager = new DatabaseManager();
-        
-        // Initialize authentication service
-        AuthenticationService authService = new AuthenticationService(dbManager);
+        // Database and authentication service (which calibrates the password hasher) on first use
+        Lazy<AuthenticationService> authService = new Lazy<>(() -> new AuthenticationService(new DatabaseManager()));
+        boolean exitAfterFirstFrame = Boolean.getBoolean("startup.exitAfterFirstFrame");
         
         // Launch login screen on Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             LoginFrame loginFrame = new LoginFrame(authService);
+            loginFrame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    // Behind the frame's first paint
+                    SwingUtilities.invokeLater(() -> {
+                        long firstFrameMillis = firstFrame(mainEntered);
+                        // Warm the services while the user types
+                        authService.getAsync().whenComplete((auth, error) -> {
+                            Metrics.histogram("startup.firstFrame").record(TimeUnit.MILLISECONDS.toNanos(firstFrameMillis));
+                            if (exitAfterFirstFrame) {
+                                System.exit(error == null ? 0 : 1);
+                            }
+                        });
+                    });
+                }
+            });
             loginFrame.setVisible(true);
         });
         
@@ -47,5 +97,31 @@ public class Main {
         System.out.println("- SQLite database for persistence");
         System.out.println("- Comprehensive GUI with Swing");
     }
-}
+    
+    // Milliseconds from JVM start to the login frame on screen
+    private static long firstFrame(long mainEntered) {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long firstFrameMillis = System.currentTimeMillis() - jvmStart;
+        System.out.println("Time to first frame: " + firstFrameMillis + " ms (JVM start to main " +
+                           (mainEntered - jvmStart) + " ms)");
+        return firstFrameMillis;
+    }
+    
+    private static void startServer(int port) {
+        DatabaseManager dbManager = new DatabaseManager();
+        AuthenticationService authService = new AuthenticationService(dbManager);
+        try {
+            TradingServer server = new TradingServer(port, dbManager, authService);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(2);
+                dbManager.close();
+            }, "server-shutdown"));
+            System.out.println("Stock Trading API listening on port " + server.getPort() +
+                               (server.isVirtual() ? " (virtual threads)" : " (platform threads)"));
+        } catch (java.io.IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
 }
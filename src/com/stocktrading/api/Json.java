@@ -0,0 +1,201 @@
+package com.stocktrading.api;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the HTTP API: writes maps, collections, strings,
+ * numbers and booleans, and reads flat request objects whose values are
+ * strings, numbers, booleans or null.
+ */
+public final class Json {
+    private Json() {
+    }
+    
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value);
+        return out.toString();
+    }
+    
+    /**
+     * Object from alternating keys and values, in that order
+     */
+    public static String object(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return write(map);
+    }
+    
+    private static void write(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String) {
+            quote(out, (String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            out.append(Double.isFinite(d) ? Double.toString(d) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                quote(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                write(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                write(out, element);
+            }
+            out.append(']');
+        } else {
+            quote(out, value.toString());
+        }
+    }
+    
+    private static void quote(StringBuilder out, String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+    
+    /**
+     * Parse a flat object; every value comes back as its string form
+     * (null for JSON null)
+     * @throws IllegalArgumentException if the text is not such an object
+     */
+    public static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> result = new LinkedHashMap<>();
+        parser.expect('{');
+        if (!parser.consume('}')) {
+            do {
+                String key = parser.string();
+                parser.expect(':');
+                result.put(key, parser.scalar());
+            } while (parser.consume(','));
+            parser.expect('}');
+        }
+        parser.end();
+        return result;
+    }
+    
+    private static class Parser {
+        private final String text;
+        private int pos;
+        
+        Parser(String text) {
+            this.text = text;
+        }
+        
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        boolean consume(char c) {
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+        
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at " + pos);
+            }
+        }
+        
+        void end() {
+            skipSpace();
+            if (pos != text.length()) {
+                throw new IllegalArgumentException("Unexpected text at " + pos);
+            }
+        }
+        
+        String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return out.toString();
+                }
+                if (c == '\\') {
+                    if (pos >= text.length()) {
+                        break;
+                    }
+                    char escaped = text.charAt(pos++);
+                    switch (escaped) {
+                        case 'n': out.append('\n'); break;
+                        case 'r': out.append('\r'); break;
+                        case 't': out.append('\t'); break;
+                        case 'b': out.append('\b'); break;
+                        case 'f': out.append('\f'); break;
+                        case 'u':
+                            if (pos + 4 > text.length()) {
+                                throw new IllegalArgumentException("Bad escape at " + pos);
+                            }
+                            out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default: out.append(escaped);
+                    }
+                } else {
+                    out.append(c);
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+        
+        String scalar() {
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String token = text.substring(start, pos);
+            if (token.isEmpty() || token.startsWith("{") || token.startsWith("[")) {
+                throw new IllegalArgumentException("Expected a value at " + start);
+            }
+            return token.equals("null") ? null : token;
+        }
+    }
+}
@@ -1,7 +1,15 @@
 package com.stocktrading.api;
 
+import com.stocktrading.models.Listing;
 import com.stocktrading.models.Stock;
+import com.stocktrading.services.LatencyHistogram;
+import com.stocktrading.services.Metrics;
+import com.stocktrading.services.QuoteFetchEvent;
+import com.stocktrading.services.QuoteRefreshEvent;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -14,23 +22,39 @@ import java.util.concurrent.*;
  */
 public class StockAPIClient {
     private static final String API_KEY = "demo"; // Use your API key
-    private ExecutorService executorService;
+    /** Exchange listing export: symbol,name[,weight] per line */
+    public static final File LISTINGS_FILE = new File("listings.csv");
+    private static final LatencyHistogram FETCH_LATENCY = Metrics.histogram("api.fetchStockData");
+    private static final LatencyHistogram FETCH_MULTIPLE_LATENCY = Metrics.histogram("api.fetchMultipleStocks");
+    private ExecutorService executorService; // created on the first batch fetch
+    private volatile List<Listing> listings;
+    private volatile Map<String, String> companyNames;
     
     public StockAPIClient() {
-        // Thread pool for concurrent API requests
-        this.executorService = Executors.newFixedThreadPool(5);
+    }
+    
+    // Thread pool for concurrent API requests
+    private synchronized ExecutorService executor() {
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(5);
+        }
+        return executorService;
     }
     
     /**
      * Fetch stock data using threads for concurrent requests
      */
     public Map<String, Stock> fetchMultipleStocks(List<String> symbols) {
+        long start = System.nanoTime();
+        QuoteRefreshEvent event = new QuoteRefreshEvent();
+        event.begin();
         Map<String, Stock> stockMap = new ConcurrentHashMap<>();
         List<Future<Stock>> futures = new ArrayList<>();
         
         // Submit tasks to thread pool
         for (String symbol : symbols) {
-            Future<Stock> future = executorService.submit(() -> fetchStockData(symbol));
+            long submitted = System.nanoTime();
+            Future<Stock> future = executor().submit(() -> fetch(symbol, submitted));
             futures.add(future);
         }
         
@@ -48,6 +72,13 @@ public class StockAPIClient {
             }
         }
         
+        if (stockMap.size() < symbols.size()) {
+            FETCH_MULTIPLE_LATENCY.recordError();
+        }
+        FETCH_MULTIPLE_LATENCY.recordSince(start);
+        event.requested = symbols.size();
+        event.received = stockMap.size();
+        event.commit();
         return stockMap;
     }
     
@@ -55,18 +86,35 @@ public class StockAPIClient {
      * Fetch single stock data - can be called in thread
      */
     public Stock fetchStockData(String symbol) {
+        return fetch(symbol, System.nanoTime());
+    }
+    
+    // submitted: when the fetch was queued, for the JFR event's queue time
+    private Stock fetch(String symbol, long submitted) {
+        long start = System.nanoTime();
+        QuoteFetchEvent event = new QuoteFetchEvent();
+        event.begin();
         try {
             // For demo purposes, using mock data
             // In production, you would call a real API like Alpha Vantage or Yahoo Finance
             Stock stock = generateMockStockData(symbol);
             
             // Simulate API delay
+            long call = System.nanoTime();
             Thread.sleep(100);
+            event.apiTime = System.nanoTime() - call;
+            event.success = true;
             
             return stock;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            FETCH_LATENCY.recordError();
             return null;
+        } finally {
+            FETCH_LATENCY.recordSince(start);
+            event.symbol = symbol;
+            event.queueTime = start - submitted;
+            event.commit();
         }
     }
     
@@ -132,22 +180,83 @@ public class StockAPIClient {
     }
     
     private String getCompanyName(String symbol) {
-        Map<String, String> companies = new HashMap<>();
-        companies.put("AAPL", "Apple Inc.");
-        companies.put("GOOGL", "Alphabet Inc.");
-        companies.put("MSFT", "Microsoft Corporation");
-        companies.put("AMZN", "Amazon.com Inc.");
-        companies.put("TSLA", "Tesla Inc.");
-        companies.put("META", "Meta Platforms Inc.");
-        companies.put("NVDA", "NVIDIA Corporation");
-        companies.put("JPM", "JPMorgan Chase & Co.");
-        companies.put("V", "Visa Inc.");
-        companies.put("WMT", "Walmart Inc.");
+        Map<String, String> names = companyNames;
+        if (names == null) {
+            names = new HashMap<>();
+            for (Listing listing : getListings()) {
+                names.put(listing.getSymbol(), listing.getName());
+            }
+            companyNames = names;
+        }
         
-        return companies.getOrDefault(symbol, symbol + " Corporation");
+        return names.getOrDefault(symbol, symbol + " Corporation");
     }
     
-    public void shutdown() {
-        executorService.shutdown();
+    /**
+     * Every listed symbol with its company name, read once from LISTINGS_FILE;
+     * without it, the built-in large caps
+     */
+    public List<Listing> getListings() {
+        List<Listing> loaded = listings;
+        if (loaded != null) {
+            return loaded;
+        }
+        loaded = new ArrayList<>();
+        if (LISTINGS_FILE.isFile()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(LISTINGS_FILE))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Listing listing = parseListing(line);
+                    if (listing != null) {
+                        loaded.add(listing);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading listings: " + e.getMessage());
+                loaded.clear();
+            }
+        }
+        if (loaded.isEmpty()) {
+            String[][] builtIn = {
+                {"AAPL", "Apple Inc."}, {"GOOGL", "Alphabet Inc."}, {"MSFT", "Microsoft Corporation"},
+                {"AMZN", "Amazon.com Inc."}, {"TSLA", "Tesla Inc."}, {"META", "Meta Platforms Inc."},
+                {"NVDA", "NVIDIA Corporation"}, {"JPM", "JPMorgan Chase & Co."}, {"V", "Visa Inc."},
+                {"WMT", "Walmart Inc."}
+            };
+            for (String[] company : builtIn) {
+                loaded.add(new Listing(company[0], company[1], 1));
+            }
+        }
+        listings = Collections.unmodifiableList(loaded);
+        return listings;
+    }
+    
+    // "symbol,name[,weight]"; the name may be quoted or contain commas
+    private static Listing parseListing(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 2 || parts[0].trim().isEmpty() || parts[0].trim().equalsIgnoreCase("symbol")) {
+            return null;
+        }
+        float weight = 1;
+        int nameEnd = parts.length;
+        if (parts.length > 2) {
+            try {
+                weight = Float.parseFloat(parts[parts.length - 1].trim());
+                nameEnd--;
+            } catch (NumberFormatException e) {
+                // last field is part of the name
+            }
+        }
+        String name = String.join(",", Arrays.copyOfRange(parts, 1, nameEnd)).trim();
+        if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return new Listing(parts[0].trim().toUpperCase(), name, weight);
+    }
+    
+    public synchronized void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
     }
 }
@@ -0,0 +1,400 @@
+package com.stocktrading.api;
+
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.interfaces.StockPredictor;
+import com.stocktrading.models.Money;
+import com.stocktrading.models.Portfolio;
+import com.stocktrading.models.Session;
+import com.stocktrading.models.Stock;
+import com.stocktrading.models.User;
+import com.stocktrading.services.AuthenticationService;
+import com.stocktrading.services.PortfolioManagementService;
+import com.stocktrading.services.TrendPredictionService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless JSON API over the trading services, started with Main --server.
+ *
+ * One process owns the database connection and the in-memory portfolios,
+ * and every client shares them. Requests run on a virtual thread each when
+ * the JDK has them (21+), otherwise on a cached pool of platform threads;
+ * handlers simply block on the database, the quote API and the password
+ * hasher.
+ *
+ *   POST /api/register  {username, password, email}
+ *   POST /api/login     {username, password} -> {token, userId}
+ *   POST /api/logout
+ *   GET  /api/portfolio
+ *   POST /api/orders    {symbol, side: BUY|SELL, quantity}
+ *   GET  /api/quote?symbol=AAPL
+ *   GET  /api/predict?symbol=AAPL
+ *   GET  /api/health
+ *
+ * All but register, login, quote and health need "Authorization: Bearer <token>".
+ */
+public class TradingServer {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 2048;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    
+    private final DatabaseManager dbManager;
+    private final AuthenticationService authService;
+    private final PortfolioManagementService portfolioService;
+    private final StockPredictor predictor;
+    private final StockAPIClient apiClient;
+    private final Map<Integer, CompletableFuture<Portfolio>> portfolios = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    
+    public TradingServer(int port, DatabaseManager dbManager, AuthenticationService authService) throws IOException {
+        this.dbManager = dbManager;
+        this.authService = authService;
+        this.portfolioService = new PortfolioManagementService(dbManager);
+        this.predictor = new TrendPredictionService();
+        this.apiClient = new StockAPIClient();
+        this.requestExecutor = newRequestExecutor();
+        // Read once when the first HttpServer is created. Without TCP_NODELAY the separate header
+        // and body writes stall on delayed ACKs; the default of 200 idle keep-alive connections
+        // makes most of 1k clients reconnect between requests.
+        defaultProperty("sun.net.httpserver.nodelay", "true");
+        defaultProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(BACKLOG));
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(requestExecutor);
+    }
+    
+    /**
+     * A virtual thread per request where available, else a platform thread per concurrent request
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "http-request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+    
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Whether requests run on virtual threads
+     */
+    public boolean isVirtual() {
+        return !(requestExecutor instanceof ThreadPoolExecutor);
+    }
+    
+    /**
+     * Stop accepting, give in-flight requests up to delaySeconds, then release everything
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        requestExecutor.shutdown();
+        apiClient.shutdown();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            switch (route) {
+                case "GET /api/health":
+                    send(exchange, 200, Json.object("status", "ok", "virtualThreads", isVirtual()));
+                    break;
+                case "POST /api/register":
+                    register(exchange);
+                    break;
+                case "POST /api/login":
+                    login(exchange);
+                    break;
+                case "POST /api/logout":
+                    logout(exchange);
+                    break;
+                case "GET /api/portfolio":
+                    portfolio(exchange);
+                    break;
+                case "POST /api/orders":
+                    order(exchange);
+                    break;
+                case "GET /api/quote":
+                    quote(exchange);
+                    break;
+                case "GET /api/predict":
+                    predict(exchange);
+                    break;
+                default:
+                    error(exchange, 404, "No such endpoint: " + route);
+            }
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error handling " + exchange.getRequestURI() + ": " + e);
+            error(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void register(HttpExchange exchange) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        String username = required(body, "username");
+        String password = required(body, "password");
+        String email = body.getOrDefault("email", "");
+        if (authService.register(username, password, email)) {
+            send(exchange, 201, Json.object("registered", username));
+        } else {
+            error(exchange, 409, "Registration failed. Username may already exist.");
+        }
+    }
+    
+    private void login(HttpExchange exchange) throws IOException {
+        Map<String, String> body = readBody(exchange);
+        User user;
+        try {
+            user = authService.loginAsync(required(body, "username"), required(body, "password")).join();
+        } catch (CompletionException e) {
+            error(exchange, 503, "Login is busy or unavailable, please try again");
+            return;
+        }
+        if (user == null) {
+            error(exchange, 401, "Invalid username or password");
+            return;
+        }
+        // Later sessions of the same user share the portfolio already in memory
+        portfolios.putIfAbsent(user.getId(), user.getPortfolioLoad());
+        send(exchange, 200, Json.object("token", user.getSessionToken(), "userId", user.getId()));
+    }
+    
+    private void logout(HttpExchange exchange) throws IOException {
+        Session session = authenticate(exchange);
+        if (session != null) {
+            authService.getSessionStore().invalidate(session.getToken());
+            send(exchange, 200, Json.object("loggedOut", true));
+        }
+    }
+    
+    private void portfolio(HttpExchange exchange) throws IOException {
+        Portfolio portfolio = portfolioFor(exchange);
+        if (portfolio == null) {
+            return;
+        }
+        Portfolio.Snapshot snapshot = portfolio.getSnapshot();
+        List<Map<String, Object>> holdings = new ArrayList<>();
+        for (Portfolio.StockHolding holding : snapshot.getHoldings().values()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("symbol", holding.getSymbol());
+            row.put("quantity", holding.getQuantity());
+            row.put("averagePrice", Money.toDouble(holding.getAveragePrice()));
+            holdings.add(row);
+        }
+        send(exchange, 200, Json.object(
+            "portfolioId", portfolio.getId(),
+            "cash", Money.toDouble(snapshot.getCashBalance()),
+            "availableCash", Money.toDouble(snapshot.getAvailableCash()),
+            "totalValue", Money.toDouble(portfolioService.getPortfolioValue(portfolio)),
+            "realizedPnl", Money.toDouble(snapshot.getRealizedPnl()),
+            "holdings", holdings));
+    }
+    
+    private void order(HttpExchange exchange) throws IOException {
+        Portfolio portfolio = portfolioFor(exchange);
+        if (portfolio == null) {
+            return;
+        }
+        Map<String, String> body = readBody(exchange);
+        String symbol = symbol(required(body, "symbol"));
+        String side = required(body, "side").toUpperCase();
+        int quantity;
+        try {
+            quantity = Integer.parseInt(required(body, "quantity"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("quantity must be a whole number");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive");
+        }
+        
+        // Market orders fill against the latest quote
+        Stock stock = fetchQuote(symbol);
+        if (stock == null) {
+            error(exchange, 502, "No quote for " + symbol);
+            return;
+        }
+        boolean filled;
+        if (side.equals("BUY")) {
+            filled = portfolioService.buyStock(portfolio, stock, quantity);
+        } else if (side.equals("SELL")) {
+            filled = portfolioService.sellStock(portfolio, symbol, quantity);
+        } else {
+            throw new IllegalArgumentException("side must be BUY or SELL");
+        }
+        send(exchange, filled ? 200 : 409, Json.object(
+            "filled", filled,
+            "symbol", symbol,
+            "price", stock.getCurrentPrice(),
+            "cash", Money.toDouble(portfolio.getCashBalance())));
+    }
+    
+    private void quote(HttpExchange exchange) throws IOException {
+        String symbol = symbol(query(exchange).get("symbol"));
+        Stock stock = fetchQuote(symbol);
+        if (stock == null) {
+            error(exchange, 502, "No quote for " + symbol);
+            return;
+        }
+        send(exchange, 200, Json.object(
+            "symbol", stock.getSymbol(),
+            "name", stock.getName(),
+            "price", stock.getCurrentPrice(),
+            "open", stock.getOpenPrice(),
+            "high", stock.getHighPrice(),
+            "low", stock.getLowPrice(),
+            "volume", stock.getVolume()));
+    }
+    
+    private void predict(HttpExchange exchange) throws IOException {
+        if (authenticate(exchange) == null) {
+            return;
+        }
+        String symbol = symbol(query(exchange).get("symbol"));
+        Stock stock = fetchQuote(symbol);
+        if (stock == null) {
+            error(exchange, 502, "No quote for " + symbol);
+            return;
+        }
+        List<Double> prices = stock.getHistoricalPrices();
+        send(exchange, 200, Json.object(
+            "symbol", symbol,
+            "price", stock.getCurrentPrice(),
+            "trend", predictor.predictTrend(prices),
+            "predictedPrice", predictor.predictNextPrice(stock),
+            "confidence", predictor.getConfidenceScore(prices)));
+    }
+    
+    private Stock fetchQuote(String symbol) {
+        Stock stock = apiClient.fetchStockData(symbol);
+        if (stock != null) {
+            portfolioService.updateMarketPrice(symbol, stock.getCurrentPrice());
+        }
+        return stock;
+    }
+    
+    // Session for the bearer token, or null once a 401 has been sent
+    private Session authenticate(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        Session session = null;
+        if (header != null && header.startsWith("Bearer ")) {
+            session = authService.getSession(header.substring("Bearer ".length()).trim());
+        }
+        if (session == null) {
+            error(exchange, 401, "Missing or expired session token");
+        }
+        return session;
+    }
+    
+    // Caller's portfolio, loaded once per user; null once an error has been sent
+    private Portfolio portfolioFor(HttpExchange exchange) throws IOException {
+        Session session = authenticate(exchange);
+        if (session == null) {
+            return null;
+        }
+        int userId = session.getUserId();
+        CompletableFuture<Portfolio> load = portfolios.computeIfAbsent(userId, id ->
+            CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dbManager.loadPortfolio(id);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, requestExecutor));
+        try {
+            Portfolio portfolio = load.join();
+            if (portfolio == null) {
+                error(exchange, 404, "No portfolio for this user");
+            }
+            return portfolio;
+        } catch (CompletionException e) {
+            portfolios.remove(userId, load); // retry on the next request
+            System.err.println("Error loading portfolio: " + e.getCause().getMessage());
+            error(exchange, 503, "Portfolio unavailable");
+            return null;
+        }
+    }
+    
+    private static String required(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value;
+    }
+    
+    private static String symbol(String symbol) {
+        if (symbol == null || !symbol.matches("[A-Za-z0-9.]{1,10}")) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        return symbol.toUpperCase();
+    }
+    
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+    
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                               URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return params;
+    }
+    
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, Json.object("error", message));
+    }
+    
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
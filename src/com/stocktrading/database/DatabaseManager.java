@@ -1,22 +1,48 @@
 package com.stocktrading.database;
 
 import com.stocktrading.models.*;
+import com.stocktrading.services.LatencyHistogram;
+import com.stocktrading.services.Metrics;
+import com.stocktrading.services.SqlStatementEvent;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Database manager using JDBC and SQLite
+ * Money columns hold Money micro-units as INTEGER
+ * Public operations are timed into Metrics as "db.<method>" and emitted
+ * as SqlStatementEvents for Flight Recorder, one per operation
  */
 public class DatabaseManager {
     private static final String DB_URL = "jdbc:sqlite:stocktrading.db";
+    private static final int SCHEMA_VERSION = 3; // 1 = fixed-point money, 2 = portfolio snapshots, 3 = tax lots
+    private static final int SNAPSHOT_INTERVAL = 1000; // ledger events between portfolio snapshots
+    private static final String INSERT_PORTFOLIO_SQL = "INSERT INTO portfolios (user_id, cash_balance) VALUES (?, ?)";
+    private static final String REPLAY_LABEL = "snapshot + ledger replay";
+    private final String url;
     private Connection connection;
+    private Connection historyConnection; // second connection so history reads overlap portfolio replay
+    private Connection transactionConnection; // multi-statement transactions only, one at a time
+    private final Object transactionLock = new Object();
+    private final Map<Integer, Integer> eventsSinceSnapshot = new ConcurrentHashMap<>();
     
     public DatabaseManager() {
+        this(DB_URL);
+    }
+    
+    /**
+     * Open a database other than the default, e.g. a scratch file for tools
+     */
+    public DatabaseManager(String url) {
+        this.url = url;
         try {
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(DB_URL);
+            connection = DriverManager.getConnection(url);
             initializeTables();
         } catch (Exception e) {
             System.err.println("Database initialization error: " + e.getMessage());
@@ -26,12 +52,24 @@ public class DatabaseManager {
     private void initializeTables() throws SQLException {
         Statement stmt = connection.createStatement();
         
+        // Detect a database created before the current schema version
+        ResultSet versionRs = stmt.executeQuery("PRAGMA user_version");
+        int schemaVersion = versionRs.next() ? versionRs.getInt(1) : 0;
+        versionRs.close();
+        ResultSet existingRs = stmt.executeQuery(
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'portfolios'");
+        boolean existingDatabase = existingRs.next() && existingRs.getInt(1) > 0;
+        existingRs.close();
+        
+        // Write-ahead logging lets readers on other connections run alongside writes
+        stmt.execute("PRAGMA journal_mode = WAL");
+        
         // Users table
         stmt.execute(
             "CREATE TABLE IF NOT EXISTS users (" +
             "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
             "username TEXT UNIQUE NOT NULL, " +
-            "password TEXT NOT NULL, " +
+            "password TEXT NOT NULL, " + // PasswordHasher encoding; plaintext until the owner's next login
             "name TEXT NOT NULL, " +
             "email TEXT NOT NULL)"
         );
@@ -41,7 +79,7 @@ public class DatabaseManager {
             "CREATE TABLE IF NOT EXISTS portfolios (" +
             "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
             "user_id INTEGER NOT NULL, " +
-            "cash_balance REAL NOT NULL, " +
+            "cash_balance INTEGER NOT NULL, " +
             "FOREIGN KEY(user_id) REFERENCES users(id))"
         );
         
@@ -52,7 +90,7 @@ public class DatabaseManager {
             "portfolio_id INTEGER NOT NULL, " +
             "symbol TEXT NOT NULL, " +
             "quantity INTEGER NOT NULL, " +
-            "average_price REAL NOT NULL, " +
+            "average_price INTEGER NOT NULL, " +
             "FOREIGN KEY(portfolio_id) REFERENCES portfolios(id))"
         );
         
@@ -64,73 +102,274 @@ public class DatabaseManager {
             "type TEXT NOT NULL, " +
             "symbol TEXT NOT NULL, " +
             "quantity INTEGER NOT NULL, " +
-            "price REAL NOT NULL, " +
+            "price INTEGER NOT NULL, " +
             "timestamp TEXT NOT NULL, " +
+            "relief TEXT, " +
+            "lot_id INTEGER, " +
             "FOREIGN KEY(portfolio_id) REFERENCES portfolios(id))"
         );
         
+        // Price alerts table
+        stmt.execute(
+            "CREATE TABLE IF NOT EXISTS price_alerts (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "user_id INTEGER NOT NULL, " +
+            "symbol TEXT NOT NULL, " +
+            "condition TEXT NOT NULL, " +
+            "threshold REAL NOT NULL, " +
+            "reference_price REAL NOT NULL, " +
+            "created_at TEXT NOT NULL, " +
+            "triggered_at TEXT, " +
+            "FOREIGN KEY(user_id) REFERENCES users(id))"
+        );
+        
+        // Conditional (stop / take-profit / trailing) orders waiting for their trigger
+        stmt.execute(
+            "CREATE TABLE IF NOT EXISTS conditional_orders (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "portfolio_id INTEGER NOT NULL, " +
+            "symbol TEXT NOT NULL, " +
+            "side TEXT NOT NULL, " +
+            "type TEXT NOT NULL, " +
+            "quantity INTEGER NOT NULL, " +
+            "trigger_price INTEGER NOT NULL, " +
+            "limit_price INTEGER NOT NULL, " +
+            "trail_amount INTEGER NOT NULL, " +
+            "anchor_price INTEGER NOT NULL, " +
+            "created_at TEXT NOT NULL, " +
+            "triggered_at TEXT, " +
+            "order_id INTEGER, " +
+            "FOREIGN KEY(portfolio_id) REFERENCES portfolios(id))"
+        );
+        
+        // Portfolio snapshots; state = PortfolioState binary form after last_transaction_id
+        stmt.execute(
+            "CREATE TABLE IF NOT EXISTS portfolio_snapshots (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "portfolio_id INTEGER NOT NULL, " +
+            "last_transaction_id INTEGER NOT NULL, " +
+            "as_of TEXT NOT NULL, " +
+            "state BLOB NOT NULL, " +
+            "FOREIGN KEY(portfolio_id) REFERENCES portfolios(id))"
+        );
+        // Watchlists; position keeps each list in the user's order
+        stmt.execute(
+            "CREATE TABLE IF NOT EXISTS watchlists (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "user_id INTEGER NOT NULL, " +
+            "name TEXT NOT NULL, " +
+            "UNIQUE(user_id, name), " +
+            "FOREIGN KEY(user_id) REFERENCES users(id))"
+        );
+        stmt.execute(
+            "CREATE TABLE IF NOT EXISTS watchlist_symbols (" +
+            "watchlist_id INTEGER NOT NULL, " +
+            "symbol TEXT NOT NULL, " +
+            "position INTEGER NOT NULL, " +
+            "PRIMARY KEY(watchlist_id, symbol), " +
+            "FOREIGN KEY(watchlist_id) REFERENCES watchlists(id))"
+        );
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_portfolio ON transactions(portfolio_id, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_snapshots_portfolio ON portfolio_snapshots(portfolio_id, last_transaction_id)");
+        
+        if (schemaVersion < 1 && existingDatabase) {
+            migrateToFixedPointMoney();
+        }
+        if (schemaVersion < 2 && existingDatabase) {
+            snapshotExistingPortfolios();
+        }
+        if (schemaVersion < 3 && existingDatabase) {
+            // Earlier sells have no relief recorded and replay as FIFO
+            stmt.execute("ALTER TABLE transactions ADD COLUMN relief TEXT");
+            stmt.execute("ALTER TABLE transactions ADD COLUMN lot_id INTEGER");
+        }
+        if (schemaVersion < SCHEMA_VERSION) {
+            stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+        }
+        
         stmt.close();
     }
     
+    /**
+     * Convert REAL dollar amounts from older databases to integer micro-units
+     */
+    private void migrateToFixedPointMoney() throws SQLException {
+        inTransaction(tx -> {
+            try (Statement stmt = tx.createStatement()) {
+                stmt.executeUpdate("UPDATE portfolios SET cash_balance = CAST(ROUND(cash_balance * " + Money.SCALE + ") AS INTEGER)");
+                stmt.executeUpdate("UPDATE holdings SET average_price = CAST(ROUND(average_price * " + Money.SCALE + ") AS INTEGER)");
+                stmt.executeUpdate("UPDATE transactions SET price = CAST(ROUND(price * " + Money.SCALE + ") AS INTEGER)");
+            }
+        });
+    }
+    
+    private interface TransactionWork {
+        void run(Connection tx) throws SQLException;
+    }
+    
+    /**
+     * Run statements as one transaction on a connection of their own. The
+     * shared connection stays in autocommit, so statements other threads
+     * issue meanwhile can never join (or be rolled back with) the
+     * transaction. Transactions are serialized on transactionLock.
+     */
+    private void inTransaction(TransactionWork work) throws SQLException {
+        synchronized (transactionLock) {
+            if (transactionConnection == null) {
+                transactionConnection = DriverManager.getConnection(url);
+                transactionConnection.setAutoCommit(false);
+            }
+            try {
+                work.run(transactionConnection);
+                transactionConnection.commit();
+            } catch (SQLException | RuntimeException e) {
+                transactionConnection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Older databases have an incomplete ledger (or none), so their current
+     * rows become the baseline snapshot that later events are replayed onto
+     */
+    private void snapshotExistingPortfolios() throws SQLException {
+        List<Integer> portfolioIds = new ArrayList<>();
+        List<PortfolioState> states = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, cash_balance FROM portfolios")) {
+            while (rs.next()) {
+                portfolioIds.add(rs.getInt("id"));
+                states.add(new PortfolioState(rs.getLong("cash_balance")));
+            }
+        }
+        
+        String asOf = LocalDateTime.now().toString();
+        for (int i = 0; i < portfolioIds.size(); i++) {
+            int portfolioId = portfolioIds.get(i);
+            PortfolioState state = states.get(i);
+            Portfolio rows = new Portfolio(portfolioId, state.getCashBalance());
+            loadHoldings(rows);
+            for (Portfolio.StockHolding holding : rows.getHoldings().values()) {
+                state.addPosition(holding.getSymbol(), holding.getQuantity(), holding.getCostBasis());
+            }
+            
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                     "SELECT COALESCE(MAX(id), 0) FROM transactions WHERE portfolio_id = ?")) {
+                pstmt.setInt(1, portfolioId);
+                ResultSet rs = pstmt.executeQuery();
+                state.setLastTransactionId(rs.next() ? rs.getLong(1) : 0);
+            }
+            saveSnapshot(portfolioId, state, asOf);
+        }
+    }
+    
     // User operations
     public int createUser(User user) throws SQLException {
         String sql = "INSERT INTO users (username, password, name, email) VALUES (?, ?, ?, ?)";
-        PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-        pstmt.setString(1, user.getUsername());
-        pstmt.setString(2, user.getPassword());
-        pstmt.setString(3, user.getName());
-        pstmt.setString(4, user.getEmail());
-        pstmt.executeUpdate();
-        
-        ResultSet rs = pstmt.getGeneratedKeys();
-        int userId = rs.next() ? rs.getInt(1) : -1;
-        pstmt.close();
-        
-        // Create portfolio for user
-        if (userId > 0) {
-            createPortfolio(userId, 10000.0);
-        }
-        
-        return userId;
+        return instrumented("createUser", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            pstmt.setString(1, user.getUsername());
+            pstmt.setString(2, user.getPassword());
+            pstmt.setString(3, user.getName());
+            pstmt.setString(4, user.getEmail());
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            int userId = rs.next() ? rs.getInt(1) : -1;
+            pstmt.close();
+            
+            // Create portfolio for user
+            if (userId > 0) {
+                insertPortfolio(userId, Money.ofWhole(10000));
+            }
+            
+            return userId;
+        });
+    }
+    
+    /**
+     * Replace the stored password hash, e.g. after a rehash at a higher cost
+     */
+    public void updatePassword(int userId, String passwordHash) throws SQLException {
+        String sql = "UPDATE users SET password = ? WHERE id = ?";
+        instrumented("updatePassword", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setString(1, passwordHash);
+            pstmt.setInt(2, userId);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
     }
     
     public User getUserByUsername(String username) throws SQLException {
         String sql = "SELECT * FROM users WHERE username = ?";
-        PreparedStatement pstmt = connection.prepareStatement(sql);
-        pstmt.setString(1, username);
-        ResultSet rs = pstmt.executeQuery();
-        
-        User user = null;
-        if (rs.next()) {
-            user = new User(
-                rs.getInt("id"),
-                rs.getString("username"),
-                rs.getString("password"),
-                rs.getString("name"),
-                rs.getString("email")
-            );
-        }
-        
-        pstmt.close();
-        return user;
+        return instrumented("getUserByUsername", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setString(1, username);
+            ResultSet rs = pstmt.executeQuery();
+            
+            User user = null;
+            if (rs.next()) {
+                user = new User(
+                    rs.getInt("id"),
+                    rs.getString("username"),
+                    rs.getString("password"),
+                    rs.getString("name"),
+                    rs.getString("email")
+                );
+            }
+            
+            pstmt.close();
+            return user;
+        });
     }
     
     // Portfolio operations
-    public int createPortfolio(int userId, double initialCash) throws SQLException {
-        String sql = "INSERT INTO portfolios (user_id, cash_balance) VALUES (?, ?)";
-        PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    public int createPortfolio(int userId, long initialCash) throws SQLException {
+        return instrumented("createPortfolio", INSERT_PORTFOLIO_SQL, () -> insertPortfolio(userId, initialCash));
+    }
+    
+    private int insertPortfolio(int userId, long initialCash) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(INSERT_PORTFOLIO_SQL, Statement.RETURN_GENERATED_KEYS);
         pstmt.setInt(1, userId);
-        pstmt.setDouble(2, initialCash);
+        pstmt.setLong(2, initialCash);
         pstmt.executeUpdate();
         
         ResultSet rs = pstmt.getGeneratedKeys();
         int portfolioId = rs.next() ? rs.getInt(1) : -1;
         pstmt.close();
         
+        // Initial snapshot: the opening cash, before any ledger event
+        if (portfolioId > 0) {
+            saveSnapshot(portfolioId, new PortfolioState(initialCash), LocalDateTime.now().toString());
+        }
+        
         return portfolioId;
     }
     
+    /**
+     * Load a portfolio from its latest snapshot plus the ledger events after it.
+     * The recent transaction history is attached for display.
+     */
     public Portfolio getPortfolioByUserId(int userId) throws SQLException {
+        return instrumented("getPortfolioByUserId", REPLAY_LABEL + " + recent transactions", () -> {
+            Portfolio portfolio = readPortfolio(userId);
+            if (portfolio != null) {
+                loadTransactions(portfolio);
+            }
+            return portfolio;
+        });
+    }
+    
+    /**
+     * The user's portfolio without its transaction history, or null if there is none
+     */
+    public Portfolio loadPortfolio(int userId) throws SQLException {
+        return instrumented("loadPortfolio", REPLAY_LABEL, () -> readPortfolio(userId));
+    }
+    
+    private Portfolio readPortfolio(int userId) throws SQLException {
         String sql = "SELECT * FROM portfolios WHERE user_id = ?";
         PreparedStatement pstmt = connection.prepareStatement(sql);
         pstmt.setInt(1, userId);
@@ -138,22 +377,236 @@ public class DatabaseManager {
         
         Portfolio portfolio = null;
         if (rs.next()) {
-            portfolio = new Portfolio(rs.getInt("id"), rs.getDouble("cash_balance"));
-            loadHoldings(portfolio);
-            loadTransactions(portfolio);
+            int portfolioId = rs.getInt("id");
+            PortfolioState state = replay(portfolioId, null, false);
+            if (state != null) {
+                portfolio = state.toPortfolio(portfolioId);
+            } else {
+                // No snapshot to start from - fall back to the stored rows
+                portfolio = new Portfolio(portfolioId, rs.getLong("cash_balance"));
+                loadHoldings(portfolio);
+            }
         }
         
         pstmt.close();
         return portfolio;
     }
     
-    public void updatePortfolioCash(int portfolioId, double cashBalance) throws SQLException {
+    public List<Integer> getPortfolioIds() throws SQLException {
+        String sql = "SELECT id FROM portfolios ORDER BY id";
+        return instrumented("getPortfolioIds", sql, () -> {
+            List<Integer> ids = new ArrayList<>();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            return ids;
+        });
+    }
+    
+    /**
+     * Every symbol currently held by any portfolio
+     */
+    public List<String> getHeldSymbols() throws SQLException {
+        String sql = "SELECT DISTINCT symbol FROM holdings WHERE quantity > 0 ORDER BY symbol";
+        return instrumented("getHeldSymbols", sql, () -> {
+            List<String> symbols = new ArrayList<>();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    symbols.add(rs.getString(1));
+                }
+            }
+            return symbols;
+        });
+    }
+    
+    /**
+     * Username of the portfolio's owner, or null if there is no such portfolio
+     */
+    public String getPortfolioOwner(int portfolioId) throws SQLException {
+        String sql = "SELECT u.username FROM portfolios p JOIN users u ON u.id = p.user_id WHERE p.id = ?";
+        return instrumented("getPortfolioOwner", sql, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setInt(1, portfolioId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getString(1) : null;
+                }
+            }
+        });
+    }
+    
+    /**
+     * Cash put into the portfolio: current cash plus everything bought less everything sold
+     */
+    public long getContributedCapital(int portfolioId) throws SQLException {
+        String sql = "SELECT p.cash_balance + COALESCE(SUM(CASE t.type WHEN 'BUY' THEN t.quantity * t.price " +
+                     "WHEN 'SELL' THEN -t.quantity * t.price ELSE 0 END), 0) " +
+                     "FROM portfolios p LEFT JOIN transactions t ON t.portfolio_id = p.id WHERE p.id = ? GROUP BY p.id";
+        return instrumented("getContributedCapital", sql, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setInt(1, portfolioId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0;
+                }
+            }
+        });
+    }
+    
+    public long getLastTransactionId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM transactions";
+        return instrumented("getLastTransactionId", sql, () -> {
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        });
+    }
+    
+    /**
+     * Portfolios with transactions after the given transaction id
+     */
+    public List<Integer> getPortfolioIdsChangedSince(long transactionId) throws SQLException {
+        String sql = "SELECT DISTINCT portfolio_id FROM transactions WHERE id > ?";
+        return instrumented("getPortfolioIdsChangedSince", sql, () -> {
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setLong(1, transactionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+    
+    /**
+     * Current state of a portfolio rebuilt from the ledger, or null if it has no snapshot
+     */
+    public PortfolioState getPortfolioState(int portfolioId) throws SQLException {
+        return instrumented("getPortfolioState", REPLAY_LABEL, () -> {
+            return replay(portfolioId, null, false);
+        });
+    }
+    
+    /**
+     * State of a portfolio as of the given time: the latest snapshot taken at
+     * or before it plus the events up to it. Null if the time is before the
+     * portfolio's first snapshot (its creation, or the ledger baseline for
+     * portfolios that predate it).
+     */
+    public PortfolioState getPortfolioStateAsOf(int portfolioId, LocalDateTime asOf) throws SQLException {
+        return instrumented("getPortfolioStateAsOf", REPLAY_LABEL, () -> {
+            return replay(portfolioId, asOf.toString(), false);
+        });
+    }
+    
+    /**
+     * True if the in-memory portfolio agrees with what its ledger says
+     */
+    public boolean verifyPortfolio(Portfolio portfolio) throws SQLException {
+        return instrumented("verifyPortfolio", REPLAY_LABEL, () -> {
+            PortfolioState state = replay(portfolio.getId(), null, false);
+            return state != null && state.matches(portfolio.getSnapshot());
+        });
+    }
+    
+    /**
+     * Restore the latest usable snapshot and apply the events after it.
+     * Timestamps are ISO-8601 strings, which sort in time order as text.
+     */
+    private PortfolioState replay(int portfolioId, String asOf, boolean snapshot) throws SQLException {
+        String snapshotSql = "SELECT state, as_of FROM portfolio_snapshots WHERE portfolio_id = ?" +
+                             (asOf != null ? " AND as_of <= ?" : "") +
+                             " ORDER BY last_transaction_id DESC, id DESC LIMIT 1";
+        PortfolioState state;
+        String stateAsOf;
+        try (PreparedStatement pstmt = connection.prepareStatement(snapshotSql)) {
+            pstmt.setInt(1, portfolioId);
+            if (asOf != null) {
+                pstmt.setString(2, asOf);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            state = PortfolioState.fromBytes(rs.getBytes("state"));
+            stateAsOf = rs.getString("as_of");
+        }
+        
+        String eventSql = "SELECT id, type, symbol, quantity, price, timestamp, relief, lot_id FROM transactions " +
+                          "WHERE portfolio_id = ? AND id > ?" +
+                          (asOf != null ? " AND timestamp <= ?" : "") + " ORDER BY id";
+        try (PreparedStatement pstmt = connection.prepareStatement(eventSql)) {
+            pstmt.setInt(1, portfolioId);
+            pstmt.setLong(2, state.getLastTransactionId());
+            if (asOf != null) {
+                pstmt.setString(3, asOf);
+            }
+            pstmt.setFetchSize(10_000);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                String relief = rs.getString(7);
+                state.apply(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getLong(5),
+                            relief != null ? LotLedger.Relief.valueOf(relief) : LotLedger.Relief.FIFO, rs.getInt(8));
+                String timestamp = rs.getString(6);
+                if (timestamp.compareTo(stateAsOf) > 0) {
+                    stateAsOf = timestamp;
+                }
+            }
+        }
+        
+        // A long replay means the snapshot is stale; store a fresh one
+        long applied = state.getEventsApplied();
+        if (asOf == null && (applied >= SNAPSHOT_INTERVAL || (snapshot && applied > 0))) {
+            saveSnapshot(portfolioId, state, stateAsOf);
+            eventsSinceSnapshot.remove(portfolioId);
+        }
+        return state;
+    }
+    
+    private void saveSnapshot(int portfolioId, PortfolioState state, String asOf) throws SQLException {
+        String sql = "INSERT INTO portfolio_snapshots (portfolio_id, last_transaction_id, as_of, state) " +
+                     "VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, portfolioId);
+            pstmt.setLong(2, state.getLastTransactionId());
+            pstmt.setString(3, asOf);
+            pstmt.setBytes(4, state.toBytes());
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Count new ledger events and snapshot the portfolio every SNAPSHOT_INTERVAL
+     * events, so a load never replays much more than that
+     */
+    private void recordEvents(int portfolioId, int count) {
+        int pending = eventsSinceSnapshot.merge(portfolioId, count, Integer::sum);
+        if (pending < SNAPSHOT_INTERVAL) {
+            return;
+        }
+        eventsSinceSnapshot.remove(portfolioId);
+        try {
+            replay(portfolioId, null, true);
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error saving portfolio snapshot: " + e.getMessage());
+        }
+    }
+    
+    public void updatePortfolioCash(int portfolioId, long cashBalance) throws SQLException {
         String sql = "UPDATE portfolios SET cash_balance = ? WHERE id = ?";
-        PreparedStatement pstmt = connection.prepareStatement(sql);
-        pstmt.setDouble(1, cashBalance);
-        pstmt.setInt(2, portfolioId);
-        pstmt.executeUpdate();
-        pstmt.close();
+        instrumented("updatePortfolioCash", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setLong(1, cashBalance);
+            pstmt.setInt(2, portfolioId);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
     }
     
     private void loadHoldings(Portfolio portfolio) throws SQLException {
@@ -166,7 +619,7 @@ public class DatabaseManager {
             portfolio.addHolding(
                 rs.getString("symbol"),
                 rs.getInt("quantity"),
-                rs.getDouble("average_price")
+                rs.getLong("average_price")
             );
         }
         
@@ -180,89 +633,560 @@ public class DatabaseManager {
         ResultSet rs = pstmt.executeQuery();
         
         while (rs.next()) {
-            Transaction transaction = new Transaction(
-                rs.getInt("id"),
-                rs.getString("type"),
-                rs.getString("symbol"),
-                rs.getInt("quantity"),
-                rs.getDouble("price"),
-                LocalDateTime.parse(rs.getString("timestamp"))
-            );
-            portfolio.addTransaction(transaction);
+            portfolio.addTransaction(readTransaction(rs));
         }
         
         pstmt.close();
     }
     
-    public void saveHolding(int portfolioId, String symbol, int quantity, double avgPrice) throws SQLException {
-        // Check if holding exists
-        String checkSql = "SELECT id, quantity, average_price FROM holdings WHERE portfolio_id = ? AND symbol = ?";
-        PreparedStatement checkStmt = connection.prepareStatement(checkSql);
-        checkStmt.setInt(1, portfolioId);
-        checkStmt.setString(2, symbol);
-        ResultSet rs = checkStmt.executeQuery();
-        
-        if (rs.next()) {
-            // Update existing holding
-            int existingQty = rs.getInt("quantity");
-            double existingAvg = rs.getDouble("average_price");
-            int newQty = existingQty + quantity;
-            double newAvg = ((existingQty * existingAvg) + (quantity * avgPrice)) / newQty;
+    /**
+     * Most recent transactions of the user's portfolio, newest first. Runs on
+     * its own connection so it can overlap a portfolio load on the main one.
+     */
+    public List<Transaction> getRecentTransactionsByUserId(int userId, int limit) throws SQLException {
+        String sql = "SELECT t.* FROM transactions t JOIN portfolios p ON p.id = t.portfolio_id " +
+                     "WHERE p.user_id = ? ORDER BY t.timestamp DESC LIMIT ?";
+        return instrumented("getRecentTransactionsByUserId", sql, () -> {
+            List<Transaction> transactions = new ArrayList<>();
+            synchronized (this) {
+                if (historyConnection == null) {
+                    historyConnection = DriverManager.getConnection(url);
+                }
+            }
+            try (PreparedStatement pstmt = historyConnection.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        transactions.add(readTransaction(rs));
+                    }
+                }
+            }
+            return transactions;
+        });
+    }
+    
+    private Transaction readTransaction(ResultSet rs) throws SQLException {
+        return new Transaction(
+            rs.getInt("id"),
+            rs.getString("type"),
+            rs.getString("symbol"),
+            rs.getInt("quantity"),
+            rs.getLong("price"),
+            LocalDateTime.parse(rs.getString("timestamp"))
+        );
+    }
+    
+    public void saveHolding(int portfolioId, String symbol, int quantity, long avgPrice) throws SQLException {
+        instrumented("saveHolding", "SELECT + UPDATE or INSERT holdings", () -> {
+            // Check if holding exists
+            String checkSql = "SELECT id, quantity, average_price FROM holdings WHERE portfolio_id = ? AND symbol = ?";
+            PreparedStatement checkStmt = connection.prepareStatement(checkSql);
+            checkStmt.setInt(1, portfolioId);
+            checkStmt.setString(2, symbol);
+            ResultSet rs = checkStmt.executeQuery();
             
-            String updateSql = "UPDATE holdings SET quantity = ?, average_price = ? WHERE portfolio_id = ? AND symbol = ?";
-            PreparedStatement updateStmt = connection.prepareStatement(updateSql);
-            updateStmt.setInt(1, newQty);
-            updateStmt.setDouble(2, newAvg);
-            updateStmt.setInt(3, portfolioId);
-            updateStmt.setString(4, symbol);
-            updateStmt.executeUpdate();
-            updateStmt.close();
-        } else {
-            // Insert new holding
-            String insertSql = "INSERT INTO holdings (portfolio_id, symbol, quantity, average_price) VALUES (?, ?, ?, ?)";
-            PreparedStatement insertStmt = connection.prepareStatement(insertSql);
-            insertStmt.setInt(1, portfolioId);
-            insertStmt.setString(2, symbol);
-            insertStmt.setInt(3, quantity);
-            insertStmt.setDouble(4, avgPrice);
-            insertStmt.executeUpdate();
-            insertStmt.close();
-        }
-        
-        checkStmt.close();
+            if (rs.next()) {
+                // Update existing holding
+                int existingQty = rs.getInt("quantity");
+                long existingAvg = rs.getLong("average_price");
+                int newQty = existingQty + quantity;
+                long newAvg = Money.perShare(Money.add(Money.times(existingAvg, existingQty),
+                                                       Money.times(avgPrice, quantity)), newQty);
+                
+                String updateSql = "UPDATE holdings SET quantity = ?, average_price = ? WHERE portfolio_id = ? AND symbol = ?";
+                PreparedStatement updateStmt = connection.prepareStatement(updateSql);
+                updateStmt.setInt(1, newQty);
+                updateStmt.setLong(2, newAvg);
+                updateStmt.setInt(3, portfolioId);
+                updateStmt.setString(4, symbol);
+                updateStmt.executeUpdate();
+                updateStmt.close();
+            } else {
+                // Insert new holding
+                String insertSql = "INSERT INTO holdings (portfolio_id, symbol, quantity, average_price) VALUES (?, ?, ?, ?)";
+                PreparedStatement insertStmt = connection.prepareStatement(insertSql);
+                insertStmt.setInt(1, portfolioId);
+                insertStmt.setString(2, symbol);
+                insertStmt.setInt(3, quantity);
+                insertStmt.setLong(4, avgPrice);
+                insertStmt.executeUpdate();
+                insertStmt.close();
+            }
+            
+            checkStmt.close();
+        });
     }
     
     public void updateHolding(int portfolioId, String symbol, int newQuantity) throws SQLException {
-        if (newQuantity <= 0) {
-            String deleteSql = "DELETE FROM holdings WHERE portfolio_id = ? AND symbol = ?";
-            PreparedStatement pstmt = connection.prepareStatement(deleteSql);
+        instrumented("updateHolding", newQuantity <= 0 ? "DELETE FROM holdings" : "UPDATE holdings", () -> {
+            if (newQuantity <= 0) {
+                String deleteSql = "DELETE FROM holdings WHERE portfolio_id = ? AND symbol = ?";
+                PreparedStatement pstmt = connection.prepareStatement(deleteSql);
+                pstmt.setInt(1, portfolioId);
+                pstmt.setString(2, symbol);
+                pstmt.executeUpdate();
+                pstmt.close();
+            } else {
+                String updateSql = "UPDATE holdings SET quantity = ? WHERE portfolio_id = ? AND symbol = ?";
+                PreparedStatement pstmt = connection.prepareStatement(updateSql);
+                pstmt.setInt(1, newQuantity);
+                pstmt.setInt(2, portfolioId);
+                pstmt.setString(3, symbol);
+                pstmt.executeUpdate();
+                pstmt.close();
+            }
+        });
+    }
+    
+    public void saveTransaction(int portfolioId, Transaction transaction) throws SQLException {
+        String sql = "INSERT INTO transactions (portfolio_id, type, symbol, quantity, price, timestamp, relief, lot_id) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        instrumented("saveTransaction", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
             pstmt.setInt(1, portfolioId);
-            pstmt.setString(2, symbol);
-            pstmt.executeUpdate();
-            pstmt.close();
-        } else {
-            String updateSql = "UPDATE holdings SET quantity = ? WHERE portfolio_id = ? AND symbol = ?";
-            PreparedStatement pstmt = connection.prepareStatement(updateSql);
-            pstmt.setInt(1, newQuantity);
-            pstmt.setInt(2, portfolioId);
-            pstmt.setString(3, symbol);
+            bindTransaction(pstmt, transaction);
             pstmt.executeUpdate();
             pstmt.close();
-        }
+            
+            // The shared connection is always in autocommit, so the event is already durable
+            recordEvents(portfolioId, 1);
+        });
     }
     
-    public void saveTransaction(int portfolioId, Transaction transaction) throws SQLException {
-        String sql = "INSERT INTO transactions (portfolio_id, type, symbol, quantity, price, timestamp) " +
-                     "VALUES (?, ?, ?, ?, ?, ?)";
-        PreparedStatement pstmt = connection.prepareStatement(sql);
-        pstmt.setInt(1, portfolioId);
+    // Parameters 2-8 of a transactions insert
+    private void bindTransaction(PreparedStatement pstmt, Transaction transaction) throws SQLException {
         pstmt.setString(2, transaction.getType());
         pstmt.setString(3, transaction.getSymbol());
         pstmt.setInt(4, transaction.getQuantity());
-        pstmt.setDouble(5, transaction.getPrice());
+        pstmt.setLong(5, transaction.getPrice());
         pstmt.setString(6, transaction.getTimestamp().toString());
-        pstmt.executeUpdate();
-        pstmt.close();
+        if (transaction.getRelief() != null) {
+            pstmt.setString(7, transaction.getRelief().name());
+        } else {
+            pstmt.setNull(7, Types.VARCHAR);
+        }
+        if (transaction.getLotId() > 0) {
+            pstmt.setInt(8, transaction.getLotId());
+        } else {
+            pstmt.setNull(8, Types.INTEGER);
+        }
+    }
+    
+    /**
+     * Persist the outcome of a basket in one transaction: the new cash balance,
+     * the final state of every touched holding (quantity 0 = closed) and the
+     * new transactions. Holdings and transactions are written as JDBC batches,
+     * so the whole basket costs a handful of round trips instead of three
+     * statements per order. Nothing is written if any statement fails.
+     */
+    public void saveBasket(int portfolioId, long cashBalance, Collection<Portfolio.StockHolding> holdings,
+                           List<Transaction> transactions) throws SQLException {
+        instrumented("saveBasket", "UPDATE portfolios + holdings and transactions batches", () -> {
+            inTransaction(tx -> {
+                try (PreparedStatement cashStmt = tx.prepareStatement(
+                         "UPDATE portfolios SET cash_balance = ? WHERE id = ?");
+                     PreparedStatement deleteStmt = tx.prepareStatement(
+                         "DELETE FROM holdings WHERE portfolio_id = ? AND symbol = ?");
+                     PreparedStatement updateStmt = tx.prepareStatement(
+                         "UPDATE holdings SET quantity = ?, average_price = ? WHERE portfolio_id = ? AND symbol = ?");
+                     PreparedStatement insertStmt = tx.prepareStatement(
+                         "INSERT INTO holdings (portfolio_id, symbol, quantity, average_price) VALUES (?, ?, ?, ?)");
+                     PreparedStatement transactionStmt = tx.prepareStatement(
+                         "INSERT INTO transactions (portfolio_id, type, symbol, quantity, price, timestamp, relief, lot_id) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                    
+                    cashStmt.setLong(1, cashBalance);
+                    cashStmt.setInt(2, portfolioId);
+                    cashStmt.executeUpdate();
+                    
+                    // Closed positions are deleted, the rest updated in place
+                    List<Portfolio.StockHolding> open = new ArrayList<>();
+                    for (Portfolio.StockHolding holding : holdings) {
+                        if (holding.getQuantity() <= 0) {
+                            deleteStmt.setInt(1, portfolioId);
+                            deleteStmt.setString(2, holding.getSymbol());
+                            deleteStmt.addBatch();
+                        } else {
+                            updateStmt.setInt(1, holding.getQuantity());
+                            updateStmt.setLong(2, holding.getAveragePrice());
+                            updateStmt.setInt(3, portfolioId);
+                            updateStmt.setString(4, holding.getSymbol());
+                            updateStmt.addBatch();
+                            open.add(holding);
+                        }
+                    }
+                    deleteStmt.executeBatch();
+                    int[] updated = updateStmt.executeBatch();
+                    
+                    // Positions that had no row yet are inserted
+                    boolean inserts = false;
+                    for (int i = 0; i < open.size(); i++) {
+                        if (updated[i] == 0) {
+                            Portfolio.StockHolding holding = open.get(i);
+                            insertStmt.setInt(1, portfolioId);
+                            insertStmt.setString(2, holding.getSymbol());
+                            insertStmt.setInt(3, holding.getQuantity());
+                            insertStmt.setLong(4, holding.getAveragePrice());
+                            insertStmt.addBatch();
+                            inserts = true;
+                        }
+                    }
+                    if (inserts) {
+                        insertStmt.executeBatch();
+                    }
+                    
+                    for (Transaction transaction : transactions) {
+                        transactionStmt.setInt(1, portfolioId);
+                        bindTransaction(transactionStmt, transaction);
+                        transactionStmt.addBatch();
+                    }
+                    transactionStmt.executeBatch();
+                }
+            });
+            recordEvents(portfolioId, transactions.size());
+        });
+    }
+    
+    // Price alert operations
+    public int saveAlert(PriceAlert alert) throws SQLException {
+        String sql = "INSERT INTO price_alerts (user_id, symbol, condition, threshold, reference_price, created_at) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        return instrumented("saveAlert", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            pstmt.setInt(1, alert.getUserId());
+            pstmt.setString(2, alert.getSymbol());
+            pstmt.setString(3, alert.getCondition().name());
+            pstmt.setDouble(4, alert.getThreshold());
+            pstmt.setDouble(5, alert.getReferencePrice());
+            pstmt.setString(6, alert.getCreatedAt().toString());
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            int alertId = rs.next() ? rs.getInt(1) : -1;
+            pstmt.close();
+            
+            return alertId;
+        });
+    }
+    
+    public void markAlertTriggered(int alertId, LocalDateTime triggeredAt) throws SQLException {
+        String sql = "UPDATE price_alerts SET triggered_at = ? WHERE id = ?";
+        instrumented("markAlertTriggered", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setString(1, triggeredAt.toString());
+            pstmt.setInt(2, alertId);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
+    }
+    
+    public void deleteAlert(int alertId) throws SQLException {
+        String sql = "DELETE FROM price_alerts WHERE id = ?";
+        instrumented("deleteAlert", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, alertId);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
+    }
+    
+    public List<PriceAlert> getActiveAlerts(int userId) throws SQLException {
+        String sql = "SELECT * FROM price_alerts WHERE user_id = ? AND triggered_at IS NULL";
+        return instrumented("getActiveAlerts", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            List<PriceAlert> alerts = new ArrayList<>();
+            while (rs.next()) {
+                alerts.add(readAlert(rs));
+            }
+            
+            pstmt.close();
+            return alerts;
+        });
+    }
+    
+    public List<PriceAlert> getAlertsByUserId(int userId) throws SQLException {
+        String sql = "SELECT * FROM price_alerts WHERE user_id = ? ORDER BY created_at DESC";
+        return instrumented("getAlertsByUserId", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            List<PriceAlert> alerts = new ArrayList<>();
+            while (rs.next()) {
+                alerts.add(readAlert(rs));
+            }
+            
+            pstmt.close();
+            return alerts;
+        });
+    }
+    
+    private PriceAlert readAlert(ResultSet rs) throws SQLException {
+        String triggeredAt = rs.getString("triggered_at");
+        return new PriceAlert(
+            rs.getInt("id"),
+            rs.getInt("user_id"),
+            rs.getString("symbol"),
+            PriceAlert.Condition.valueOf(rs.getString("condition")),
+            rs.getDouble("threshold"),
+            rs.getDouble("reference_price"),
+            LocalDateTime.parse(rs.getString("created_at")),
+            triggeredAt != null ? LocalDateTime.parse(triggeredAt) : null
+        );
+    }
+    
+    // Conditional order operations
+    public int saveConditionalOrder(ConditionalOrder order) throws SQLException {
+        String sql = "INSERT INTO conditional_orders (portfolio_id, symbol, side, type, quantity, trigger_price, " +
+                     "limit_price, trail_amount, anchor_price, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        return instrumented("saveConditionalOrder", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            pstmt.setInt(1, order.getPortfolioId());
+            pstmt.setString(2, order.getSymbol());
+            pstmt.setString(3, order.getSide().name());
+            pstmt.setString(4, order.getType().name());
+            pstmt.setInt(5, order.getQuantity());
+            pstmt.setLong(6, order.getType() == ConditionalOrder.Type.TRAILING_STOP ? 0 : order.getTriggerPrice());
+            pstmt.setLong(7, order.getLimitPrice());
+            pstmt.setLong(8, order.getTrailAmount());
+            pstmt.setLong(9, order.getAnchorPrice());
+            pstmt.setString(10, order.getCreatedAt().toString());
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            int orderId = rs.next() ? rs.getInt(1) : -1;
+            pstmt.close();
+            
+            return orderId;
+        });
+    }
+    
+    /**
+     * Mark an untriggered order as triggered, atomically
+     * @return false if it was already triggered, e.g. by another session of the same user
+     */
+    public boolean claimConditionalOrder(int conditionalId, LocalDateTime triggeredAt) throws SQLException {
+        String sql = "UPDATE conditional_orders SET triggered_at = ? WHERE id = ? AND triggered_at IS NULL";
+        return instrumented("claimConditionalOrder", sql, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, triggeredAt.toString());
+                pstmt.setInt(2, conditionalId);
+                return pstmt.executeUpdate() == 1;
+            }
+        });
+    }
+    
+    public void markConditionalOrderTriggered(int conditionalId, LocalDateTime triggeredAt, long orderId)
+            throws SQLException {
+        String sql = "UPDATE conditional_orders SET triggered_at = ?, order_id = ? WHERE id = ?";
+        instrumented("markConditionalOrderTriggered", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setString(1, triggeredAt.toString());
+            pstmt.setLong(2, orderId);
+            pstmt.setInt(3, conditionalId);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
+    }
+    
+    public void deleteConditionalOrder(int conditionalId) throws SQLException {
+        String sql = "DELETE FROM conditional_orders WHERE id = ?";
+        instrumented("deleteConditionalOrder", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, conditionalId);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
+    }
+    
+    /**
+     * Record how far trailing stops have ratcheted, in one transaction
+     */
+    public void updateTrailingAnchors(Map<Integer, Long> anchors) throws SQLException {
+        String sql = "UPDATE conditional_orders SET anchor_price = ? WHERE id = ?";
+        instrumented("updateTrailingAnchors", sql, () -> {
+            if (anchors.isEmpty()) {
+                return;
+            }
+            inTransaction(tx -> {
+                try (PreparedStatement pstmt = tx.prepareStatement(sql)) {
+                    for (Map.Entry<Integer, Long> entry : anchors.entrySet()) {
+                        pstmt.setLong(1, entry.getValue());
+                        pstmt.setInt(2, entry.getKey());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            });
+        });
+    }
+    
+    public List<ConditionalOrder> getActiveConditionalOrders(int portfolioId) throws SQLException {
+        String sql = "SELECT * FROM conditional_orders WHERE portfolio_id = ? AND triggered_at IS NULL";
+        return instrumented("getActiveConditionalOrders", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, portfolioId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            List<ConditionalOrder> orders = new ArrayList<>();
+            while (rs.next()) {
+                String triggeredAt = rs.getString("triggered_at");
+                orders.add(new ConditionalOrder(
+                    rs.getInt("id"),
+                    rs.getInt("portfolio_id"),
+                    rs.getString("symbol"),
+                    Order.Side.valueOf(rs.getString("side")),
+                    ConditionalOrder.Type.valueOf(rs.getString("type")),
+                    rs.getInt("quantity"),
+                    rs.getLong("trigger_price"),
+                    rs.getLong("limit_price"),
+                    rs.getLong("trail_amount"),
+                    rs.getLong("anchor_price"),
+                    LocalDateTime.parse(rs.getString("created_at")),
+                    triggeredAt != null ? LocalDateTime.parse(triggeredAt) : null,
+                    rs.getLong("order_id")
+                ));
+            }
+            
+            pstmt.close();
+            return orders;
+        });
+    }
+    
+    // Watchlist operations
+    public int createWatchlist(int userId, String name) throws SQLException {
+        String sql = "INSERT INTO watchlists (user_id, name) VALUES (?, ?)";
+        return instrumented("createWatchlist", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, name);
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            int watchlistId = rs.next() ? rs.getInt(1) : -1;
+            pstmt.close();
+            
+            return watchlistId;
+        });
+    }
+    
+    public void deleteWatchlist(int watchlistId) throws SQLException {
+        instrumented("deleteWatchlist", "DELETE FROM watchlist_symbols + watchlists", () -> {
+            inTransaction(tx -> {
+                try (PreparedStatement symbolsStmt = tx.prepareStatement(
+                         "DELETE FROM watchlist_symbols WHERE watchlist_id = ?");
+                     PreparedStatement listStmt = tx.prepareStatement(
+                         "DELETE FROM watchlists WHERE id = ?")) {
+                    symbolsStmt.setInt(1, watchlistId);
+                    symbolsStmt.executeUpdate();
+                    listStmt.setInt(1, watchlistId);
+                    listStmt.executeUpdate();
+                }
+            });
+        });
+    }
+    
+    /**
+     * Append symbols to a watchlist in one transaction; ones already on it are skipped
+     */
+    public void addWatchlistSymbols(int watchlistId, List<String> symbols) throws SQLException {
+        String sql = "INSERT OR IGNORE INTO watchlist_symbols (watchlist_id, symbol, position) " +
+                     "VALUES (?, ?, (SELECT COALESCE(MAX(position), -1) + 1 FROM watchlist_symbols WHERE watchlist_id = ?))";
+        instrumented("addWatchlistSymbols", sql, () -> {
+            inTransaction(tx -> {
+                try (PreparedStatement pstmt = tx.prepareStatement(sql)) {
+                    for (String symbol : symbols) {
+                        pstmt.setInt(1, watchlistId);
+                        pstmt.setString(2, symbol);
+                        pstmt.setInt(3, watchlistId);
+                        pstmt.executeUpdate(); // not batched - each position depends on the previous row
+                    }
+                }
+            });
+        });
+    }
+    
+    public void removeWatchlistSymbol(int watchlistId, String symbol) throws SQLException {
+        String sql = "DELETE FROM watchlist_symbols WHERE watchlist_id = ? AND symbol = ?";
+        instrumented("removeWatchlistSymbol", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, watchlistId);
+            pstmt.setString(2, symbol);
+            pstmt.executeUpdate();
+            pstmt.close();
+        });
+    }
+    
+    /**
+     * All of a user's watchlists with their symbols, in one query
+     */
+    public List<Watchlist> getWatchlistsByUserId(int userId) throws SQLException {
+        String sql = "SELECT w.id, w.name, s.symbol FROM watchlists w " +
+                     "LEFT JOIN watchlist_symbols s ON s.watchlist_id = w.id " +
+                     "WHERE w.user_id = ? ORDER BY w.id, s.position";
+        return instrumented("getWatchlistsByUserId", sql, () -> {
+            PreparedStatement pstmt = connection.prepareStatement(sql);
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            List<Watchlist> watchlists = new ArrayList<>();
+            Watchlist current = null;
+            while (rs.next()) {
+                int watchlistId = rs.getInt("id");
+                if (current == null || current.getId() != watchlistId) {
+                    current = new Watchlist(watchlistId, userId, rs.getString("name"));
+                    watchlists.add(current);
+                }
+                String symbol = rs.getString("symbol");
+                if (symbol != null) {
+                    current.getSymbols().add(symbol);
+                }
+            }
+            
+            pstmt.close();
+            return watchlists;
+        });
+    }
+    
+    private interface SqlOperation<T> {
+        T run() throws SQLException;
+    }
+    
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+    
+    /**
+     * Run one public operation, recording its latency and failures in Metrics
+     * as "db.<operation>" and emitting a SqlStatementEvent labelled with its
+     * SQL. Operations never call one another, so events do not nest and each
+     * statement is counted once.
+     */
+    private static <T> T instrumented(String operation, String sql, SqlOperation<T> body) throws SQLException {
+        LatencyHistogram histogram = Metrics.histogram("db." + operation);
+        long start = System.nanoTime();
+        SqlStatementEvent event = SqlStatementEvent.start(operation, sql);
+        try {
+            return body.run();
+        } catch (SQLException | RuntimeException e) {
+            histogram.recordError();
+            event.success = false;
+            throw e;
+        } finally {
+            histogram.recordSince(start);
+            event.commit();
+        }
+    }
+    
+    private static void instrumented(String operation, String sql, SqlAction body) throws SQLException {
+        instrumented(operation, sql, () -> {
+            body.run();
+            return null;
+        });
     }
     
     public void close() {
@@ -270,6 +1194,16 @@ public class DatabaseManager {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
             }
+            synchronized (this) {
+                if (historyConnection != null && !historyConnection.isClosed()) {
+                    historyConnection.close();
+                }
+            }
+            synchronized (transactionLock) {
+                if (transactionConnection != null && !transactionConnection.isClosed()) {
+                    transactionConnection.close();
+                }
+            }
         } catch (SQLException e) {
             System.err.println("Error closing database: " + e.getMessage());
         }
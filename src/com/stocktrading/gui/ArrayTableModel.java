@@ -0,0 +1,120 @@
+package com.stocktrading.gui;
+
+import java.util.Arrays;
+import java.util.Objects;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model whose subclasses keep each column in its own
+ * primitive array.
+ *
+ * An update writes new values through the set helpers, which fire a cell
+ * event only when the value actually changed, then calls setRowCount, which
+ * fires a single insert or delete for rows added or dropped at the end.
+ * Rows past the current count are not yet visible, so filling them fires
+ * nothing. The JTable keeps its selection and repaints only the dirty cells;
+ * formatting is left to the renderers, so only visible cells are formatted.
+ */
+abstract class ArrayTableModel extends AbstractTableModel {
+    private final String[] columns;
+    private int rowCount;
+    
+    protected ArrayTableModel(String... columns) {
+        this.columns = columns;
+    }
+    
+    /**
+     * Make every column array hold at least rows entries
+     */
+    protected abstract void ensureCapacity(int rows);
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+    
+    /**
+     * Publish the new row count after the rows have been written
+     */
+    protected void setRowCount(int rows) {
+        int old = rowCount;
+        rowCount = rows;
+        if (rows > old) {
+            fireTableRowsInserted(old, rows - 1);
+        } else if (rows < old) {
+            fireTableRowsDeleted(rows, old - 1);
+        }
+    }
+    
+    protected void set(long[] values, int row, int column, long value) {
+        if (values[row] != value) {
+            values[row] = value;
+            changed(row, column);
+        }
+    }
+    
+    protected void set(int[] values, int row, int column, int value) {
+        if (values[row] != value) {
+            values[row] = value;
+            changed(row, column);
+        }
+    }
+    
+    protected void set(double[] values, int row, int column, double value) {
+        if (Double.compare(values[row], value) != 0) {
+            values[row] = value;
+            changed(row, column);
+        }
+    }
+    
+    protected <T> void set(T[] values, int row, int column, T value) {
+        if (!Objects.equals(values[row], value)) {
+            values[row] = value;
+            changed(row, column);
+        }
+    }
+    
+    private void changed(int row, int column) {
+        if (row < rowCount) {
+            fireTableCellUpdated(row, column);
+        }
+    }
+    
+    /**
+     * Capacity for at least rows entries, doubling to keep appends amortized O(1)
+     */
+    protected static int grow(int length, int rows) {
+        return rows <= length ? length : Math.max(rows, length * 2);
+    }
+    
+    protected static long[] resize(long[] values, int rows) {
+        return rows <= values.length ? values : Arrays.copyOf(values, grow(values.length, rows));
+    }
+    
+    protected static int[] resize(int[] values, int rows) {
+        return rows <= values.length ? values : Arrays.copyOf(values, grow(values.length, rows));
+    }
+    
+    protected static double[] resize(double[] values, int rows) {
+        return rows <= values.length ? values : Arrays.copyOf(values, grow(values.length, rows));
+    }
+    
+    protected static <T> T[] resize(T[] values, int rows) {
+        return rows <= values.length ? values : Arrays.copyOf(values, grow(values.length, rows));
+    }
+}
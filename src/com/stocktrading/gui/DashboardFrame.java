@@ -14,21 +14,43 @@ import java.util.List;
  * Main dashboard GUI with portfolio and trading features
  */
 public class DashboardFrame extends JFrame {
+    private static final java.io.File LEADERBOARD_CHECKPOINT = new java.io.File("leaderboard.dat");
+    private static final java.io.File SYMBOL_INDEX_FILE = new java.io.File("symbols.idx");
+    private static final int SEARCH_RESULTS = 10;
+    private static final int LEADERBOARD_SIZE = 25;
+    private static final int UI_REFRESH_HZ = 20;
+    private static final int CHART_HISTORY_DAYS = 20 * 252; // 20 years of trading days
+    
     private User currentUser;
     private AuthenticationService authService;
     private StockAPIClient apiClient;
-    private TrendPredictionService predictionService;
+    private Lazy<TrendPredictionService> predictionService;
     private PortfolioManagementService portfolioService;
+    private PriceAlertService alertService;
+    private ConditionalOrderService conditionalService;
+    private LeaderboardService leaderboardService;
+    private WatchlistService watchlistService;
     private DatabaseManager dbManager;
+    private UpdateScheduler uiUpdates;
+    private javax.swing.Timer statusTimer;
     
     private JLabel cashBalanceLabel;
     private JLabel portfolioValueLabel;
     private JTable stockTable;
     private JTable holdingsTable;
     private JTable transactionTable;
-    private DefaultTableModel stockTableModel;
-    private DefaultTableModel holdingsTableModel;
-    private DefaultTableModel transactionTableModel;
+    private StockTableModel stockTableModel;
+    private HoldingsTableModel holdingsTableModel;
+    private TransactionTableModel transactionTableModel;
+    private LeaderboardTableModel leaderboardTableModel;
+    private JLabel rankLabel;
+    private JLabel statusLabel;
+    private JComboBox<Watchlist> watchlistBox;
+    private boolean fillingWatchlists; // suppresses selection events while the box is rebuilt
+    private volatile SymbolIndex symbolIndex; // null until loaded
+    private JTextField searchField;
+    private JPopupMenu searchPopup;
+    private List<Listing> searchResults = Collections.emptyList();
     
     private Map<String, Stock> availableStocks;
     
@@ -36,14 +58,89 @@ public class DashboardFrame extends JFrame {
         this.currentUser = user;
         this.authService = authService;
         this.apiClient = new StockAPIClient();
-        this.predictionService = new TrendPredictionService();
-        this.dbManager = new DatabaseManager();
+        this.predictionService = new Lazy<>(TrendPredictionService::new);
+        // Same connection the login used - already open, tables already checked
+        this.dbManager = authService.getDatabaseManager();
         this.portfolioService = new PortfolioManagementService(dbManager);
+        this.alertService = new PriceAlertService(dbManager);
+        this.conditionalService = new ConditionalOrderService(dbManager, portfolioService);
+        this.leaderboardService = new LeaderboardService(dbManager, portfolioService.getValuationEngine());
+        this.watchlistService = new WatchlistService(dbManager, apiClient);
         this.availableStocks = new HashMap<>();
+        // Producer callbacks go through here instead of one invokeLater per tick
+        this.uiUpdates = new UpdateScheduler(UI_REFRESH_HZ);
+        
+        // Only this user's alerts are loaded, so every one that fires is theirs
+        alertService.loadActiveAlerts(currentUser.getId());
+        alertService.addListener((alert, price) ->
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                "Alert triggered: " + alert + "\nCurrent price: $" + String.format("%.2f", price),
+                "Price Alert", JOptionPane.INFORMATION_MESSAGE)));
+        
+        conditionalService.addListener((conditional, order) -> {
+            if (isMine(conditional.getPortfolioId())) {
+                uiUpdates.schedule("portfolio", this::updatePortfolioDisplay);
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(this,
+                        "Order triggered: " + conditional + "\n" + (order != null ? order : "Rejected - check your balance"),
+                        "Conditional Order", JOptionPane.INFORMATION_MESSAGE);
+                });
+            }
+        });
+        
+        // Live NAV pushed by the valuation engine on every price update - latest value per frame
+        portfolioService.getValuationEngine().addListener((portfolioId, nav, unrealizedPnl) -> {
+            if (isMine(portfolioId)) {
+                uiUpdates.schedule("nav", () -> showPortfolioValue(nav, unrealizedPnl));
+            }
+            uiUpdates.schedule("leaderboard", this::updateLeaderboard);
+        });
         
         initializeUI();
-        loadStockData();
-        updatePortfolioDisplay();
+        loadSymbolIndex();
+        loadWatchlists();
+        loadPortfolio();
+        loadLeaderboard();
+    }
+    
+    private void loadPortfolio() {
+        // Login returns before these loads finish - fill in each part as it arrives
+        cashBalanceLabel.setText("Cash: loading...");
+        portfolioValueLabel.setText("Total Value: loading...");
+        currentUser.getPortfolioLoad().whenComplete((portfolio, error) -> SwingUtilities.invokeLater(() -> {
+            if (portfolio != null) {
+                // Only this user's orders fire in this session
+                conditionalService.register(portfolio);
+                conditionalService.loadActiveOrders(portfolio.getId());
+                updatePortfolioDisplay();
+                updateLeaderboard();
+            } else {
+                cashBalanceLabel.setText("Cash: unavailable");
+                portfolioValueLabel.setText("");
+                JOptionPane.showMessageDialog(this,
+                    "Error loading portfolio" + (error != null ? ": " + error.getMessage() : ""),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+        currentUser.getHistoryLoad().whenComplete((history, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                updatePortfolioDisplay();
+            }
+        }));
+    }
+    
+    private boolean isMine(int portfolioId) {
+        Portfolio portfolio = currentUser.getPortfolio();
+        return portfolio != null && portfolio.getId() == portfolioId;
+    }
+    
+    private boolean isPortfolioLoaded() {
+        if (currentUser.getPortfolio() == null) {
+            JOptionPane.showMessageDialog(this, "Portfolio is still loading",
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        return true;
     }
     
     private void initializeUI() {
@@ -61,9 +158,18 @@ public class DashboardFrame extends JFrame {
         tabbedPane.addTab("Market", createMarketPanel());
         tabbedPane.addTab("Portfolio", createPortfolioPanel());
         tabbedPane.addTab("Transactions", createTransactionsPanel());
+        tabbedPane.addTab("Leaderboard", createLeaderboardPanel());
+        
+        // Status bar with UI update counters
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
+        statusTimer = new javax.swing.Timer(1000, e -> statusLabel.setText(uiUpdates.getStats() +
+            "; quotes fetched: " + watchlistService.getFetchedCount()));
+        statusTimer.start();
         
         add(topPanel, BorderLayout.NORTH);
         add(tabbedPane, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
     }
     
     private JPanel createTopPanel() {
@@ -89,9 +195,15 @@ public class DashboardFrame extends JFrame {
         refreshButton.addActionListener(e -> {
             loadStockData();
             updatePortfolioDisplay();
+            updateLeaderboard();
         });
         
         logoutButton.addActionListener(e -> {
+            statusTimer.stop();
+            uiUpdates.stop();
+            conditionalService.checkpoint();
+            conditionalService.shutdown();
+            leaderboardService.saveCheckpoint(LEADERBOARD_CHECKPOINT);
             authService.logout(currentUser);
             new LoginFrame(authService).setVisible(true);
             dispose();
@@ -114,33 +226,60 @@ public class DashboardFrame extends JFrame {
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         // Stock table
-        String[] columns = {"Symbol", "Name", "Price", "Open", "High", "Low", "Prediction"};
-        stockTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        stockTable = new JTable(stockTableModel);
+        stockTableModel = new StockTableModel();
+        stockTable = createTable(stockTableModel);
         stockTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         stockTable.getTableHeader().setReorderingAllowed(false);
         
         JScrollPane scrollPane = new JScrollPane(stockTable);
         
+        // Watchlist bar
+        JPanel watchlistPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        watchlistBox = new JComboBox<>();
+        watchlistBox.addActionListener(e -> {
+            Watchlist selected = (Watchlist) watchlistBox.getSelectedItem();
+            if (!fillingWatchlists && selected != null && selected != watchlistService.getActive()) {
+                loadQuotes(() -> watchlistService.select(selected));
+            }
+        });
+        JButton newListButton = new JButton("New List");
+        JButton addSymbolsButton = new JButton("Add Symbols");
+        JButton removeSymbolButton = new JButton("Remove Symbol");
+        JButton deleteListButton = new JButton("Delete List");
+        newListButton.addActionListener(e -> handleNewWatchlist());
+        addSymbolsButton.addActionListener(e -> handleAddSymbols());
+        removeSymbolButton.addActionListener(e -> handleRemoveSymbol());
+        deleteListButton.addActionListener(e -> handleDeleteWatchlist());
+        watchlistPanel.add(new JLabel("Watchlist:"));
+        watchlistPanel.add(watchlistBox);
+        watchlistPanel.add(newListButton);
+        watchlistPanel.add(addSymbolsButton);
+        watchlistPanel.add(removeSymbolButton);
+        watchlistPanel.add(deleteListButton);
+        watchlistPanel.add(new JLabel("  Search:"));
+        watchlistPanel.add(createSearchField());
+        
         // Action panel
         JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         JButton buyButton = new JButton("Buy Stock");
         JButton viewChartButton = new JButton("View Prediction Details");
+        JButton alertButton = new JButton("Set Price Alert");
+        JButton conditionalButton = new JButton("Stop / Take Profit");
         
         buyButton.setBackground(new Color(46, 204, 113));
         buyButton.setForeground(Color.WHITE);
         
         buyButton.addActionListener(e -> handleBuyStock());
         viewChartButton.addActionListener(e -> showPredictionDetails());
+        alertButton.addActionListener(e -> handleSetAlert());
+        conditionalButton.addActionListener(e -> handleConditionalOrder());
         
         actionPanel.add(buyButton);
         actionPanel.add(viewChartButton);
+        actionPanel.add(alertButton);
+        actionPanel.add(conditionalButton);
         
+        panel.add(watchlistPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(actionPanel, BorderLayout.SOUTH);
         
@@ -152,14 +291,8 @@ public class DashboardFrame extends JFrame {
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         // Holdings table
-        String[] columns = {"Symbol", "Quantity", "Avg Price", "Current Value"};
-        holdingsTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        holdingsTable = new JTable(holdingsTableModel);
+        holdingsTableModel = new HoldingsTableModel();
+        holdingsTable = createTable(holdingsTableModel);
         JScrollPane scrollPane = new JScrollPane(holdingsTable);
         
         // Action panel
@@ -182,14 +315,8 @@ public class DashboardFrame extends JFrame {
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         // Transaction table
-        String[] columns = {"Type", "Symbol", "Quantity", "Price", "Total", "Date"};
-        transactionTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        transactionTable = new JTable(transactionTableModel);
+        transactionTableModel = new TransactionTableModel();
+        transactionTable = createTable(transactionTableModel);
         JScrollPane scrollPane = new JScrollPane(transactionTable);
         
         panel.add(scrollPane, BorderLayout.CENTER);
@@ -197,101 +324,346 @@ public class DashboardFrame extends JFrame {
         return panel;
     }
     
-    private void loadStockData() {
-        // Load popular stocks using threads
+    private JTable createTable(TableModel model) {
+        JTable table = new JTable(model);
+        // Prices are stored raw and only formatted for the cells being painted
+        PriceRenderer priceRenderer = new PriceRenderer();
+        table.setDefaultRenderer(Double.class, priceRenderer);
+        table.setDefaultRenderer(Long.class, priceRenderer);
+        return table;
+    }
+    
+    private JPanel createLeaderboardPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        
+        rankLabel = new JLabel("Loading leaderboard...");
+        rankLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        rankLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        
+        leaderboardTableModel = new LeaderboardTableModel();
+        JTable leaderboardTable = createTable(leaderboardTableModel);
+        leaderboardTable.setDefaultRenderer(Double.class, new ReturnRenderer());
+        leaderboardTable.getTableHeader().setReorderingAllowed(false);
+        
+        panel.add(rankLabel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(leaderboardTable), BorderLayout.CENTER);
+        
+        return panel;
+    }
+    
+    private void loadLeaderboard() {
+        // First load replays every portfolio without a checkpoint - keep it off the EDT
+        SwingWorker<Integer, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() {
+                return leaderboardService.load(LEADERBOARD_CHECKPOINT);
+            }
+            
+            @Override
+            protected void done() {
+                updateLeaderboard();
+            }
+        };
+        worker.execute();
+    }
+    
+    private void updateLeaderboard() {
+        // Only cells whose entry moved are repainted; the selection is kept
+        leaderboardTableModel.update(leaderboardService.getTop(LEADERBOARD_SIZE));
+        
+        Portfolio portfolio = currentUser.getPortfolio();
+        LeaderboardEntry mine = portfolio != null ? leaderboardService.getEntry(portfolio.getId()) : null;
+        rankLabel.setText(mine != null
+            ? "Your rank: #" + mine.getRank() + " of " + leaderboardService.size() +
+              String.format(" (%+.2f%%)", mine.getReturn() * 100)
+            : "Not ranked yet");
+    }
+    
+    private void loadWatchlists() {
         SwingWorker<Map<String, Stock>, Void> worker = new SwingWorker<>() {
             @Override
             protected Map<String, Stock> doInBackground() {
-                List<String> symbols = Arrays.asList("AAPL", "GOOGL", "MSFT", "AMZN", 
-                                                     "TSLA", "META", "NVDA", "JPM", "V", "WMT");
-                return apiClient.fetchMultipleStocks(symbols);
+                List<Watchlist> watchlists = watchlistService.load(currentUser.getId());
+                return predict(watchlistService.select(watchlists.get(0)));
+            }
+            
+            @Override
+            protected void done() {
+                fillWatchlistBox();
+                showQuotes(this);
+            }
+        };
+        worker.execute();
+    }
+    
+    private void loadSymbolIndex() {
+        // Reads the prebuilt index file; builds and writes it only when the listings changed
+        SwingWorker<SymbolIndex, Void> worker = new SwingWorker<>() {
+            @Override
+            protected SymbolIndex doInBackground() {
+                return SymbolIndex.open(SYMBOL_INDEX_FILE, StockAPIClient.LISTINGS_FILE, apiClient::getListings);
             }
             
             @Override
             protected void done() {
                 try {
-                    availableStocks = get();
-                    updateStockTable();
+                    symbolIndex = get();
+                    updateSearchResults();
                 } catch (Exception e) {
-                    JOptionPane.showMessageDialog(DashboardFrame.this, 
-                        "Error loading stock data: " + e.getMessage(), 
-                        "Error", JOptionPane.ERROR_MESSAGE);
+                    System.err.println("Error loading symbol index: " + e.getMessage());
                 }
             }
         };
         worker.execute();
     }
     
-    private void updateStockTable() {
-        stockTableModel.setRowCount(0);
-        
-        for (Stock stock : availableStocks.values()) {
-            // Calculate prediction
-            String prediction = predictionService.predictTrend(stock.getHistoricalPrices());
-            stock.setPrediction(prediction);
+    private JTextField createSearchField() {
+        searchField = new JTextField(16);
+        searchField.setToolTipText("Symbol or company name - Enter adds the top match to the watchlist");
+        searchPopup = new JPopupMenu();
+        searchPopup.setFocusable(false); // typing stays in the field
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                updateSearchResults();
+            }
+            
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                updateSearchResults();
+            }
             
-            stockTableModel.addRow(new Object[]{
-                stock.getSymbol(),
-                stock.getName(),
-                String.format("$%.2f", stock.getCurrentPrice()),
-                String.format("$%.2f", stock.getOpenPrice()),
-                String.format("$%.2f", stock.getHighPrice()),
-                String.format("$%.2f", stock.getLowPrice()),
-                prediction
-            });
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+            }
+        });
+        searchField.addActionListener(e -> {
+            if (!searchResults.isEmpty()) {
+                selectSearchResult(searchResults.get(0));
+            }
+        });
+        searchField.addFocusListener(new java.awt.event.FocusAdapter() {
+            @Override
+            public void focusLost(java.awt.event.FocusEvent e) {
+                searchPopup.setVisible(false);
+            }
+        });
+        return searchField;
+    }
+    
+    private void updateSearchResults() {
+        // Runs on every keystroke, on the EDT - the index answers well under a millisecond
+        SymbolIndex index = symbolIndex;
+        String query = searchField.getText();
+        searchResults = index != null ? index.search(query, SEARCH_RESULTS) : Collections.emptyList();
+        searchPopup.setVisible(false);
+        searchPopup.removeAll();
+        if (searchResults.isEmpty() || !searchField.isFocusOwner()) {
+            return;
+        }
+        for (Listing listing : searchResults) {
+            JMenuItem item = new JMenuItem(listing.toString());
+            item.addActionListener(e -> selectSearchResult(listing));
+            searchPopup.add(item);
+        }
+        searchPopup.show(searchField, 0, searchField.getHeight());
+    }
+    
+    private void selectSearchResult(Listing listing) {
+        searchField.setText("");
+        Watchlist watchlist = watchlistService.getActive();
+        if (watchlist != null && !watchlist.contains(listing.getSymbol())) {
+            addToWatchlist(watchlist, Collections.singletonList(listing.getSymbol()));
+        }
+    }
+    
+    private void fillWatchlistBox() {
+        fillingWatchlists = true;
+        watchlistBox.removeAllItems();
+        for (Watchlist watchlist : watchlistService.getWatchlists()) {
+            watchlistBox.addItem(watchlist);
+        }
+        watchlistBox.setSelectedItem(watchlistService.getActive());
+        fillingWatchlists = false;
+    }
+    
+    private void loadStockData() {
+        // Poll only the symbols on the visible watchlist
+        loadQuotes(watchlistService::refresh);
+    }
+    
+    private void loadQuotes(java.util.function.Supplier<Map<String, Stock>> fetch) {
+        // Quotes are fetched using threads, off the EDT
+        SwingWorker<Map<String, Stock>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Map<String, Stock> doInBackground() {
+                return predict(fetch.get());
+            }
+            
+            @Override
+            protected void done() {
+                watchlistBox.repaint(); // symbol counts
+                showQuotes(this);
+            }
+        };
+        worker.execute();
+    }
+    
+    // Off the EDT: trend predictions for quotes that have none yet, i.e. the freshly fetched ones
+    private Map<String, Stock> predict(Map<String, Stock> stocks) {
+        for (Stock stock : stocks.values()) {
+            if (stock.getPrediction() == null) {
+                stock.setPrediction(predictionService.get().predictTrend(stock.getHistoricalPrices()));
+            }
+        }
+        return stocks;
+    }
+    
+    private void showQuotes(SwingWorker<Map<String, Stock>, Void> worker) {
+        try {
+            availableStocks = worker.get();
+            updateStockTable();
+            // Cached quotes shown again may be old; only new ones move prices
+            for (Stock stock : watchlistService.takeFreshQuotes().values()) {
+                portfolioService.updateMarketPrice(stock.getSymbol(), stock.getCurrentPrice());
+                alertService.onPrice(stock.getSymbol(), stock.getCurrentPrice());
+                conditionalService.onPrice(stock.getSymbol(), stock.getCurrentPrice());
+            }
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(DashboardFrame.this, 
+                "Error loading stock data: " + e.getMessage(), 
+                "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void handleNewWatchlist() {
+        String name = JOptionPane.showInputDialog(this, "Name of the new watchlist:", "New Watchlist",
+                                                  JOptionPane.QUESTION_MESSAGE);
+        if (name == null || name.trim().isEmpty()) {
+            return;
+        }
+        Watchlist watchlist = watchlistService.createList(currentUser.getId(), name.trim());
+        if (watchlist == null) {
+            JOptionPane.showMessageDialog(this, "Failed to create watchlist. The name may already be in use.", 
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        watchlistBox.addItem(watchlist);
+        watchlistBox.setSelectedItem(watchlist); // switches to the empty list
+    }
+    
+    private void handleAddSymbols() {
+        Watchlist watchlist = watchlistService.getActive();
+        if (watchlist == null) {
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this, "Symbols to add (comma or space separated):",
+                                                   "Add to " + watchlist.getName(), JOptionPane.QUESTION_MESSAGE);
+        if (input == null || input.trim().isEmpty()) {
+            return;
+        }
+        addToWatchlist(watchlist, Arrays.asList(input.trim().split("[,\\s]+")));
+    }
+    
+    private void addToWatchlist(Watchlist watchlist, List<String> symbols) {
+        loadQuotes(() -> {
+            if (!watchlistService.addSymbols(watchlist, symbols)) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Failed to save watchlist",
+                                                                               "Error", JOptionPane.ERROR_MESSAGE));
+            }
+            return watchlistService.getVisibleQuotes();
+        });
+    }
+    
+    private void handleRemoveSymbol() {
+        Watchlist watchlist = watchlistService.getActive();
+        int selectedRow = stockTable.getSelectedRow();
+        if (watchlist == null || selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a stock", 
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        // No fetch needed - the remaining quotes are cached
+        if (watchlistService.removeSymbol(watchlist, stockTableModel.getSymbol(selectedRow))) {
+            availableStocks = watchlistService.getVisibleQuotes();
+            updateStockTable();
+            watchlistBox.repaint();
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to save watchlist", 
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void handleDeleteWatchlist() {
+        Watchlist watchlist = watchlistService.getActive();
+        if (watchlist == null) {
+            return;
+        }
+        if (watchlistService.getWatchlists().size() == 1) {
+            JOptionPane.showMessageDialog(this, "Cannot delete your only watchlist", 
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int result = JOptionPane.showConfirmDialog(this, "Delete watchlist " + watchlist.getName() + "?",
+                                                   "Delete Watchlist", JOptionPane.YES_NO_OPTION);
+        if (result == JOptionPane.YES_OPTION && watchlistService.deleteList(watchlist)) {
+            fillingWatchlists = true;
+            watchlistBox.removeItem(watchlist);
+            fillingWatchlists = false;
+            watchlistBox.setSelectedItem(watchlistService.getWatchlists().get(0)); // loads its quotes
         }
     }
     
+    private void updateStockTable() {
+        // Only cells whose value moved are repainted; the selection is kept
+        stockTableModel.update(availableStocks.values());
+    }
+    
     private void updatePortfolioDisplay() {
-        Portfolio portfolio = currentUser.getPortfolio();
+        if (currentUser.getPortfolio() == null) {
+            return; // still loading
+        }
+        // One consistent, lock-free view even while fills are being applied
+        Portfolio.Snapshot portfolio = currentUser.getPortfolio().getSnapshot();
         
         // Update cash balance
-        cashBalanceLabel.setText(String.format("Cash: $%.2f", portfolio.getCashBalance()));
-        
-        // Calculate total portfolio value
-        Map<String, Double> currentPrices = new HashMap<>();
-        for (String symbol : portfolio.getHoldings().keySet()) {
-            Stock stock = availableStocks.get(symbol);
-            if (stock != null) {
-                currentPrices.put(symbol, stock.getCurrentPrice());
-            } else {
-                Portfolio.StockHolding holding = portfolio.getHoldings().get(symbol);
-                currentPrices.put(symbol, holding.getAveragePrice());
-            }
-        }
+        cashBalanceLabel.setText("Cash: $" + Money.format(portfolio.getCashBalance()));
         
-        double totalValue = portfolio.getTotalValue(currentPrices);
-        portfolioValueLabel.setText(String.format("Total Value: $%.2f", totalValue));
+        // Live NAV from the valuation engine - holdings without a quote are marked at cost
+        showPortfolioValue(portfolioService.getPortfolioValue(currentUser.getPortfolio()),
+                           portfolioService.getUnrealizedPnl(currentUser.getPortfolio()));
         
-        // Update holdings table
-        holdingsTableModel.setRowCount(0);
-        for (Portfolio.StockHolding holding : portfolio.getHoldings().values()) {
-            double currentPrice = currentPrices.getOrDefault(holding.getSymbol(), holding.getAveragePrice());
-            double currentValue = holding.getQuantity() * currentPrice;
-            
-            holdingsTableModel.addRow(new Object[]{
-                holding.getSymbol(),
-                holding.getQuantity(),
-                String.format("$%.2f", holding.getAveragePrice()),
-                String.format("$%.2f", currentValue)
-            });
+        // Update holdings and transactions tables in place
+        holdingsTableModel.update(portfolio.getHoldings().values(), symbol -> currentPrice(portfolio, symbol));
+        transactionTableModel.update(portfolio.getTransactionHistory());
+    }
+    
+    private void showPortfolioValue(long totalValue, long unrealizedPnl) {
+        Portfolio portfolio = currentUser.getPortfolio();
+        if (portfolio == null) {
+            return; // ticks before the portfolio has loaded
         }
-        
-        // Update transactions table
-        transactionTableModel.setRowCount(0);
-        for (Transaction transaction : portfolio.getTransactionHistory()) {
-            transactionTableModel.addRow(new Object[]{
-                transaction.getType(),
-                transaction.getSymbol(),
-                transaction.getQuantity(),
-                String.format("$%.2f", transaction.getPrice()),
-                String.format("$%.2f", transaction.getTotalAmount()),
-                transaction.getTimestamp().toString()
-            });
+        long realizedPnl = portfolio.getSnapshot().getRealizedPnl();
+        portfolioValueLabel.setText("Total Value: $" + Money.format(totalValue) +
+                                    " (P&L: $" + Money.format(unrealizedPnl) +
+                                    ", realized: $" + Money.format(realizedPnl) + ")");
+    }
+    
+    private long currentPrice(Portfolio.Snapshot portfolio, String symbol) {
+        Stock stock = availableStocks.get(symbol);
+        if (stock != null) {
+            return Money.of(stock.getCurrentPrice());
         }
+        Portfolio.StockHolding holding = portfolio.getHoldings().get(symbol);
+        return holding != null ? holding.getAveragePrice() : 0;
     }
     
     private void handleBuyStock() {
+        if (!isPortfolioLoaded()) {
+            return;
+        }
         int selectedRow = stockTable.getSelectedRow();
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a stock to buy", 
@@ -299,7 +671,7 @@ public class DashboardFrame extends JFrame {
             return;
         }
         
-        String symbol = (String) stockTableModel.getValueAt(selectedRow, 0);
+        String symbol = stockTableModel.getSymbol(selectedRow);
         Stock stock = availableStocks.get(symbol);
         
         String quantityStr = JOptionPane.showInputDialog(this, 
@@ -334,6 +706,9 @@ public class DashboardFrame extends JFrame {
     }
     
     private void handleSellStock() {
+        if (!isPortfolioLoaded()) {
+            return;
+        }
         int selectedRow = holdingsTable.getSelectedRow();
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a stock to sell", 
@@ -341,8 +716,8 @@ public class DashboardFrame extends JFrame {
             return;
         }
         
-        String symbol = (String) holdingsTableModel.getValueAt(selectedRow, 0);
-        int currentQuantity = (Integer) holdingsTableModel.getValueAt(selectedRow, 1);
+        String symbol = holdingsTableModel.getSymbol(selectedRow);
+        int currentQuantity = holdingsTableModel.getQuantity(selectedRow);
         
         String quantityStr = JOptionPane.showInputDialog(this, 
             "Enter quantity to sell (Max: " + currentQuantity + "):", "Sell Stock", 
@@ -373,6 +748,130 @@ public class DashboardFrame extends JFrame {
         }
     }
     
+    private void handleSetAlert() {
+        int selectedRow = stockTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a stock", 
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        String symbol = stockTableModel.getSymbol(selectedRow);
+        Stock stock = availableStocks.get(symbol);
+        
+        JComboBox<PriceAlert.Condition> conditionBox = new JComboBox<>(PriceAlert.Condition.values());
+        JTextField valueField = new JTextField(10);
+        JPanel alertPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        alertPanel.add(new JLabel("Condition:"));
+        alertPanel.add(conditionBox);
+        alertPanel.add(new JLabel("Price / Percent:"));
+        alertPanel.add(valueField);
+        
+        int result = JOptionPane.showConfirmDialog(this, alertPanel, 
+            "Price Alert for " + symbol + " @ $" + String.format("%.2f", stock.getCurrentPrice()), 
+            JOptionPane.OK_CANCEL_OPTION);
+        
+        if (result == JOptionPane.OK_OPTION) {
+            try {
+                double value = Double.parseDouble(valueField.getText().trim());
+                if (value <= 0) {
+                    throw new NumberFormatException();
+                }
+                
+                PriceAlert.Condition condition = (PriceAlert.Condition) conditionBox.getSelectedItem();
+                double reference = stock.getOpenPrice() > 0 ? stock.getOpenPrice() : stock.getCurrentPrice();
+                PriceAlert alert = new PriceAlert(currentUser.getId(), symbol, condition, value, reference);
+                
+                if (alertService.addAlert(alert)) {
+                    JOptionPane.showMessageDialog(this, "Alert set: " + alert, 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to save alert", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Invalid value", 
+                                            "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
+    private void handleConditionalOrder() {
+        if (!isPortfolioLoaded()) {
+            return;
+        }
+        int selectedRow = stockTable.getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a stock", 
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        String symbol = stockTableModel.getSymbol(selectedRow);
+        Stock stock = availableStocks.get(symbol);
+        
+        JComboBox<Order.Side> sideBox = new JComboBox<>(Order.Side.values());
+        sideBox.setSelectedItem(Order.Side.SELL);
+        JComboBox<ConditionalOrder.Type> typeBox = new JComboBox<>(ConditionalOrder.Type.values());
+        JTextField quantityField = new JTextField(10);
+        JTextField triggerField = new JTextField(10);
+        JTextField limitField = new JTextField(10);
+        JPanel orderPanel = new JPanel(new GridLayout(5, 2, 5, 5));
+        orderPanel.add(new JLabel("Side:"));
+        orderPanel.add(sideBox);
+        orderPanel.add(new JLabel("Type:"));
+        orderPanel.add(typeBox);
+        orderPanel.add(new JLabel("Quantity:"));
+        orderPanel.add(quantityField);
+        orderPanel.add(new JLabel("Trigger price / Trail $:"));
+        orderPanel.add(triggerField);
+        orderPanel.add(new JLabel("Limit price (stop-limit):"));
+        orderPanel.add(limitField);
+        
+        int result = JOptionPane.showConfirmDialog(this, orderPanel, 
+            "Conditional Order for " + symbol + " @ $" + String.format("%.2f", stock.getCurrentPrice()), 
+            JOptionPane.OK_CANCEL_OPTION);
+        
+        if (result == JOptionPane.OK_OPTION) {
+            try {
+                int quantity = Integer.parseInt(quantityField.getText().trim());
+                long trigger = Money.of(Double.parseDouble(triggerField.getText().trim()));
+                if (quantity <= 0 || trigger <= 0) {
+                    throw new NumberFormatException();
+                }
+                
+                int portfolioId = currentUser.getPortfolio().getId();
+                Order.Side side = (Order.Side) sideBox.getSelectedItem();
+                ConditionalOrder order;
+                switch ((ConditionalOrder.Type) typeBox.getSelectedItem()) {
+                    case STOP_LIMIT:
+                        long limit = Money.of(Double.parseDouble(limitField.getText().trim()));
+                        order = ConditionalOrder.stopLimit(portfolioId, symbol, side, quantity, trigger, limit);
+                        break;
+                    case TAKE_PROFIT:
+                        order = ConditionalOrder.takeProfit(portfolioId, symbol, side, quantity, trigger);
+                        break;
+                    case TRAILING_STOP:
+                        order = ConditionalOrder.trailingStop(portfolioId, symbol, side, quantity, trigger);
+                        break;
+                    default:
+                        order = ConditionalOrder.stop(portfolioId, symbol, side, quantity, trigger);
+                }
+                
+                if (conditionalService.addOrder(order)) {
+                    JOptionPane.showMessageDialog(this, "Order placed: " + order, 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to place order - check the trigger against the current price", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Invalid value", 
+                                            "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     private void showPredictionDetails() {
         int selectedRow = stockTable.getSelectedRow();
         if (selectedRow == -1) {
@@ -381,11 +880,11 @@ public class DashboardFrame extends JFrame {
             return;
         }
         
-        String symbol = (String) stockTableModel.getValueAt(selectedRow, 0);
+        String symbol = stockTableModel.getSymbol(selectedRow);
         Stock stock = availableStocks.get(symbol);
         
-        double confidence = predictionService.getConfidenceScore(stock.getHistoricalPrices());
-        double predictedPrice = predictionService.predictNextPrice(stock);
+        double confidence = predictionService.get().getConfidenceScore(stock.getHistoricalPrices());
+        double predictedPrice = predictionService.get().predictNextPrice(stock);
         
         String message = String.format(
             "Stock: %s\n" +
@@ -402,7 +901,41 @@ public class DashboardFrame extends JFrame {
             stock.getHistoricalPrices().size()
         );
         
-        JOptionPane.showMessageDialog(this, message, 
-            "Prediction Details for " + symbol, JOptionPane.INFORMATION_MESSAGE);
+        // Long history for the chart, fetched off the EDT
+        SwingWorker<double[], Void> worker = new SwingWorker<>() {
+            @Override
+            protected double[] doInBackground() {
+                List<Double> history = apiClient.fetchHistoricalPrices(symbol, CHART_HISTORY_DAYS);
+                double[] prices = new double[history.size()];
+                for (int i = 0; i < prices.length; i++) {
+                    prices[i] = history.get(i);
+                }
+                return prices;
+            }
+            
+            @Override
+            protected void done() {
+                double[] prices;
+                try {
+                    prices = get();
+                } catch (Exception e) {
+                    prices = new double[0];
+                }
+                
+                JPanel detailsPanel = new JPanel(new BorderLayout(0, 10));
+                JTextArea text = new JTextArea(message);
+                text.setEditable(false);
+                text.setOpaque(false);
+                detailsPanel.add(text, BorderLayout.NORTH);
+                detailsPanel.add(new PriceChartPanel(prices, "day"), BorderLayout.CENTER);
+                
+                JDialog dialog = new JOptionPane(detailsPanel, JOptionPane.INFORMATION_MESSAGE)
+                    .createDialog(DashboardFrame.this, "Prediction Details for " + symbol);
+                dialog.setResizable(true);
+                dialog.setVisible(true);
+                dialog.dispose();
+            }
+        };
+        worker.execute();
     }
 }
@@ -0,0 +1,73 @@
+package com.stocktrading.gui;
+
+import com.stocktrading.models.Money;
+import com.stocktrading.models.Portfolio;
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * Portfolio holdings table, in the snapshot's holding order
+ */
+class HoldingsTableModel extends ArrayTableModel {
+    private static final int SYMBOL = 0, QUANTITY = 1, AVERAGE_PRICE = 2, VALUE = 3;
+    
+    private String[] symbols = new String[0];
+    private int[] quantities = new int[0];
+    private long[] averagePrices = new long[0];
+    private long[] values = new long[0];
+    
+    HoldingsTableModel() {
+        super("Symbol", "Quantity", "Avg Price", "Current Value");
+    }
+    
+    /**
+     * Replace the rows with the given holdings, valued at the given prices
+     */
+    void update(Collection<Portfolio.StockHolding> holdings, ToLongFunction<String> price) {
+        ensureCapacity(holdings.size());
+        int row = 0;
+        for (Portfolio.StockHolding holding : holdings) {
+            set(symbols, row, SYMBOL, holding.getSymbol());
+            set(quantities, row, QUANTITY, holding.getQuantity());
+            set(averagePrices, row, AVERAGE_PRICE, holding.getAveragePrice());
+            set(values, row, VALUE, Money.times(price.applyAsLong(holding.getSymbol()), holding.getQuantity()));
+            row++;
+        }
+        setRowCount(row);
+    }
+    
+    String getSymbol(int row) {
+        return symbols[row];
+    }
+    
+    int getQuantity(int row) {
+        return quantities[row];
+    }
+    
+    @Override
+    protected void ensureCapacity(int rows) {
+        symbols = resize(symbols, rows);
+        quantities = resize(quantities, rows);
+        averagePrices = resize(averagePrices, rows);
+        values = resize(values, rows);
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case SYMBOL: return String.class;
+            case QUANTITY: return Integer.class;
+            default: return Long.class;
+        }
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case SYMBOL: return symbols[row];
+            case QUANTITY: return quantities[row];
+            case AVERAGE_PRICE: return averagePrices[row];
+            default: return values[row];
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.stocktrading.gui;
+
+import com.stocktrading.models.LeaderboardEntry;
+import java.util.List;
+
+/**
+ * Leaderboard table: the top entries, best first. A NAV change usually
+ * moves one row's return and value, so only those cells are repainted.
+ */
+class LeaderboardTableModel extends ArrayTableModel {
+    private static final int RANK = 0, USER = 1, RETURN = 2, VALUE = 3;
+    
+    private int[] ranks = new int[0];
+    private String[] usernames = new String[0];
+    private double[] returns = new double[0];
+    private long[] values = new long[0];
+    
+    LeaderboardTableModel() {
+        super("Rank", "User", "Return", "Value");
+    }
+    
+    void update(List<LeaderboardEntry> entries) {
+        ensureCapacity(entries.size());
+        int row = 0;
+        for (LeaderboardEntry entry : entries) {
+            set(ranks, row, RANK, entry.getRank());
+            set(usernames, row, USER, entry.getUsername());
+            set(returns, row, RETURN, entry.getReturn());
+            set(values, row, VALUE, entry.getNetAssetValue());
+            row++;
+        }
+        setRowCount(row);
+    }
+    
+    @Override
+    protected void ensureCapacity(int rows) {
+        ranks = resize(ranks, rows);
+        usernames = resize(usernames, rows);
+        returns = resize(returns, rows);
+        values = resize(values, rows);
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case RANK: return Integer.class;
+            case USER: return String.class;
+            case RETURN: return Double.class;
+            default: return Long.class;
+        }
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case RANK: return ranks[row];
+            case USER: return usernames[row];
+            case RETURN: return returns[row];
+            default: return values[row];
+        }
+    }
+}
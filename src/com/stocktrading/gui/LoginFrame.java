@@ -2,21 +2,29 @@ package com.stocktrading.gui;
 
 import com.stocktrading.models.User;
 import com.stocktrading.services.AuthenticationService;
+import com.stocktrading.services.Lazy;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Login screen using Swing GUI
+ * The authentication service may still be starting when the frame shows;
+ * login and registration wait for it off the EDT.
  */
 public class LoginFrame extends JFrame {
-    private AuthenticationService authService;
+    private Lazy<AuthenticationService> authService;
     private JTextField usernameField;
     private JPasswordField passwordField;
     private JButton loginButton;
     private JButton registerButton;
     
     public LoginFrame(AuthenticationService authService) {
+        this(Lazy.of(authService));
+    }
+    
+    public LoginFrame(Lazy<AuthenticationService> authService) {
         this.authService = authService;
         initializeUI();
     }
@@ -100,18 +108,23 @@ public class LoginFrame extends JFrame {
             return;
         }
         
-        User user = authService.login(username, password);
-        
-        if (user != null) {
-            // Open main dashboard
-            SwingUtilities.invokeLater(() -> {
-                new DashboardFrame(user, authService).setVisible(true);
+        // Password hashing is deliberately slow - verify off the EDT, once the service is up
+        loginButton.setEnabled(false);
+        CompletableFuture<User> login = authService.getAsync().thenCompose(auth -> auth.loginAsync(username, password));
+        login.whenComplete((user, error) -> SwingUtilities.invokeLater(() -> {
+            loginButton.setEnabled(true);
+            if (user != null) {
+                // Open main dashboard
+                new DashboardFrame(user, authService.get()).setVisible(true);
                 dispose();
-            });
-        } else {
-            JOptionPane.showMessageDialog(this, "Invalid username or password", 
-                                        "Login Failed", JOptionPane.ERROR_MESSAGE);
-        }
+            } else if (error != null) {
+                JOptionPane.showMessageDialog(this, "Login is busy or unavailable, please try again", 
+                                            "Login Failed", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Invalid username or password", 
+                                            "Login Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
     }
     
     private void handleRegister() {
@@ -152,17 +165,35 @@ public class LoginFrame extends JFrame {
                 return;
             }
             
-            boolean success = authService.register(username, password, email);
-            
-            if (success) {
-                JOptionPane.showMessageDialog(this, 
-                    "Registration successful! You can now login.", 
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                    "Registration failed. Username may already exist.", 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            registerButton.setEnabled(false);
+            SwingWorker<Boolean, Void> worker = new SwingWorker<>() {
+                @Override
+                protected Boolean doInBackground() {
+                    return authService.get().register(username, password, email);
+                }
+                
+                @Override
+                protected void done() {
+                    registerButton.setEnabled(true);
+                    boolean success;
+                    try {
+                        success = get();
+                    } catch (Exception e) {
+                        success = false;
+                    }
+                    
+                    if (success) {
+                        JOptionPane.showMessageDialog(LoginFrame.this, 
+                            "Registration successful! You can now login.", 
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(LoginFrame.this, 
+                            "Registration failed. Username may already exist.", 
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            };
+            worker.execute();
         }
     }
 }
@@ -0,0 +1,150 @@
+package com.stocktrading.gui;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import javax.swing.JPanel;
+
+/**
+ * Line chart of a price series with mouse-wheel zoom, drag to pan and
+ * double-click to reset. Only the points SeriesDownsampler picks for the
+ * visible range at the plot's pixel width are drawn.
+ */
+public class PriceChartPanel extends JPanel {
+    private static final double ZOOM_STEP = 1.25;
+    private static final int MIN_SPAN = 10;
+    private static final int LEFT = 60, RIGHT = 15, TOP = 15, BOTTOM = 30;
+    private static final Color LINE = new Color(41, 128, 185);
+    private static final Color GRID = new Color(230, 230, 230);
+    
+    private final SeriesDownsampler series;
+    private final String unit; // x axis label, e.g. "day"
+    private double viewFrom;
+    private double viewTo;
+    private int dragX;
+    private double dragFrom;
+    private long lastRenderNanos;
+    
+    public PriceChartPanel(double[] prices, String unit) {
+        this.series = new SeriesDownsampler(prices);
+        this.unit = unit;
+        resetView();
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(700, 350));
+        
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragFrom = viewFrom;
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                double perPixel = (viewTo - viewFrom) / plotWidth();
+                moveTo(dragFrom - (e.getX() - dragX) * perPixel);
+            }
+            
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                // Zoom around the point under the cursor
+                double span = viewTo - viewFrom;
+                double anchor = viewFrom + span * Math.max(0, Math.min(1, (e.getX() - LEFT) / (double) plotWidth()));
+                double factor = Math.pow(ZOOM_STEP, e.getPreciseWheelRotation());
+                double newSpan = Math.max(MIN_SPAN, Math.min(series.size(), span * factor));
+                viewTo = viewFrom + newSpan; // keep the span when moveTo clamps
+                moveTo(anchor - (anchor - viewFrom) * newSpan / span);
+            }
+            
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    resetView();
+                    repaint();
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+    
+    private void resetView() {
+        viewFrom = 0;
+        viewTo = series.size();
+    }
+    
+    // Shift the view to start at from, keeping its span inside the series
+    private void moveTo(double from) {
+        double span = viewTo - viewFrom;
+        viewFrom = Math.max(0, Math.min(series.size() - span, from));
+        viewTo = viewFrom + span;
+        repaint();
+    }
+    
+    private int plotWidth() {
+        return Math.max(1, getWidth() - LEFT - RIGHT);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (series.size() < 2) {
+            g.drawString("No price history", LEFT, TOP + 20);
+            return;
+        }
+        long start = System.nanoTime();
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int width = plotWidth();
+        int height = Math.max(1, getHeight() - TOP - BOTTOM);
+        
+        int from = (int) Math.floor(viewFrom);
+        int to = (int) Math.ceil(viewTo);
+        int[] points = series.view(from, to, width);
+        
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (int index : points) {
+            min = Math.min(min, series.getValue(index));
+            max = Math.max(max, series.getValue(index));
+        }
+        if (max - min < 1e-9) {
+            max = min + 1;
+        }
+        
+        // Grid and axis labels
+        g2.setFont(g2.getFont().deriveFont(11f));
+        for (int i = 0; i <= 4; i++) {
+            int y = TOP + height * i / 4;
+            g2.setColor(GRID);
+            g2.drawLine(LEFT, y, LEFT + width, y);
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString(String.format("$%.2f", max - (max - min) * i / 4), 4, y + 4);
+        }
+        g2.drawString(unit + " " + from, LEFT, TOP + height + 18);
+        String end = unit + " " + (to - 1);
+        g2.drawString(end, LEFT + width - g2.getFontMetrics().stringWidth(end), TOP + height + 18);
+        
+        // Price line
+        int[] xs = new int[points.length];
+        int[] ys = new int[points.length];
+        double xScale = width / Math.max(1e-9, viewTo - viewFrom);
+        for (int i = 0; i < points.length; i++) {
+            xs[i] = LEFT + (int) Math.round((points[i] - viewFrom) * xScale);
+            ys[i] = TOP + (int) Math.round((max - series.getValue(points[i])) / (max - min) * height);
+        }
+        Shape clip = g2.getClip();
+        g2.clipRect(LEFT, TOP - 1, width + 1, height + 2);
+        g2.setColor(LINE);
+        g2.setStroke(new BasicStroke(1.2f));
+        g2.drawPolyline(xs, ys, points.length);
+        g2.setClip(clip);
+        
+        g2.setColor(Color.GRAY);
+        String status = String.format("%d of %d points, %.1f ms - wheel to zoom, drag to pan, double-click to reset",
+                                      points.length, to - from, lastRenderNanos / 1e6);
+        g2.drawString(status, LEFT + width - g2.getFontMetrics().stringWidth(status), TOP - 3);
+        lastRenderNanos = System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,26 @@
+package com.stocktrading.gui;
+
+import com.stocktrading.models.Money;
+import javax.swing.SwingConstants;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Formats price cells when they are painted: Double values are dollars,
+ * Long values are Money micro-units
+ */
+class PriceRenderer extends DefaultTableCellRenderer {
+    PriceRenderer() {
+        setHorizontalAlignment(SwingConstants.RIGHT);
+    }
+    
+    @Override
+    protected void setValue(Object value) {
+        if (value instanceof Long) {
+            setText("$" + Money.format((Long) value));
+        } else if (value instanceof Double) {
+            setText(String.format("$%.2f", (Double) value));
+        } else {
+            super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.stocktrading.gui;
+
+import javax.swing.SwingConstants;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Formats a Double return, as a fraction, as a signed percentage when painted
+ */
+class ReturnRenderer extends DefaultTableCellRenderer {
+    ReturnRenderer() {
+        setHorizontalAlignment(SwingConstants.RIGHT);
+    }
+    
+    @Override
+    protected void setValue(Object value) {
+        if (value instanceof Double) {
+            setText(String.format("%+.2f%%", (Double) value * 100));
+        } else {
+            super.setValue(value);
+        }
+    }
+}
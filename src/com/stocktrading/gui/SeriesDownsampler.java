@@ -0,0 +1,188 @@
+package com.stocktrading.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a price series for charts.
+ *
+ * Level k holds about n / 2^k points, each level picked by LTTB from the
+ * one below, and is built the first time a zoom range needs it, so all
+ * levels together cost O(n) once. A view picks the coarsest level that
+ * still has at least two points per pixel in the visible range and runs a
+ * final LTTB over just those points down to the pixel width - O(width)
+ * per frame however long the series is. The last view is kept, so repaints
+ * without a zoom or pan reuse it.
+ */
+public class SeriesDownsampler {
+    private static final int MIN_LEVEL_POINTS = 256;
+    
+    private final double[] values;
+    private final List<Level> levels = new ArrayList<>();
+    private int lastFrom = -1, lastTo = -1, lastWidth = -1;
+    private int[] lastView;
+    
+    public SeriesDownsampler(double[] values) {
+        this.values = values;
+        levels.add(new Level(null, values)); // level 0 is the series itself
+    }
+    
+    public int size() {
+        return values.length;
+    }
+    
+    public double getValue(int index) {
+        return values[index];
+    }
+    
+    /**
+     * Indices into the series of the points to draw for [from, to) at the
+     * given width, in ascending order. Includes the points just outside the
+     * range so the line runs to the edges.
+     */
+    public synchronized int[] view(int from, int to, int width) {
+        from = Math.max(0, from);
+        to = Math.min(values.length, to);
+        if (from == lastFrom && to == lastTo && width == lastWidth) {
+            return lastView;
+        }
+        int span = to - from;
+        Level level = levels.get(0);
+        for (int k = 1; span >> k >= 2 * width; k++) {
+            Level next = level(k);
+            if (next == null) {
+                break;
+            }
+            level = next;
+        }
+        
+        // Visible slice of the level, widened by one point each side
+        int start = Math.max(0, level.position(from) - 1);
+        int end = Math.min(level.size(), level.position(to) + 1);
+        int[] selected = lttb(level.indices, level.values, start, end, Math.max(3, width));
+        int[] view = new int[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            view[i] = level.index(selected[i]);
+        }
+        
+        lastFrom = from;
+        lastTo = to;
+        lastWidth = width;
+        lastView = view;
+        return view;
+    }
+    
+    /**
+     * Levels built so far, including the series itself
+     */
+    public synchronized int getLevelCount() {
+        return levels.size();
+    }
+    
+    // Caller holds this
+    private Level level(int k) {
+        while (levels.size() <= k) {
+            Level below = levels.get(levels.size() - 1);
+            int target = below.size() / 2;
+            if (target < MIN_LEVEL_POINTS) {
+                return null;
+            }
+            int[] selected = lttb(below.indices, below.values, 0, below.size(), target);
+            int[] indices = new int[selected.length];
+            double[] picked = new double[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                indices[i] = below.index(selected[i]);
+                picked[i] = below.values[selected[i]];
+            }
+            levels.add(new Level(indices, picked));
+        }
+        return levels.get(k);
+    }
+    
+    /**
+     * Largest-Triangle-Three-Buckets over positions [from, to) of a series
+     * whose x coordinates are xs (or the positions themselves if xs is null)
+     * @return the selected positions, first and last always included
+     */
+    public static int[] lttb(int[] xs, double[] ys, int from, int to, int threshold) {
+        int count = to - from;
+        if (threshold >= count || threshold < 3) {
+            int[] all = new int[Math.max(0, count)];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+        
+        int[] selected = new int[threshold];
+        selected[0] = from;
+        double every = (double) (count - 2) / (threshold - 2);
+        int a = from;
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average of the next bucket is the third triangle corner
+            int avgStart = from + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) ((i + 2) * every) + 1, to);
+            double avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += xs != null ? xs[j] : j;
+                avgY += ys[j];
+            }
+            int avgCount = avgEnd - avgStart;
+            avgX /= avgCount;
+            avgY /= avgCount;
+            
+            // Point in this bucket spanning the largest triangle with a and the average
+            int rangeStart = from + (int) (i * every) + 1;
+            int rangeEnd = from + (int) ((i + 1) * every) + 1;
+            double ax = xs != null ? xs[a] : a;
+            double ay = ys[a];
+            double maxArea = -1;
+            int chosen = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double x = xs != null ? xs[j] : j;
+                double area = Math.abs((ax - avgX) * (ys[j] - ay) - (ax - x) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            selected[i + 1] = chosen;
+            a = chosen;
+        }
+        selected[threshold - 1] = to - 1;
+        return selected;
+    }
+    
+    /**
+     * One resolution of the series; indices map positions back to the series
+     */
+    private static class Level {
+        final int[] indices; // null for the series itself
+        final double[] values;
+        
+        Level(int[] indices, double[] values) {
+            this.indices = indices;
+            this.values = values;
+        }
+        
+        int size() {
+            return values.length;
+        }
+        
+        int index(int position) {
+            return indices != null ? indices[position] : position;
+        }
+        
+        /**
+         * First position whose series index is at least index
+         */
+        int position(int index) {
+            if (indices == null) {
+                return Math.min(index, values.length);
+            }
+            int found = Arrays.binarySearch(indices, index);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.stocktrading.gui;
+
+import com.stocktrading.models.Stock;
+import java.util.Collection;
+
+/**
+ * Market table: one row per symbol on the visible watchlist, in list order.
+ * A refresh of the same list only touches the cells whose quote or
+ * prediction moved.
+ */
+class StockTableModel extends ArrayTableModel {
+    private static final int SYMBOL = 0, NAME = 1, PRICE = 2, OPEN = 3, HIGH = 4, LOW = 5, PREDICTION = 6;
+    
+    private String[] symbols = new String[0];
+    private String[] names = new String[0];
+    private double[] prices = new double[0];
+    private double[] opens = new double[0];
+    private double[] highs = new double[0];
+    private double[] lows = new double[0];
+    private String[] predictions = new String[0];
+    
+    StockTableModel() {
+        super("Symbol", "Name", "Price", "Open", "High", "Low", "Prediction");
+    }
+    
+    /**
+     * Replace the rows with the given stocks, in order. Predictions are read
+     * as already set on each stock, never computed here.
+     */
+    void update(Collection<Stock> stocks) {
+        ensureCapacity(stocks.size());
+        int row = 0;
+        for (Stock stock : stocks) {
+            set(symbols, row, SYMBOL, stock.getSymbol());
+            set(names, row, NAME, stock.getName());
+            set(prices, row, PRICE, stock.getCurrentPrice());
+            set(opens, row, OPEN, stock.getOpenPrice());
+            set(highs, row, HIGH, stock.getHighPrice());
+            set(lows, row, LOW, stock.getLowPrice());
+            set(predictions, row, PREDICTION, stock.getPrediction());
+            row++;
+        }
+        setRowCount(row);
+    }
+    
+    String getSymbol(int row) {
+        return symbols[row];
+    }
+    
+    @Override
+    protected void ensureCapacity(int rows) {
+        symbols = resize(symbols, rows);
+        names = resize(names, rows);
+        prices = resize(prices, rows);
+        opens = resize(opens, rows);
+        highs = resize(highs, rows);
+        lows = resize(lows, rows);
+        predictions = resize(predictions, rows);
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column >= PRICE && column <= LOW ? Double.class : String.class;
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case SYMBOL: return symbols[row];
+            case NAME: return names[row];
+            case PRICE: return prices[row];
+            case OPEN: return opens[row];
+            case HIGH: return highs[row];
+            case LOW: return lows[row];
+            default: return predictions[row];
+        }
+    }
+}
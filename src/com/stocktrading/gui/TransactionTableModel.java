@@ -0,0 +1,71 @@
+package com.stocktrading.gui;
+
+import com.stocktrading.models.Transaction;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Transaction history table, in the portfolio's history order
+ */
+class TransactionTableModel extends ArrayTableModel {
+    private static final int TYPE = 0, SYMBOL = 1, QUANTITY = 2, PRICE = 3, TOTAL = 4, DATE = 5;
+    
+    private String[] types = new String[0];
+    private String[] symbols = new String[0];
+    private int[] quantities = new int[0];
+    private long[] prices = new long[0];
+    private long[] totals = new long[0];
+    private LocalDateTime[] timestamps = new LocalDateTime[0];
+    
+    TransactionTableModel() {
+        super("Type", "Symbol", "Quantity", "Price", "Total", "Date");
+    }
+    
+    void update(List<Transaction> transactions) {
+        ensureCapacity(transactions.size());
+        int row = 0;
+        for (Transaction transaction : transactions) {
+            set(types, row, TYPE, transaction.getType());
+            set(symbols, row, SYMBOL, transaction.getSymbol());
+            set(quantities, row, QUANTITY, transaction.getQuantity());
+            set(prices, row, PRICE, transaction.getPrice());
+            set(totals, row, TOTAL, transaction.getTotalAmount());
+            set(timestamps, row, DATE, transaction.getTimestamp());
+            row++;
+        }
+        setRowCount(row);
+    }
+    
+    @Override
+    protected void ensureCapacity(int rows) {
+        types = resize(types, rows);
+        symbols = resize(symbols, rows);
+        quantities = resize(quantities, rows);
+        prices = resize(prices, rows);
+        totals = resize(totals, rows);
+        timestamps = resize(timestamps, rows);
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case QUANTITY: return Integer.class;
+            case PRICE:
+            case TOTAL: return Long.class;
+            case DATE: return LocalDateTime.class;
+            default: return String.class;
+        }
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case TYPE: return types[row];
+            case SYMBOL: return symbols[row];
+            case QUANTITY: return quantities[row];
+            case PRICE: return prices[row];
+            case TOTAL: return totals[row];
+            default: return timestamps[row];
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.stocktrading.gui;
+
+import com.stocktrading.services.UiFlushEvent;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.Timer;
+
+/**
+ * Buffer between data producers and Swing components.
+ *
+ * Producers on any thread call schedule with a key naming what the update
+ * redraws - a widget ("nav") or a symbol ("quote:AAPL"). Only the latest
+ * update per key is kept; older ones are counted as merged. A Swing timer
+ * runs the pending updates on the EDT at a fixed rate, so a burst of ticks
+ * costs at most one repaint per key per frame instead of one EDT event per
+ * tick. Keys run in the order they first became pending. A frame stops
+ * early once it has used half its period, and the next frame carries on
+ * from the key after the last one it ran, so every key gets its turn and
+ * input events still get through. Each frame is emitted as a UiFlushEvent
+ * for Flight Recorder.
+ */
+public class UpdateScheduler {
+    public static final int DEFAULT_MAX_PENDING = 10_000;
+    
+    private final ConcurrentHashMap<String, Runnable> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> dirty = new ConcurrentLinkedQueue<>(); // pending keys, oldest first
+    private final int maxPending;
+    private final Timer timer;
+    private final long startedAt = System.nanoTime();
+    private volatile long frameBudgetNanos;
+    private volatile boolean stopped;
+    
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // Written on the EDT only
+    private volatile long flushed;
+    private volatile long frames;
+    private volatile long busyNanos;
+    private volatile long maxFrameNanos;
+    
+    public UpdateScheduler(int hz) {
+        this(hz, DEFAULT_MAX_PENDING);
+    }
+    
+    public UpdateScheduler(int hz, int maxPending) {
+        this.maxPending = maxPending;
+        this.timer = new Timer(0, e -> flush());
+        timer.setCoalesce(true);
+        setRate(hz);
+        timer.start();
+    }
+    
+    /**
+     * Change the flush rate, in frames per second
+     */
+    public void setRate(int hz) {
+        if (hz <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + hz);
+        }
+        int period = Math.max(1, 1000 / hz);
+        timer.setDelay(period);
+        frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(period) / 2;
+    }
+    
+    /**
+     * Run the update on the EDT at the next frame, replacing any update
+     * still pending under the same key
+     */
+    public void schedule(String key, Runnable update) {
+        submitted.increment();
+        if (stopped || (pending.size() >= maxPending && !pending.containsKey(key))) {
+            dropped.increment();
+            return;
+        }
+        if (pending.put(key, update) != null) {
+            merged.increment();
+        } else {
+            dirty.add(key);
+        }
+    }
+    
+    /**
+     * Stop flushing; updates still pending or scheduled later are dropped
+     */
+    public void stop() {
+        stopped = true;
+        timer.stop();
+        dropped.add(pending.size());
+        pending.clear();
+        dirty.clear();
+    }
+    
+    // On the EDT
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        UiFlushEvent event = new UiFlushEvent();
+        event.begin();
+        long count = 0;
+        String key;
+        while ((key = dirty.poll()) != null) {
+            // Once removed, scheduling the key again queues it at the back
+            Runnable update = pending.remove(key);
+            if (update == null) {
+                continue;
+            }
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                System.err.println("UI update " + key + " failed: " + e.getMessage());
+            }
+            count++;
+            if (System.nanoTime() - start > frameBudgetNanos) {
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        flushed += count;
+        frames++;
+        busyNanos += elapsed;
+        maxFrameNanos = Math.max(maxFrameNanos, elapsed);
+        event.updates = count;
+        event.pending = pending.size();
+        event.commit();
+    }
+    
+    public Stats getStats() {
+        return new Stats(submitted.sum(), merged.sum(), dropped.sum(), flushed, pending.size(), frames,
+                         busyNanos, maxFrameNanos, System.nanoTime() - startedAt);
+    }
+    
+    /**
+     * Counters since the scheduler started
+     */
+    public static class Stats {
+        private final long submitted;
+        private final long merged;
+        private final long dropped;
+        private final long flushed;
+        private final int pending;
+        private final long frames;
+        private final long busyNanos;
+        private final long maxFrameNanos;
+        private final long elapsedNanos;
+        
+        Stats(long submitted, long merged, long dropped, long flushed, int pending, long frames,
+              long busyNanos, long maxFrameNanos, long elapsedNanos) {
+            this.submitted = submitted;
+            this.merged = merged;
+            this.dropped = dropped;
+            this.flushed = flushed;
+            this.pending = pending;
+            this.frames = frames;
+            this.busyNanos = busyNanos;
+            this.maxFrameNanos = maxFrameNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public long getSubmitted() { return submitted; }
+        public long getMerged() { return merged; }
+        public long getDropped() { return dropped; }
+        public long getFlushed() { return flushed; }
+        public int getPending() { return pending; }
+        public long getFrames() { return frames; }
+        public long getBusyNanos() { return busyNanos; }
+        public long getMaxFrameNanos() { return maxFrameNanos; }
+        
+        /**
+         * Share of wall time the EDT spent running scheduled updates
+         */
+        public double getBusyRatio() {
+            return elapsedNanos > 0 ? (double) busyNanos / elapsedNanos : 0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("UI updates: %d submitted, %d merged, %d dropped, %d applied in %d frames; " +
+                                 "EDT busy %.1f%% (max frame %.1f ms)",
+                                 submitted, merged, dropped, flushed, frames, getBusyRatio() * 100,
+                                 maxFrameNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.stocktrading.interfaces;
+
+import com.stocktrading.models.StockData;
+import com.stocktrading.models.Timeframe;
+
+/**
+ * Callback for completed OHLCV bars
+ */
+public interface BarListener {
+    void onBar(Timeframe timeframe, StockData bar);
+}
@@ -0,0 +1,12 @@
+package com.stocktrading.interfaces;
+
+import com.stocktrading.models.ConditionalOrder;
+import com.stocktrading.models.Order;
+
+/**
+ * Callback for conditional orders whose trigger was crossed.
+ * The order is null if the portfolio could not cover it and it was rejected.
+ */
+public interface ConditionalOrderListener {
+    void onConditionalOrderTriggered(ConditionalOrder conditional, Order order);
+}
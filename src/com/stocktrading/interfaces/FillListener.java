@@ -0,0 +1,12 @@
+package com.stocktrading.interfaces;
+
+import com.stocktrading.models.Order;
+
+/**
+ * Callback for executions produced by the matching engine.
+ * Price is in Money micro-units. Invoked on the symbol's matching thread;
+ * implementations should be quick.
+ */
+public interface FillListener {
+    void onFill(Order taker, Order maker, long price, int quantity);
+}
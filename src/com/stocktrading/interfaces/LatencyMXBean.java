@@ -0,0 +1,16 @@
+package com.stocktrading.interfaces;
+
+/**
+ * JMX view of one instrumented operation, registered as
+ * com.stocktrading:type=Latency,name=&lt;operation&gt;
+ */
+public interface LatencyMXBean {
+    long getCount();
+    long getErrors();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
@@ -0,0 +1,9 @@
+package com.stocktrading.interfaces;
+
+/**
+ * Callback for live portfolio valuation changes.
+ * Amounts are Money micro-units; called on the thread that delivered the price.
+ */
+public interface NavListener {
+    void onNavChanged(int portfolioId, long netAssetValue, long unrealizedPnl);
+}
@@ -1,15 +1,23 @@
 package com.stocktrading.interfaces;
 
+import com.stocktrading.models.BasketOrder;
+import com.stocktrading.models.Order;
 import com.stocktrading.models.Portfolio;
 import com.stocktrading.models.Stock;
 import java.util.List;
 
 /**
  * Interface for portfolio management operations
+ * Money amounts and prices are Money micro-units
  */
 public interface PortfolioService {
     boolean buyStock(Portfolio portfolio, Stock stock, int quantity);
     boolean sellStock(Portfolio portfolio, String symbol, int quantity);
-    double getPortfolioValue(Portfolio portfolio);
+    boolean sellLot(Portfolio portfolio, String symbol, int lotId, int quantity);
+    long getPortfolioValue(Portfolio portfolio);
     List<Stock> getHoldings(Portfolio portfolio);
+    Order placeOrder(Portfolio portfolio, String symbol, Order.Side side, Order.Type type, long limitPrice, int quantity);
+    boolean cancelOrder(Portfolio portfolio, String symbol, long orderId);
+    boolean replaceOrder(Portfolio portfolio, String symbol, long orderId, long newPrice, int newQuantity);
+    BasketOrder executeBasket(Portfolio portfolio, BasketOrder basket);
 }
@@ -0,0 +1,10 @@
+package com.stocktrading.interfaces;
+
+import com.stocktrading.models.PriceAlert;
+
+/**
+ * Callback for price alerts that have fired
+ */
+public interface PriceAlertListener {
+    void onAlertTriggered(PriceAlert alert, double price);
+}
@@ -0,0 +1,104 @@
+package com.stocktrading.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A basket of market orders for one portfolio, executed all-or-nothing.
+ * After execution every leg carries its own status, fill price and message.
+ * Prices are Money micro-units.
+ */
+public class BasketOrder {
+    /**
+     * CANCELLED marks a valid leg that did not execute because another leg
+     * (or the basket as a whole) was rejected
+     */
+    public enum Status { PENDING, FILLED, REJECTED, CANCELLED }
+    
+    private final List<Leg> legs = new ArrayList<>();
+    
+    public Leg add(String symbol, Order.Side side, int quantity) {
+        Leg leg = new Leg(symbol, side, quantity);
+        legs.add(leg);
+        return leg;
+    }
+    
+    public BasketOrder buy(String symbol, int quantity) {
+        add(symbol, Order.Side.BUY, quantity);
+        return this;
+    }
+    
+    public BasketOrder sell(String symbol, int quantity) {
+        add(symbol, Order.Side.SELL, quantity);
+        return this;
+    }
+    
+    public List<Leg> getLegs() {
+        return Collections.unmodifiableList(legs);
+    }
+    
+    public int size() {
+        return legs.size();
+    }
+    
+    public boolean isFilled() {
+        if (legs.isEmpty()) {
+            return false;
+        }
+        for (Leg leg : legs) {
+            if (leg.status != Status.FILLED) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * One order in the basket
+     */
+    public static class Leg {
+        private final String symbol;
+        private final Order.Side side;
+        private final int quantity;
+        private Status status = Status.PENDING;
+        private long fillPrice;
+        private String message;
+        
+        Leg(String symbol, Order.Side side, int quantity) {
+            this.symbol = symbol;
+            this.side = side;
+            this.quantity = quantity;
+        }
+        
+        public void fill(long price) {
+            this.status = Status.FILLED;
+            this.fillPrice = price;
+            this.message = null;
+        }
+        
+        public void reject(String message) {
+            this.status = Status.REJECTED;
+            this.message = message;
+        }
+        
+        public void cancel(String message) {
+            this.status = Status.CANCELLED;
+            this.message = message;
+        }
+        
+        public String getSymbol() { return symbol; }
+        public Order.Side getSide() { return side; }
+        public int getQuantity() { return quantity; }
+        public Status getStatus() { return status; }
+        public long getFillPrice() { return fillPrice; }
+        public String getMessage() { return message; }
+        
+        @Override
+        public String toString() {
+            return side + " " + quantity + " " + symbol + " [" + status +
+                   (status == Status.FILLED ? " @ $" + Money.format(fillPrice) : "") +
+                   (message != null ? ": " + message : "") + "]";
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.stocktrading.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Order that rests until the price feed crosses its trigger, then is sent
+ * to the matching engine. Prices are Money micro-units.
+ *
+ * STOP and STOP_LIMIT fire when a buy's price rises to the trigger or a
+ * sell's price falls to it; TAKE_PROFIT is the opposite. TRAILING_STOP keeps
+ * an anchor at the best price seen since it was placed (highest for a sell,
+ * lowest for a buy) and fires once the price moves the trail amount against
+ * it. STOP_LIMIT sends a limit order at the limit price; the others send a
+ * market order.
+ */
+public class ConditionalOrder {
+    public enum Type { STOP, STOP_LIMIT, TAKE_PROFIT, TRAILING_STOP }
+    
+    private int id;
+    private int portfolioId;
+    private String symbol;
+    private Order.Side side;
+    private Type type;
+    private int quantity;
+    private long triggerPrice; // unused for TRAILING_STOP
+    private long limitPrice; // STOP_LIMIT only
+    private long trailAmount; // TRAILING_STOP only
+    private long anchorPrice; // TRAILING_STOP: best price seen, as of the last checkpoint
+    private LocalDateTime createdAt;
+    private LocalDateTime triggeredAt;
+    private long orderId; // order sent when triggered
+    
+    private ConditionalOrder(int portfolioId, String symbol, Order.Side side, Type type, int quantity) {
+        this.portfolioId = portfolioId;
+        this.symbol = symbol;
+        this.side = side;
+        this.type = type;
+        this.quantity = quantity;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public ConditionalOrder(int id, int portfolioId, String symbol, Order.Side side, Type type, int quantity,
+                            long triggerPrice, long limitPrice, long trailAmount, long anchorPrice,
+                            LocalDateTime createdAt, LocalDateTime triggeredAt, long orderId) {
+        this.id = id;
+        this.portfolioId = portfolioId;
+        this.symbol = symbol;
+        this.side = side;
+        this.type = type;
+        this.quantity = quantity;
+        this.triggerPrice = triggerPrice;
+        this.limitPrice = limitPrice;
+        this.trailAmount = trailAmount;
+        this.anchorPrice = anchorPrice;
+        this.createdAt = createdAt;
+        this.triggeredAt = triggeredAt;
+        this.orderId = orderId;
+    }
+    
+    public static ConditionalOrder stop(int portfolioId, String symbol, Order.Side side, int quantity,
+                                        long triggerPrice) {
+        ConditionalOrder order = new ConditionalOrder(portfolioId, symbol, side, Type.STOP, quantity);
+        order.triggerPrice = triggerPrice;
+        return order;
+    }
+    
+    public static ConditionalOrder stopLimit(int portfolioId, String symbol, Order.Side side, int quantity,
+                                             long triggerPrice, long limitPrice) {
+        ConditionalOrder order = new ConditionalOrder(portfolioId, symbol, side, Type.STOP_LIMIT, quantity);
+        order.triggerPrice = triggerPrice;
+        order.limitPrice = limitPrice;
+        return order;
+    }
+    
+    public static ConditionalOrder takeProfit(int portfolioId, String symbol, Order.Side side, int quantity,
+                                              long triggerPrice) {
+        ConditionalOrder order = new ConditionalOrder(portfolioId, symbol, side, Type.TAKE_PROFIT, quantity);
+        order.triggerPrice = triggerPrice;
+        return order;
+    }
+    
+    /**
+     * Trailing stop; the anchor is set to the market price when it is placed
+     */
+    public static ConditionalOrder trailingStop(int portfolioId, String symbol, Order.Side side, int quantity,
+                                                long trailAmount) {
+        ConditionalOrder order = new ConditionalOrder(portfolioId, symbol, side, Type.TRAILING_STOP, quantity);
+        order.trailAmount = trailAmount;
+        return order;
+    }
+    
+    /**
+     * True if the order fires when the price rises to its trigger
+     */
+    public boolean isUpward() {
+        boolean buy = side == Order.Side.BUY;
+        return type == Type.TAKE_PROFIT ? !buy : buy;
+    }
+    
+    /**
+     * Price that fires the order; for a trailing stop, relative to the given anchor
+     */
+    public long getTriggerPrice(long anchor) {
+        if (type != Type.TRAILING_STOP) {
+            return triggerPrice;
+        }
+        return isUpward() ? anchor + trailAmount : anchor - trailAmount;
+    }
+    
+    /**
+     * True if the given price has already reached the trigger
+     */
+    public boolean isCrossed(long price) {
+        long trigger = getTriggerPrice(anchorPrice);
+        return isUpward() ? price >= trigger : price <= trigger;
+    }
+    
+    // Getters and setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public int getPortfolioId() { return portfolioId; }
+    public String getSymbol() { return symbol; }
+    public Order.Side getSide() { return side; }
+    public Type getType() { return type; }
+    public int getQuantity() { return quantity; }
+    public long getTriggerPrice() { return getTriggerPrice(anchorPrice); }
+    public long getLimitPrice() { return limitPrice; }
+    public long getTrailAmount() { return trailAmount; }
+    public long getAnchorPrice() { return anchorPrice; }
+    public void setAnchorPrice(long anchorPrice) { this.anchorPrice = anchorPrice; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getTriggeredAt() { return triggeredAt; }
+    public void setTriggeredAt(LocalDateTime triggeredAt) { this.triggeredAt = triggeredAt; }
+    public boolean isTriggered() { return triggeredAt != null; }
+    public long getOrderId() { return orderId; }
+    public void setOrderId(long orderId) { this.orderId = orderId; }
+    
+    @Override
+    public String toString() {
+        String text = side + " " + quantity + " " + symbol + " " + type;
+        switch (type) {
+            case STOP_LIMIT:
+                return text + " @ $" + Money.format(triggerPrice) + " limit $" + Money.format(limitPrice);
+            case TRAILING_STOP:
+                return text + " trail $" + Money.format(trailAmount) + " (stop $" + Money.format(getTriggerPrice()) + ")";
+            default:
+                return text + " @ $" + Money.format(triggerPrice);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.stocktrading.models;
+
+/**
+ * One portfolio's standing on the leaderboard; amounts are Money micro-units
+ */
+public class LeaderboardEntry {
+    private final int rank; // 1 = best
+    private final int portfolioId;
+    private final String username;
+    private final long netAssetValue;
+    private final long capital;
+    
+    public LeaderboardEntry(int rank, int portfolioId, String username, long netAssetValue, long capital) {
+        this.rank = rank;
+        this.portfolioId = portfolioId;
+        this.username = username;
+        this.netAssetValue = netAssetValue;
+        this.capital = capital;
+    }
+    
+    /**
+     * Return on contributed capital as a fraction (0.05 = 5%)
+     */
+    public static double returnOf(long netAssetValue, long capital) {
+        return capital > 0 ? (double) (netAssetValue - capital) / capital : 0;
+    }
+    
+    public int getRank() { return rank; }
+    public int getPortfolioId() { return portfolioId; }
+    public String getUsername() { return username; }
+    public long getNetAssetValue() { return netAssetValue; }
+    public long getCapital() { return capital; }
+    public double getReturn() { return returnOf(netAssetValue, capital); }
+    
+    @Override
+    public String toString() {
+        return String.format("#%d %s %+.2f%% ($%s)", rank, username, getReturn() * 100, Money.format(netAssetValue));
+    }
+}
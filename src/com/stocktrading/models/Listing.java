@@ -0,0 +1,26 @@
+package com.stocktrading.models;
+
+/**
+ * Listed security available for search; weight ranks it among matches
+ * (e.g. market cap or volume, higher is better)
+ */
+public class Listing {
+    private final String symbol;
+    private final String name;
+    private final float weight;
+    
+    public Listing(String symbol, String name, float weight) {
+        this.symbol = symbol;
+        this.name = name;
+        this.weight = weight;
+    }
+    
+    public String getSymbol() { return symbol; }
+    public String getName() { return name; }
+    public float getWeight() { return weight; }
+    
+    @Override
+    public String toString() {
+        return symbol + " - " + name;
+    }
+}
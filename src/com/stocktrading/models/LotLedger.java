@@ -0,0 +1,285 @@
+package com.stocktrading.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tax lots of one holding, oldest first, in a ring buffer of parallel arrays.
+ *
+ * Every buy appends a lot with its own id; sells relieve lots FIFO (oldest
+ * first), LIFO (newest first) or from a specific lot. FIFO and LIFO work at
+ * the ends of the ring, so a sell is amortized O(1) however many lots there
+ * are. A specific lot is found by binary search (ids only ever increase) and
+ * an emptied lot in the middle is left as a zero-quantity gap that the ends
+ * skip later and compaction reclaims.
+ *
+ * Each lot keeps its exact total cost; a partial relief takes the lot's
+ * per-share cost and the last share takes whatever is left, so the cost
+ * basis is always the exact sum of the remaining lots.
+ */
+public class LotLedger {
+    public enum Relief { FIFO, LIFO, SPECIFIC }
+    
+    private int[] ids;
+    private int[] quantities;
+    private long[] costs;
+    private int head; // physical index of the oldest slot
+    private int size; // slots in use, including emptied gaps
+    private int lotCount; // lots with shares left
+    private int nextId = 1;
+    
+    private int quantity;
+    private long costBasis;
+    
+    public LotLedger() {
+        this(4);
+    }
+    
+    private LotLedger(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(4, capacity - 1) << 1);
+        ids = new int[slots];
+        quantities = new int[slots];
+        costs = new long[slots];
+    }
+    
+    /**
+     * Record a buy as a new lot; returns the lot id
+     */
+    public int add(int qty, long price) {
+        return append(nextId, qty, Money.times(price, qty));
+    }
+    
+    /**
+     * Record shares with a known total cost as a new lot, e.g. pre-lot holdings
+     */
+    public int addCost(int qty, long cost) {
+        return append(nextId, qty, cost);
+    }
+    
+    /**
+     * Append a lot with a known id and total cost, e.g. when restoring a snapshot
+     */
+    public int restore(int lotId, int qty, long cost) {
+        if (lotId < nextId) {
+            throw new IllegalArgumentException("Lot ids must increase: " + lotId);
+        }
+        return append(lotId, qty, cost);
+    }
+    
+    private int append(int lotId, int qty, long cost) {
+        if (qty <= 0) {
+            return 0;
+        }
+        if (size == ids.length) {
+            resize(ids.length * 2);
+        }
+        int slot = physical(size);
+        ids[slot] = lotId;
+        quantities[slot] = qty;
+        costs[slot] = cost;
+        size++;
+        lotCount++;
+        nextId = lotId + 1;
+        quantity += qty;
+        costBasis = Money.add(costBasis, cost);
+        return lotId;
+    }
+    
+    /**
+     * Relieve shares oldest-first (FIFO) or newest-first (LIFO).
+     * @return the cost of the shares relieved, or -1 (nothing changed) if fewer shares are held
+     */
+    public long relieve(int qty, Relief method) {
+        if (method == Relief.SPECIFIC) {
+            throw new IllegalArgumentException("Specific-lot relief needs a lot id");
+        }
+        if (qty <= 0 || qty > quantity) {
+            return qty == 0 ? 0 : -1;
+        }
+        boolean fifo = method == Relief.FIFO;
+        long relieved = 0;
+        int remaining = qty;
+        while (remaining > 0) {
+            trimEnds();
+            int slot = fifo ? head : physical(size - 1);
+            int take = Math.min(remaining, quantities[slot]);
+            relieved = Money.add(relieved, take(slot, take));
+            remaining -= take;
+        }
+        trimEnds();
+        return relieved;
+    }
+    
+    /**
+     * Relieve shares from one lot.
+     * @return the cost of the shares relieved, or -1 (nothing changed) if the lot holds fewer
+     */
+    public long relieveLot(int lotId, int qty) {
+        int slot = find(lotId);
+        if (qty <= 0 || slot < 0 || quantities[slot] < qty) {
+            return qty == 0 ? 0 : -1;
+        }
+        long relieved = take(slot, qty);
+        trimEnds();
+        if (size > 32 && size > lotCount * 2) {
+            resize(ids.length); // drop the gaps left by specific-lot sells
+        }
+        return relieved;
+    }
+    
+    private long take(int slot, int qty) {
+        long cost = qty >= quantities[slot] ? costs[slot]
+            : Money.times(Money.perShare(costs[slot], quantities[slot]), qty);
+        quantities[slot] -= qty;
+        costs[slot] -= cost;
+        if (quantities[slot] == 0) {
+            lotCount--;
+        }
+        quantity -= qty;
+        costBasis -= cost;
+        return cost;
+    }
+    
+    // Drop emptied lots at either end so FIFO/LIFO always start at a live lot
+    private void trimEnds() {
+        while (size > 0 && quantities[head] == 0) {
+            head = (head + 1) & (ids.length - 1);
+            size--;
+        }
+        while (size > 0 && quantities[physical(size - 1)] == 0) {
+            size--;
+        }
+    }
+    
+    private int find(int lotId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = ids[physical(mid)];
+            if (id < lotId) {
+                low = mid + 1;
+            } else if (id > lotId) {
+                high = mid - 1;
+            } else {
+                return physical(mid);
+            }
+        }
+        return -1;
+    }
+    
+    private int physical(int logical) {
+        return (head + logical) & (ids.length - 1);
+    }
+    
+    // Re-lay live lots from index 0, dropping gaps
+    private void resize(int capacity) {
+        int[] newIds = new int[capacity];
+        int[] newQuantities = new int[capacity];
+        long[] newCosts = new long[capacity];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = physical(i);
+            if (quantities[slot] > 0) {
+                newIds[count] = ids[slot];
+                newQuantities[count] = quantities[slot];
+                newCosts[count] = costs[slot];
+                count++;
+            }
+        }
+        ids = newIds;
+        quantities = newQuantities;
+        costs = newCosts;
+        head = 0;
+        size = count;
+    }
+    
+    public LotLedger copy() {
+        LotLedger copy = new LotLedger(ids.length);
+        System.arraycopy(ids, 0, copy.ids, 0, ids.length);
+        System.arraycopy(quantities, 0, copy.quantities, 0, ids.length);
+        System.arraycopy(costs, 0, copy.costs, 0, ids.length);
+        copy.head = head;
+        copy.size = size;
+        copy.lotCount = lotCount;
+        copy.nextId = nextId;
+        copy.quantity = quantity;
+        copy.costBasis = costBasis;
+        return copy;
+    }
+    
+    /**
+     * Open lots, oldest first
+     */
+    public List<Lot> getLots() {
+        List<Lot> lots = new ArrayList<>(lotCount);
+        for (int i = 0; i < size; i++) {
+            int slot = physical(i);
+            if (quantities[slot] > 0) {
+                lots.add(new Lot(ids[slot], quantities[slot], costs[slot]));
+            }
+        }
+        return lots;
+    }
+    
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(nextId);
+        out.writeInt(lotCount);
+        for (int i = 0; i < size; i++) {
+            int slot = physical(i);
+            if (quantities[slot] > 0) {
+                out.writeInt(ids[slot]);
+                out.writeInt(quantities[slot]);
+                out.writeLong(costs[slot]);
+            }
+        }
+    }
+    
+    public static LotLedger read(DataInput in) throws IOException {
+        int nextId = in.readInt();
+        int count = in.readInt();
+        LotLedger ledger = new LotLedger(count);
+        for (int i = 0; i < count; i++) {
+            ledger.restore(in.readInt(), in.readInt(), in.readLong());
+        }
+        ledger.nextId = Math.max(ledger.nextId, nextId);
+        return ledger;
+    }
+    
+    public int getQuantity() { return quantity; }
+    public long getCostBasis() { return costBasis; }
+    public int getLotCount() { return lotCount; }
+    
+    @Override
+    public String toString() {
+        return getLots().toString();
+    }
+    
+    /**
+     * One open lot: shares still held from a single buy and their remaining cost
+     */
+    public static class Lot {
+        private final int id;
+        private final int quantity;
+        private final long cost;
+        
+        public Lot(int id, int quantity, long cost) {
+            this.id = id;
+            this.quantity = quantity;
+            this.cost = cost;
+        }
+        
+        public int getId() { return id; }
+        public int getQuantity() { return quantity; }
+        public long getCost() { return cost; }
+        public long getPrice() { return Money.perShare(cost, quantity); }
+        
+        @Override
+        public String toString() {
+            return "#" + id + " " + quantity + " @ $" + Money.format(getPrice());
+        }
+    }
+}
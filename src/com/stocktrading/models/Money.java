@@ -0,0 +1,85 @@
+package com.stocktrading.models;
+
+/**
+ * Fixed-point money arithmetic on plain longs.
+ *
+ * Amounts and prices are stored as micro-units (1 dollar = 1,000,000), so
+ * cash balances, cost basis and order math are exact and never drift.
+ * Everything here works on primitives and does not allocate, except format().
+ * Overflow (above ~9.2 trillion dollars) throws ArithmeticException.
+ */
+public final class Money {
+    public static final long SCALE = 1_000_000L;
+    public static final long CENT = SCALE / 100;
+    public static final long ZERO = 0L;
+    
+    private Money() {
+    }
+    
+    /**
+     * Convert a floating-point amount (e.g. a quote or user input) to micro-units
+     */
+    public static long of(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new ArithmeticException("Not a finite amount: " + amount);
+        }
+        return Math.round(amount * SCALE);
+    }
+    
+    public static long ofWhole(long dollars) {
+        return Math.multiplyExact(dollars, SCALE);
+    }
+    
+    /**
+     * For display and analytics only - never feed the result back into balances
+     */
+    public static double toDouble(long micros) {
+        return (double) micros / SCALE;
+    }
+    
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+    
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+    
+    /**
+     * Price x share quantity
+     */
+    public static long times(long price, long quantity) {
+        return Math.multiplyExact(price, quantity);
+    }
+    
+    /**
+     * Per-share amount, rounded half away from zero to the nearest micro-unit
+     */
+    public static long perShare(long total, long quantity) {
+        if (quantity == 0) {
+            return 0;
+        }
+        long quotient = total / quantity;
+        long remainder = total % quantity;
+        if (Math.abs(remainder) * 2 >= Math.abs(quantity)) {
+            quotient += (total < 0) == (quantity < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+    
+    /**
+     * Scale an amount by a ratio expressed in basis points (1/100 of a percent)
+     */
+    public static long timesBasisPoints(long amount, long basisPoints) {
+        return perShare(Math.multiplyExact(amount, basisPoints), 10_000L);
+    }
+    
+    /**
+     * Format as dollars and cents, rounding half up, e.g. "1234.57" or "-0.10"
+     */
+    public static String format(long micros) {
+        long cents = perShare(micros, CENT);
+        long absCents = Math.abs(cents);
+        return (cents < 0 ? "-" : "") + (absCents / 100) + "." + (absCents % 100 < 10 ? "0" : "") + (absCents % 100);
+    }
+}
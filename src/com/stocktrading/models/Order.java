@@ -0,0 +1,80 @@
+package com.stocktrading.models;
+
+/**
+ * Order submitted to the matching engine
+ * Prices are Money micro-units
+ */
+public class Order {
+    public enum Side { BUY, SELL }
+    
+    /**
+     * MARKET and IOC never rest on the book; an unfilled remainder is cancelled
+     */
+    public enum Type { MARKET, LIMIT, IOC }
+    
+    public enum Status { NEW, PARTIALLY_FILLED, FILLED, CANCELLED, REJECTED }
+    
+    private long id;
+    private int portfolioId;
+    private String symbol;
+    private Side side;
+    private Type type;
+    private long price; // limit price, ignored for MARKET
+    private int quantity;
+    private int filledQuantity;
+    private Status status;
+    private int lotId; // sell out of this tax lot; 0 = portfolio's relief method
+    
+    public Order(long id, int portfolioId, String symbol, Side side, Type type, long price, int quantity) {
+        this.id = id;
+        this.portfolioId = portfolioId;
+        this.symbol = symbol;
+        this.side = side;
+        this.type = type;
+        this.price = price;
+        this.quantity = quantity;
+        this.status = Status.NEW;
+    }
+    
+    public void fill(int qty) {
+        filledQuantity += qty;
+        status = filledQuantity >= quantity ? Status.FILLED : Status.PARTIALLY_FILLED;
+    }
+    
+    /**
+     * Apply a replace: new price and total quantity, keeping what was already filled
+     */
+    public void amend(long newPrice, int newQuantity) {
+        this.price = newPrice;
+        this.quantity = newQuantity;
+        if (filledQuantity >= quantity) {
+            status = Status.FILLED;
+        }
+    }
+    
+    public boolean isActive() {
+        return status == Status.NEW || status == Status.PARTIALLY_FILLED;
+    }
+    
+    // Getters and setters
+    public long getId() { return id; }
+    public int getPortfolioId() { return portfolioId; }
+    public String getSymbol() { return symbol; }
+    public Side getSide() { return side; }
+    public Type getType() { return type; }
+    public long getPrice() { return price; }
+    public int getQuantity() { return quantity; }
+    public int getFilledQuantity() { return filledQuantity; }
+    public int getRemainingQuantity() { return quantity - filledQuantity; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public int getLotId() { return lotId; }
+    public void setLotId(int lotId) { this.lotId = lotId; }
+    
+    @Override
+    public String toString() {
+        return side + " " + quantity + " " + symbol + " " + type +
+               (type == Type.MARKET ? "" : " @ $" + Money.format(price)) +
+               " [" + status + ", filled " + filledQuantity + "]";
+    }
+}
@@ -1,107 +1,541 @@
 package com.stocktrading.models;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * Portfolio class demonstrating Collections and Generics
+ *
+ * Concurrency: every mutation runs under this portfolio's own lock, so updates
+ * to one portfolio are serialized while different portfolios update in
+ * parallel. After each (outermost) mutation an immutable Snapshot is published
+ * through a volatile field; other threads read cash, holdings and history from
+ * that snapshot without locking and always see a consistent state. The thread
+ * holding the lock sees its own in-progress changes.
+ *
+ * All money values (cash, prices, cost basis) are Money micro-units.
  */
 public class Portfolio {
     private int id;
-    private double cashBalance;
+    private long cashBalance;
+    private long reservedCash; // held for open buy orders
     private Map<String, StockHolding> holdings; // Using Map with generics
-    private List<Transaction> transactionHistory; // Using List with generics
+    private Map<String, Integer> reservedShares; // held for open sell orders
+    private TransactionLog transactionHistory; // append-only, so snapshots share it
+    private LotLedger.Relief reliefMethod = LotLedger.Relief.FIFO; // lots relieved by sells
+    private long realizedPnl;
     
-    public Portfolio(double initialCash) {
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private long version;
+    
+    public Portfolio(long initialCash) {
         this.cashBalance = initialCash;
         this.holdings = new HashMap<>();
-        this.transactionHistory = new ArrayList<>();
+        this.reservedShares = new HashMap<>();
+        this.transactionHistory = new TransactionLog();
+        publish();
     }
     
-    public Portfolio(int id, double cashBalance) {
+    public Portfolio(int id, long cashBalance) {
         this.id = id;
         this.cashBalance = cashBalance;
         this.holdings = new HashMap<>();
-        this.transactionHistory = new ArrayList<>();
+        this.reservedShares = new HashMap<>();
+        this.transactionHistory = new TransactionLog();
+        publish();
+    }
+    
+    /**
+     * Run several mutations as one atomic step; a single snapshot is published at the end
+     */
+    public <T> T update(Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    public void update(Runnable action) {
+        update(() -> {
+            action.run();
+            return null;
+        });
     }
     
-    public void addHolding(String symbol, int quantity, double price) {
-        if (holdings.containsKey(symbol)) {
+    public void addHolding(String symbol, int quantity, long price) {
+        lock.lock();
+        try {
             StockHolding holding = holdings.get(symbol);
-            holding.addQuantity(quantity, price);
-        } else {
-            holdings.put(symbol, new StockHolding(symbol, quantity, price));
+            if (holding != null) {
+                holding.addQuantity(quantity, price);
+            } else {
+                holdings.put(symbol, new StockHolding(symbol, quantity, price));
+            }
+        } finally {
+            unlockAndPublish();
         }
     }
     
+    /**
+     * Put back a holding with its lots, e.g. when rebuilding from the ledger
+     */
+    void restoreHolding(String symbol, LotLedger lots) {
+        lock.lock();
+        try {
+            holdings.put(symbol, new StockHolding(symbol, lots));
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    void restoreRealizedPnl(long realizedPnl) {
+        lock.lock();
+        try {
+            this.realizedPnl = realizedPnl;
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    /**
+     * Take shares out without a sale (no realized P&L); lots relieved by the relief method
+     */
     public boolean removeHolding(String symbol, int quantity) {
-        if (!holdings.containsKey(symbol)) {
-            return false;
+        return relieve(symbol, 0, quantity, null);
+    }
+    
+    /**
+     * Sell shares at the given price, relieving lots by the portfolio's relief
+     * method and booking the realized P&L
+     */
+    public boolean sellHolding(String symbol, int quantity, long price) {
+        return relieve(symbol, 0, quantity, price);
+    }
+    
+    /**
+     * Sell shares out of one specific lot and book the realized P&L
+     */
+    public boolean sellLot(String symbol, int lotId, int quantity, long price) {
+        return relieve(symbol, lotId, quantity, price);
+    }
+    
+    private boolean relieve(String symbol, int lotId, int quantity, Long price) {
+        lock.lock();
+        try {
+            StockHolding holding = holdings.get(symbol);
+            if (holding == null || holding.getQuantity() < quantity) {
+                return false;
+            }
+            long cost = lotId > 0 ? holding.removeLot(lotId, quantity) : holding.removeQuantity(quantity, reliefMethod);
+            if (cost < 0) {
+                return false;
+            }
+            if (price != null) {
+                realizedPnl = Money.add(realizedPnl, Money.subtract(Money.times(price, quantity), cost));
+            }
+            if (holding.getQuantity() == 0) {
+                holdings.remove(symbol);
+            }
+            return true;
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    /**
+     * Open tax lots of a holding, oldest first
+     */
+    public List<LotLedger.Lot> getLots(String symbol) {
+        lock.lock();
+        try {
+            StockHolding holding = holdings.get(symbol);
+            return holding != null ? holding.lots.getLots() : Collections.emptyList();
+        } finally {
+            lock.unlock();
         }
-        StockHolding holding = holdings.get(symbol);
-        if (holding.getQuantity() < quantity) {
-            return false;
+    }
+    
+    /**
+     * Reserve cash for an open buy order if enough unreserved cash is available
+     */
+    public boolean reserveCash(long amount) {
+        lock.lock();
+        try {
+            if (cashBalance - reservedCash < amount) {
+                return false;
+            }
+            reservedCash += amount;
+            return true;
+        } finally {
+            unlockAndPublish();
         }
-        holding.removeQuantity(quantity);
-        if (holding.getQuantity() == 0) {
-            holdings.remove(symbol);
+    }
+    
+    public void releaseCash(long amount) {
+        lock.lock();
+        try {
+            reservedCash = Math.max(0L, reservedCash - amount);
+        } finally {
+            unlockAndPublish();
         }
-        return true;
     }
     
-    public double getTotalValue(Map<String, Double> currentPrices) {
-        double stockValue = 0.0;
-        for (StockHolding holding : holdings.values()) {
-            Double price = currentPrices.get(holding.getSymbol());
-            if (price != null) {
-                stockValue += holding.getQuantity() * price;
+    /**
+     * Reserve shares for an open sell order if enough unreserved shares are held
+     */
+    public boolean reserveShares(String symbol, int quantity) {
+        lock.lock();
+        try {
+            StockHolding holding = holdings.get(symbol);
+            int reserved = reservedShares.getOrDefault(symbol, 0);
+            if (holding == null || holding.getQuantity() - reserved < quantity) {
+                return false;
+            }
+            reservedShares.put(symbol, reserved + quantity);
+            return true;
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    /**
+     * Shares of the symbol held and not reserved for open sell orders
+     */
+    public int getAvailableShares(String symbol) {
+        lock.lock();
+        try {
+            StockHolding holding = holdings.get(symbol);
+            return holding == null ? 0 : holding.getQuantity() - reservedShares.getOrDefault(symbol, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void releaseShares(String symbol, int quantity) {
+        lock.lock();
+        try {
+            int remaining = reservedShares.getOrDefault(symbol, 0) - quantity;
+            if (remaining > 0) {
+                reservedShares.put(symbol, remaining);
+            } else {
+                reservedShares.remove(symbol);
             }
+        } finally {
+            unlockAndPublish();
         }
-        return cashBalance + stockValue;
+    }
+    
+    public long getTotalValue(ToLongFunction<String> currentPrices) {
+        return getSnapshot().getTotalValue(currentPrices);
     }
     
     public void addTransaction(Transaction transaction) {
-        transactionHistory.add(transaction);
+        lock.lock();
+        try {
+            transactionHistory.add(transaction);
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    /**
+     * Put history loaded after the portfolio ahead of transactions made since
+     */
+    public void prependTransactions(List<Transaction> older) {
+        lock.lock();
+        try {
+            transactionHistory = transactionHistory.prepend(older);
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    private void unlockAndPublish() {
+        try {
+            if (lock.getHoldCount() == 1) {
+                publish();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void publish() {
+        int count = holdings.size();
+        Map<String, StockHolding> holdingsCopy = new HashMap<>();
+        String[] symbols = new String[count];
+        int[] quantities = new int[count];
+        int i = 0;
+        for (StockHolding holding : holdings.values()) {
+            holdingsCopy.put(holding.getSymbol(), holding.summary());
+            symbols[i] = holding.getSymbol();
+            quantities[i] = holding.getQuantity();
+            i++;
+        }
+        snapshot = new Snapshot(++version, cashBalance, reservedCash, realizedPnl,
+                                Collections.unmodifiableMap(holdingsCopy), symbols, quantities,
+                                transactionHistory.view());
     }
     
+    /**
+     * Latest published state; never blocks
+     */
+    public Snapshot getSnapshot() { return snapshot; }
+    
     // Getters and setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
-    public double getCashBalance() { return cashBalance; }
-    public void setCashBalance(double cashBalance) { this.cashBalance = cashBalance; }
-    public Map<String, StockHolding> getHoldings() { return holdings; }
-    public List<Transaction> getTransactionHistory() { return transactionHistory; }
+    
+    public long getCashBalance() {
+        return lock.isHeldByCurrentThread() ? cashBalance : snapshot.getCashBalance();
+    }
+    
+    public void setCashBalance(long cashBalance) {
+        lock.lock();
+        try {
+            this.cashBalance = cashBalance;
+        } finally {
+            unlockAndPublish();
+        }
+    }
+    
+    public long getAvailableCash() {
+        return lock.isHeldByCurrentThread() ? cashBalance - reservedCash : snapshot.getAvailableCash();
+    }
+    
+    public long getRealizedPnl() {
+        return lock.isHeldByCurrentThread() ? realizedPnl : snapshot.getRealizedPnl();
+    }
+    
+    public LotLedger.Relief getReliefMethod() { return reliefMethod; }
+    
+    /**
+     * FIFO or LIFO; specific lots are chosen per sale with sellLot
+     */
+    public void setReliefMethod(LotLedger.Relief reliefMethod) {
+        if (reliefMethod == LotLedger.Relief.SPECIFIC) {
+            throw new IllegalArgumentException("Specific-lot relief is chosen per sale");
+        }
+        this.reliefMethod = reliefMethod;
+    }
+    
+    /**
+     * Read-only view of the holdings
+     */
+    public Map<String, StockHolding> getHoldings() {
+        return lock.isHeldByCurrentThread() ? Collections.unmodifiableMap(holdings) : snapshot.getHoldings();
+    }
+    
+    public List<Transaction> getTransactionHistory() {
+        return lock.isHeldByCurrentThread() ? transactionHistory.view() : snapshot.getTransactionHistory();
+    }
+    
+    /**
+     * Transaction history that is only ever appended to. A view is the
+     * backing array plus the size at the time it was taken, so publishing a
+     * snapshot costs O(1) however long the history is: later appends write
+     * past the view's end, and growing or prepending copies into a new
+     * array that existing views never see. Mutated under the portfolio lock.
+     */
+    private static final class TransactionLog {
+        private Transaction[] items = new Transaction[16];
+        private int size;
+        
+        void add(Transaction transaction) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = transaction;
+        }
+        
+        TransactionLog prepend(List<Transaction> older) {
+            TransactionLog log = new TransactionLog();
+            log.items = new Transaction[Math.max(16, older.size() + size)];
+            for (Transaction transaction : older) {
+                log.items[log.size++] = transaction;
+            }
+            System.arraycopy(items, 0, log.items, log.size, size);
+            log.size += size;
+            return log;
+        }
+        
+        List<Transaction> view() {
+            return new TransactionView(items, size);
+        }
+    }
+    
+    private static final class TransactionView extends AbstractList<Transaction> implements RandomAccess {
+        private final Transaction[] items;
+        private final int size;
+        
+        TransactionView(Transaction[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+        
+        @Override
+        public Transaction get(int index) {
+            Objects.checkIndex(index, size);
+            return items[index];
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+    
+    /**
+     * Immutable, internally consistent view of a portfolio at one version
+     */
+    public static class Snapshot {
+        private final long version;
+        private final long cashBalance;
+        private final long reservedCash;
+        private final long realizedPnl;
+        private final Map<String, StockHolding> holdings;
+        private final String[] symbols; // flat copy of holdings for allocation-free valuation
+        private final int[] quantities;
+        private final List<Transaction> transactionHistory;
+        
+        private Snapshot(long version, long cashBalance, long reservedCash, long realizedPnl,
+                         Map<String, StockHolding> holdings, String[] symbols, int[] quantities,
+                         List<Transaction> transactionHistory) {
+            this.version = version;
+            this.cashBalance = cashBalance;
+            this.reservedCash = reservedCash;
+            this.realizedPnl = realizedPnl;
+            this.holdings = holdings;
+            this.symbols = symbols;
+            this.quantities = quantities;
+            this.transactionHistory = transactionHistory;
+        }
+        
+        /**
+         * Cash plus holdings marked at the given prices.
+         * Symbols with no price (zero or negative) are left out, as before.
+         */
+        public long getTotalValue(ToLongFunction<String> currentPrices) {
+            long total = cashBalance;
+            for (int i = 0; i < symbols.length; i++) {
+                long price = currentPrices.applyAsLong(symbols[i]);
+                if (price > 0) {
+                    total = Money.add(total, Money.times(price, quantities[i]));
+                }
+            }
+            return total;
+        }
+        
+        public long getVersion() { return version; }
+        public long getCashBalance() { return cashBalance; }
+        public long getAvailableCash() { return cashBalance - reservedCash; }
+        public long getRealizedPnl() { return realizedPnl; }
+        public Map<String, StockHolding> getHoldings() { return holdings; }
+        public List<Transaction> getTransactionHistory() { return transactionHistory; }
+    }
     
     /**
-     * Inner class representing a stock holding
+     * Inner class representing a stock holding.
+     * Shares are kept as tax lots; quantity and cost basis are their running totals.
      */
     public static class StockHolding {
         private String symbol;
         private int quantity;
-        private double averagePrice;
+        private long costBasis; // exact total cost of the shares held
+        private LotLedger lots; // null on snapshot copies
         
-        public StockHolding(String symbol, int quantity, double price) {
+        public StockHolding(String symbol, int quantity, long price) {
+            this(symbol, new LotLedger());
+            lots.add(quantity, price);
+            refresh();
+        }
+        
+        StockHolding(String symbol, LotLedger lots) {
             this.symbol = symbol;
-            this.quantity = quantity;
-            this.averagePrice = price;
+            this.lots = lots;
+            refresh();
+        }
+        
+        private StockHolding(StockHolding other, LotLedger lots) {
+            this.symbol = other.symbol;
+            this.quantity = other.quantity;
+            this.costBasis = other.costBasis;
+            this.lots = lots;
         }
         
-        public void addQuantity(int qty, double price) {
-            double totalValue = (quantity * averagePrice) + (qty * price);
-            quantity += qty;
-            averagePrice = totalValue / quantity;
+        public void addQuantity(int qty, long price) {
+            lots.add(qty, price);
+            refresh();
         }
         
+        /**
+         * Relieve shares oldest lots first
+         */
         public void removeQuantity(int qty) {
-            quantity -= qty;
+            removeQuantity(qty, LotLedger.Relief.FIFO);
+        }
+        
+        /**
+         * @return cost of the shares relieved, or -1 (nothing changed) if fewer are held
+         */
+        public long removeQuantity(int qty, LotLedger.Relief method) {
+            long relieved = lots.relieve(qty, method);
+            refresh();
+            return relieved;
+        }
+        
+        /**
+         * @return cost of the shares relieved, or -1 (nothing changed) if the lot holds fewer
+         */
+        public long removeLot(int lotId, int qty) {
+            long relieved = lots.relieveLot(lotId, qty);
+            refresh();
+            return relieved;
+        }
+        
+        private void refresh() {
+            quantity = lots.getQuantity();
+            costBasis = lots.getCostBasis();
+        }
+        
+        /**
+         * Detached copy including lots, e.g. to work out the effect of trades before applying them
+         */
+        public StockHolding copy() {
+            if (lots != null) {
+                return new StockHolding(this, lots.copy());
+            }
+            // A snapshot copy has totals only; carry them as a single lot
+            LotLedger seeded = new LotLedger();
+            seeded.addCost(quantity, costBasis);
+            return new StockHolding(symbol, seeded);
+        }
+        
+        // Totals only, for snapshots - keeps publishing O(holdings) however many lots there are
+        StockHolding summary() {
+            return new StockHolding(this, null);
         }
         
         public String getSymbol() { return symbol; }
         public int getQuantity() { return quantity; }
-        public double getAveragePrice() { return averagePrice; }
+        public long getCostBasis() { return costBasis; }
+        public long getAveragePrice() { return Money.perShare(costBasis, quantity); }
+        
+        /**
+         * Open lots, oldest first; empty on snapshot copies (use Portfolio.getLots)
+         */
+        public List<LotLedger.Lot> getLots() {
+            return lots != null ? lots.getLots() : Collections.emptyList();
+        }
         
         @Override
         public String toString() {
-            return symbol + ": " + quantity + " shares @ $" + String.format("%.2f", averagePrice);
+            return symbol + ": " + quantity + " shares @ $" + Money.format(getAveragePrice());
         }
     }
 }
@@ -0,0 +1,193 @@
+package com.stocktrading.models;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Portfolio state rebuilt from the transaction ledger.
+ *
+ * The transactions table is the source of truth: cash, tax lots and realized
+ * P&L are a fold over BUY/SELL events, applied with exactly the same lot
+ * arithmetic as Portfolio. Each SELL carries the relief method (and lot) it
+ * used, so replay relieves the same lots. A state can be written as a compact
+ * binary snapshot so loading only replays the events recorded after it.
+ *
+ * Single-threaded and lock-free on purpose - replay applies millions of
+ * events, and a Portfolio is only built once at the end.
+ */
+public class PortfolioState {
+    private static final int FORMAT_VERSION = 2; // 1 = quantity/cost per position, 2 = tax lots
+    
+    private long cashBalance;
+    private long lastTransactionId;
+    private long eventsApplied;
+    private long realizedPnl;
+    private final Map<String, LotLedger> positions = new HashMap<>();
+    
+    public PortfolioState(long cashBalance) {
+        this.cashBalance = cashBalance;
+    }
+    
+    /**
+     * Apply one ledger event, relieving sells FIFO; unknown types are ignored
+     */
+    public void apply(long transactionId, String type, String symbol, int quantity, long price) {
+        apply(transactionId, type, symbol, quantity, price, LotLedger.Relief.FIFO, 0);
+    }
+    
+    /**
+     * Apply one ledger event; a SELL relieves lots by its recorded method
+     * (lotId for SPECIFIC). Unknown types are ignored.
+     */
+    public void apply(long transactionId, String type, String symbol, int quantity, long price,
+                      LotLedger.Relief relief, int lotId) {
+        long amount = Money.times(price, quantity);
+        if ("BUY".equals(type)) {
+            cashBalance = Money.subtract(cashBalance, amount);
+            LotLedger lots = positions.get(symbol);
+            if (lots == null) {
+                lots = new LotLedger();
+                positions.put(symbol, lots);
+            }
+            lots.add(quantity, price);
+        } else if ("SELL".equals(type)) {
+            LotLedger lots = positions.get(symbol);
+            if (lots != null) {
+                long cost = relief == LotLedger.Relief.SPECIFIC ? lots.relieveLot(lotId, quantity)
+                    : lots.relieve(quantity, relief != null ? relief : LotLedger.Relief.FIFO);
+                if (cost >= 0) {
+                    realizedPnl = Money.add(realizedPnl, Money.subtract(amount, cost));
+                }
+                if (lots.getQuantity() <= 0) {
+                    positions.remove(symbol);
+                }
+            }
+            cashBalance = Money.add(cashBalance, amount);
+        }
+        lastTransactionId = Math.max(lastTransactionId, transactionId);
+        eventsApplied++;
+    }
+    
+    /**
+     * Seed a position as one lot without a cash movement, e.g. from pre-ledger holdings rows
+     */
+    public void addPosition(String symbol, int quantity, long costBasis) {
+        if (quantity <= 0) {
+            return;
+        }
+        LotLedger lots = positions.get(symbol);
+        if (lots == null) {
+            lots = new LotLedger();
+            positions.put(symbol, lots);
+        }
+        lots.addCost(quantity, costBasis);
+    }
+    
+    /**
+     * Build a live Portfolio holding this state (transaction history not included)
+     */
+    public Portfolio toPortfolio(int portfolioId) {
+        Portfolio portfolio = new Portfolio(portfolioId, cashBalance);
+        portfolio.update(() -> {
+            for (Map.Entry<String, LotLedger> entry : positions.entrySet()) {
+                portfolio.restoreHolding(entry.getKey(), entry.getValue().copy());
+            }
+            portfolio.restoreRealizedPnl(realizedPnl);
+        });
+        return portfolio;
+    }
+    
+    /**
+     * True if the snapshot has the same cash, realized P&L and holdings (quantity and cost basis)
+     */
+    public boolean matches(Portfolio.Snapshot snapshot) {
+        Map<String, Portfolio.StockHolding> holdings = snapshot.getHoldings();
+        if (snapshot.getCashBalance() != cashBalance || snapshot.getRealizedPnl() != realizedPnl ||
+            holdings.size() != positions.size()) {
+            return false;
+        }
+        for (Portfolio.StockHolding holding : holdings.values()) {
+            LotLedger lots = positions.get(holding.getSymbol());
+            if (lots == null || lots.getQuantity() != holding.getQuantity() ||
+                lots.getCostBasis() != holding.getCostBasis()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Compact binary form: version, cash, last transaction id, realized P&L,
+     * then symbol and open lots per position
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + positions.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(cashBalance);
+            out.writeLong(lastTransactionId);
+            out.writeLong(realizedPnl);
+            out.writeInt(positions.size());
+            for (Map.Entry<String, LotLedger> entry : positions.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    public static PortfolioState fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readByte();
+            if (version != 1 && version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot format " + version);
+            }
+            PortfolioState state = new PortfolioState(in.readLong());
+            state.lastTransactionId = in.readLong();
+            if (version >= 2) {
+                state.realizedPnl = in.readLong();
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String symbol = in.readUTF();
+                if (version >= 2) {
+                    state.positions.put(symbol, LotLedger.read(in));
+                } else {
+                    // Pre-lot snapshot: the whole position becomes one lot
+                    state.addPosition(symbol, in.readInt(), in.readLong());
+                }
+            }
+            return state;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt portfolio snapshot", e);
+        }
+    }
+    
+    public void setLastTransactionId(long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+    
+    // Getters
+    public long getCashBalance() { return cashBalance; }
+    public long getLastTransactionId() { return lastTransactionId; }
+    public long getEventsApplied() { return eventsApplied; }
+    public long getRealizedPnl() { return realizedPnl; }
+    public Set<String> getSymbols() { return Collections.unmodifiableSet(positions.keySet()); }
+    
+    public int getQuantity(String symbol) {
+        LotLedger lots = positions.get(symbol);
+        return lots != null ? lots.getQuantity() : 0;
+    }
+    
+    public long getCostBasis(String symbol) {
+        LotLedger lots = positions.get(symbol);
+        return lots != null ? lots.getCostBasis() : 0;
+    }
+    
+    public List<LotLedger.Lot> getLots(String symbol) {
+        LotLedger lots = positions.get(symbol);
+        return lots != null ? lots.getLots() : Collections.emptyList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.stocktrading.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Price alert set by a user on a symbol
+ */
+public class PriceAlert {
+    /**
+     * ABOVE/BELOW use an absolute price; PERCENT_UP/PERCENT_DOWN are relative
+     * to the reference price (the day's open when the alert is created)
+     */
+    public enum Condition { ABOVE, BELOW, PERCENT_UP, PERCENT_DOWN }
+    
+    private int id;
+    private int userId;
+    private String symbol;
+    private Condition condition;
+    private double threshold;
+    private double referencePrice;
+    private LocalDateTime createdAt;
+    private LocalDateTime triggeredAt;
+    
+    public PriceAlert(int userId, String symbol, Condition condition, double threshold, double referencePrice) {
+        this.userId = userId;
+        this.symbol = symbol;
+        this.condition = condition;
+        this.threshold = threshold;
+        this.referencePrice = referencePrice;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public PriceAlert(int id, int userId, String symbol, Condition condition, double threshold,
+                      double referencePrice, LocalDateTime createdAt, LocalDateTime triggeredAt) {
+        this.id = id;
+        this.userId = userId;
+        this.symbol = symbol;
+        this.condition = condition;
+        this.threshold = threshold;
+        this.referencePrice = referencePrice;
+        this.createdAt = createdAt;
+        this.triggeredAt = triggeredAt;
+    }
+    
+    /**
+     * Absolute price at which the alert fires
+     */
+    public double getTriggerPrice() {
+        switch (condition) {
+            case PERCENT_UP:
+                return referencePrice * (1 + threshold / 100.0);
+            case PERCENT_DOWN:
+                return referencePrice * (1 - threshold / 100.0);
+            default:
+                return threshold;
+        }
+    }
+    
+    /**
+     * True if the alert fires when the price rises to the trigger price
+     */
+    public boolean isUpward() {
+        return condition == Condition.ABOVE || condition == Condition.PERCENT_UP;
+    }
+    
+    // Getters and setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public int getUserId() { return userId; }
+    public String getSymbol() { return symbol; }
+    public Condition getCondition() { return condition; }
+    public double getThreshold() { return threshold; }
+    public double getReferencePrice() { return referencePrice; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getTriggeredAt() { return triggeredAt; }
+    public void setTriggeredAt(LocalDateTime triggeredAt) { this.triggeredAt = triggeredAt; }
+    public boolean isTriggered() { return triggeredAt != null; }
+    
+    @Override
+    public String toString() {
+        switch (condition) {
+            case PERCENT_UP:
+                return symbol + " rises " + String.format("%.1f", threshold) + "% (to $" +
+                       String.format("%.2f", getTriggerPrice()) + ")";
+            case PERCENT_DOWN:
+                return symbol + " drops " + String.format("%.1f", threshold) + "% (to $" +
+                       String.format("%.2f", getTriggerPrice()) + ")";
+            case BELOW:
+                return symbol + " falls below $" + String.format("%.2f", threshold);
+            default:
+                return symbol + " rises above $" + String.format("%.2f", threshold);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.stocktrading.models;
+
+import java.util.*;
+
+/**
+ * Aligned daily return series for a universe of symbols, plus their means and
+ * covariance. Immutable once built, so one instance is shared read-only by
+ * every risk worker thread.
+ *
+ * Row i holds the simple returns of symbol i over the same trailing window of
+ * days for every symbol; column t is one historical scenario.
+ */
+public class ReturnMatrix {
+    private final String[] symbols;
+    private final Map<String, Integer> index;
+    private final double[][] returns; // [symbol][day]
+    private final double[] lastPrices;
+    private final double[] means;
+    private final double[][] covariance;
+    
+    private ReturnMatrix(String[] symbols, double[][] returns, double[] lastPrices) {
+        int count = symbols.length;
+        int days = count > 0 ? returns[0].length : 0;
+        this.symbols = symbols;
+        this.returns = returns;
+        this.lastPrices = lastPrices;
+        this.index = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            index.put(symbols[i], i);
+        }
+        
+        this.means = new double[count];
+        for (int i = 0; i < count; i++) {
+            double sum = 0;
+            for (int t = 0; t < days; t++) {
+                sum += returns[i][t];
+            }
+            means[i] = days > 0 ? sum / days : 0;
+        }
+        
+        // Sample covariance, computed once and shared
+        this.covariance = new double[count][count];
+        for (int i = 0; i < count; i++) {
+            for (int j = i; j < count; j++) {
+                double sum = 0;
+                for (int t = 0; t < days; t++) {
+                    sum += (returns[i][t] - means[i]) * (returns[j][t] - means[j]);
+                }
+                double value = days > 1 ? sum / (days - 1) : 0;
+                covariance[i][j] = value;
+                covariance[j][i] = value;
+            }
+        }
+    }
+    
+    /**
+     * Build from daily closing prices, oldest first. Series are aligned on the
+     * most recent common window; symbols with fewer than two prices are left out.
+     */
+    public static ReturnMatrix fromPrices(Map<String, List<Double>> prices) {
+        int window = Integer.MAX_VALUE;
+        List<String> usable = new ArrayList<>();
+        for (Map.Entry<String, List<Double>> entry : prices.entrySet()) {
+            List<Double> series = entry.getValue();
+            if (series != null && series.size() >= 2) {
+                usable.add(entry.getKey());
+                window = Math.min(window, series.size());
+            }
+        }
+        Collections.sort(usable);
+        
+        int days = usable.isEmpty() ? 0 : window - 1;
+        String[] symbols = usable.toArray(new String[0]);
+        double[][] returns = new double[symbols.length][days];
+        double[] lastPrices = new double[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            List<Double> series = prices.get(symbols[i]);
+            int offset = series.size() - window;
+            for (int t = 0; t < days; t++) {
+                double previous = series.get(offset + t);
+                double current = series.get(offset + t + 1);
+                returns[i][t] = previous > 0 ? current / previous - 1 : 0;
+            }
+            lastPrices[i] = series.get(series.size() - 1);
+        }
+        return new ReturnMatrix(symbols, returns, lastPrices);
+    }
+    
+    /**
+     * Build from daily bars (e.g. BarAggregator output), oldest first, using closes
+     */
+    public static ReturnMatrix fromBars(Map<String, List<StockData>> bars) {
+        Map<String, List<Double>> closes = new HashMap<>();
+        for (Map.Entry<String, List<StockData>> entry : bars.entrySet()) {
+            List<Double> series = new ArrayList<>(entry.getValue().size());
+            for (StockData bar : entry.getValue()) {
+                series.add(bar.getClose());
+            }
+            closes.put(entry.getKey(), series);
+        }
+        return fromPrices(closes);
+    }
+    
+    /**
+     * Index of the symbol's row, or -1 if it is not in the universe
+     */
+    public int indexOf(String symbol) {
+        Integer i = index.get(symbol);
+        return i != null ? i : -1;
+    }
+    
+    /**
+     * target[t] += weight * return of symbol i on day t, for every day
+     */
+    public void accumulate(int i, double weight, double[] target) {
+        double[] row = returns[i];
+        for (int t = 0; t < row.length; t++) {
+            target[t] += weight * row[t];
+        }
+    }
+    
+    /**
+     * Expected daily P&L of the given dollar exposures
+     */
+    public double expectedPnl(int[] rows, double[] exposures, int count) {
+        double sum = 0;
+        for (int k = 0; k < count; k++) {
+            sum += exposures[k] * means[rows[k]];
+        }
+        return sum;
+    }
+    
+    /**
+     * Daily P&L variance of the given dollar exposures (e' * covariance * e)
+     */
+    public double variance(int[] rows, double[] exposures, int count) {
+        double sum = 0;
+        for (int a = 0; a < count; a++) {
+            double[] covRow = covariance[rows[a]];
+            double inner = 0;
+            for (int b = 0; b < count; b++) {
+                inner += covRow[rows[b]] * exposures[b];
+            }
+            sum += exposures[a] * inner;
+        }
+        return sum;
+    }
+    
+    public int getSymbolCount() { return symbols.length; }
+    public int getScenarioCount() { return symbols.length > 0 ? returns[0].length : 0; }
+    public String getSymbol(int i) { return symbols[i]; }
+    public double getLastPrice(int i) { return lastPrices[i]; }
+    public double getReturn(int i, int day) { return returns[i][day]; }
+    public double getMean(int i) { return means[i]; }
+    public double getCovariance(int i, int j) { return covariance[i][j]; }
+}
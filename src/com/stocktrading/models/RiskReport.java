@@ -0,0 +1,153 @@
+package com.stocktrading.models;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Firm-wide risk summary produced by RiskEngine.
+ *
+ * Loss figures are positive dollar amounts over a one-day horizon. Only
+ * aggregates and the riskiest portfolios are kept here; per-portfolio rows
+ * are streamed out while the engine runs so the report stays small however
+ * many portfolios there are.
+ */
+public class RiskReport {
+    private final LocalDateTime generatedAt;
+    private final double confidence;
+    private final int scenarioCount;
+    private final List<StressScenario> stressScenarios;
+    
+    private long portfolioCount;
+    private long positionCount;
+    private long unmodeledPositionCount; // no return history - in stress tests only
+    private double grossExposure;
+    private double historicalVaR;
+    private double historicalCVaR;
+    private double parametricVaR;
+    private double parametricCVaR;
+    private double[] stressLosses;
+    private List<PortfolioRisk> riskiest = new ArrayList<>();
+    private long elapsedMillis;
+    
+    public RiskReport(LocalDateTime generatedAt, double confidence, int scenarioCount,
+                      List<StressScenario> stressScenarios) {
+        this.generatedAt = generatedAt;
+        this.confidence = confidence;
+        this.scenarioCount = scenarioCount;
+        this.stressScenarios = Collections.unmodifiableList(new ArrayList<>(stressScenarios));
+        this.stressLosses = new double[stressScenarios.size()];
+    }
+    
+    public void setTotals(long portfolioCount, long positionCount, long unmodeledPositionCount, double grossExposure) {
+        this.portfolioCount = portfolioCount;
+        this.positionCount = positionCount;
+        this.unmodeledPositionCount = unmodeledPositionCount;
+        this.grossExposure = grossExposure;
+    }
+    
+    public void setHistorical(double var, double cvar) {
+        this.historicalVaR = var;
+        this.historicalCVaR = cvar;
+    }
+    
+    public void setParametric(double var, double cvar) {
+        this.parametricVaR = var;
+        this.parametricCVaR = cvar;
+    }
+    
+    public void setStressLosses(double[] stressLosses) { this.stressLosses = stressLosses.clone(); }
+    public void setRiskiest(List<PortfolioRisk> riskiest) { this.riskiest = new ArrayList<>(riskiest); }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+    
+    // Getters
+    public LocalDateTime getGeneratedAt() { return generatedAt; }
+    public double getConfidence() { return confidence; }
+    public int getScenarioCount() { return scenarioCount; }
+    public List<StressScenario> getStressScenarios() { return stressScenarios; }
+    public long getPortfolioCount() { return portfolioCount; }
+    public long getPositionCount() { return positionCount; }
+    public long getUnmodeledPositionCount() { return unmodeledPositionCount; }
+    public double getGrossExposure() { return grossExposure; }
+    public double getHistoricalVaR() { return historicalVaR; }
+    public double getHistoricalCVaR() { return historicalCVaR; }
+    public double getParametricVaR() { return parametricVaR; }
+    public double getParametricCVaR() { return parametricCVaR; }
+    public double getStressLoss(int scenario) { return stressLosses[scenario]; }
+    public List<PortfolioRisk> getRiskiest() { return Collections.unmodifiableList(riskiest); }
+    public long getElapsedMillis() { return elapsedMillis; }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Firm-wide risk report ")
+          .append(generatedAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))).append('\n');
+        sb.append(String.format("Portfolios: %d, positions: %d (%d without history), gross exposure: $%,.2f%n",
+                                portfolioCount, positionCount, unmodeledPositionCount, grossExposure));
+        sb.append(String.format("1-day %.1f%% over %d scenarios%n", confidence * 100, scenarioCount));
+        sb.append(String.format("  Historical VaR: $%,.2f  CVaR: $%,.2f%n", historicalVaR, historicalCVaR));
+        sb.append(String.format("  Parametric VaR: $%,.2f  CVaR: $%,.2f%n", parametricVaR, parametricCVaR));
+        for (int s = 0; s < stressScenarios.size(); s++) {
+            sb.append(String.format("  Stress %-24s loss: $%,.2f%n", stressScenarios.get(s).getName(), stressLosses[s]));
+        }
+        if (!riskiest.isEmpty()) {
+            sb.append("Riskiest portfolios (historical VaR):\n");
+            for (PortfolioRisk risk : riskiest) {
+                sb.append("  ").append(risk).append('\n');
+            }
+        }
+        sb.append("Computed in ").append(elapsedMillis).append(" ms\n");
+        return sb.toString();
+    }
+    
+    /**
+     * Risk figures for one portfolio
+     */
+    public static class PortfolioRisk {
+        private final int portfolioId;
+        private final double marketValue;
+        private final double historicalVaR;
+        private final double historicalCVaR;
+        private final double parametricVaR;
+        private final double parametricCVaR;
+        private final double[] stressLosses;
+        
+        public PortfolioRisk(int portfolioId, double marketValue, double historicalVaR, double historicalCVaR,
+                             double parametricVaR, double parametricCVaR, double[] stressLosses) {
+            this.portfolioId = portfolioId;
+            this.marketValue = marketValue;
+            this.historicalVaR = historicalVaR;
+            this.historicalCVaR = historicalCVaR;
+            this.parametricVaR = parametricVaR;
+            this.parametricCVaR = parametricCVaR;
+            this.stressLosses = stressLosses;
+        }
+        
+        public int getPortfolioId() { return portfolioId; }
+        public double getMarketValue() { return marketValue; }
+        public double getHistoricalVaR() { return historicalVaR; }
+        public double getHistoricalCVaR() { return historicalCVaR; }
+        public double getParametricVaR() { return parametricVaR; }
+        public double getParametricCVaR() { return parametricCVaR; }
+        public double getStressLoss(int scenario) { return stressLosses[scenario]; }
+        
+        /**
+         * portfolio_id,market_value,hist_var,hist_cvar,param_var,param_cvar[,stress...]
+         */
+        public String toCsv() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(portfolioId).append(',').append(String.format("%.2f,%.2f,%.2f,%.2f,%.2f", marketValue,
+                      historicalVaR, historicalCVaR, parametricVaR, parametricCVaR));
+            for (double loss : stressLosses) {
+                sb.append(',').append(String.format("%.2f", loss));
+            }
+            return sb.toString();
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("#%d value $%,.2f VaR $%,.2f CVaR $%,.2f", portfolioId, marketValue,
+                                 historicalVaR, historicalCVaR);
+        }
+    }
+}
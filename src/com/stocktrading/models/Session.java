@@ -0,0 +1,50 @@
+package com.stocktrading.models;
+
+/**
+ * Login session identified by an opaque token.
+ * Expires when idle for too long (sliding) or when it reaches its
+ * absolute lifetime, whichever comes first. Times are epoch millis.
+ */
+public class Session {
+    private final String token;
+    private final int userId;
+    private final String username;
+    private final long createdAt;
+    private final long expiresAt; // absolute limit
+    private volatile long lastAccess;
+    
+    public Session(String token, int userId, String username, long createdAt, long expiresAt) {
+        this.token = token;
+        this.userId = userId;
+        this.username = username;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.lastAccess = createdAt;
+    }
+    
+    public boolean isExpired(long now, long idleTimeoutMillis) {
+        return now >= expiresAt || now - lastAccess >= idleTimeoutMillis;
+    }
+    
+    /**
+     * Slide the idle expiry forward; skipped if already touched within granularity
+     * so hot sessions do not write the shared field on every request
+     */
+    public void touch(long now, long granularityMillis) {
+        if (now - lastAccess >= granularityMillis) {
+            lastAccess = now;
+        }
+    }
+    
+    public String getToken() { return token; }
+    public int getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public long getCreatedAt() { return createdAt; }
+    public long getExpiresAt() { return expiresAt; }
+    public long getLastAccess() { return lastAccess; }
+    
+    @Override
+    public String toString() {
+        return "Session{user='" + username + "', token=" + token.substring(0, 6) + "...}";
+    }
+}
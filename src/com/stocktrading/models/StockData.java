@@ -1,5 +1,8 @@
 package com.stocktrading.models;
 
+/**
+ * OHLCV bar for a single symbol over one time interval
+ */
 public class StockData {
     // Attributes - the data we're storing
     private String symbol;
@@ -9,8 +12,7 @@ public class StockData {
     private double high;
     private double low;
     private long volume;
-}
-
+    
     // constructor
     public StockData(String symbol, String date, double open, double high, double low, double close, long volume) {
         this.symbol = symbol;
@@ -21,7 +23,7 @@ public class StockData {
         this.close = close;
         this.volume = volume;
     }
-
+    
     public double getClose() {
         return close;
     }
@@ -45,4 +47,5 @@ public class StockData {
     }
     public long getVolume() {
         return volume;
-    }
\ No newline at end of file
+    }
+}
@@ -0,0 +1,40 @@
+package com.stocktrading.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hypothetical one-off price move, e.g. "market -10%, tech -25%".
+ * Shocks are fractional returns (-0.25 = -25%); symbols without their own
+ * shock move by the default shock.
+ */
+public class StressScenario {
+    private final String name;
+    private final double defaultShock;
+    private final Map<String, Double> shocks = new HashMap<>();
+    
+    public StressScenario(String name, double defaultShock) {
+        this.name = name;
+        this.defaultShock = defaultShock;
+    }
+    
+    public StressScenario shock(String symbol, double move) {
+        shocks.put(symbol, move);
+        return this;
+    }
+    
+    public double getShock(String symbol) {
+        Double move = shocks.get(symbol);
+        return move != null ? move : defaultShock;
+    }
+    
+    public String getName() { return name; }
+    public double getDefaultShock() { return defaultShock; }
+    public Map<String, Double> getShocks() { return Collections.unmodifiableMap(shocks); }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
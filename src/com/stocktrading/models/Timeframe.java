@@ -0,0 +1,20 @@
+package com.stocktrading.models;
+
+/**
+ * Bar intervals produced by the tick aggregator
+ */
+public enum Timeframe {
+    ONE_MINUTE(60_000L),
+    FIVE_MINUTES(5 * 60_000L),
+    ONE_HOUR(60 * 60_000L),
+    ONE_DAY(0L); // spans the whole trading session
+    
+    private final long millis;
+    
+    Timeframe(long millis) {
+        this.millis = millis;
+    }
+    
+    public long getMillis() { return millis; }
+    public boolean isDaily() { return millis == 0L; }
+}
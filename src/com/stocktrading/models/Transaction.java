@@ -5,16 +5,19 @@ import java.time.format.DateTimeFormatter;
 
 /**
  * Transaction model representing buy/sell operations
+ * Price and amounts are Money micro-units
  */
 public class Transaction {
     private int id;
     private String type; // BUY or SELL
     private String symbol;
     private int quantity;
-    private double price;
+    private long price;
     private LocalDateTime timestamp;
+    private LotLedger.Relief relief; // lots relieved by a SELL; null for buys
+    private int lotId; // lot sold when relief is SPECIFIC
     
-    public Transaction(String type, String symbol, int quantity, double price) {
+    public Transaction(String type, String symbol, int quantity, long price) {
         this.type = type;
         this.symbol = symbol;
         this.quantity = quantity;
@@ -22,7 +25,16 @@ public class Transaction {
         this.timestamp = LocalDateTime.now();
     }
     
-    public Transaction(int id, String type, String symbol, int quantity, double price, LocalDateTime timestamp) {
+    /**
+     * A SELL that relieved lots by the given method (lotId only for SPECIFIC)
+     */
+    public Transaction(String type, String symbol, int quantity, long price, LotLedger.Relief relief, int lotId) {
+        this(type, symbol, quantity, price);
+        this.relief = relief;
+        this.lotId = lotId;
+    }
+    
+    public Transaction(int id, String type, String symbol, int quantity, long price, LocalDateTime timestamp) {
         this.id = id;
         this.type = type;
         this.symbol = symbol;
@@ -31,8 +43,8 @@ public class Transaction {
         this.timestamp = timestamp;
     }
     
-    public double getTotalAmount() {
-        return quantity * price;
+    public long getTotalAmount() {
+        return Money.times(price, quantity);
     }
     
     // Getters
@@ -40,13 +52,15 @@ public class Transaction {
     public String getType() { return type; }
     public String getSymbol() { return symbol; }
     public int getQuantity() { return quantity; }
-    public double getPrice() { return price; }
+    public long getPrice() { return price; }
     public LocalDateTime getTimestamp() { return timestamp; }
+    public LotLedger.Relief getRelief() { return relief; }
+    public int getLotId() { return lotId; }
     
     @Override
     public String toString() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
         return type + " " + quantity + " " + symbol + " @ $" + 
-               String.format("%.2f", price) + " (" + timestamp.format(formatter) + ")";
+               Money.format(price) + " (" + timestamp.format(formatter) + ")";
     }
 }
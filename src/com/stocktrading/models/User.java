@@ -1,8 +1,6 @@
 package com.stocktrading.models;
-<<<<<<< HEAD
-=======
-import java.time.LocalDateTime;
->>>>>>> 40f29cea799d793883ef09eb7b60676533eb5699
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * User class demonstrating inheritance from Person
@@ -11,27 +9,23 @@ public class User extends Person {
     private String username;
     private String password;
     private Portfolio portfolio;
+    private String sessionToken; // set while logged in
+    private CompletableFuture<Portfolio> portfolioLoad; // background load started at login
+    private CompletableFuture<List<Transaction>> historyLoad;
     
     public User(String username, String password, String name, String email) {
         super(name, email);
         this.username = username;
         this.password = password;
-        this.portfolio = new Portfolio(10000.0); // Starting with $10,000
-<<<<<<< HEAD
+        this.portfolio = new Portfolio(Money.ofWhole(10000)); // Starting with $10,000
     }
-=======
-        
-    }
-    //constructor with ID (when loading from database)
->>>>>>> 40f29cea799d793883ef09eb7b60676533eb5699
-    
+
     public User(int id, String username, String password, String name, String email) {
         super(id, name, email);
         this.username = username;
         this.password = password;
     }
-<<<<<<< HEAD
-    
+
     @Override
     public String getRole() {
         return "TRADER";
@@ -44,51 +38,30 @@ public class User extends Person {
     public void setPassword(String password) { this.password = password; }
     public Portfolio getPortfolio() { return portfolio; }
     public void setPortfolio(Portfolio portfolio) { this.portfolio = portfolio; }
-=======
-
-    //Constructor with all fields (for database loading with portfolio)
-    public User(int id, String username, String password, String name, String email, Portfolio portfolio) {
-        super(id, name, email);
-        this.username = username;
-        this.password = password;
-        this.portfolio = portfolio;
 
+    public String getSessionToken() { return sessionToken; }
+    public void setSessionToken(String sessionToken) { this.sessionToken = sessionToken; }
+    
+    /**
+     * Completes once the portfolio (without history) is loaded and set on this user
+     */
+    public CompletableFuture<Portfolio> getPortfolioLoad() {
+        return portfolioLoad != null ? portfolioLoad : CompletableFuture.completedFuture(portfolio);
     }
     
->>>>>>> 40f29cea799d793883ef09eb7b60676533eb5699
+    public void setPortfolioLoad(CompletableFuture<Portfolio> portfolioLoad) { this.portfolioLoad = portfolioLoad; }
+    
+    /**
+     * Completes once recent transaction history has been added to the portfolio
+     */
+    public CompletableFuture<List<Transaction>> getHistoryLoad() {
+        return historyLoad != null ? historyLoad : CompletableFuture.completedFuture(List.of());
+    }
+    
+    public void setHistoryLoad(CompletableFuture<List<Transaction>> historyLoad) { this.historyLoad = historyLoad; }
     
     @Override
     public String toString() {
         return "User{username='" + username + "', name='" + name + "', email='" + email + "'}";
     }
-<<<<<<< HEAD
 }
-=======
-        public String getRole() {
-            return "TRADER";
-        }
-        //Getters and setters
-        public String getUsername() {
-            return username;
-        }
-        public void setUsername(String username) {
-            this.username = username;
-
-        }
-        public String getPassword() {
-            return password;
-        }
-        public void setPassword(String password) {
-            this.password = password;
-        }
-        public Portfolio getPortfolio() {
-            return portfolio;
-        }
-        public void setPortfolio(Portfolio portfolio) {
-            this.portfolio = portfolio;
-        }
-
-
-    }
-
->>>>>>> 40f29cea799d793883ef09eb7b60676533eb5699
@@ -0,0 +1,41 @@
+package com.stocktrading.models;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Named, ordered list of symbols a user follows.
+ * The symbol list is copy-on-write, so the UI can read it while it is edited.
+ */
+public class Watchlist {
+    private int id;
+    private int userId;
+    private String name;
+    private List<String> symbols;
+    
+    public Watchlist(int id, int userId, String name) {
+        this(id, userId, name, new CopyOnWriteArrayList<>());
+    }
+    
+    public Watchlist(int id, int userId, String name, List<String> symbols) {
+        this.id = id;
+        this.userId = userId;
+        this.name = name;
+        this.symbols = symbols;
+    }
+    
+    public boolean contains(String symbol) {
+        return symbols.contains(symbol);
+    }
+    
+    // Getters and setters
+    public int getId() { return id; }
+    public int getUserId() { return userId; }
+    public String getName() { return name; }
+    public List<String> getSymbols() { return symbols; }
+    
+    @Override
+    public String toString() {
+        return name + " (" + symbols.size() + ")";
+    }
+}
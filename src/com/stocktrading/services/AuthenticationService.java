@@ -3,40 +3,143 @@ package com.stocktrading.services;
 import com.stocktrading.interfaces.AuthService;
 import com.stocktrading.models.User;
 import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.models.Portfolio;
+import com.stocktrading.models.Session;
+import com.stocktrading.models.Transaction;
 import java.sql.SQLException;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 /**
  * Authentication service implementing AuthService interface
+ * Each login opens its own token session in the SessionStore
+ *
+ * Login returns once the credentials are verified. The portfolio and its
+ * recent history are then loaded concurrently in the background and exposed
+ * as futures on the User, so the dashboard can open straight away.
+ *
+ * Passwords are hashed and checked by the PasswordHasher on its own bounded
+ * pool; loginAsync keeps all of it off the calling (Swing) thread. Rows
+ * still holding plaintext or a cheaper hash are rehashed after a successful login.
  */
 public class AuthenticationService implements AuthService {
+    private static final int HISTORY_SIZE = 50;
+    
     private DatabaseManager dbManager;
-    private Set<String> authenticatedUsers; // Using Set from Collections
+    private SessionStore sessions;
+    private PasswordHasher hasher;
+    private ExecutorService loader;
+    private final Set<Integer> upgrading = ConcurrentHashMap.newKeySet(); // users whose rehash is in flight
     
     public AuthenticationService(DatabaseManager dbManager) {
+        this(dbManager, new SessionStore());
+    }
+    
+    public AuthenticationService(DatabaseManager dbManager, SessionStore sessions) {
+        this(dbManager, sessions, new PasswordHasher());
+    }
+    
+    public AuthenticationService(DatabaseManager dbManager, SessionStore sessions, PasswordHasher hasher) {
         this.dbManager = dbManager;
-        this.authenticatedUsers = new HashSet<>();
+        this.sessions = sessions;
+        this.hasher = hasher;
+        this.loader = Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "login-loader");
+            t.setDaemon(true);
+            return t;
+        });
     }
     
     @Override
     public User login(String username, String password) {
         try {
-            User user = dbManager.getUserByUsername(username);
-            
-            if (user != null && user.getPassword().equals(password)) {
-                authenticatedUsers.add(username);
-                
-                // Load user's portfolio
-                user.setPortfolio(dbManager.getPortfolioByUserId(user.getId()));
-                
-                return user;
+            return loginAsync(username, password).join();
+        } catch (CompletionException e) {
+            System.err.println("Login error: " + e.getCause().getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Look up and verify the user off the calling thread
+     * @return future of the logged-in user, or null for bad credentials;
+     *         fails if the database is unavailable or the hasher is saturated
+     */
+    public CompletableFuture<User> loginAsync(String username, String password) {
+        CompletableFuture<User> lookup = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dbManager.getUserByUsername(username);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, loader);
+        return lookup.thenCompose(user -> {
+            if (user == null) {
+                // As slow as a wrong password, so unknown usernames cannot be told apart
+                return hasher.rejectUnknown(password).thenApply(match -> null);
             }
-        } catch (SQLException e) {
-            System.err.println("Login error: " + e.getMessage());
+            return hasher.verify(password, user.getPassword()).thenApply(match -> {
+                if (!match) {
+                    return null;
+                }
+                if (hasher.needsRehash(user.getPassword())) {
+                    upgradePassword(user, password);
+                }
+                user.setSessionToken(sessions.create(user.getId(), username).getToken());
+                startLoading(user);
+                return user;
+            });
+        });
+    }
+    
+    // Replace a plaintext or low-cost row in the background; the login does not wait for it,
+    // and concurrent logins of the same user start only one rehash
+    private void upgradePassword(User user, String password) {
+        if (!upgrading.add(user.getId())) {
+            return;
         }
+        hasher.hash(password).thenAccept(hash -> {
+            try {
+                dbManager.updatePassword(user.getId(), hash);
+                user.setPassword(hash);
+            } catch (SQLException e) {
+                System.err.println("Error upgrading password hash: " + e.getMessage());
+            }
+        }).exceptionally(e -> {
+            System.err.println("Password rehash skipped: " + e.getMessage());
+            return null;
+        }).whenComplete((ignored, e) -> upgrading.remove(user.getId()));
+    }
+    
+    // Portfolio replay and history query run side by side
+    private void startLoading(User user) {
+        int userId = user.getId();
+        CompletableFuture<Portfolio> portfolio = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dbManager.loadPortfolio(userId);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, loader);
+        CompletableFuture<List<Transaction>> history = CompletableFuture.supplyAsync(() -> {
+            try {
+                return dbManager.getRecentTransactionsByUserId(userId, HISTORY_SIZE);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, loader);
         
-        return null;
+        user.setPortfolioLoad(portfolio.thenApply(loaded -> {
+            user.setPortfolio(loaded);
+            return loaded;
+        }));
+        user.setHistoryLoad(portfolio.thenCombine(history, (loaded, transactions) -> {
+            if (loaded != null) {
+                loaded.prependTransactions(transactions);
+            }
+            return transactions;
+        }));
     }
     
     @Override
@@ -48,12 +151,12 @@ public class AuthenticationService implements AuthService {
                 return false;
             }
             
-            // Create new user
-            User newUser = new User(username, password, username, email);
+            // Create new user - only the salted hash is stored
+            User newUser = new User(username, hasher.hash(password).join(), username, email);
             int userId = dbManager.createUser(newUser);
             
             return userId > 0;
-        } catch (SQLException e) {
+        } catch (SQLException | CompletionException e) {
             System.err.println("Registration error: " + e.getMessage());
             return false;
         }
@@ -62,12 +165,41 @@ public class AuthenticationService implements AuthService {
     @Override
     public void logout(User user) {
         if (user != null) {
-            authenticatedUsers.remove(user.getUsername());
+            sessions.invalidate(user.getSessionToken());
+            user.setSessionToken(null);
         }
     }
     
     @Override
     public boolean isAuthenticated(User user) {
-        return user != null && authenticatedUsers.contains(user.getUsername());
+        if (user == null) {
+            return false;
+        }
+        Session session = sessions.get(user.getSessionToken());
+        return session != null && session.getUserId() == user.getId();
+    }
+    
+    @Override
+    public boolean isAuthenticated(String sessionToken) {
+        return sessions.get(sessionToken) != null;
+    }
+    
+    /**
+     * Live session for a token (idle expiry extended), or null
+     */
+    public Session getSession(String sessionToken) {
+        return sessions.get(sessionToken);
+    }
+    
+    public SessionStore getSessionStore() {
+        return sessions;
+    }
+    
+    public PasswordHasher getPasswordHasher() {
+        return hasher;
+    }
+    
+    public DatabaseManager getDatabaseManager() {
+        return dbManager;
     }
 }
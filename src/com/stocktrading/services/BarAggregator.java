@@ -0,0 +1,310 @@
+package com.stocktrading.services;
+
+import com.stocktrading.interfaces.BarListener;
+import com.stocktrading.models.StockData;
+import com.stocktrading.models.Timeframe;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Streaming tick-to-bar aggregator.
+ * Builds OHLCV bars for every Timeframe at once from raw price/volume ticks.
+ *
+ * Intraday bars are aligned to the session open and the last bar of the day is
+ * cut at the session close; the daily bar spans the whole session. Ticks outside
+ * the session (or on weekends) are counted and ignored.
+ *
+ * Late ticks: each timeframe keeps the current bar plus the previous one, which
+ * stays open until the symbol's newest tick is allowedLatenessMillis past its end.
+ * Ticks for bars already emitted, including bars closed by flush(), are dropped
+ * and counted: each timeframe remembers the start of the last bar it emitted.
+ *
+ * Per-symbol state is a set of primitive arrays allocated once at registration,
+ * so onTick itself does not allocate; StockData objects are only created when a
+ * bar is completed. Not thread-safe - drive each aggregator from one thread.
+ */
+public class BarAggregator {
+    private static final Timeframe[] TIMEFRAMES = Timeframe.values();
+    private static final DateTimeFormatter INTRADAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter DAILY_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private final ZoneId zone;
+    private final LocalTime sessionOpenTime;
+    private final LocalTime sessionCloseTime;
+    private final long allowedLatenessMillis;
+    private final BarListener listener;
+
+    private final Map<String, SymbolBars> symbols = new HashMap<>();
+    private final List<SymbolBars> symbolList = new ArrayList<>();
+
+    // Cached session bounds for the calendar day of the last tick
+    private long dayStart = Long.MAX_VALUE;
+    private long dayEnd = Long.MIN_VALUE;
+    private long sessionOpen;
+    private long sessionClose;
+    private boolean tradingDay;
+
+    // Statistics
+    private long ticksProcessed;
+    private long lateTicksDropped;
+    private long outOfSessionTicks;
+    private long barsEmitted;
+
+    /**
+     * Regular US equity session (09:30-16:00 New York) with a 2 second grace period
+     */
+    public BarAggregator(BarListener listener) {
+        this(ZoneId.of("America/New_York"), LocalTime.of(9, 30), LocalTime.of(16, 0), 2_000L, listener);
+    }
+
+    public BarAggregator(ZoneId zone, LocalTime sessionOpenTime, LocalTime sessionCloseTime,
+                         long allowedLatenessMillis, BarListener listener) {
+        if (!sessionCloseTime.isAfter(sessionOpenTime)) {
+            throw new IllegalArgumentException("Session close must be after session open");
+        }
+        this.zone = zone;
+        this.sessionOpenTime = sessionOpenTime;
+        this.sessionCloseTime = sessionCloseTime;
+        this.allowedLatenessMillis = Math.max(0L, allowedLatenessMillis);
+        this.listener = listener;
+    }
+
+    /**
+     * Preallocate state for the given symbols so the first tick does not allocate
+     */
+    public void registerSymbols(Collection<String> symbolNames) {
+        for (String symbol : symbolNames) {
+            register(symbol);
+        }
+    }
+
+    private SymbolBars register(String symbol) {
+        SymbolBars bars = symbols.get(symbol);
+        if (bars == null) {
+            bars = new SymbolBars(symbol, TIMEFRAMES.length);
+            symbols.put(symbol, bars);
+            symbolList.add(bars);
+        }
+        return bars;
+    }
+
+    /**
+     * Process one trade tick.
+     * @return true if the tick was applied to at least one bar
+     */
+    public boolean onTick(String symbol, long timestampMillis, double price, long volume) {
+        if (!(price > 0) || volume < 0) {
+            return false;
+        }
+
+        locateSession(timestampMillis);
+        if (!tradingDay || timestampMillis < sessionOpen || timestampMillis >= sessionClose) {
+            outOfSessionTicks++;
+            return false;
+        }
+
+        SymbolBars bars = symbols.get(symbol);
+        if (bars == null) {
+            bars = register(symbol);
+        }
+        if (timestampMillis > bars.watermark) {
+            bars.watermark = timestampMillis;
+        }
+
+        boolean applied = false;
+        for (int i = 0; i < TIMEFRAMES.length; i++) {
+            long start;
+            long end;
+            if (TIMEFRAMES[i].isDaily()) {
+                start = sessionOpen;
+                end = sessionClose;
+            } else {
+                long length = TIMEFRAMES[i].getMillis();
+                start = sessionOpen + ((timestampMillis - sessionOpen) / length) * length;
+                end = Math.min(start + length, sessionClose);
+            }
+            applied |= apply(bars, i, start, end, timestampMillis, price, volume);
+            releasePending(bars, i, bars.watermark);
+        }
+
+        if (applied) {
+            ticksProcessed++;
+        } else {
+            lateTicksDropped++;
+        }
+        return applied;
+    }
+
+    private boolean apply(SymbolBars bars, int tf, long start, long end, long ts, double price, long volume) {
+        if (start <= bars.lastEmittedStart[tf]) {
+            return false; // that bar is already out - do not open a duplicate
+        }
+        int cur = bars.currentSlot(tf);
+        int prev = bars.pendingSlot(tf);
+
+        if (bars.active[cur] && bars.start[cur] == start) {
+            bars.update(cur, ts, price, volume);
+            return true;
+        }
+
+        if (!bars.active[cur] || start > bars.start[cur]) {
+            // A newer bucket supersedes the pending bar; the current one becomes pending
+            if (bars.active[prev]) {
+                emit(bars, tf, prev);
+            }
+            if (bars.active[cur]) {
+                bars.flip(tf);
+                cur = prev;
+            }
+            bars.begin(cur, start, end, ts, price, volume);
+            return true;
+        }
+
+        if (bars.active[prev] && bars.start[prev] == start) {
+            bars.update(prev, ts, price, volume);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void releasePending(SymbolBars bars, int tf, long now) {
+        int prev = bars.pendingSlot(tf);
+        if (bars.active[prev] && now >= bars.end[prev] + allowedLatenessMillis) {
+            emit(bars, tf, prev);
+        }
+    }
+
+    /**
+     * Close every bar whose interval (plus grace period) has ended by the given time.
+     * Call periodically so quiet symbols still publish their bars.
+     */
+    public void flush(long nowMillis) {
+        for (int s = 0; s < symbolList.size(); s++) {
+            SymbolBars bars = symbolList.get(s);
+            for (int i = 0; i < TIMEFRAMES.length; i++) {
+                releasePending(bars, i, nowMillis);
+                int cur = bars.currentSlot(i);
+                if (bars.active[cur] && nowMillis >= bars.end[cur] + allowedLatenessMillis) {
+                    emit(bars, i, cur);
+                }
+            }
+        }
+    }
+
+    /**
+     * Emit all open bars regardless of time, e.g. on shutdown
+     */
+    public void flushAll() {
+        flush(Long.MAX_VALUE - allowedLatenessMillis);
+    }
+
+    private void emit(SymbolBars bars, int tf, int slot) {
+        bars.active[slot] = false;
+        bars.lastEmittedStart[tf] = Math.max(bars.lastEmittedStart[tf], bars.start[slot]);
+        barsEmitted++;
+
+        Timeframe timeframe = TIMEFRAMES[tf];
+        ZonedDateTime startTime = Instant.ofEpochMilli(bars.start[slot]).atZone(zone);
+        String date = startTime.format(timeframe.isDaily() ? DAILY_FORMAT : INTRADAY_FORMAT);
+
+        StockData bar = new StockData(bars.symbol, date, bars.open[slot], bars.high[slot],
+                                      bars.low[slot], bars.close[slot], bars.volume[slot]);
+        if (listener != null) {
+            listener.onBar(timeframe, bar);
+        }
+    }
+
+    private void locateSession(long ts) {
+        if (ts >= dayStart && ts < dayEnd) {
+            return;
+        }
+        LocalDate date = Instant.ofEpochMilli(ts).atZone(zone).toLocalDate();
+        dayStart = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        dayEnd = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        sessionOpen = date.atTime(sessionOpenTime).atZone(zone).toInstant().toEpochMilli();
+        sessionClose = date.atTime(sessionCloseTime).atZone(zone).toInstant().toEpochMilli();
+        DayOfWeek day = date.getDayOfWeek();
+        tradingDay = day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+
+    // Getters for statistics
+    public long getTicksProcessed() { return ticksProcessed; }
+    public long getLateTicksDropped() { return lateTicksDropped; }
+    public long getOutOfSessionTicks() { return outOfSessionTicks; }
+    public long getBarsEmitted() { return barsEmitted; }
+    public int getSymbolCount() { return symbolList.size(); }
+
+    /**
+     * Preallocated bar state for one symbol.
+     * Two slots per timeframe (current and pending); slot index = tf * 2 + side.
+     */
+    private static class SymbolBars {
+        final String symbol;
+        long watermark = Long.MIN_VALUE;
+
+        final byte[] currentSide;
+        final long[] lastEmittedStart; // per timeframe
+        final boolean[] active;
+        final long[] start;
+        final long[] end;
+        final long[] firstTs;
+        final long[] lastTs;
+        final double[] open;
+        final double[] high;
+        final double[] low;
+        final double[] close;
+        final long[] volume;
+
+        SymbolBars(String symbol, int timeframes) {
+            int slots = timeframes * 2;
+            this.symbol = symbol;
+            this.currentSide = new byte[timeframes];
+            this.lastEmittedStart = new long[timeframes];
+            Arrays.fill(lastEmittedStart, Long.MIN_VALUE);
+            this.active = new boolean[slots];
+            this.start = new long[slots];
+            this.end = new long[slots];
+            this.firstTs = new long[slots];
+            this.lastTs = new long[slots];
+            this.open = new double[slots];
+            this.high = new double[slots];
+            this.low = new double[slots];
+            this.close = new double[slots];
+            this.volume = new long[slots];
+        }
+
+        int currentSlot(int tf) { return tf * 2 + currentSide[tf]; }
+        int pendingSlot(int tf) { return tf * 2 + (1 - currentSide[tf]); }
+        void flip(int tf) { currentSide[tf] = (byte) (1 - currentSide[tf]); }
+
+        void begin(int slot, long barStart, long barEnd, long ts, double price, long qty) {
+            active[slot] = true;
+            start[slot] = barStart;
+            end[slot] = barEnd;
+            firstTs[slot] = ts;
+            lastTs[slot] = ts;
+            open[slot] = price;
+            high[slot] = price;
+            low[slot] = price;
+            close[slot] = price;
+            volume[slot] = qty;
+        }
+
+        void update(int slot, long ts, double price, long qty) {
+            if (price > high[slot]) high[slot] = price;
+            if (price < low[slot]) low[slot] = price;
+            volume[slot] += qty;
+            // Out-of-order ticks only move open/close if they are earlier/later in time
+            if (ts >= lastTs[slot]) {
+                lastTs[slot] = ts;
+                close[slot] = price;
+            }
+            if (ts < firstTs[slot]) {
+                firstTs[slot] = ts;
+                open[slot] = price;
+            }
+        }
+    }
+}
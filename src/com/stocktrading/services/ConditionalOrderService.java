@@ -0,0 +1,454 @@
+package com.stocktrading.services;
+
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.interfaces.ConditionalOrderListener;
+import com.stocktrading.models.*;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Stop, stop-limit, take-profit and trailing-stop orders driven by the price feed.
+ *
+ * Like PriceAlertService, each symbol has a trigger book of sorted maps keyed
+ * by trigger price, so a tick only touches the crossed end of each map:
+ * O(log n + fired) however many orders are resting. Trailing stops move with
+ * the price, so they are grouped by anchor instead: a new high merges every
+ * group anchored below it into one (smaller groups into larger), and a
+ * second index orders the groups by their highest stop. A tick is then
+ * O(log n) plus the groups it merges or fires.
+ *
+ * Triggered orders are sent through PortfolioManagementService on one
+ * background thread in trigger order, so the feed never waits on matching.
+ * Nothing is reserved while an order rests; cash and shares are checked
+ * when it fires. Each order is claimed in the database before it is sent,
+ * so two sessions holding the same order cannot both execute it.
+ */
+public class ConditionalOrderService {
+    private final DatabaseManager dbManager;
+    private final PortfolioManagementService portfolioService;
+    private final Map<String, TriggerBook> books = new ConcurrentHashMap<>();
+    private final Map<Integer, ConditionalOrder> activeOrders = new ConcurrentHashMap<>();
+    private final Map<Integer, Portfolio> portfolios = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastPrices = new ConcurrentHashMap<>();
+    private final List<ConditionalOrderListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor;
+    
+    public ConditionalOrderService(DatabaseManager dbManager, PortfolioManagementService portfolioService) {
+        this.dbManager = dbManager;
+        this.portfolioService = portfolioService;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "conditional-orders");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    /**
+     * Load the portfolio's untriggered orders from the database into the trigger books
+     */
+    public void loadActiveOrders(int portfolioId) {
+        try {
+            for (ConditionalOrder order : dbManager.getActiveConditionalOrders(portfolioId)) {
+                index(order);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading conditional orders: " + e.getMessage());
+        }
+    }
+    
+    public void addListener(ConditionalOrderListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(ConditionalOrderListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Use this live portfolio when its orders fire. Orders of portfolios
+     * that are not registered are rejected.
+     */
+    public void register(Portfolio portfolio) {
+        portfolios.put(portfolio.getId(), portfolio);
+    }
+    
+    public void unregister(int portfolioId) {
+        portfolios.remove(portfolioId);
+    }
+    
+    /**
+     * Validate, persist and register a new conditional order
+     * @return false if the order is invalid, already triggered at the last price, or could not be saved
+     */
+    public boolean addOrder(ConditionalOrder order) {
+        if (order.getSymbol() == null || order.getQuantity() <= 0) {
+            return false;
+        }
+        Long lastPrice = lastPrices.get(order.getSymbol());
+        if (order.getType() == ConditionalOrder.Type.TRAILING_STOP) {
+            if (order.getTrailAmount() <= 0 || lastPrice == null) {
+                System.err.println("Trailing stop needs a trail amount and a market price for " + order.getSymbol());
+                return false;
+            }
+            order.setAnchorPrice(lastPrice);
+        } else if (order.getTriggerPrice() <= 0 ||
+                   (order.getType() == ConditionalOrder.Type.STOP_LIMIT && order.getLimitPrice() <= 0)) {
+            return false;
+        } else if (lastPrice != null && order.isCrossed(lastPrice)) {
+            System.err.println("Trigger already crossed at $" + Money.format(lastPrice) + ": " + order);
+            return false;
+        }
+        
+        try {
+            int id = dbManager.saveConditionalOrder(order);
+            if (id <= 0) {
+                return false;
+            }
+            order.setId(id);
+        } catch (SQLException e) {
+            System.err.println("Error saving conditional order: " + e.getMessage());
+            return false;
+        }
+        index(order);
+        return true;
+    }
+    
+    public boolean cancelOrder(int conditionalId) {
+        ConditionalOrder order = activeOrders.remove(conditionalId);
+        if (order == null) {
+            return false;
+        }
+        TriggerBook book = books.get(order.getSymbol());
+        if (book != null) {
+            book.remove(order);
+        }
+        try {
+            dbManager.deleteConditionalOrder(conditionalId);
+        } catch (SQLException e) {
+            System.err.println("Error deleting conditional order: " + e.getMessage());
+        }
+        return true;
+    }
+    
+    public void onPrice(String symbol, double price) {
+        if (price > 0) {
+            onPrice(symbol, Money.of(price));
+        }
+    }
+    
+    /**
+     * Feed a price update (micro-units); sends every order whose trigger the price has crossed
+     */
+    public void onPrice(String symbol, long price) {
+        lastPrices.put(symbol, price);
+        TriggerBook book = books.get(symbol);
+        if (book == null) {
+            return;
+        }
+        List<ConditionalOrder> fired = book.collectTriggered(price);
+        if (fired.isEmpty()) {
+            return;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        for (ConditionalOrder conditional : fired) {
+            activeOrders.remove(conditional.getId());
+            conditional.setTriggeredAt(now);
+            executor.execute(() -> execute(conditional));
+        }
+    }
+    
+    private void execute(ConditionalOrder conditional) {
+        try {
+            if (!dbManager.claimConditionalOrder(conditional.getId(), conditional.getTriggeredAt())) {
+                System.err.println("Conditional order already triggered elsewhere: " + conditional);
+                return;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error claiming conditional order: " + e.getMessage());
+            return;
+        }
+        
+        Order order = null;
+        Portfolio portfolio = portfolios.get(conditional.getPortfolioId());
+        if (portfolio != null) {
+            boolean limit = conditional.getType() == ConditionalOrder.Type.STOP_LIMIT;
+            order = portfolioService.placeOrder(portfolio, conditional.getSymbol(), conditional.getSide(),
+                                                limit ? Order.Type.LIMIT : Order.Type.MARKET,
+                                                conditional.getLimitPrice(), conditional.getQuantity());
+        }
+        if (order != null) {
+            conditional.setOrderId(order.getId());
+        } else {
+            System.err.println("Conditional order rejected: " + conditional);
+        }
+        
+        try {
+            dbManager.markConditionalOrderTriggered(conditional.getId(), conditional.getTriggeredAt(),
+                                                   conditional.getOrderId());
+        } catch (SQLException e) {
+            System.err.println("Error updating conditional order: " + e.getMessage());
+        }
+        for (ConditionalOrderListener listener : listeners) {
+            listener.onConditionalOrderTriggered(conditional, order);
+        }
+    }
+    
+    /**
+     * Persist how far every resting trailing stop has ratcheted, so a restart
+     * resumes from the same stop prices
+     */
+    public void checkpoint() {
+        Map<Integer, Long> anchors = new HashMap<>();
+        for (TriggerBook book : books.values()) {
+            book.collectAnchors(anchors);
+        }
+        try {
+            dbManager.updateTrailingAnchors(anchors);
+        } catch (SQLException e) {
+            System.err.println("Error saving trailing stops: " + e.getMessage());
+        }
+    }
+    
+    public List<ConditionalOrder> getActiveOrders(int portfolioId) {
+        List<ConditionalOrder> orders = new ArrayList<>();
+        for (ConditionalOrder order : activeOrders.values()) {
+            if (order.getPortfolioId() == portfolioId) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+    
+    public int getActiveOrderCount() {
+        return activeOrders.size();
+    }
+    
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private void index(ConditionalOrder order) {
+        activeOrders.put(order.getId(), order);
+        books.computeIfAbsent(order.getSymbol(), s -> new TriggerBook()).add(order);
+    }
+    
+    /**
+     * Sorted trigger structures for one symbol
+     */
+    private static class TriggerBook {
+        // Fire when price >= key
+        private final NavigableMap<Long, List<ConditionalOrder>> above = new TreeMap<>();
+        // Fire when price <= key
+        private final NavigableMap<Long, List<ConditionalOrder>> below = new TreeMap<>();
+        private final TrailingStops trailingSells = new TrailingStops(false);
+        private final TrailingStops trailingBuys = new TrailingStops(true);
+        
+        synchronized void add(ConditionalOrder order) {
+            if (order.getType() == ConditionalOrder.Type.TRAILING_STOP) {
+                trailing(order).add(order);
+                return;
+            }
+            NavigableMap<Long, List<ConditionalOrder>> side = order.isUpward() ? above : below;
+            side.computeIfAbsent(order.getTriggerPrice(), p -> new ArrayList<>(1)).add(order);
+        }
+        
+        synchronized void remove(ConditionalOrder order) {
+            if (order.getType() == ConditionalOrder.Type.TRAILING_STOP) {
+                trailing(order).remove(order);
+                return;
+            }
+            NavigableMap<Long, List<ConditionalOrder>> side = order.isUpward() ? above : below;
+            Long key = order.getTriggerPrice();
+            List<ConditionalOrder> bucket = side.get(key);
+            if (bucket != null && bucket.remove(order) && bucket.isEmpty()) {
+                side.remove(key);
+            }
+        }
+        
+        synchronized List<ConditionalOrder> collectTriggered(long price) {
+            List<ConditionalOrder> fired = new ArrayList<>(0);
+            if ((!above.isEmpty() && above.firstKey() <= price) ||
+                (!below.isEmpty() && below.lastKey() >= price)) {
+                drain(above.headMap(price, true), fired);
+                drain(below.tailMap(price, true), fired);
+            }
+            trailingSells.onPrice(price, fired);
+            trailingBuys.onPrice(price, fired);
+            return fired;
+        }
+        
+        synchronized void collectAnchors(Map<Integer, Long> anchors) {
+            trailingSells.collectAnchors(anchors);
+            trailingBuys.collectAnchors(anchors);
+        }
+        
+        private TrailingStops trailing(ConditionalOrder order) {
+            return order.getSide() == Order.Side.SELL ? trailingSells : trailingBuys;
+        }
+        
+        private void drain(NavigableMap<Long, List<ConditionalOrder>> crossed, List<ConditionalOrder> fired) {
+            for (List<ConditionalOrder> bucket : crossed.values()) {
+                fired.addAll(bucket);
+            }
+            crossed.clear();
+        }
+    }
+    
+    /**
+     * Trailing stops on one side of one symbol. Buy prices are negated so
+     * both sides trail a running high: an order fires once the price is at
+     * or below its group's anchor minus its trail.
+     */
+    private static class TrailingStops {
+        private final boolean negate;
+        private final NavigableMap<Long, Group> groups = new TreeMap<>(); // by anchor
+        private final NavigableSet<Group> byStop = new TreeSet<>(
+            Comparator.comparingLong(Group::stop).thenComparingLong(g -> g.anchor));
+        private final Map<Integer, Group> groupOf = new HashMap<>();
+        
+        TrailingStops(boolean negate) {
+            this.negate = negate;
+        }
+        
+        void add(ConditionalOrder order) {
+            long anchor = normalize(order.getAnchorPrice());
+            Group group = groups.get(anchor);
+            if (group == null) {
+                group = new Group(anchor);
+                groups.put(anchor, group);
+            } else {
+                byStop.remove(group);
+            }
+            group.add(order);
+            groupOf.put(order.getId(), group);
+            byStop.add(group);
+        }
+        
+        void remove(ConditionalOrder order) {
+            Group group = groupOf.remove(order.getId());
+            if (group == null) {
+                return;
+            }
+            byStop.remove(group);
+            group.remove(order);
+            if (group.size == 0) {
+                groups.remove(group.anchor);
+            } else {
+                byStop.add(group);
+            }
+        }
+        
+        void onPrice(long price, List<ConditionalOrder> fired) {
+            if (groups.isEmpty()) {
+                return;
+            }
+            long level = normalize(price);
+            
+            // A new high re-anchors every group below it: merge them into one
+            NavigableMap<Long, Group> passed = groups.headMap(level, true);
+            if (!passed.isEmpty() && (passed.size() > 1 || passed.firstKey() < level)) {
+                List<Group> merging = new ArrayList<>(passed.values());
+                passed.clear();
+                Group base = merging.get(0);
+                for (Group group : merging) {
+                    byStop.remove(group);
+                    if (group.size > base.size) {
+                        base = group;
+                    }
+                }
+                for (Group group : merging) {
+                    if (group != base) {
+                        base.absorb(group, groupOf);
+                    }
+                }
+                base.anchor = level;
+                groups.put(level, base);
+                byStop.add(base);
+            }
+            
+            // Fire every trail the price has fallen through, highest stop first
+            while (!byStop.isEmpty() && byStop.last().stop() >= level) {
+                Group group = byStop.pollLast();
+                NavigableMap<Long, List<ConditionalOrder>> crossed = group.trails.headMap(group.anchor - level, true);
+                for (List<ConditionalOrder> bucket : crossed.values()) {
+                    for (ConditionalOrder order : bucket) {
+                        groupOf.remove(order.getId());
+                        order.setAnchorPrice(normalize(group.anchor));
+                        fired.add(order);
+                    }
+                    group.size -= bucket.size();
+                }
+                crossed.clear();
+                if (group.size == 0) {
+                    groups.remove(group.anchor);
+                } else {
+                    byStop.add(group);
+                }
+            }
+        }
+        
+        void collectAnchors(Map<Integer, Long> anchors) {
+            for (Group group : groups.values()) {
+                long anchor = normalize(group.anchor);
+                for (List<ConditionalOrder> bucket : group.trails.values()) {
+                    for (ConditionalOrder order : bucket) {
+                        order.setAnchorPrice(anchor);
+                        anchors.put(order.getId(), anchor);
+                    }
+                }
+            }
+        }
+        
+        private long normalize(long price) {
+            return negate ? -price : price;
+        }
+    }
+    
+    /**
+     * Trailing stops sharing one anchor, keyed by trail amount
+     */
+    private static class Group {
+        private long anchor;
+        private final NavigableMap<Long, List<ConditionalOrder>> trails = new TreeMap<>();
+        private int size;
+        
+        Group(long anchor) {
+            this.anchor = anchor;
+        }
+        
+        // Highest price that fires an order in this group
+        long stop() {
+            return anchor - trails.firstKey();
+        }
+        
+        void add(ConditionalOrder order) {
+            trails.computeIfAbsent(order.getTrailAmount(), t -> new ArrayList<>(1)).add(order);
+            size++;
+        }
+        
+        void remove(ConditionalOrder order) {
+            Long key = order.getTrailAmount();
+            List<ConditionalOrder> bucket = trails.get(key);
+            if (bucket != null && bucket.remove(order)) {
+                size--;
+                if (bucket.isEmpty()) {
+                    trails.remove(key);
+                }
+            }
+        }
+        
+        void absorb(Group other, Map<Integer, Group> groupOf) {
+            for (Map.Entry<Long, List<ConditionalOrder>> entry : other.trails.entrySet()) {
+                trails.computeIfAbsent(entry.getKey(), t -> new ArrayList<>(entry.getValue().size()))
+                      .addAll(entry.getValue());
+                for (ConditionalOrder order : entry.getValue()) {
+                    groupOf.put(order.getId(), this);
+                }
+            }
+            size += other.size;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.stocktrading.services;
+
+import com.stocktrading.interfaces.LatencyMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution of one operation, in nanoseconds.
+ *
+ * Buckets are log-linear: 32 linear steps per power of two, so any
+ * recorded value is reported within about 3% (values under 64 ns exactly),
+ * up to about 18 minutes. Recording is one bucket increment plus a sum and
+ * a max update - no locks, no allocation - so it can sit on hot paths.
+ * Percentiles are read from a walk over the buckets, which only readers
+ * (JMX, the periodic dump) pay for.
+ */
+public class LatencyHistogram implements LatencyMXBean {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+    
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        buckets.incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+    
+    /**
+     * Record the time since start, a System.nanoTime() reading
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+    
+    /**
+     * Count a failed call; its latency is recorded separately, like any other
+     */
+    public void recordError() {
+        errors.increment();
+    }
+    
+    private static int index(long value) {
+        if (value < 2 * SUB) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB + (int) ((value >>> shift) - SUB);
+    }
+    
+    // Highest value that falls in the bucket
+    private static long upperBound(int index) {
+        if (index < 2 * SUB) {
+            return index;
+        }
+        int shift = index / SUB - 1;
+        long mantissa = index % SUB + SUB;
+        return ((mantissa + 1) << shift) - 1;
+    }
+    
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long maxValue = max.get();
+        return new Snapshot(name, total, errors.sum(), total > 0 ? (double) sum.sum() / total : 0,
+                            percentile(counts, total, 0.50, maxValue), percentile(counts, total, 0.99, maxValue),
+                            percentile(counts, total, 0.999, maxValue), maxValue);
+    }
+    
+    private static long percentile(long[] counts, long total, double quantile, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+    
+    /**
+     * Start over; samples recorded while this runs may be partly kept
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        sum.reset();
+        errors.reset();
+        max.reset();
+    }
+    
+    @Override
+    public long getCount() {
+        return snapshot().getCount();
+    }
+    
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    @Override
+    public double getMeanMicros() {
+        return snapshot().getMean() / 1e3;
+    }
+    
+    @Override
+    public double getP50Micros() {
+        return snapshot().getP50() / 1e3;
+    }
+    
+    @Override
+    public double getP99Micros() {
+        return snapshot().getP99() / 1e3;
+    }
+    
+    @Override
+    public double getP999Micros() {
+        return snapshot().getP999() / 1e3;
+    }
+    
+    @Override
+    public double getMaxMicros() {
+        return max.get() / 1e3;
+    }
+    
+    /**
+     * Consistent read of the distribution, in nanoseconds
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+        
+        Snapshot(String name, long count, long errors, double mean, long p50, long p99, long p999, long max) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+        
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public double getMean() { return mean; }
+        public long getP50() { return p50; }
+        public long getP99() { return p99; }
+        public long getP999() { return p999; }
+        public long getMax() { return max; }
+        
+        @Override
+        public String toString() {
+            return String.format("%-32s %10d %7d %11s %11s %11s %11s %11s", name, count, errors, format(mean),
+                                 format(p50), format(p99), format(p999), format(max));
+        }
+        
+        private static String format(double nanos) {
+            if (nanos < 1e3) {
+                return String.format("%.0f ns", nanos);
+            } else if (nanos < 1e6) {
+                return String.format("%.1f us", nanos / 1e3);
+            } else if (nanos < 1e9) {
+                return String.format("%.1f ms", nanos / 1e6);
+            }
+            return String.format("%.2f s", nanos / 1e9);
+        }
+    }
+}
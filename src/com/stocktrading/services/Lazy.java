@@ -0,0 +1,66 @@
+package com.stocktrading.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * A service built on first use and kept for the life of the process.
+ *
+ * get() builds it on the calling thread if nobody has yet; getAsync()
+ * builds it on a background thread, so the UI can show its first frame
+ * before the database is opened and warm the services while the user
+ * types. A factory that throws leaves the value unbuilt, and the next call
+ * tries again.
+ */
+public final class Lazy<T> implements Supplier<T> {
+    private static final ExecutorService INIT = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "service-init");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    private final Supplier<T> factory;
+    private volatile T value;
+    
+    public Lazy(Supplier<T> factory) {
+        this.factory = factory;
+    }
+    
+    /**
+     * An already built value, for callers that have one
+     */
+    public static <T> Lazy<T> of(T value) {
+        Lazy<T> lazy = new Lazy<>(() -> value);
+        lazy.value = value;
+        return lazy;
+    }
+    
+    @Override
+    public T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = factory.get();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * The value, built off the calling thread if it is not built yet
+     */
+    public CompletableFuture<T> getAsync() {
+        T result = value;
+        return result != null ? CompletableFuture.completedFuture(result) : CompletableFuture.supplyAsync(this, INIT);
+    }
+    
+    public boolean isBuilt() {
+        return value != null;
+    }
+}
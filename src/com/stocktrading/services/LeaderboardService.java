@@ -0,0 +1,275 @@
+package com.stocktrading.services;
+
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.interfaces.NavListener;
+import com.stocktrading.models.LeaderboardEntry;
+import com.stocktrading.models.PortfolioState;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ranking of every portfolio by return on contributed capital.
+ *
+ * All portfolios are tracked by the ValuationEngine, so fills and price
+ * ticks arrive here as pushed NAV changes and each one moves a single entry
+ * in an order-statistic tree: O(log n) per update, top-K in O(log n + K)
+ * and a portfolio's rank in O(log n). Nothing is reloaded or re-sorted to
+ * refresh the board.
+ *
+ * A checkpoint holds each entry's owner and capital plus the valuation
+ * engine's positions. On restart it is restored directly and only
+ * portfolios with transactions after it are replayed from the ledger. Its
+ * watermark is the last transaction load() caught up to, not the latest in
+ * the database: trades other processes made since then never reached this
+ * board, so they must be replayed again.
+ *
+ * NAV changes are pushed from the EDT or the matching thread, so
+ * onNavChanged never touches the database: a portfolio seen there for the
+ * first time is looked up on a background thread and joins the board then.
+ */
+public class LeaderboardService implements NavListener {
+    private static final int CHECKPOINT_MAGIC = 0x4C424431; // "LBD1"
+    
+    private final DatabaseManager dbManager;
+    private final ValuationEngine valuationEngine;
+    private final RankTree ranking = new RankTree();
+    private final Map<Integer, Standing> standings = new HashMap<>(); // guarded by this
+    private volatile long loadedThrough; // every transaction up to this id is on the board
+    private final Set<Integer> entering = ConcurrentHashMap.newKeySet(); // queued for the loader
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "leaderboard-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    public LeaderboardService(DatabaseManager dbManager, ValuationEngine valuationEngine) {
+        this.dbManager = dbManager;
+        this.valuationEngine = valuationEngine;
+        valuationEngine.addListener(this);
+    }
+    
+    /**
+     * Restore the board from a checkpoint and catch up on portfolios that
+     * traded since, or rebuild it from the ledger if there is no usable checkpoint
+     * @return number of portfolios replayed from the ledger, or -1 on a database error
+     */
+    public int load(File checkpoint) {
+        long since = -1;
+        if (checkpoint.isFile()) {
+            try {
+                since = restore(checkpoint);
+            } catch (IOException e) {
+                System.err.println("Leaderboard checkpoint unusable, rebuilding: " + e.getMessage());
+            }
+        }
+        
+        try {
+            // Taken before the catch-up query, so anything committed during it is replayed next time
+            long replayedTo = dbManager.getLastTransactionId();
+            Set<Integer> stale = new LinkedHashSet<>();
+            if (since >= 0) {
+                stale.addAll(dbManager.getPortfolioIdsChangedSince(since));
+            }
+            for (int portfolioId : dbManager.getPortfolioIds()) {
+                if (since < 0 || !contains(portfolioId)) {
+                    stale.add(portfolioId);
+                }
+            }
+            for (int portfolioId : stale) {
+                enter(portfolioId);
+                PortfolioState state = dbManager.getPortfolioState(portfolioId);
+                if (state != null) {
+                    valuationEngine.sync(state.toPortfolio(portfolioId));
+                }
+            }
+            loadedThrough = replayedTo;
+            return stale.size();
+        } catch (SQLException e) {
+            System.err.println("Error loading leaderboard: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    private long restore(File checkpoint) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpoint)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Not a leaderboard checkpoint");
+            }
+            long lastTransactionId = in.readLong();
+            int count = in.readInt();
+            List<Standing> restored = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                restored.add(new Standing(in.readInt(), in.readUTF(), in.readLong()));
+            }
+            
+            // On the board before the engine tracks them, so their first ticks find a standing
+            synchronized (this) {
+                for (Standing standing : restored) {
+                    if (!standings.containsKey(standing.portfolioId)) {
+                        add(standing, standing.capital);
+                    }
+                }
+            }
+            valuationEngine.readState(in);
+            synchronized (this) {
+                for (Standing standing : restored) {
+                    if (standings.get(standing.portfolioId) == standing) {
+                        move(standing, valuationEngine.getNetAssetValue(standing.portfolioId));
+                    }
+                }
+            }
+            return lastTransactionId;
+        }
+    }
+    
+    /**
+     * Write the board to the checkpoint file, replacing it atomically
+     * @return false if it could not be written
+     */
+    public boolean saveCheckpoint(File checkpoint) {
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        try {
+            long lastTransactionId = loadedThrough;
+            List<Standing> copy;
+            synchronized (this) {
+                copy = new ArrayList<>(standings.values());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeLong(lastTransactionId);
+                out.writeInt(copy.size());
+                for (Standing standing : copy) {
+                    out.writeInt(standing.portfolioId);
+                    out.writeUTF(standing.username);
+                    out.writeLong(standing.capital);
+                }
+                valuationEngine.writeState(out);
+            }
+            Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving leaderboard: " + e.getMessage());
+            temp.delete();
+            return false;
+        }
+    }
+    
+    @Override
+    public void onNavChanged(int portfolioId, long netAssetValue, long unrealizedPnl) {
+        synchronized (this) {
+            Standing standing = standings.get(portfolioId);
+            if (standing != null) {
+                move(standing, netAssetValue);
+                return;
+            }
+        }
+        // First sight of a portfolio created since the board was loaded; its owner is read off this thread
+        if (entering.add(portfolioId)) {
+            loader.execute(() -> {
+                try {
+                    enter(portfolioId);
+                } catch (SQLException e) {
+                    System.err.println("Error adding portfolio " + portfolioId + " to leaderboard: " + e.getMessage());
+                } finally {
+                    entering.remove(portfolioId);
+                }
+            });
+        }
+    }
+    
+    /**
+     * The best count portfolios, best first
+     */
+    public synchronized List<LeaderboardEntry> getTop(int count) {
+        int[] ids = ranking.top(count);
+        List<LeaderboardEntry> top = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            top.add(entry(standings.get(ids[i]), i + 1));
+        }
+        return top;
+    }
+    
+    /**
+     * A portfolio's current standing, or null if it is not on the board
+     */
+    public synchronized LeaderboardEntry getEntry(int portfolioId) {
+        Standing standing = standings.get(portfolioId);
+        if (standing == null) {
+            return null;
+        }
+        return entry(standing, ranking.rank(portfolioId, standing.score) + 1);
+    }
+    
+    public synchronized int size() {
+        return ranking.size();
+    }
+    
+    private synchronized boolean contains(int portfolioId) {
+        return standings.containsKey(portfolioId);
+    }
+    
+    private void enter(int portfolioId) throws SQLException {
+        if (contains(portfolioId)) {
+            return;
+        }
+        String owner = dbManager.getPortfolioOwner(portfolioId);
+        long capital = dbManager.getContributedCapital(portfolioId);
+        synchronized (this) {
+            if (!standings.containsKey(portfolioId)) {
+                long nav = valuationEngine.isTracked(portfolioId) ? valuationEngine.getNetAssetValue(portfolioId) : capital;
+                add(new Standing(portfolioId, owner != null ? owner : "#" + portfolioId, capital), nav);
+            }
+        }
+    }
+    
+    // Caller holds this
+    private void add(Standing standing, long netAssetValue) {
+        standing.netAssetValue = netAssetValue;
+        standing.score = LeaderboardEntry.returnOf(netAssetValue, standing.capital);
+        standings.put(standing.portfolioId, standing);
+        ranking.insert(standing.portfolioId, standing.score);
+    }
+    
+    // Caller holds this
+    private void move(Standing standing, long netAssetValue) {
+        if (standing.netAssetValue == netAssetValue) {
+            return;
+        }
+        standing.netAssetValue = netAssetValue;
+        double score = LeaderboardEntry.returnOf(netAssetValue, standing.capital);
+        if (Double.compare(score, standing.score) != 0) {
+            ranking.remove(standing.portfolioId, standing.score);
+            standing.score = score;
+            ranking.insert(standing.portfolioId, score);
+        }
+    }
+    
+    private LeaderboardEntry entry(Standing standing, int rank) {
+        return new LeaderboardEntry(rank, standing.portfolioId, standing.username,
+                                    standing.netAssetValue, standing.capital);
+    }
+    
+    /**
+     * Mutable board state for one portfolio
+     */
+    private static class Standing {
+        final int portfolioId;
+        final String username;
+        final long capital;
+        long netAssetValue;
+        double score; // key in the ranking tree
+        
+        Standing(int portfolioId, String username, long capital) {
+            this.portfolioId = portfolioId;
+            this.username = username;
+            this.capital = capital;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.stocktrading.services;
+
+import com.stocktrading.interfaces.FillListener;
+import com.stocktrading.models.Order;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Routes orders to per-symbol OrderBooks.
+ *
+ * Symbols are hashed onto a fixed set of single-threaded shards, so every
+ * event for a given symbol runs on the same thread in submission order
+ * (deterministic fills) while different symbols match in parallel.
+ */
+public class MatchingEngine {
+    private final ExecutorService[] shards;
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    private final List<FillListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong orderIds = new AtomicLong();
+    private final FillListener dispatcher;
+    
+    public MatchingEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public MatchingEngine(int shardCount) {
+        this.shards = new ExecutorService[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            final int shard = i;
+            shards[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "matching-" + shard);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.dispatcher = (taker, maker, price, quantity) -> {
+            for (FillListener listener : listeners) {
+                listener.onFill(taker, maker, price, quantity);
+            }
+        };
+    }
+    
+    public void addFillListener(FillListener listener) {
+        listeners.add(listener);
+    }
+    
+    public long nextOrderId() {
+        return orderIds.incrementAndGet();
+    }
+    
+    public CompletableFuture<Order> submit(Order order) {
+        return onBook(order.getSymbol(), book -> {
+            book.submit(order);
+            return order;
+        });
+    }
+    
+    public CompletableFuture<Boolean> cancel(String symbol, long orderId) {
+        return onBook(symbol, book -> book.cancel(orderId));
+    }
+    
+    public CompletableFuture<Boolean> replace(String symbol, long orderId, long newPrice, int newQuantity) {
+        return onBook(symbol, book -> book.replace(orderId, newPrice, newQuantity));
+    }
+    
+    /**
+     * Run work against a symbol's book on that symbol's matching thread.
+     * Everything inside the function is atomic with respect to other events for the symbol.
+     */
+    public <T> CompletableFuture<T> onBook(String symbol, Function<OrderBook, T> work) {
+        OrderBook book = books.computeIfAbsent(symbol, s -> new OrderBook(s, dispatcher));
+        return CompletableFuture.supplyAsync(() -> work.apply(book), shardFor(symbol));
+    }
+    
+    private ExecutorService shardFor(String symbol) {
+        return shards[Math.floorMod(symbol.hashCode(), shards.length)];
+    }
+    
+    public void shutdown() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.stocktrading.services;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of latency histograms, one per operation name
+ * ("db.createUser", "api.fetchStockData", "trade.buyStock", ...).
+ *
+ * A lookup is one ConcurrentHashMap read; the busiest call sites keep
+ * their histogram in a static field instead. Each histogram is registered
+ * with the platform MBean server on creation, and startReporter prints all
+ * of them as a table at a fixed period.
+ */
+public final class Metrics {
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService reporter;
+    
+    private Metrics() {
+    }
+    
+    /**
+     * The histogram for an operation, created and registered on first use
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> {
+            LatencyHistogram histogram = new LatencyHistogram(key);
+            register(histogram);
+            return histogram;
+        });
+    }
+    
+    private static void register(LatencyHistogram histogram) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.stocktrading:type=Latency,name=" +
+                                                   ObjectName.quote(histogram.getName()));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(histogram, objectName);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not register metrics MBean " + histogram.getName() + ": " + e.getMessage());
+        }
+    }
+    
+    public static List<LatencyHistogram.Snapshot> snapshot() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values()) {
+            snapshots.add(histogram.snapshot());
+        }
+        return snapshots;
+    }
+    
+    /**
+     * Start every histogram over, e.g. after a warm-up
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+    
+    /**
+     * Every operation called so far, one line each
+     */
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-32s %10s %7s %11s %11s %11s %11s %11s%n", "operation", "count", "errors",
+                                 "mean", "p50", "p99", "p99.9", "max"));
+        for (LatencyHistogram.Snapshot snapshot : snapshot()) {
+            if (snapshot.getCount() > 0) {
+                out.append(snapshot).append(System.lineSeparator());
+            }
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Print the report every periodSeconds on a daemon thread, replacing any earlier reporter
+     */
+    public static synchronized void startReporter(long periodSeconds, PrintStream out) {
+        stopReporter();
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> out.print("=== Metrics " +
+            LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " ===" + System.lineSeparator() +
+            report()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+    
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.stocktrading.services;
+
+import com.stocktrading.interfaces.FillListener;
+import com.stocktrading.models.Order;
+import java.util.*;
+
+/**
+ * Price-time priority limit order book for a single symbol.
+ *
+ * Price levels live in two TreeMaps keyed by Money micro-unit prices (bid keys
+ * are negated so both sides iterate best-first). Each level is a FIFO doubly linked
+ * list of resting orders, and an id index allows O(1) unlink on cancel.
+ *
+ * Not thread-safe: MatchingEngine confines each book to one thread so the
+ * sequence of fills is deterministic.
+ */
+public class OrderBook {
+    private final String symbol;
+    private final FillListener listener;
+    private final TreeMap<Long, PriceLevel> bids = new TreeMap<>(); // key = -price
+    private final TreeMap<Long, PriceLevel> asks = new TreeMap<>(); // key = price
+    private final Map<Long, Node> restingOrders = new HashMap<>();
+    
+    private long lastTradePrice;
+    private long tradedVolume;
+    
+    public OrderBook(String symbol, FillListener listener) {
+        this.symbol = symbol;
+        this.listener = listener;
+    }
+    
+    /**
+     * Match an incoming order and rest any LIMIT remainder.
+     * MARKET and IOC remainders are cancelled.
+     */
+    public void submit(Order order) {
+        if (order.getQuantity() <= 0 || !symbol.equals(order.getSymbol()) ||
+            (order.getType() != Order.Type.MARKET && order.getPrice() <= 0) ||
+            restingOrders.containsKey(order.getId())) {
+            order.setStatus(Order.Status.REJECTED);
+            return;
+        }
+        match(order);
+        finish(order);
+    }
+    
+    /**
+     * Rest a LIMIT order without matching it, so it can only ever be the maker.
+     * The book may be crossed until the caller cancels it again.
+     */
+    public void post(Order order) {
+        if (order.getQuantity() <= 0 || !symbol.equals(order.getSymbol()) ||
+            order.getType() != Order.Type.LIMIT || order.getPrice() <= 0 ||
+            restingOrders.containsKey(order.getId())) {
+            order.setStatus(Order.Status.REJECTED);
+            return;
+        }
+        rest(order);
+    }
+    
+    public boolean cancel(long orderId) {
+        Node node = restingOrders.get(orderId);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        node.order.setStatus(Order.Status.CANCELLED);
+        return true;
+    }
+    
+    /**
+     * Cancel/replace. Reducing quantity at the same price keeps time priority;
+     * any price change or size increase re-enters the order at the back of the queue
+     * (and may match immediately).
+     */
+    public boolean replace(long orderId, long newPrice, int newQuantity) {
+        Node node = restingOrders.get(orderId);
+        if (node == null || !(newPrice > 0)) {
+            return false;
+        }
+        Order order = node.order;
+        if (newQuantity <= order.getFilledQuantity()) {
+            return cancel(orderId);
+        }
+        
+        if (newPrice == node.level.price && newQuantity <= order.getQuantity()) {
+            node.level.totalQuantity -= order.getQuantity() - newQuantity;
+            order.amend(newPrice, newQuantity);
+            return true;
+        }
+        
+        unlink(node);
+        order.amend(newPrice, newQuantity);
+        match(order);
+        finish(order);
+        return true;
+    }
+    
+    private void match(Order taker) {
+        boolean buy = taker.getSide() == Order.Side.BUY;
+        TreeMap<Long, PriceLevel> opposite = buy ? asks : bids;
+        boolean market = taker.getType() == Order.Type.MARKET;
+        long limit = taker.getPrice();
+        
+        while (taker.getRemainingQuantity() > 0 && !opposite.isEmpty()) {
+            PriceLevel level = opposite.firstEntry().getValue();
+            if (!market && (buy ? level.price > limit : level.price < limit)) {
+                break;
+            }
+            
+            Node node = level.head;
+            while (node != null && taker.getRemainingQuantity() > 0) {
+                Order maker = node.order;
+                int quantity = Math.min(taker.getRemainingQuantity(), maker.getRemainingQuantity());
+                long price = maker.getPrice();
+                
+                taker.fill(quantity);
+                maker.fill(quantity);
+                level.totalQuantity -= quantity;
+                lastTradePrice = price;
+                tradedVolume += quantity;
+                
+                Node next = node.next;
+                if (maker.getRemainingQuantity() == 0) {
+                    unlink(node);
+                }
+                if (listener != null) {
+                    listener.onFill(taker, maker, price, quantity);
+                }
+                node = next;
+            }
+        }
+    }
+    
+    private void finish(Order order) {
+        if (order.getRemainingQuantity() <= 0) {
+            return;
+        }
+        if (order.getType() == Order.Type.LIMIT) {
+            rest(order);
+        } else {
+            order.setStatus(Order.Status.CANCELLED);
+        }
+    }
+    
+    private void rest(Order order) {
+        long price = order.getPrice();
+        boolean buy = order.getSide() == Order.Side.BUY;
+        TreeMap<Long, PriceLevel> side = buy ? bids : asks;
+        Long key = buy ? -price : price;
+        
+        PriceLevel level = side.get(key);
+        if (level == null) {
+            level = new PriceLevel(price, key, side);
+            side.put(key, level);
+        }
+        
+        Node node = new Node(order, level);
+        if (level.tail == null) {
+            level.head = node;
+        } else {
+            level.tail.next = node;
+            node.prev = level.tail;
+        }
+        level.tail = node;
+        level.totalQuantity += order.getRemainingQuantity();
+        level.orderCount++;
+        restingOrders.put(order.getId(), node);
+    }
+    
+    private void unlink(Node node) {
+        PriceLevel level = node.level;
+        if (node.prev != null) node.prev.next = node.next; else level.head = node.next;
+        if (node.next != null) node.next.prev = node.prev; else level.tail = node.prev;
+        node.prev = null;
+        node.next = null;
+        level.totalQuantity -= node.order.getRemainingQuantity();
+        level.orderCount--;
+        restingOrders.remove(node.order.getId());
+        if (level.head == null) {
+            level.side.remove(level.key);
+        }
+    }
+    
+    // Market data views
+    public String getSymbol() { return symbol; }
+    // Prices are 0 when there is no bid/ask/trade yet
+    public long getBestBid() { return bids.isEmpty() ? 0 : bids.firstEntry().getValue().price; }
+    public long getBestAsk() { return asks.isEmpty() ? 0 : asks.firstEntry().getValue().price; }
+    public long getLastTradePrice() { return lastTradePrice; }
+    public long getTradedVolume() { return tradedVolume; }
+    public int getRestingOrderCount() { return restingOrders.size(); }
+    public int getBidLevelCount() { return bids.size(); }
+    public int getAskLevelCount() { return asks.size(); }
+    
+    public Order getOrder(long orderId) {
+        Node node = restingOrders.get(orderId);
+        return node != null ? node.order : null;
+    }
+    
+    /**
+     * Total resting quantity at a price on one side
+     */
+    public long getQuantityAt(Order.Side side, long price) {
+        PriceLevel level = side == Order.Side.BUY ? bids.get(-price) : asks.get(price);
+        return level != null ? level.totalQuantity : 0;
+    }
+    
+    private static class PriceLevel {
+        final long price;
+        final Long key;
+        final TreeMap<Long, PriceLevel> side;
+        Node head;
+        Node tail;
+        long totalQuantity;
+        int orderCount;
+        
+        PriceLevel(long price, Long key, TreeMap<Long, PriceLevel> side) {
+            this.price = price;
+            this.key = key;
+            this.side = side;
+        }
+    }
+    
+    private static class Node {
+        final Order order;
+        final PriceLevel level;
+        Node prev;
+        Node next;
+        
+        Node(Order order, PriceLevel level) {
+            this.order = order;
+            this.level = level;
+        }
+    }
+}
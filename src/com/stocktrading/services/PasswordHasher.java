@@ -0,0 +1,235 @@
+package com.stocktrading.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashing.
+ *
+ * Hashes are stored as "pbkdf2-sha256$iterations$salt$hash" (base64), so the
+ * cost can be raised later and older hashes still verify. The default cost
+ * is calibrated at startup to take about TARGET_MILLIS on this machine.
+ *
+ * Every KDF call runs on a bounded executor, never on the caller's thread:
+ * at most one hash per core is in flight and a full queue rejects the request
+ * instead of letting a login storm pile up. Successful verifications are
+ * remembered as a keyed digest of the password against the stored hash, so
+ * a repeat login with the same credentials skips the KDF. Rows that still
+ * hold a plaintext password verify once and report needsRehash.
+ * rejectUnknown spends the same KDF on a login for a username that does not
+ * exist, so response time does not reveal which usernames are taken.
+ */
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    private static final int MIN_ITERATIONS = 10_000;
+    private static final long TARGET_MILLIS = 100;
+    private static final int QUEUE_SIZE = 256;
+    private static final int CACHE_SIZE = 4096;
+    // Calibration varies from run to run; a hash this close to the current cost is kept
+    private static final double REHASH_TOLERANCE = 0.8;
+    
+    private final int iterations;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec cacheKey; // per process, never stored
+    private final byte[] dummySalt = new byte[SALT_BYTES]; // for unknown usernames
+    private final Map<String, byte[]> verified; // stored hash -> keyed digest of the password, guarded by itself
+    
+    public PasswordHasher() {
+        this(calibrate(TARGET_MILLIS), Runtime.getRuntime().availableProcessors(), QUEUE_SIZE);
+    }
+    
+    public PasswordHasher(int iterations, int threads, int queueSize) {
+        this.iterations = Math.max(MIN_ITERATIONS, iterations);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), r -> {
+                Thread t = new Thread(r, "password-hasher");
+                t.setDaemon(true);
+                return t;
+            });
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        random.nextBytes(dummySalt);
+        this.cacheKey = new SecretKeySpec(key, "HmacSHA256");
+        this.verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+    
+    /**
+     * Iteration count that takes about targetMillis per hash on this machine
+     */
+    public static int calibrate(long targetMillis) {
+        byte[] salt = new byte[SALT_BYTES];
+        char[] password = "calibration".toCharArray();
+        derive(password, salt, MIN_ITERATIONS); // warm up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            derive(password, salt, MIN_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long scaled = MIN_ITERATIONS * TimeUnit.MILLISECONDS.toNanos(targetMillis) / Math.max(1, best);
+        return (int) Math.max(MIN_ITERATIONS, Math.min(10_000_000, scaled / 1000 * 1000));
+    }
+    
+    /**
+     * Hash a password with a fresh salt at the current cost
+     */
+    public CompletableFuture<String> hash(String password) {
+        return submit(() -> {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            String encoded = PREFIX + "$" + iterations + "$" + encode(salt) + "$" +
+                             encode(derive(password.toCharArray(), salt, iterations));
+            remember(encoded, password);
+            return encoded;
+        });
+    }
+    
+    /**
+     * Check a password against a stored hash (or legacy plaintext value)
+     */
+    public CompletableFuture<Boolean> verify(String password, String stored) {
+        if (stored == null || password == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (isCached(stored, password)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            // Legacy plaintext row - cheap to compare, upgraded by the caller
+            return CompletableFuture.completedFuture(MessageDigest.isEqual(
+                stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8)));
+        }
+        return submit(() -> {
+            byte[] expected = decode(parts[3]);
+            byte[] actual = derive(password.toCharArray(), decode(parts[2]), Integer.parseInt(parts[1]));
+            boolean match = MessageDigest.isEqual(expected, actual);
+            if (match) {
+                remember(stored, password);
+            }
+            return match;
+        });
+    }
+    
+    /**
+     * Fail a login for a username that does not exist, after the same KDF
+     * work a real verification at the current cost would do
+     */
+    public CompletableFuture<Boolean> rejectUnknown(String password) {
+        return submit(() -> {
+            derive((password != null ? password : "").toCharArray(), dummySalt, iterations);
+            return false;
+        });
+    }
+    
+    /**
+     * True if the stored value is plaintext or hashed at clearly less than the
+     * current cost. Hashes within REHASH_TOLERANCE of it are kept, so a restart
+     * that calibrates a slightly higher count does not rewrite every row.
+     */
+    public boolean needsRehash(String stored) {
+        String[] parts = stored != null ? stored.split("\\$") : new String[0];
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < (long) (iterations * REHASH_TOLERANCE);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**
+     * Hash requests waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e); // queue full - shed load rather than wait
+        }
+        return future;
+    }
+    
+    private boolean isCached(String stored, String password) {
+        byte[] digest;
+        synchronized (verified) {
+            digest = verified.get(stored);
+        }
+        return digest != null && MessageDigest.isEqual(digest, keyedDigest(password));
+    }
+    
+    private void remember(String stored, String password) {
+        byte[] digest = keyedDigest(password);
+        synchronized (verified) {
+            verified.put(stored, digest);
+        }
+    }
+    
+    private byte[] keyedDigest(String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    private static byte[] decode(String text) {
+        return Base64.getDecoder().decode(text);
+    }
+}
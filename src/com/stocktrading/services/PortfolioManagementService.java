@@ -5,94 +5,465 @@ import com.stocktrading.models.*;
 import com.stocktrading.database.DatabaseManager;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Portfolio management service implementing PortfolioService interface
+ * Each public trade call is timed into Metrics as "trade.<method>"; a
+ * rejected or failed trade also counts as an error. Buys, sells and order
+ * placements are also emitted as TradeEvents for Flight Recorder.
  */
 public class PortfolioManagementService implements PortfolioService {
+    private static final int HOUSE_PORTFOLIO_ID = -1; // simulated liquidity at the quoted price
+    private static final long ORDER_TIMEOUT_SECONDS = 5;
+    private static final LatencyHistogram BUY_LATENCY = Metrics.histogram("trade.buyStock");
+    private static final LatencyHistogram SELL_LATENCY = Metrics.histogram("trade.sellStock");
+    private static final LatencyHistogram SELL_LOT_LATENCY = Metrics.histogram("trade.sellLot");
+    private static final LatencyHistogram PLACE_LATENCY = Metrics.histogram("trade.placeOrder");
+    private static final LatencyHistogram CANCEL_LATENCY = Metrics.histogram("trade.cancelOrder");
+    private static final LatencyHistogram REPLACE_LATENCY = Metrics.histogram("trade.replaceOrder");
+    private static final LatencyHistogram BASKET_LATENCY = Metrics.histogram("trade.executeBasket");
+    
     private DatabaseManager dbManager;
+    private MatchingEngine matchingEngine;
+    private ValuationEngine valuationEngine;
+    private Map<Long, Reservation> openOrders; // cash/shares held per working order
+    private Map<String, Long> marketPrices; // latest quote per symbol, micro-units
     
     public PortfolioManagementService(DatabaseManager dbManager) {
+        this(dbManager, new MatchingEngine());
+    }
+    
+    public PortfolioManagementService(DatabaseManager dbManager, MatchingEngine matchingEngine) {
         this.dbManager = dbManager;
+        this.matchingEngine = matchingEngine;
+        this.valuationEngine = new ValuationEngine();
+        this.openOrders = new ConcurrentHashMap<>();
+        this.marketPrices = new ConcurrentHashMap<>();
+        matchingEngine.addFillListener(this::applyFill);
+    }
+    
+    /**
+     * Record the latest market quote; market orders are filled against it
+     * and tracked portfolios holding the symbol are re-marked
+     */
+    public void updateMarketPrice(String symbol, double price) {
+        if (price > 0) {
+            long micros = Money.of(price);
+            marketPrices.put(symbol, micros);
+            valuationEngine.onPrice(symbol, micros);
+        }
+    }
+    
+    public ValuationEngine getValuationEngine() {
+        return valuationEngine;
     }
     
     @Override
     public boolean buyStock(Portfolio portfolio, Stock stock, int quantity) {
-        double totalCost = stock.getCurrentPrice() * quantity;
-        
-        if (portfolio.getCashBalance() < totalCost) {
-            System.err.println("Insufficient funds");
-            return false;
+        long start = System.nanoTime();
+        TradeEvent event = TradeEvent.start("buyStock", portfolio.getId(), stock.getSymbol(), Order.Side.BUY, quantity);
+        updateMarketPrice(stock.getSymbol(), stock.getCurrentPrice());
+        Order order = executeMarketOrder(portfolio, stock.getSymbol(), Order.Side.BUY, quantity, 0);
+        return timed(BUY_LATENCY, start, event, order, order != null && order.getFilledQuantity() > 0);
+    }
+    
+    @Override
+    public boolean sellStock(Portfolio portfolio, String symbol, int quantity) {
+        long start = System.nanoTime();
+        TradeEvent event = TradeEvent.start("sellStock", portfolio.getId(), symbol, Order.Side.SELL, quantity);
+        Order order = executeMarketOrder(portfolio, symbol, Order.Side.SELL, quantity, 0);
+        return timed(SELL_LATENCY, start, event, order, order != null && order.getFilledQuantity() > 0);
+    }
+    
+    /**
+     * Sell shares out of one specific tax lot at the market
+     */
+    @Override
+    public boolean sellLot(Portfolio portfolio, String symbol, int lotId, int quantity) {
+        long start = System.nanoTime();
+        TradeEvent event = TradeEvent.start("sellLot", portfolio.getId(), symbol, Order.Side.SELL, quantity);
+        boolean inLot = false;
+        for (LotLedger.Lot lot : portfolio.getLots(symbol)) {
+            inLot |= lot.getId() == lotId && lot.getQuantity() >= quantity;
+        }
+        if (!inLot) {
+            System.err.println("Lot " + lotId + " of " + symbol + " does not hold " + quantity + " shares");
+            return timed(SELL_LOT_LATENCY, start, event, null, false);
+        }
+        Order order = executeMarketOrder(portfolio, symbol, Order.Side.SELL, quantity, lotId);
+        return timed(SELL_LOT_LATENCY, start, event, order, order != null && order.getFilledQuantity() > 0);
+    }
+    
+    @Override
+    public Order placeOrder(Portfolio portfolio, String symbol, Order.Side side, Order.Type type,
+                            long limitPrice, int quantity) {
+        long start = System.nanoTime();
+        TradeEvent event = TradeEvent.start("placeOrder", portfolio.getId(), symbol, side, quantity);
+        Order order = submitOrder(portfolio, symbol, side, type, limitPrice, quantity);
+        timed(PLACE_LATENCY, start, event, order, order != null);
+        return order;
+    }
+    
+    private Order submitOrder(Portfolio portfolio, String symbol, Order.Side side, Order.Type type,
+                              long limitPrice, int quantity) {
+        if (type == Order.Type.MARKET) {
+            return executeMarketOrder(portfolio, symbol, side, quantity, 0);
+        }
+        if (quantity <= 0 || limitPrice <= 0) {
+            System.err.println("Invalid order");
+            return null;
         }
         
-        try {
-            // Update portfolio
-            portfolio.setCashBalance(portfolio.getCashBalance() - totalCost);
-            portfolio.addHolding(stock.getSymbol(), quantity, stock.getCurrentPrice());
-            
-            // Create transaction
-            Transaction transaction = new Transaction("BUY", stock.getSymbol(), quantity, stock.getCurrentPrice());
-            portfolio.addTransaction(transaction);
-            
-            // Save to database
-            dbManager.updatePortfolioCash(portfolio.getId(), portfolio.getCashBalance());
-            dbManager.saveHolding(portfolio.getId(), stock.getSymbol(), quantity, stock.getCurrentPrice());
-            dbManager.saveTransaction(portfolio.getId(), transaction);
+        Order order = new Order(matchingEngine.nextOrderId(), portfolio.getId(), symbol, side, type, limitPrice, quantity);
+        if (!reserve(portfolio, order, limitPrice)) {
+            return null;
+        }
+        return settle(await(matchingEngine.submit(order)), order);
+    }
+    
+    @Override
+    public boolean cancelOrder(Portfolio portfolio, String symbol, long orderId) {
+        long start = System.nanoTime();
+        Boolean cancelled = await(matchingEngine.onBook(symbol, book -> {
+            Order order = book.getOrder(orderId);
+            if (order == null || order.getPortfolioId() != portfolio.getId() || !book.cancel(orderId)) {
+                return false;
+            }
+            releaseRemaining(orderId);
+            return true;
+        }));
+        return timed(CANCEL_LATENCY, start, Boolean.TRUE.equals(cancelled));
+    }
+    
+    @Override
+    public boolean replaceOrder(Portfolio portfolio, String symbol, long orderId, long newPrice, int newQuantity) {
+        long start = System.nanoTime();
+        Boolean replaced = await(matchingEngine.onBook(symbol, book -> {
+            Order order = book.getOrder(orderId);
+            Reservation reservation = openOrders.get(orderId);
+            if (order == null || reservation == null || order.getPortfolioId() != portfolio.getId() ||
+                newPrice <= 0 || newQuantity <= 0) {
+                return false;
+            }
             
+            // Swap the reservation for one sized to the amended order, atomically
+            int newRemaining = Math.max(0, newQuantity - order.getFilledQuantity());
+            Reservation amended = new Reservation(portfolio, order, newPrice, newRemaining);
+            boolean swapped = portfolio.update(() -> {
+                int held = reservation.getRemaining();
+                reservation.release();
+                if (amended.acquire()) {
+                    return true;
+                }
+                reservation.restore(held);
+                return false;
+            });
+            if (!swapped) {
+                return false;
+            }
+            openOrders.put(orderId, amended);
+            book.replace(orderId, newPrice, newQuantity);
+            if (!order.isActive()) {
+                releaseRemaining(orderId);
+            }
             return true;
-        } catch (SQLException e) {
-            System.err.println("Error buying stock: " + e.getMessage());
-            return false;
-        }
+        }));
+        return timed(REPLACE_LATENCY, start, Boolean.TRUE.equals(replaced));
     }
     
+    /**
+     * Execute a basket of market orders all-or-nothing at the latest quotes.
+     * Legs are checked in order against unreserved shares; cash is checked for
+     * the basket as a whole, so buys can be funded by sells in the same basket.
+     * If every leg passes, the basket is persisted in one database transaction
+     * and then applied to the portfolio as a single atomic update. Otherwise
+     * nothing changes and each leg reports why.
+     */
     @Override
-    public boolean sellStock(Portfolio portfolio, String symbol, int quantity) {
-        Portfolio.StockHolding holding = portfolio.getHoldings().get(symbol);
-        
-        if (holding == null || holding.getQuantity() < quantity) {
-            System.err.println("Insufficient shares");
-            return false;
+    public BasketOrder executeBasket(Portfolio portfolio, BasketOrder basket) {
+        long start = System.nanoTime();
+        runBasket(portfolio, basket);
+        timed(BASKET_LATENCY, start, basket.isFilled());
+        return basket;
+    }
+    
+    private void runBasket(Portfolio portfolio, BasketOrder basket) {
+        List<BasketOrder.Leg> legs = basket.getLegs();
+        long[] prices = new long[legs.size()];
+        boolean valid = true;
+        for (int i = 0; i < legs.size(); i++) {
+            BasketOrder.Leg leg = legs.get(i);
+            Long price = marketPrices.get(leg.getSymbol());
+            if (leg.getQuantity() <= 0) {
+                leg.reject("Invalid quantity");
+                valid = false;
+            } else if (price == null) {
+                leg.reject("No market price for " + leg.getSymbol());
+                valid = false;
+            } else {
+                prices[i] = price;
+            }
+        }
+        if (!valid) {
+            cancelPending(legs, "Basket rejected");
+            return;
         }
         
-        try {
-            // For selling, we need current price - assuming we have it stored or fetched
-            double currentPrice = holding.getAveragePrice(); // In real app, fetch current price
-            double totalRevenue = currentPrice * quantity;
+        portfolio.update(() -> {
+            // Work out the end state on detached copies before touching anything
+            Map<String, Portfolio.StockHolding> touched = new LinkedHashMap<>();
+            Map<String, Integer> availableShares = new HashMap<>();
+            List<Transaction> transactions = new ArrayList<>();
+            long cashChange = 0;
+            boolean accepted = true;
             
-            // Update portfolio
-            portfolio.setCashBalance(portfolio.getCashBalance() + totalRevenue);
-            portfolio.removeHolding(symbol, quantity);
+            for (int i = 0; i < legs.size(); i++) {
+                BasketOrder.Leg leg = legs.get(i);
+                String symbol = leg.getSymbol();
+                int quantity = leg.getQuantity();
+                Portfolio.StockHolding holding = touched.computeIfAbsent(symbol, s -> {
+                    Portfolio.StockHolding existing = portfolio.getHoldings().get(s);
+                    return existing != null ? existing.copy() : new Portfolio.StockHolding(s, 0, 0);
+                });
+                int available = availableShares.computeIfAbsent(symbol, portfolio::getAvailableShares);
+                long amount = Money.times(prices[i], quantity);
+                
+                if (leg.getSide() == Order.Side.BUY) {
+                    holding.addQuantity(quantity, prices[i]);
+                    availableShares.put(symbol, available + quantity);
+                    cashChange = Money.subtract(cashChange, amount);
+                    transactions.add(new Transaction("BUY", symbol, quantity, prices[i]));
+                } else if (available < quantity) {
+                    leg.reject("Insufficient shares");
+                    accepted = false;
+                } else {
+                    holding.removeQuantity(quantity, portfolio.getReliefMethod());
+                    availableShares.put(symbol, available - quantity);
+                    cashChange = Money.add(cashChange, amount);
+                    transactions.add(new Transaction("SELL", symbol, quantity, prices[i],
+                                                     portfolio.getReliefMethod(), 0));
+                }
+            }
             
-            // Create transaction
-            Transaction transaction = new Transaction("SELL", symbol, quantity, currentPrice);
-            portfolio.addTransaction(transaction);
+            if (accepted && portfolio.getAvailableCash() + cashChange < 0) {
+                for (BasketOrder.Leg leg : legs) {
+                    if (leg.getSide() == Order.Side.BUY) {
+                        leg.reject("Insufficient funds");
+                    }
+                }
+                accepted = false;
+            }
+            if (!accepted) {
+                cancelPending(legs, "Basket rejected");
+                return;
+            }
             
-            // Save to database
-            dbManager.updatePortfolioCash(portfolio.getId(), portfolio.getCashBalance());
+            long newCash = Money.add(portfolio.getCashBalance(), cashChange);
+            try {
+                dbManager.saveBasket(portfolio.getId(), newCash, touched.values(), transactions);
+            } catch (SQLException e) {
+                System.err.println("Error saving basket: " + e.getMessage());
+                for (BasketOrder.Leg leg : legs) {
+                    leg.reject("Database error");
+                }
+                return;
+            }
             
-            Portfolio.StockHolding updatedHolding = portfolio.getHoldings().get(symbol);
-            int remainingQty = updatedHolding != null ? updatedHolding.getQuantity() : 0;
-            dbManager.updateHolding(portfolio.getId(), symbol, remainingQty);
-            dbManager.saveTransaction(portfolio.getId(), transaction);
-            
-            return true;
-        } catch (SQLException e) {
-            System.err.println("Error selling stock: " + e.getMessage());
-            return false;
+            // Replay the same steps on the live portfolio; one snapshot is published at the end
+            for (int i = 0; i < legs.size(); i++) {
+                BasketOrder.Leg leg = legs.get(i);
+                if (leg.getSide() == Order.Side.BUY) {
+                    portfolio.addHolding(leg.getSymbol(), leg.getQuantity(), prices[i]);
+                } else {
+                    portfolio.sellHolding(leg.getSymbol(), leg.getQuantity(), prices[i]);
+                }
+                portfolio.addTransaction(transactions.get(i));
+                leg.fill(prices[i]);
+            }
+            portfolio.setCashBalance(newCash);
+        });
+        
+        valuationEngine.sync(portfolio);
+    }
+    
+    private static boolean timed(LatencyHistogram histogram, long start, boolean ok) {
+        if (!ok) {
+            histogram.recordError();
         }
+        histogram.recordSince(start);
+        return ok;
     }
     
-    @Override
-    public double getPortfolioValue(Portfolio portfolio) {
-        // This would need current stock prices - simplified for demo
-        double totalValue = portfolio.getCashBalance();
+    private static boolean timed(LatencyHistogram histogram, long start, TradeEvent event, Order order, boolean ok) {
+        event.finish(order, ok);
+        return timed(histogram, start, ok);
+    }
+    
+    private void cancelPending(List<BasketOrder.Leg> legs, String message) {
+        for (BasketOrder.Leg leg : legs) {
+            if (leg.getStatus() == BasketOrder.Status.PENDING) {
+                leg.cancel(message);
+            }
+        }
+    }
+    
+    /**
+     * Fill a market order against the book, backed by house liquidity at the
+     * latest quote. Posting, matching and withdrawing the house order happen
+     * as one step on the symbol's matching thread. A sell with a lotId
+     * relieves that tax lot.
+     */
+    private Order executeMarketOrder(Portfolio portfolio, String symbol, Order.Side side, int quantity, int lotId) {
+        Long marketPrice = marketPrices.get(symbol);
+        if (marketPrice == null) {
+            System.err.println("No market price for " + symbol);
+            return null;
+        }
         
-        for (Portfolio.StockHolding holding : portfolio.getHoldings().values()) {
-            totalValue += holding.getQuantity() * holding.getAveragePrice();
+        Order order = new Order(matchingEngine.nextOrderId(), portfolio.getId(), symbol, side,
+                                Order.Type.MARKET, 0, quantity);
+        order.setLotId(lotId);
+        if (!reserve(portfolio, order, marketPrice)) {
+            return null;
         }
         
-        return totalValue;
+        Order.Side houseSide = side == Order.Side.BUY ? Order.Side.SELL : Order.Side.BUY;
+        Order house = new Order(matchingEngine.nextOrderId(), HOUSE_PORTFOLIO_ID, symbol, houseSide,
+                                Order.Type.LIMIT, marketPrice, quantity);
+        
+        return settle(await(matchingEngine.onBook(symbol, book -> {
+            // Rest the house quote without matching so it never trades with resting user orders
+            book.post(house);
+            book.submit(order);
+            book.cancel(house.getId());
+            return order;
+        })), order);
+    }
+    
+    /**
+     * Hold cash (buys) or shares (sells) for the order so that concurrent
+     * orders on the same portfolio cannot spend them twice
+     */
+    private boolean reserve(Portfolio portfolio, Order order, long price) {
+        Reservation reservation = new Reservation(portfolio, order, price, order.getQuantity());
+        if (!reservation.acquire()) {
+            System.err.println(order.getSide() == Order.Side.BUY ? "Insufficient funds" : "Insufficient shares");
+            return false;
+        }
+        openOrders.put(order.getId(), reservation);
+        return true;
+    }
+    
+    private Order settle(Order result, Order order) {
+        if (result == null || !order.isActive()) {
+            releaseRemaining(order.getId());
+        }
+        return result;
+    }
+    
+    private void releaseRemaining(long orderId) {
+        Reservation reservation = openOrders.remove(orderId);
+        if (reservation != null) {
+            reservation.release();
+        }
+    }
+    
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(ORDER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Order processing error: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * Fill listener - runs on the matching thread of the symbol
+     */
+    private void applyFill(Order taker, Order maker, long price, int quantity) {
+        applyExecution(taker, price, quantity);
+        applyExecution(maker, price, quantity);
+    }
+    
+    private void applyExecution(Order order, long price, int quantity) {
+        if (order.getPortfolioId() == HOUSE_PORTFOLIO_ID) {
+            return;
+        }
+        Reservation reservation = openOrders.get(order.getId());
+        if (reservation == null) {
+            return;
+        }
+        
+        Portfolio portfolio = reservation.portfolio;
+        String symbol = order.getSymbol();
+        long amount = Money.times(price, quantity);
+        
+        // Reservation release, cash, holdings and history change as one atomic step
+        portfolio.update(() -> {
+            reservation.consume(quantity);
+            try {
+                if (order.getSide() == Order.Side.BUY) {
+                    // Update portfolio
+                    portfolio.setCashBalance(Money.subtract(portfolio.getCashBalance(), amount));
+                    portfolio.addHolding(symbol, quantity, price);
+                    
+                    Transaction transaction = new Transaction("BUY", symbol, quantity, price);
+                    portfolio.addTransaction(transaction);
+                    
+                    // Save to database
+                    dbManager.updatePortfolioCash(portfolio.getId(), portfolio.getCashBalance());
+                    dbManager.saveHolding(portfolio.getId(), symbol, quantity, price);
+                    dbManager.saveTransaction(portfolio.getId(), transaction);
+                } else {
+                    int lotId = order.getLotId();
+                    boolean sold = lotId > 0 ? portfolio.sellLot(symbol, lotId, quantity, price)
+                                             : portfolio.sellHolding(symbol, quantity, price);
+                    if (!sold) {
+                        System.err.println("Fill exceeds holding for " + symbol);
+                        return;
+                    }
+                    portfolio.setCashBalance(Money.add(portfolio.getCashBalance(), amount));
+                    
+                    LotLedger.Relief relief = lotId > 0 ? LotLedger.Relief.SPECIFIC : portfolio.getReliefMethod();
+                    Transaction transaction = new Transaction("SELL", symbol, quantity, price, relief, lotId);
+                    portfolio.addTransaction(transaction);
+                    
+                    dbManager.updatePortfolioCash(portfolio.getId(), portfolio.getCashBalance());
+                    Portfolio.StockHolding updatedHolding = portfolio.getHoldings().get(symbol);
+                    int remainingQty = updatedHolding != null ? updatedHolding.getQuantity() : 0;
+                    dbManager.updateHolding(portfolio.getId(), symbol, remainingQty);
+                    dbManager.saveTransaction(portfolio.getId(), transaction);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error saving fill: " + e.getMessage());
+            }
+        });
+        
+        valuationEngine.sync(portfolio);
+        if (!order.isActive()) {
+            openOrders.remove(order.getId());
+        }
+    }
+    
+    /**
+     * Net asset value at the latest quotes (holdings without a quote at cost)
+     */
+    @Override
+    public long getPortfolioValue(Portfolio portfolio) {
+        valuationEngine.sync(portfolio);
+        return valuationEngine.getNetAssetValue(portfolio.getId());
+    }
+    
+    public long getRealizedPnl(Portfolio portfolio) {
+        return portfolio.getRealizedPnl();
+    }
+    
+    public long getUnrealizedPnl(Portfolio portfolio) {
+        valuationEngine.sync(portfolio);
+        return valuationEngine.getUnrealizedPnl(portfolio.getId());
     }
     
     @Override
@@ -100,10 +471,72 @@ public class PortfolioManagementService implements PortfolioService {
         List<Stock> stocks = new ArrayList<>();
         
         for (Portfolio.StockHolding holding : portfolio.getHoldings().values()) {
-            Stock stock = new Stock(holding.getSymbol(), holding.getAveragePrice());
+            Stock stock = new Stock(holding.getSymbol(), Money.toDouble(holding.getAveragePrice()));
             stocks.add(stock);
         }
         
         return stocks;
     }
+    
+    /**
+     * Cash or shares held back in a portfolio for the unfilled part of an order
+     */
+    private static class Reservation {
+        private final Portfolio portfolio;
+        private final Order.Side side;
+        private final String symbol;
+        private final long pricePerShare;
+        private int remaining;
+        
+        Reservation(Portfolio portfolio, Order order, long pricePerShare, int quantity) {
+            this.portfolio = portfolio;
+            this.side = order.getSide();
+            this.symbol = order.getSymbol();
+            this.pricePerShare = pricePerShare;
+            this.remaining = quantity;
+        }
+        
+        boolean acquire() {
+            return side == Order.Side.BUY ? portfolio.reserveCash(Money.times(pricePerShare, remaining))
+                                          : portfolio.reserveShares(symbol, remaining);
+        }
+        
+        // All state changes run under the portfolio's lock
+        void consume(int quantity) {
+            portfolio.update(() -> {
+                int released = Math.min(quantity, remaining);
+                remaining -= released;
+                releaseQuantity(released);
+            });
+        }
+        
+        void release() {
+            portfolio.update(() -> {
+                releaseQuantity(remaining);
+                remaining = 0;
+            });
+        }
+        
+        void restore(int quantity) {
+            portfolio.update(() -> {
+                remaining = quantity;
+                acquire();
+            });
+        }
+        
+        int getRemaining() {
+            return portfolio.update(() -> remaining);
+        }
+        
+        private void releaseQuantity(int quantity) {
+            if (quantity <= 0) {
+                return;
+            }
+            if (side == Order.Side.BUY) {
+                portfolio.releaseCash(Money.times(pricePerShare, quantity));
+            } else {
+                portfolio.releaseShares(symbol, quantity);
+            }
+        }
+    }
 }
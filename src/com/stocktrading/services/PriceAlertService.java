@@ -0,0 +1,181 @@
+package com.stocktrading.services;
+
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.interfaces.PriceAlertListener;
+import com.stocktrading.models.PriceAlert;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Price alert engine with an indexed trigger book.
+ *
+ * Each symbol keeps two sorted maps keyed by trigger price: alerts waiting for
+ * the price to rise and alerts waiting for it to fall. A price update only
+ * touches the head/tail of those maps that has been crossed, so a tick costs
+ * O(log n + fired) however many alerts are registered. Alerts are one-shot.
+ */
+public class PriceAlertService {
+    private final DatabaseManager dbManager;
+    private final Map<String, TriggerBook> books = new ConcurrentHashMap<>();
+    private final Map<Integer, PriceAlert> activeAlerts = new ConcurrentHashMap<>();
+    private final List<PriceAlertListener> listeners = new CopyOnWriteArrayList<>();
+
+    public PriceAlertService(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Load the user's untriggered alerts from the database into the trigger book
+     */
+    public void loadActiveAlerts(int userId) {
+        try {
+            for (PriceAlert alert : dbManager.getActiveAlerts(userId)) {
+                index(alert);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading alerts: " + e.getMessage());
+        }
+    }
+
+    public void addListener(PriceAlertListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PriceAlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Persist and register a new alert
+     * @return false if the alert could not be saved
+     */
+    public boolean addAlert(PriceAlert alert) {
+        if (alert.getSymbol() == null || !(alert.getTriggerPrice() > 0)) {
+            return false;
+        }
+        try {
+            int id = dbManager.saveAlert(alert);
+            if (id <= 0) {
+                return false;
+            }
+            alert.setId(id);
+        } catch (SQLException e) {
+            System.err.println("Error saving alert: " + e.getMessage());
+            return false;
+        }
+        index(alert);
+        return true;
+    }
+
+    public boolean cancelAlert(int alertId) {
+        PriceAlert alert = activeAlerts.remove(alertId);
+        if (alert == null) {
+            return false;
+        }
+        TriggerBook book = books.get(alert.getSymbol());
+        if (book != null) {
+            book.remove(alert);
+        }
+        try {
+            dbManager.deleteAlert(alertId);
+        } catch (SQLException e) {
+            System.err.println("Error deleting alert: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Feed a price update; fires and removes every alert the price has crossed
+     */
+    public void onPrice(String symbol, double price) {
+        TriggerBook book = books.get(symbol);
+        if (book == null) {
+            return;
+        }
+        List<PriceAlert> fired = book.collectTriggered(price);
+        if (fired.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (PriceAlert alert : fired) {
+            // Whoever removes it owns it; a cancelAlert that got there first deleted the row
+            if (activeAlerts.remove(alert.getId()) == null) {
+                continue;
+            }
+            alert.setTriggeredAt(now);
+            try {
+                dbManager.markAlertTriggered(alert.getId(), now);
+            } catch (SQLException e) {
+                System.err.println("Error updating alert: " + e.getMessage());
+            }
+            for (PriceAlertListener listener : listeners) {
+                listener.onAlertTriggered(alert, price);
+            }
+        }
+    }
+
+    public List<PriceAlert> getActiveAlerts(int userId) {
+        List<PriceAlert> alerts = new ArrayList<>();
+        for (PriceAlert alert : activeAlerts.values()) {
+            if (alert.getUserId() == userId) {
+                alerts.add(alert);
+            }
+        }
+        return alerts;
+    }
+
+    public int getActiveAlertCount() {
+        return activeAlerts.size();
+    }
+
+    private void index(PriceAlert alert) {
+        activeAlerts.put(alert.getId(), alert);
+        books.computeIfAbsent(alert.getSymbol(), s -> new TriggerBook()).add(alert);
+    }
+
+    /**
+     * Sorted trigger structures for one symbol
+     */
+    private static class TriggerBook {
+        // Fire when price >= key
+        private final NavigableMap<Double, List<PriceAlert>> above = new TreeMap<>();
+        // Fire when price <= key
+        private final NavigableMap<Double, List<PriceAlert>> below = new TreeMap<>();
+
+        synchronized void add(PriceAlert alert) {
+            NavigableMap<Double, List<PriceAlert>> side = alert.isUpward() ? above : below;
+            side.computeIfAbsent(alert.getTriggerPrice(), p -> new ArrayList<>(1)).add(alert);
+        }
+
+        synchronized void remove(PriceAlert alert) {
+            NavigableMap<Double, List<PriceAlert>> side = alert.isUpward() ? above : below;
+            Double key = alert.getTriggerPrice();
+            List<PriceAlert> bucket = side.get(key);
+            if (bucket != null && bucket.remove(alert) && bucket.isEmpty()) {
+                side.remove(key);
+            }
+        }
+
+        synchronized List<PriceAlert> collectTriggered(double price) {
+            if ((above.isEmpty() || above.firstKey() > price) &&
+                (below.isEmpty() || below.lastKey() < price)) {
+                return Collections.emptyList();
+            }
+            List<PriceAlert> fired = new ArrayList<>();
+            drain(above.headMap(price, true), fired);
+            drain(below.tailMap(price, true), fired);
+            return fired;
+        }
+
+        private void drain(NavigableMap<Double, List<PriceAlert>> crossed, List<PriceAlert> fired) {
+            for (List<PriceAlert> bucket : crossed.values()) {
+                fired.addAll(bucket);
+            }
+            crossed.clear();
+        }
+    }
+}
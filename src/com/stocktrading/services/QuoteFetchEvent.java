@@ -0,0 +1,36 @@
+package com.stocktrading.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one quote fetch. The event's duration is the fetch on the
+ * worker thread; queueTime is how long the task waited in the executor
+ * before that, and apiTime the part spent in the market data call.
+ */
+@Name("com.stocktrading.QuoteFetch")
+@Label("Quote Fetch")
+@Category({"Stock Trading", "Market Data"})
+@StackTrace(false)
+public class QuoteFetchEvent extends Event {
+    @Label("Symbol")
+    public String symbol;
+    
+    @Label("Queue Time")
+    @Description("Time between submission to the fetch pool and the start of the fetch")
+    @Timespan
+    public long queueTime;
+    
+    @Label("API Time")
+    @Description("Time in the market data call")
+    @Timespan
+    public long apiTime;
+    
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,21 @@
+package com.stocktrading.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a batch of quotes fetched in parallel, from submission
+ * until the last result is collected
+ */
+@Name("com.stocktrading.QuoteRefresh")
+@Label("Quote Refresh")
+@Category({"Stock Trading", "Market Data"})
+public class QuoteRefreshEvent extends Event {
+    @Label("Symbols Requested")
+    public int requested;
+    
+    @Label("Quotes Received")
+    public int received;
+}
@@ -0,0 +1,248 @@
+package com.stocktrading.services;
+
+import java.util.Arrays;
+
+/**
+ * Order-statistic treap of (id, score) entries, highest score first and
+ * ties broken by lower id. Subtree sizes make rank and select O(log n)
+ * expected; nodes live in parallel arrays with a free list, so there is no
+ * per-entry object. Not thread-safe.
+ */
+class RankTree {
+    private static final int NIL = 0; // sentinel node with size 0
+    
+    private int[] left;
+    private int[] right;
+    private int[] size;
+    private int[] priority;
+    private int[] ids;
+    private double[] scores;
+    private int root = NIL;
+    private int used = 1;
+    private int free = NIL; // released nodes, linked through right[]
+    private int seed = 0x9E3779B9;
+    
+    // Results of split()
+    private int splitLeft;
+    private int splitRight;
+    
+    RankTree() {
+        this(16);
+    }
+    
+    RankTree(int capacity) {
+        int slots = Math.max(2, capacity + 1);
+        left = new int[slots];
+        right = new int[slots];
+        size = new int[slots];
+        priority = new int[slots];
+        ids = new int[slots];
+        scores = new double[slots];
+    }
+    
+    void insert(int id, double score) {
+        int node = allocate(id, score);
+        root = insert(root, node);
+    }
+    
+    /**
+     * Remove the entry; the score must be the one it was inserted with
+     * @return false if there was no such entry
+     */
+    boolean remove(int id, double score) {
+        int before = size[root];
+        root = remove(root, id, score);
+        return size[root] < before;
+    }
+    
+    /**
+     * Number of entries ranked ahead of (id, score)
+     */
+    int rank(int id, double score) {
+        int rank = 0;
+        int t = root;
+        while (t != NIL) {
+            if (before(t, score, id)) {
+                rank += size[left[t]] + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return rank;
+    }
+    
+    /**
+     * Id of the entry at the given 0-based rank
+     */
+    int select(int rank) {
+        if (rank < 0 || rank >= size[root]) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size[root]);
+        }
+        int t = root;
+        while (true) {
+            int leftSize = size[left[t]];
+            if (rank < leftSize) {
+                t = left[t];
+            } else if (rank == leftSize) {
+                return ids[t];
+            } else {
+                rank -= leftSize + 1;
+                t = right[t];
+            }
+        }
+    }
+    
+    /**
+     * Ids of the first count entries, best first, by in-order walk: O(log n + count)
+     */
+    int[] top(int count) {
+        int[] result = new int[Math.max(0, Math.min(count, size[root]))];
+        int[] stack = new int[32];
+        int depth = 0;
+        int n = 0;
+        int t = root;
+        while (n < result.length) {
+            while (t != NIL) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                t = left[t];
+            }
+            t = stack[--depth];
+            result[n++] = ids[t];
+            t = right[t];
+        }
+        return result;
+    }
+    
+    int size() {
+        return size[root];
+    }
+    
+    void clear() {
+        root = NIL;
+        used = 1;
+        free = NIL;
+    }
+    
+    private boolean before(int node, double score, int id) {
+        int c = Double.compare(scores[node], score);
+        return c > 0 || (c == 0 && ids[node] < id);
+    }
+    
+    private int insert(int t, int node) {
+        if (t == NIL) {
+            return node;
+        }
+        if (priority[node] > priority[t]) {
+            split(t, scores[node], ids[node]);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            update(node);
+            return node;
+        }
+        if (before(t, scores[node], ids[node])) {
+            right[t] = insert(right[t], node);
+        } else {
+            left[t] = insert(left[t], node);
+        }
+        update(t);
+        return t;
+    }
+    
+    private int remove(int t, int id, double score) {
+        if (t == NIL) {
+            return NIL;
+        }
+        if (ids[t] == id && Double.compare(scores[t], score) == 0) {
+            int merged = merge(left[t], right[t]);
+            release(t);
+            return merged;
+        }
+        if (before(t, score, id)) {
+            right[t] = remove(right[t], id, score);
+        } else {
+            left[t] = remove(left[t], id, score);
+        }
+        update(t);
+        return t;
+    }
+    
+    // Split into entries before (score, id) and the rest
+    private void split(int t, double score, int id) {
+        if (t == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+        } else if (before(t, score, id)) {
+            split(right[t], score, id);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], score, id);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+    
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+    
+    private void update(int t) {
+        size[t] = size[left[t]] + size[right[t]] + 1;
+    }
+    
+    private int allocate(int id, double score) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = right[node];
+        } else {
+            if (used == ids.length) {
+                grow(ids.length * 2);
+            }
+            node = used++;
+        }
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        priority[node] = seed;
+        ids[node] = id;
+        scores[node] = score;
+        return node;
+    }
+    
+    private void release(int node) {
+        right[node] = free;
+        free = node;
+    }
+    
+    private void grow(int capacity) {
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+    }
+}
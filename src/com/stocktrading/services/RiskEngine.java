@@ -0,0 +1,367 @@
+package com.stocktrading.services;
+
+import com.stocktrading.models.*;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Historical and parametric VaR/CVaR plus stress tests over many portfolios.
+ *
+ * Portfolios are pulled from an iterator in batches and each batch is valued
+ * on a worker thread against one shared, read-only ReturnMatrix. For every
+ * portfolio it computes the P&L under each historical day (historical
+ * VaR/CVaR), the variance from the covariance matrix (parametric VaR/CVaR)
+ * and the loss under each stress scenario.
+ *
+ * Memory stays bounded whatever the number of portfolios: only a fixed number
+ * of batches are in flight, per-portfolio rows are streamed to the caller's
+ * output as batches complete, and the firm-wide figures are built from
+ * running sums (one P&L vector and one exposure vector), not from stored
+ * per-portfolio results.
+ */
+public class RiskEngine {
+    private static final int BATCH_SIZE = 256;
+    private static final int TOP_PORTFOLIOS = 10;
+    
+    private final ReturnMatrix matrix;
+    private final List<StressScenario> scenarios;
+    private final double[][] scenarioShocks; // [scenario][matrix row]
+    private final double confidence;
+    private final int threads;
+    
+    public RiskEngine(ReturnMatrix matrix, List<StressScenario> scenarios, double confidence) {
+        this(matrix, scenarios, confidence, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public RiskEngine(ReturnMatrix matrix, List<StressScenario> scenarios, double confidence, int threads) {
+        if (!(confidence > 0.5 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0.5 and 1");
+        }
+        this.matrix = matrix;
+        this.scenarios = new ArrayList<>(scenarios);
+        this.confidence = confidence;
+        this.threads = Math.max(1, threads);
+        
+        // Resolve shocks per matrix row once instead of a map lookup per position
+        this.scenarioShocks = new double[this.scenarios.size()][matrix.getSymbolCount()];
+        for (int s = 0; s < this.scenarios.size(); s++) {
+            for (int i = 0; i < matrix.getSymbolCount(); i++) {
+                scenarioShocks[s][i] = this.scenarios.get(s).getShock(matrix.getSymbol(i));
+            }
+        }
+    }
+    
+    /**
+     * Risk for a single portfolio, e.g. for an on-demand view
+     */
+    public RiskReport.PortfolioRisk assess(Portfolio portfolio) {
+        Batch batch = new Batch(1);
+        batch.add(portfolio.getId(), portfolio.getSnapshot().getHoldings().values());
+        return batch.call().risks.get(0);
+    }
+    
+    /**
+     * Run over every portfolio the iterator yields.
+     * @param details receives one CSV row per portfolio (see PortfolioRisk.toCsv), or null
+     */
+    public RiskReport run(Iterator<Portfolio> portfolios, Appendable details) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<BatchResult> completion = new ExecutorCompletionService<>(executor);
+        Totals totals = new Totals();
+        
+        if (details != null) {
+            details.append("portfolio_id,market_value,hist_var,hist_cvar,param_var,param_cvar");
+            for (StressScenario scenario : scenarios) {
+                details.append(",stress_").append(scenario.getName().replace(',', ' '));
+            }
+            details.append('\n');
+        }
+        
+        try {
+            int inFlight = 0;
+            int maxInFlight = threads * 2;
+            while (portfolios.hasNext()) {
+                // Snapshots are read here, on the feeding thread; workers only see plain arrays
+                Batch batch = new Batch(BATCH_SIZE);
+                while (batch.size < BATCH_SIZE && portfolios.hasNext()) {
+                    Portfolio portfolio = portfolios.next();
+                    batch.add(portfolio.getId(), portfolio.getSnapshot().getHoldings().values());
+                }
+                completion.submit(batch);
+                inFlight++;
+                if (inFlight >= maxInFlight) {
+                    totals.merge(take(completion), details);
+                    inFlight--;
+                }
+            }
+            while (inFlight > 0) {
+                totals.merge(take(completion), details);
+                inFlight--;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        RiskReport report = totals.toReport();
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+    
+    private BatchResult take(CompletionService<BatchResult> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Risk run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Risk batch failed: " + e.getCause(), e.getCause());
+        }
+    }
+    
+    /**
+     * Loss at the confidence level and average loss beyond it.
+     * Only the worst days are needed, so for the usual narrow tails they are
+     * picked with a small insertion buffer instead of sorting the whole vector.
+     */
+    private double[] historicalTail(double[] pnl) {
+        if (pnl.length == 0) {
+            return new double[2];
+        }
+        int tail = Math.max(1, (int) Math.ceil((1 - confidence) * pnl.length));
+        double[] worst;
+        if (tail > 32) {
+            worst = pnl.clone();
+            Arrays.sort(worst);
+        } else {
+            worst = new double[tail]; // ascending, worst first
+            int filled = 0;
+            for (double value : pnl) {
+                if (filled == tail && value >= worst[tail - 1]) {
+                    continue;
+                }
+                int i = filled < tail ? filled++ : tail - 1;
+                while (i > 0 && worst[i - 1] > value) {
+                    worst[i] = worst[i - 1];
+                    i--;
+                }
+                worst[i] = value;
+            }
+        }
+        double sum = 0;
+        for (int t = 0; t < tail; t++) {
+            sum += worst[t];
+        }
+        return new double[] { -worst[tail - 1], -sum / tail };
+    }
+    
+    private double[] parametricTail(double mean, double variance) {
+        double sigma = Math.sqrt(Math.max(0, variance));
+        double z = inverseNormal(confidence);
+        double density = Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI);
+        return new double[] { z * sigma - mean, sigma * density / (1 - confidence) - mean };
+    }
+    
+    /**
+     * Standard normal quantile (Acklam's rational approximation, ~1e-9 relative error)
+     */
+    static double inverseNormal(double p) {
+        double[] a = { -3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                       1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00 };
+        double[] b = { -5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                       6.680131188771972e+01, -1.328068155288572e+01 };
+        double[] c = { -7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                       -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00 };
+        double[] d = { 7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                       3.754408661907416e+00 };
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) /
+                   ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -inverseNormal(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q /
+               (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+    
+    /**
+     * A batch of portfolios flattened to arrays; valued on a worker thread
+     */
+    private class Batch implements Callable<BatchResult> {
+        final int[] ids;
+        final int[] offsets; // positions of portfolio k are offsets[k]..offsets[k+1]-1
+        int[] rows = new int[64]; // matrix row, or -1 if the symbol has no history
+        double[] exposures = new double[64];
+        String[] symbols = new String[64];
+        int size;
+        int positions;
+        
+        Batch(int capacity) {
+            ids = new int[capacity];
+            offsets = new int[capacity + 1];
+        }
+        
+        void add(int portfolioId, Collection<Portfolio.StockHolding> holdings) {
+            ids[size] = portfolioId;
+            for (Portfolio.StockHolding holding : holdings) {
+                if (positions == rows.length) {
+                    rows = Arrays.copyOf(rows, positions * 2);
+                    exposures = Arrays.copyOf(exposures, positions * 2);
+                    symbols = Arrays.copyOf(symbols, positions * 2);
+                }
+                int row = matrix.indexOf(holding.getSymbol());
+                // Mark to the latest close; positions without history are carried at cost
+                double price = row >= 0 ? matrix.getLastPrice(row) : Money.toDouble(holding.getAveragePrice());
+                rows[positions] = row;
+                exposures[positions] = price * holding.getQuantity();
+                symbols[positions] = holding.getSymbol();
+                positions++;
+            }
+            offsets[++size] = positions;
+        }
+        
+        @Override
+        public BatchResult call() {
+            int days = matrix.getScenarioCount();
+            BatchResult result = new BatchResult(days, matrix.getSymbolCount(), scenarios.size());
+            double[] pnl = new double[days];
+            int[] modeledRows = new int[16];
+            double[] modeledExposures = new double[16];
+            
+            for (int k = 0; k < size; k++) {
+                Arrays.fill(pnl, 0);
+                double[] stress = new double[scenarios.size()];
+                double marketValue = 0;
+                int modeled = 0;
+                
+                for (int p = offsets[k]; p < offsets[k + 1]; p++) {
+                    int row = rows[p];
+                    double exposure = exposures[p];
+                    marketValue += exposure;
+                    for (int s = 0; s < stress.length; s++) {
+                        double shock = row >= 0 ? scenarioShocks[s][row] : scenarios.get(s).getShock(symbols[p]);
+                        stress[s] -= exposure * shock;
+                    }
+                    if (row < 0) {
+                        result.unmodeled++;
+                        continue;
+                    }
+                    matrix.accumulate(row, exposure, pnl);
+                    result.firmExposure[row] += exposure;
+                    if (modeled == modeledRows.length) {
+                        modeledRows = Arrays.copyOf(modeledRows, modeled * 2);
+                        modeledExposures = Arrays.copyOf(modeledExposures, modeled * 2);
+                    }
+                    modeledRows[modeled] = row;
+                    modeledExposures[modeled] = exposure;
+                    modeled++;
+                }
+                
+                for (int t = 0; t < days; t++) {
+                    result.firmPnl[t] += pnl[t];
+                }
+                for (int s = 0; s < stress.length; s++) {
+                    result.stressLosses[s] += stress[s];
+                }
+                
+                double[] historical = historicalTail(pnl);
+                double[] parametric = parametricTail(matrix.expectedPnl(modeledRows, modeledExposures, modeled),
+                                                     matrix.variance(modeledRows, modeledExposures, modeled));
+                result.risks.add(new RiskReport.PortfolioRisk(ids[k], marketValue, historical[0], historical[1],
+                                                              parametric[0], parametric[1], stress));
+                result.grossExposure += Math.abs(marketValue);
+            }
+            result.positions = positions;
+            return result;
+        }
+    }
+    
+    /**
+     * Partial sums from one batch
+     */
+    private static class BatchResult {
+        final double[] firmPnl;
+        final double[] firmExposure;
+        final double[] stressLosses;
+        final List<RiskReport.PortfolioRisk> risks = new ArrayList<>();
+        double grossExposure;
+        long positions;
+        long unmodeled;
+        
+        BatchResult(int days, int symbols, int scenarioCount) {
+            firmPnl = new double[days];
+            firmExposure = new double[symbols];
+            stressLosses = new double[scenarioCount];
+        }
+    }
+    
+    /**
+     * Running firm-wide sums; merged on the feeding thread only
+     */
+    private class Totals {
+        final double[] firmPnl = new double[matrix.getScenarioCount()];
+        final double[] firmExposure = new double[matrix.getSymbolCount()];
+        final double[] stressLosses = new double[scenarios.size()];
+        final PriorityQueue<RiskReport.PortfolioRisk> riskiest =
+            new PriorityQueue<>(Comparator.comparingDouble(RiskReport.PortfolioRisk::getHistoricalVaR));
+        long portfolios;
+        long positions;
+        long unmodeled;
+        double grossExposure;
+        
+        void merge(BatchResult result, Appendable details) throws IOException {
+            for (int t = 0; t < firmPnl.length; t++) {
+                firmPnl[t] += result.firmPnl[t];
+            }
+            for (int i = 0; i < firmExposure.length; i++) {
+                firmExposure[i] += result.firmExposure[i];
+            }
+            for (int s = 0; s < stressLosses.length; s++) {
+                stressLosses[s] += result.stressLosses[s];
+            }
+            for (RiskReport.PortfolioRisk risk : result.risks) {
+                riskiest.add(risk);
+                if (riskiest.size() > TOP_PORTFOLIOS) {
+                    riskiest.poll();
+                }
+                if (details != null) {
+                    details.append(risk.toCsv()).append('\n');
+                }
+            }
+            portfolios += result.risks.size();
+            positions += result.positions;
+            unmodeled += result.unmodeled;
+            grossExposure += result.grossExposure;
+        }
+        
+        RiskReport toReport() {
+            RiskReport report = new RiskReport(LocalDateTime.now(), confidence, firmPnl.length, scenarios);
+            report.setTotals(portfolios, positions, unmodeled, grossExposure);
+            
+            double[] historical = historicalTail(firmPnl);
+            report.setHistorical(historical[0], historical[1]);
+            
+            int symbols = firmExposure.length;
+            int[] rows = new int[symbols];
+            for (int i = 0; i < symbols; i++) {
+                rows[i] = i;
+            }
+            double[] parametric = parametricTail(matrix.expectedPnl(rows, firmExposure, symbols),
+                                                 matrix.variance(rows, firmExposure, symbols));
+            report.setParametric(parametric[0], parametric[1]);
+            report.setStressLosses(stressLosses);
+            
+            List<RiskReport.PortfolioRisk> top = new ArrayList<>(riskiest);
+            top.sort(Comparator.comparingDouble(RiskReport.PortfolioRisk::getHistoricalVaR).reversed());
+            report.setRiskiest(top);
+            return report;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.stocktrading.services;
+
+import com.stocktrading.models.Session;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Concurrent session store keyed by opaque random tokens.
+ *
+ * Lookups are a single ConcurrentHashMap get plus an expiry check, so they
+ * are O(1) and never block each other. Sessions slide their idle expiry on
+ * each lookup and also have an absolute lifetime. An expired session found
+ * by a lookup is removed right away; a background sweeper removes the ones
+ * nobody asks for again.
+ */
+public class SessionStore {
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    public static final long DEFAULT_MAX_LIFETIME_MILLIS = TimeUnit.HOURS.toMillis(12);
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long TOUCH_GRANULARITY_MILLIS = 1000;
+    private static final int TOKEN_BYTES = 24;
+    
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final ScheduledExecutorService sweeper;
+    
+    public SessionStore() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MAX_LIFETIME_MILLIS, DEFAULT_SWEEP_INTERVAL_MILLIS);
+    }
+    
+    public SessionStore(long idleTimeoutMillis, long maxLifetimeMillis, long sweepIntervalMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Open a new session; a user may hold any number at once
+     */
+    public Session create(int userId, String username) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            byte[] bytes = new byte[TOKEN_BYTES];
+            random.nextBytes(bytes);
+            Session session = new Session(encoder.encodeToString(bytes), userId, username, now, now + maxLifetimeMillis);
+            if (sessions.putIfAbsent(session.getToken(), session) == null) {
+                return session;
+            }
+        }
+    }
+    
+    /**
+     * The live session for a token, with its idle expiry extended, or null
+     */
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now, idleTimeoutMillis)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.touch(now, TOUCH_GRANULARITY_MILLIS);
+        return session;
+    }
+    
+    public boolean invalidate(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+    
+    /**
+     * Remove every expired session
+     * @return number removed
+     */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext();) {
+            if (it.next().isExpired(now, idleTimeoutMillis)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    public int size() {
+        return sessions.size();
+    }
+    
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,40 @@
+package com.stocktrading.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one DatabaseManager operation, labelled with its method
+ * name and its SQL. Operations do not nest, so the events of a recording
+ * add up to the time spent in the database.
+ */
+@Name("com.stocktrading.SqlStatement")
+@Label("SQL Statement")
+@Category({"Stock Trading", "Database"})
+public class SqlStatementEvent extends Event {
+    @Label("Operation")
+    @Description("DatabaseManager method, e.g. createUser")
+    public String operation;
+    
+    @Label("SQL")
+    @Description("Statement text, or a short summary for operations that run several")
+    public String sql;
+    
+    @Label("Success")
+    public boolean success;
+    
+    /**
+     * A started event, assumed successful until marked otherwise
+     */
+    public static SqlStatementEvent start(String operation, String sql) {
+        SqlStatementEvent event = new SqlStatementEvent();
+        event.operation = operation;
+        event.sql = sql;
+        event.success = true;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,553 @@
+package com.stocktrading.services;
+
+import com.stocktrading.models.Listing;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Prefix search over listed symbols and company names.
+ *
+ * Every listing is indexed under its symbol and each significant word of
+ * its name. The keys are sorted and held as one char pool, and a trie over
+ * them is laid out in flat arrays: each node has a label, a contiguous run
+ * of children sorted by label and the range of keys below it. A prefix
+ * lookup is one binary search per character. Nodes covering more than
+ * SCAN_LIMIT keys store their best TOP listings, precomputed at build time;
+ * smaller ranges are scored on the fly. Either way a keystroke costs
+ * O(prefix length + SCAN_LIMIT).
+ *
+ * Ranking: listing weight, boosted when the match is on the symbol or the
+ * first word of the name; an exact symbol match always comes first.
+ * A query of several words uses the rarest word's keys and keeps the
+ * listings whose symbol or name also has a word starting with each of the
+ * others - from the precomputed list when enough of it matches, otherwise
+ * by scanning the whole range.
+ *
+ * The arrays are written as-is to an index file, so loading is a few bulk
+ * reads with no sorting or trie building.
+ */
+public class SymbolIndex {
+    private static final int MAGIC = 0x53594D31; // "SYM1"
+    private static final int TOP = 64;
+    private static final int SCAN_LIMIT = 256;
+    private static final int MAX_FILTER_SCAN = 50_000;
+    private static final float SYMBOL_BOOST = 2f;
+    private static final float FIRST_WORD_BOOST = 1.5f;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "inc", "corp", "corporation", "co", "company", "ltd", "plc", "llc", "lp", "sa", "ag", "nv",
+        "the", "of", "and", "class", "common", "stock", "shares", "ordinary"));
+    
+    // Listings
+    private final String[] symbols;
+    private final String[] names;
+    private final float[] weights;
+    private final String[] foldedNames; // lowercase, for matching query words
+    // Keys in sorted order; key i is keyChars[keyOffsets[i] .. keyOffsets[i + 1])
+    private final int[] keyOffsets;
+    private final char[] keyChars;
+    private final int[] keyListings;
+    private final float[] keyScores;
+    // Trie nodes; node 0 is the root
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCounts;
+    private final int[] rangeStart;
+    private final int[] rangeEnd;
+    private final int[] topStart; // into tops, -1 if the node's range is scanned instead
+    private final int[] tops; // listing ids, TOP (or fewer, then -1 padded) per node that has them
+    
+    private SymbolIndex(String[] symbols, String[] names, float[] weights, int[] keyOffsets, char[] keyChars,
+                        int[] keyListings, float[] keyScores, char[] labels, int[] firstChild, int[] childCounts,
+                        int[] rangeStart, int[] rangeEnd, int[] topStart, int[] tops) {
+        this.symbols = symbols;
+        this.names = names;
+        this.weights = weights;
+        this.foldedNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            foldedNames[i] = names[i].toLowerCase();
+        }
+        this.keyOffsets = keyOffsets;
+        this.keyChars = keyChars;
+        this.keyListings = keyListings;
+        this.keyScores = keyScores;
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.childCounts = childCounts;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.topStart = topStart;
+        this.tops = tops;
+    }
+    
+    /**
+     * Load the index file if it is newer than the listings source,
+     * otherwise build it from the listings and write it for next time
+     */
+    public static SymbolIndex open(File indexFile, File source, Supplier<List<Listing>> listings) {
+        if (indexFile.isFile() && (!source.exists() || indexFile.lastModified() >= source.lastModified())) {
+            try {
+                return load(indexFile);
+            } catch (IOException e) {
+                System.err.println("Symbol index unusable, rebuilding: " + e.getMessage());
+            }
+        }
+        SymbolIndex index = build(listings.get());
+        index.save(indexFile);
+        return index;
+    }
+    
+    public static SymbolIndex build(List<Listing> listings) {
+        int count = listings.size();
+        String[] symbols = new String[count];
+        String[] names = new String[count];
+        float[] weights = new float[count];
+        List<String> keys = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        List<Float> scores = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Listing listing = listings.get(i);
+            symbols[i] = listing.getSymbol();
+            names[i] = listing.getName();
+            weights[i] = listing.getWeight();
+            
+            String symbol = listing.getSymbol().toLowerCase();
+            keys.add(symbol);
+            owners.add(i);
+            scores.add(listing.getWeight() * SYMBOL_BOOST);
+            boolean first = true;
+            Set<String> seen = new HashSet<>();
+            seen.add(symbol);
+            for (String word : words(listing.getName())) {
+                if (!STOP_WORDS.contains(word) && seen.add(word)) {
+                    keys.add(word);
+                    owners.add(i);
+                    scores.add(listing.getWeight() * (first ? FIRST_WORD_BOOST : 1f));
+                }
+                first = false;
+            }
+        }
+        
+        // Sort keys; among equal keys a symbol comes first, then the best score
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = keys.get(a).compareTo(keys.get(b));
+            if (cmp != 0) {
+                return cmp;
+            }
+            cmp = Boolean.compare(!symbols[owners.get(a)].equalsIgnoreCase(keys.get(a)),
+                                  !symbols[owners.get(b)].equalsIgnoreCase(keys.get(b)));
+            return cmp != 0 ? cmp : Float.compare(scores.get(b), scores.get(a));
+        });
+        int keyCount = order.length;
+        int[] keyOffsets = new int[keyCount + 1];
+        int[] keyListings = new int[keyCount];
+        float[] keyScores = new float[keyCount];
+        StringBuilder pool = new StringBuilder();
+        for (int i = 0; i < keyCount; i++) {
+            keyOffsets[i] = pool.length();
+            pool.append(keys.get(order[i]));
+            keyListings[i] = owners.get(order[i]);
+            keyScores[i] = scores.get(order[i]);
+        }
+        keyOffsets[keyCount] = pool.length();
+        char[] keyChars = pool.toString().toCharArray();
+        
+        // Breadth-first, so each node's children are contiguous; a range of one key is a leaf
+        int capacity = keyChars.length + 1;
+        char[] labels = new char[capacity];
+        int[] firstChild = new int[capacity];
+        int[] childCounts = new int[capacity];
+        int[] rangeStart = new int[capacity];
+        int[] rangeEnd = new int[capacity];
+        int[] depths = new int[capacity];
+        rangeEnd[0] = keyCount;
+        int nodes = 1;
+        for (int node = 0; node < nodes; node++) {
+            int lo = rangeStart[node], hi = rangeEnd[node], depth = depths[node];
+            firstChild[node] = nodes;
+            if (hi - lo < 2) {
+                continue;
+            }
+            int i = lo;
+            while (i < hi && keyOffsets[i + 1] - keyOffsets[i] == depth) {
+                i++; // keys ending here sort first
+            }
+            while (i < hi) {
+                char c = keyChars[keyOffsets[i] + depth];
+                int j = i + 1;
+                while (j < hi && keyChars[keyOffsets[j] + depth] == c) {
+                    j++;
+                }
+                labels[nodes] = c;
+                rangeStart[nodes] = i;
+                rangeEnd[nodes] = j;
+                depths[nodes] = depth + 1;
+                nodes++;
+                childCounts[node]++;
+                i = j;
+            }
+        }
+        
+        SymbolIndex partial = new SymbolIndex(symbols, names, weights, keyOffsets, keyChars, keyListings, keyScores,
+            Arrays.copyOf(labels, nodes), Arrays.copyOf(firstChild, nodes), Arrays.copyOf(childCounts, nodes),
+            Arrays.copyOf(rangeStart, nodes), Arrays.copyOf(rangeEnd, nodes), new int[0], new int[0]);
+        
+        // Precomputed best listings for large ranges
+        int[] topStart = new int[nodes];
+        List<int[]> topLists = new ArrayList<>();
+        int topCount = 0;
+        for (int node = 0; node < nodes; node++) {
+            if (rangeEnd[node] - rangeStart[node] > SCAN_LIMIT) {
+                topStart[node] = topCount * TOP;
+                topLists.add(partial.rank(rangeStart[node], rangeEnd[node], TOP, Collections.emptyList()));
+                topCount++;
+            } else {
+                topStart[node] = -1;
+            }
+        }
+        int[] tops = new int[topCount * TOP];
+        Arrays.fill(tops, -1);
+        for (int t = 0; t < topCount; t++) {
+            int[] best = topLists.get(t);
+            System.arraycopy(best, 0, tops, t * TOP, best.length);
+        }
+        return new SymbolIndex(symbols, names, weights, keyOffsets, keyChars, keyListings, keyScores,
+                               partial.labels, partial.firstChild, partial.childCounts, partial.rangeStart,
+                               partial.rangeEnd, topStart, tops);
+    }
+    
+    /**
+     * Best matches for what the user has typed so far, best first
+     */
+    public List<Listing> search(String query, int limit) {
+        List<String> tokens = words(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // The token with the fewest keys drives the scan; the others filter its listings.
+        // Stop words are not keys, so a later word that may be one ("co") can only filter.
+        int driver = -1, node = -1, lo = 0, hi = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            if (t > 0 && isStopWordPrefix(tokens.get(t))) {
+                continue;
+            }
+            int found = find(tokens.get(t));
+            if (found == -1) {
+                return Collections.emptyList();
+            }
+            int start = found >= 0 ? rangeStart[found] : -found - 2; // below a leaf: its single key
+            int end = found >= 0 ? rangeEnd[found] : start + 1;
+            if (driver < 0 || end - start < hi - lo) {
+                driver = t;
+                node = found;
+                lo = start;
+                hi = end;
+            }
+        }
+        List<String> filters = new ArrayList<>(tokens);
+        String prefix = filters.remove(driver);
+        
+        // The precomputed best listings usually hold enough matches; scan the range only if not
+        int[] ranked = null;
+        if (node >= 0 && topStart[node] >= 0 && limit <= TOP) {
+            ranked = filterTops(topStart[node], limit + 1, filters);
+        }
+        if (ranked == null) {
+            ranked = rank(lo, Math.min(hi, lo + MAX_FILTER_SCAN), limit + 1, filters);
+        }
+        
+        // An exact symbol match is always first; if there is one it is the first key of the range
+        int exact = -1;
+        if (keyOffsets[lo + 1] - keyOffsets[lo] == prefix.length() &&
+                symbols[keyListings[lo]].equalsIgnoreCase(prefix) && matchesFilters(keyListings[lo], filters)) {
+            exact = keyListings[lo];
+        }
+        List<Listing> results = new ArrayList<>(limit);
+        if (exact >= 0) {
+            results.add(listing(exact));
+        }
+        for (int i = 0; i < ranked.length && results.size() < limit; i++) {
+            if (ranked[i] >= 0 && ranked[i] != exact) {
+                results.add(listing(ranked[i]));
+            }
+        }
+        return results;
+    }
+    
+    public int size() {
+        return symbols.length;
+    }
+    
+    /**
+     * Node for the prefix; -(key + 2) if it continues into a leaf's single key; -1 if nothing matches
+     */
+    private int find(String prefix) {
+        int node = 0;
+        for (int depth = 0; depth < prefix.length(); depth++) {
+            char c = prefix.charAt(depth);
+            if (childCounts[node] == 0) {
+                // Leaf: the rest of the prefix must match its only key
+                int key = rangeStart[node];
+                if (rangeEnd[node] - key != 1 || keyOffsets[key + 1] - keyOffsets[key] < prefix.length()) {
+                    return -1;
+                }
+                for (int d = depth; d < prefix.length(); d++) {
+                    if (keyChars[keyOffsets[key] + d] != prefix.charAt(d)) {
+                        return -1;
+                    }
+                }
+                return -(key + 2);
+            }
+            int low = firstChild[node], high = low + childCounts[node] - 1;
+            int next = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (labels[mid] < c) {
+                    low = mid + 1;
+                } else if (labels[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    next = mid;
+                    break;
+                }
+            }
+            if (next < 0) {
+                return -1;
+            }
+            node = next;
+        }
+        return node;
+    }
+    
+    // Up to limit of a node's precomputed listings that match the filters, null if fewer match
+    private int[] filterTops(int start, int limit, List<String> filters) {
+        int[] ranked = new int[limit];
+        int found = 0;
+        for (int i = start; i < start + TOP && tops[i] >= 0 && found < limit; i++) {
+            if (matchesFilters(tops[i], filters)) {
+                ranked[found++] = tops[i];
+            }
+        }
+        return found == limit ? ranked : null;
+    }
+    
+    // Best distinct listings among keys [lo, hi) that match the filters
+    private int[] rank(int lo, int hi, int limit, List<String> filters) {
+        // Bounded, sorted best-first; a listing may own several keys in the range, so it keeps its best
+        int[] ranked = new int[limit];
+        float[] scores = new float[limit];
+        int size = 0;
+        for (int i = lo; i < hi; i++) {
+            int listing = keyListings[i];
+            float score = keyScores[i];
+            if ((size == limit && !better(score, listing, scores[size - 1], ranked[size - 1])) ||
+                    !matchesFilters(listing, filters)) {
+                continue;
+            }
+            int at = 0;
+            while (at < size && ranked[at] != listing) {
+                at++;
+            }
+            if (at < size) {
+                if (score <= scores[at]) {
+                    continue;
+                }
+            } else {
+                at = size < limit ? size++ : size - 1; // drop the worst
+            }
+            while (at > 0 && better(score, listing, scores[at - 1], ranked[at - 1])) {
+                ranked[at] = ranked[at - 1];
+                scores[at] = scores[at - 1];
+                at--;
+            }
+            ranked[at] = listing;
+            scores[at] = score;
+        }
+        return Arrays.copyOf(ranked, size);
+    }
+    
+    private boolean better(float score, int listing, float otherScore, int other) {
+        return score > otherScore || (score == otherScore && symbols[listing].compareTo(symbols[other]) < 0);
+    }
+    
+    // Every filter is a prefix of the symbol or of a word in the name
+    private boolean matchesFilters(int listing, List<String> filters) {
+        for (String filter : filters) {
+            if (!symbols[listing].regionMatches(true, 0, filter, 0, filter.length()) &&
+                    !nameHasWord(foldedNames[listing], filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Scans word starts in place - this runs per candidate and must not allocate
+    private static boolean nameHasWord(String name, String prefix) {
+        for (int i = name.indexOf(prefix); i >= 0; i = name.indexOf(prefix, i + 1)) {
+            if (i == 0 || !isWordChar(name.charAt(i - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isStopWordPrefix(String token) {
+        for (String stopWord : STOP_WORDS) {
+            if (stopWord.startsWith(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.';
+    }
+    
+    private Listing listing(int id) {
+        return new Listing(symbols[id], names[id], weights[id]);
+    }
+    
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}.]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+    
+    /**
+     * Write the index, replacing the file atomically
+     * @return false if it could not be written
+     */
+    public boolean save(File indexFile) {
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            StringBuilder text = new StringBuilder();
+            int[] textOffsets = new int[2 * symbols.length + 1];
+            for (int i = 0; i < symbols.length; i++) {
+                textOffsets[2 * i] = text.length();
+                text.append(symbols[i]);
+                textOffsets[2 * i + 1] = text.length();
+                text.append(names[i]);
+            }
+            textOffsets[2 * symbols.length] = text.length();
+            out.writeInt(symbols.length);
+            writeInts(out, textOffsets);
+            writeChars(out, text.toString().toCharArray());
+            writeFloats(out, weights);
+            out.writeInt(keyListings.length);
+            writeInts(out, keyOffsets);
+            writeChars(out, keyChars);
+            writeInts(out, keyListings);
+            writeFloats(out, keyScores);
+            out.writeInt(labels.length);
+            writeChars(out, labels);
+            writeInts(out, firstChild);
+            writeInts(out, childCounts);
+            writeInts(out, rangeStart);
+            writeInts(out, rangeEnd);
+            writeInts(out, topStart);
+            out.writeInt(tops.length);
+            writeInts(out, tops);
+        } catch (IOException e) {
+            System.err.println("Error saving symbol index: " + e.getMessage());
+            temp.delete();
+            return false;
+        }
+        try {
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving symbol index: " + e.getMessage());
+            temp.delete();
+            return false;
+        }
+    }
+    
+    public static SymbolIndex load(File indexFile) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a symbol index");
+            }
+            int count = in.getInt();
+            int[] textOffsets = readInts(in, 2 * count + 1);
+            char[] text = readChars(in, textOffsets[2 * count]);
+            String[] symbols = new String[count];
+            String[] names = new String[count];
+            for (int i = 0; i < count; i++) {
+                symbols[i] = new String(text, textOffsets[2 * i], textOffsets[2 * i + 1] - textOffsets[2 * i]);
+                names[i] = new String(text, textOffsets[2 * i + 1], textOffsets[2 * i + 2] - textOffsets[2 * i + 1]);
+            }
+            float[] weights = readFloats(in, count);
+            int keyCount = in.getInt();
+            int[] keyOffsets = readInts(in, keyCount + 1);
+            char[] keyChars = readChars(in, keyOffsets[keyCount]);
+            int[] keyListings = readInts(in, keyCount);
+            float[] keyScores = readFloats(in, keyCount);
+            int nodes = in.getInt();
+            char[] labels = readChars(in, nodes);
+            int[] firstChild = readInts(in, nodes);
+            int[] childCounts = readInts(in, nodes);
+            int[] rangeStart = readInts(in, nodes);
+            int[] rangeEnd = readInts(in, nodes);
+            int[] topStart = readInts(in, nodes);
+            int[] tops = readInts(in, in.getInt());
+            return new SymbolIndex(symbols, names, weights, keyOffsets, keyChars, keyListings, keyScores,
+                                   labels, firstChild, childCounts, rangeStart, rangeEnd, topStart, tops);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt symbol index: " + e, e);
+        }
+    }
+    
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+    
+    private static void writeChars(DataOutputStream out, char[] values) throws IOException {
+        for (char value : values) {
+            out.writeChar(value);
+        }
+    }
+    
+    private static void writeFloats(DataOutputStream out, float[] values) throws IOException {
+        for (float value : values) {
+            out.writeFloat(value);
+        }
+    }
+    
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * count);
+        return values;
+    }
+    
+    private static char[] readChars(ByteBuffer in, int count) {
+        char[] values = new char[count];
+        in.asCharBuffer().get(values);
+        in.position(in.position() + 2 * count);
+        return values;
+    }
+    
+    private static float[] readFloats(ByteBuffer in, int count) {
+        float[] values = new float[count];
+        in.asFloatBuffer().get(values);
+        in.position(in.position() + 4 * count);
+        return values;
+    }
+}
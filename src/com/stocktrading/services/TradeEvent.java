@@ -0,0 +1,75 @@
+package com.stocktrading.services;
+
+import com.stocktrading.models.Money;
+import com.stocktrading.models.Order;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one buy, sell or order placement in PortfolioManagementService,
+ * covering reservation, matching, persistence and the portfolio update
+ */
+@Name("com.stocktrading.Trade")
+@Label("Trade")
+@Category({"Stock Trading", "Trading"})
+public class TradeEvent extends Event {
+    @Label("Operation")
+    public String operation;
+    
+    @Label("Portfolio Id")
+    public int portfolioId;
+    
+    @Label("Symbol")
+    public String symbol;
+    
+    @Label("Side")
+    public String side;
+    
+    @Label("Quantity")
+    public int quantity;
+    
+    @Label("Filled Quantity")
+    public int filledQuantity;
+    
+    @Label("Order Id")
+    public long orderId;
+    
+    @Label("Price")
+    public double price;
+    
+    @Label("Status")
+    public String status;
+    
+    @Label("Success")
+    public boolean success;
+    
+    public static TradeEvent start(String operation, int portfolioId, String symbol, Order.Side side, int quantity) {
+        TradeEvent event = new TradeEvent();
+        event.operation = operation;
+        event.portfolioId = portfolioId;
+        event.symbol = symbol;
+        event.side = side.name();
+        event.quantity = quantity;
+        event.begin();
+        return event;
+    }
+    
+    /**
+     * Fill in the outcome and commit; order is null when the trade was rejected before reaching the book
+     */
+    public void finish(Order order, boolean ok) {
+        end();
+        if (shouldCommit()) {
+            if (order != null) {
+                filledQuantity = order.getFilledQuantity();
+                orderId = order.getId();
+                price = Money.toDouble(order.getPrice());
+                status = order.getStatus().name();
+            }
+            success = ok;
+            commit();
+        }
+    }
+}
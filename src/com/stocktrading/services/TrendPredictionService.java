@@ -7,14 +7,26 @@ import java.util.List;
 /**
  * Stock prediction service implementing interface
  * Uses simple moving average and trend analysis
+ * Each public call is timed into Metrics as "predict.<method>"
  */
 public class TrendPredictionService implements StockPredictor {
-    
+
     private static final int SHORT_TERM_PERIOD = 5;
     private static final int LONG_TERM_PERIOD = 10;
+    private static final LatencyHistogram TREND_LATENCY = Metrics.histogram("predict.predictTrend");
+    private static final LatencyHistogram NEXT_PRICE_LATENCY = Metrics.histogram("predict.predictNextPrice");
+    private static final LatencyHistogram CONFIDENCE_LATENCY = Metrics.histogram("predict.getConfidenceScore");
+    private static final LatencyHistogram RSI_LATENCY = Metrics.histogram("predict.calculateRSI");
     
     @Override
     public String predictTrend(List<Double> historicalPrices) {
+        long start = System.nanoTime();
+        String trend = trend(historicalPrices);
+        TREND_LATENCY.recordSince(start);
+        return trend;
+    }
+    
+    private String trend(List<Double> historicalPrices) {
         if (historicalPrices == null || historicalPrices.size() < LONG_TERM_PERIOD) {
             return "NEUTRAL";
         }
@@ -34,6 +46,13 @@ public class TrendPredictionService implements StockPredictor {
     
     @Override
     public double predictNextPrice(Stock stock) {
+        long start = System.nanoTime();
+        double price = nextPrice(stock);
+        NEXT_PRICE_LATENCY.recordSince(start);
+        return price;
+    }
+    
+    private double nextPrice(Stock stock) {
         List<Double> prices = stock.getHistoricalPrices();
         if (prices == null || prices.isEmpty()) {
             return stock.getCurrentPrice();
@@ -48,6 +67,13 @@ public class TrendPredictionService implements StockPredictor {
     
     @Override
     public double getConfidenceScore(List<Double> prices) {
+        long start = System.nanoTime();
+        double confidence = confidence(prices);
+        CONFIDENCE_LATENCY.recordSince(start);
+        return confidence;
+    }
+    
+    private double confidence(List<Double> prices) {
         if (prices == null || prices.size() < 10) {
             return 0.5; // Low confidence
         }
@@ -104,6 +130,13 @@ public class TrendPredictionService implements StockPredictor {
      * Calculate Relative Strength Index (RSI)
      */
     public double calculateRSI(List<Double> prices, int period) {
+        long start = System.nanoTime();
+        double rsi = rsi(prices, period);
+        RSI_LATENCY.recordSince(start);
+        return rsi;
+    }
+    
+    private double rsi(List<Double> prices, int period) {
         if (prices.size() < period + 1) {
             return 50.0; // Neutral
         }
@@ -0,0 +1,22 @@
+package com.stocktrading.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one frame of dashboard updates run on the EDT
+ */
+@Name("com.stocktrading.UiFlush")
+@Label("UI Flush")
+@Category({"Stock Trading", "UI"})
+@StackTrace(false)
+public class UiFlushEvent extends Event {
+    @Label("Updates Run")
+    public long updates;
+    
+    @Label("Updates Left Pending")
+    public int pending;
+}
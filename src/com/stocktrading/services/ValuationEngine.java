@@ -0,0 +1,318 @@
+package com.stocktrading.services;
+
+import com.stocktrading.interfaces.NavListener;
+import com.stocktrading.models.Money;
+import com.stocktrading.models.Portfolio;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Push-based mark-to-market across all tracked portfolios.
+ *
+ * Keeps a reverse index from symbol to the positions holding it. A price tick
+ * walks only that symbol's positions and applies quantity x price change to
+ * each owner's running market value, so a tick costs O(1) per affected
+ * position and nothing for portfolios that do not hold the symbol.
+ * Positions without a quote yet are carried at cost.
+ *
+ * All amounts are Money micro-units.
+ */
+public class ValuationEngine {
+    private final Map<String, SymbolPositions> symbols = new ConcurrentHashMap<>();
+    private final Map<Integer, NavState> portfolios = new ConcurrentHashMap<>();
+    private final List<NavListener> listeners = new CopyOnWriteArrayList<>();
+    
+    public void addListener(NavListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(NavListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Start tracking a portfolio or re-read it after its holdings or cash changed.
+     * Cost is proportional to the portfolio's own holdings only. A snapshot no
+     * newer than the last one synced from the same Portfolio is ignored, so
+     * concurrent syncs cannot leave an older state in place.
+     */
+    public void sync(Portfolio portfolio) {
+        Portfolio.Snapshot snapshot = portfolio.getSnapshot();
+        NavState nav = portfolios.computeIfAbsent(portfolio.getId(), NavState::new);
+        
+        synchronized (nav) {
+            // Versions are per Portfolio object; one rebuilt from the ledger starts over
+            if (nav.syncedFrom.get() != portfolio) {
+                nav.syncedFrom = new WeakReference<>(portfolio);
+            } else if (snapshot.getVersion() <= nav.syncedVersion) {
+                return;
+            }
+            nav.syncedVersion = snapshot.getVersion();
+            nav.cash = snapshot.getCashBalance();
+            
+            Map<String, Portfolio.StockHolding> holdings = snapshot.getHoldings();
+            for (String symbol : new ArrayList<>(nav.symbols)) {
+                if (!holdings.containsKey(symbol)) {
+                    setPosition(nav, symbol, 0, 0);
+                }
+            }
+            for (Portfolio.StockHolding holding : holdings.values()) {
+                setPosition(nav, holding.getSymbol(), holding.getQuantity(), holding.getCostBasis());
+            }
+        }
+        notifyListeners(nav);
+    }
+    
+    public void untrack(int portfolioId) {
+        NavState nav = portfolios.remove(portfolioId);
+        if (nav == null) {
+            return;
+        }
+        synchronized (nav) {
+            for (String symbol : new ArrayList<>(nav.symbols)) {
+                setPosition(nav, symbol, 0, 0);
+            }
+        }
+    }
+    
+    /**
+     * Apply a price tick; only portfolios holding the symbol are touched
+     */
+    public void onPrice(String symbol, long price) {
+        if (price <= 0) {
+            return;
+        }
+        SymbolPositions positions = symbols.computeIfAbsent(symbol, s -> new SymbolPositions());
+        NavState[] changed;
+        synchronized (positions) {
+            long previous = positions.lastPrice;
+            positions.lastPrice = price;
+            for (int i = 0; i < positions.count; i++) {
+                long delta = previous > 0
+                    ? Money.times(price - previous, positions.quantities[i])
+                    : Money.subtract(Money.times(price, positions.quantities[i]), positions.costs[i]);
+                positions.owners[i].marketValue.addAndGet(delta);
+            }
+            changed = listeners.isEmpty() ? null : Arrays.copyOf(positions.owners, positions.count);
+        }
+        // Listeners run without the symbol's lock, so a slow one cannot hold up ticks or syncs
+        if (changed != null) {
+            for (NavState owner : changed) {
+                notifyListeners(owner);
+            }
+        }
+    }
+    
+    private void setPosition(NavState nav, String symbol, int quantity, long cost) {
+        SymbolPositions positions = symbols.computeIfAbsent(symbol, s -> new SymbolPositions());
+        synchronized (positions) {
+            Integer slot = positions.slots.get(nav.portfolioId);
+            long oldValue = 0;
+            long oldCost = 0;
+            if (slot != null) {
+                oldValue = positions.valueOf(slot);
+                oldCost = positions.costs[slot];
+            }
+            
+            if (quantity <= 0) {
+                if (slot != null) {
+                    positions.remove(slot);
+                }
+                nav.symbols.remove(symbol);
+            } else {
+                if (slot == null) {
+                    slot = positions.add(nav);
+                    nav.symbols.add(symbol);
+                }
+                positions.quantities[slot] = quantity;
+                positions.costs[slot] = cost;
+            }
+            
+            long newValue = quantity > 0 ? positions.valueOf(slot) : 0;
+            nav.marketValue.addAndGet(newValue - oldValue);
+            nav.costBasis.addAndGet((quantity > 0 ? cost : 0) - oldCost);
+        }
+    }
+    
+    private void notifyListeners(NavState nav) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        long netAssetValue = nav.getNetAssetValue();
+        long unrealized = nav.getUnrealizedPnl();
+        for (NavListener listener : listeners) {
+            listener.onNavChanged(nav.portfolioId, netAssetValue, unrealized);
+        }
+    }
+    
+    /**
+     * Write last prices and every tracked portfolio's cash and positions
+     */
+    void writeState(DataOutput out) throws IOException {
+        Map<String, SymbolPositions> symbolsCopy = new TreeMap<>(symbols);
+        out.writeInt(symbolsCopy.size());
+        for (Map.Entry<String, SymbolPositions> entry : symbolsCopy.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().lastPrice);
+        }
+        
+        List<NavState> navs = new ArrayList<>(portfolios.values());
+        out.writeInt(navs.size());
+        for (NavState nav : navs) {
+            synchronized (nav) {
+                out.writeInt(nav.portfolioId);
+                out.writeLong(nav.cash);
+                out.writeInt(nav.symbols.size());
+                for (String symbol : nav.symbols) {
+                    SymbolPositions positions = symbols.get(symbol);
+                    synchronized (positions) {
+                        int slot = positions.slots.get(nav.portfolioId);
+                        out.writeUTF(symbol);
+                        out.writeInt(positions.quantities[slot]);
+                        out.writeLong(positions.costs[slot]);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Track the portfolios written by writeState without loading them. Portfolios
+     * already tracked and prices already quoted are left as they are. No
+     * listeners are notified.
+     * @return ids of the portfolios read
+     */
+    List<Integer> readState(DataInput in) throws IOException {
+        int symbolCount = in.readInt();
+        for (int i = 0; i < symbolCount; i++) {
+            String symbol = in.readUTF();
+            long lastPrice = in.readLong();
+            SymbolPositions positions = symbols.computeIfAbsent(symbol, s -> new SymbolPositions());
+            synchronized (positions) {
+                if (positions.lastPrice == 0) {
+                    positions.lastPrice = lastPrice;
+                }
+            }
+        }
+        
+        int portfolioCount = in.readInt();
+        List<Integer> ids = new ArrayList<>(portfolioCount);
+        for (int i = 0; i < portfolioCount; i++) {
+            int portfolioId = in.readInt();
+            long cash = in.readLong();
+            int positionCount = in.readInt();
+            NavState nav = new NavState(portfolioId);
+            boolean fresh = portfolios.putIfAbsent(portfolioId, nav) == null;
+            synchronized (nav) {
+                nav.cash = cash;
+                for (int p = 0; p < positionCount; p++) {
+                    String symbol = in.readUTF();
+                    int quantity = in.readInt();
+                    long cost = in.readLong();
+                    if (fresh) {
+                        setPosition(nav, symbol, quantity, cost);
+                    }
+                }
+            }
+            ids.add(portfolioId);
+        }
+        return ids;
+    }
+    
+    public boolean isTracked(int portfolioId) {
+        return portfolios.containsKey(portfolioId);
+    }
+    
+    /**
+     * Cash plus holdings at the latest quotes; 0 if not tracked
+     */
+    public long getNetAssetValue(int portfolioId) {
+        NavState nav = portfolios.get(portfolioId);
+        return nav != null ? nav.getNetAssetValue() : 0;
+    }
+    
+    public long getMarketValue(int portfolioId) {
+        NavState nav = portfolios.get(portfolioId);
+        return nav != null ? nav.marketValue.get() : 0;
+    }
+    
+    public long getUnrealizedPnl(int portfolioId) {
+        NavState nav = portfolios.get(portfolioId);
+        return nav != null ? nav.getUnrealizedPnl() : 0;
+    }
+    
+    public long getLastPrice(String symbol) {
+        SymbolPositions positions = symbols.get(symbol);
+        return positions != null ? positions.lastPrice : 0;
+    }
+    
+    public int getTrackedPortfolioCount() {
+        return portfolios.size();
+    }
+    
+    /**
+     * Running valuation of one portfolio
+     */
+    private static class NavState {
+        final int portfolioId;
+        final AtomicLong marketValue = new AtomicLong();
+        final AtomicLong costBasis = new AtomicLong();
+        final Set<String> symbols = new HashSet<>(); // guarded by this
+        volatile long cash;
+        long syncedVersion = -1;
+        WeakReference<Portfolio> syncedFrom = new WeakReference<>(null);
+        
+        NavState(int portfolioId) {
+            this.portfolioId = portfolioId;
+        }
+        
+        long getNetAssetValue() { return cash + marketValue.get(); }
+        long getUnrealizedPnl() { return marketValue.get() - costBasis.get(); }
+    }
+    
+    /**
+     * Reverse index entry: every position in one symbol, as parallel arrays
+     */
+    private static class SymbolPositions {
+        long lastPrice;
+        int count;
+        NavState[] owners = new NavState[4];
+        int[] quantities = new int[4];
+        long[] costs = new long[4];
+        final Map<Integer, Integer> slots = new HashMap<>(); // portfolioId -> index
+        
+        long valueOf(int slot) {
+            return lastPrice > 0 ? Money.times(lastPrice, quantities[slot]) : costs[slot];
+        }
+        
+        int add(NavState owner) {
+            if (count == owners.length) {
+                int capacity = count * 2;
+                owners = Arrays.copyOf(owners, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                costs = Arrays.copyOf(costs, capacity);
+            }
+            owners[count] = owner;
+            slots.put(owner.portfolioId, count);
+            return count++;
+        }
+        
+        void remove(int slot) {
+            int last = --count;
+            slots.remove(owners[slot].portfolioId);
+            if (slot != last) {
+                owners[slot] = owners[last];
+                quantities[slot] = quantities[last];
+                costs[slot] = costs[last];
+                slots.put(owners[slot].portfolioId, slot);
+            }
+            owners[last] = null;
+        }
+    }
+}
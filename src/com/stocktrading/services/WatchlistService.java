@@ -0,0 +1,230 @@
+package com.stocktrading.services;
+
+import com.stocktrading.api.StockAPIClient;
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.models.Stock;
+import com.stocktrading.models.Watchlist;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A user's watchlists and the quotes behind the visible one.
+ *
+ * Quotes are cached across lists, so switching lists fetches only symbols
+ * not seen before. Refreshing polls only the symbols on the visible list;
+ * symbols on other lists stay cached but are no longer polled. Methods that
+ * fetch block on the API client and must not be called on the EDT.
+ * Cached quotes can be old, so only takeFreshQuotes() should feed prices
+ * to trading and alerts.
+ */
+public class WatchlistService {
+    public static final List<String> DEFAULT_SYMBOLS = Collections.unmodifiableList(Arrays.asList(
+        "AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "META", "NVDA", "JPM", "V", "WMT"));
+    private static final String DEFAULT_NAME = "Default";
+    private static final int MAX_CACHED_QUOTES = 5_000;
+    
+    private final DatabaseManager dbManager;
+    private final StockAPIClient apiClient;
+    private final List<Watchlist> watchlists = new CopyOnWriteArrayList<>();
+    private final Map<String, Stock> quotes; // least recently shown first, guarded by itself
+    private final Map<String, Stock> freshQuotes = new HashMap<>(); // fetched, not yet taken; guarded by quotes
+    private final LongAdder fetched = new LongAdder();
+    private volatile Watchlist active;
+    
+    public WatchlistService(DatabaseManager dbManager, StockAPIClient apiClient) {
+        this.dbManager = dbManager;
+        this.apiClient = apiClient;
+        this.quotes = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stock> eldest) {
+                return size() > MAX_CACHED_QUOTES;
+            }
+        };
+    }
+    
+    /**
+     * Load the user's watchlists, creating the default list on first use
+     */
+    public List<Watchlist> load(int userId) {
+        watchlists.clear();
+        try {
+            List<Watchlist> stored = dbManager.getWatchlistsByUserId(userId);
+            if (stored.isEmpty()) {
+                int watchlistId = dbManager.createWatchlist(userId, DEFAULT_NAME);
+                dbManager.addWatchlistSymbols(watchlistId, DEFAULT_SYMBOLS);
+                stored = Collections.singletonList(
+                    new Watchlist(watchlistId, userId, DEFAULT_NAME, new CopyOnWriteArrayList<>(DEFAULT_SYMBOLS)));
+            }
+            watchlists.addAll(stored);
+        } catch (SQLException e) {
+            System.err.println("Error loading watchlists: " + e.getMessage());
+            // Unsaved default so the market view still works
+            watchlists.add(new Watchlist(-1, userId, DEFAULT_NAME, new CopyOnWriteArrayList<>(DEFAULT_SYMBOLS)));
+        }
+        return getWatchlists();
+    }
+    
+    public List<Watchlist> getWatchlists() {
+        return Collections.unmodifiableList(watchlists);
+    }
+    
+    public Watchlist getActive() {
+        return active;
+    }
+    
+    /**
+     * Make a list the visible one, fetching only its symbols that are not cached
+     * @return quotes for the list, in list order
+     */
+    public Map<String, Stock> select(Watchlist watchlist) {
+        active = watchlist;
+        fetch(missing(watchlist.getSymbols()));
+        return getVisibleQuotes();
+    }
+    
+    /**
+     * Poll every symbol on the visible list, and nothing else
+     */
+    public Map<String, Stock> refresh() {
+        Watchlist watchlist = active;
+        if (watchlist != null) {
+            fetch(watchlist.getSymbols());
+        }
+        return getVisibleQuotes();
+    }
+    
+    /**
+     * Cached quotes for the visible list, in list order
+     */
+    public Map<String, Stock> getVisibleQuotes() {
+        Map<String, Stock> visible = new LinkedHashMap<>();
+        Watchlist watchlist = active;
+        if (watchlist == null) {
+            return visible;
+        }
+        synchronized (quotes) {
+            for (String symbol : watchlist.getSymbols()) {
+                Stock stock = quotes.get(symbol);
+                if (stock != null) {
+                    visible.put(symbol, stock);
+                }
+            }
+        }
+        return visible;
+    }
+    
+    /**
+     * Quotes fetched since the last call, latest per symbol. Each fetched
+     * quote is returned once, however often it is shown again from the cache.
+     */
+    public Map<String, Stock> takeFreshQuotes() {
+        synchronized (quotes) {
+            Map<String, Stock> fresh = new HashMap<>(freshQuotes);
+            freshQuotes.clear();
+            return fresh;
+        }
+    }
+    
+    /**
+     * @return the new list, or null if it could not be saved (e.g. duplicate name)
+     */
+    public Watchlist createList(int userId, String name) {
+        try {
+            int watchlistId = dbManager.createWatchlist(userId, name);
+            if (watchlistId < 0) {
+                return null;
+            }
+            Watchlist watchlist = new Watchlist(watchlistId, userId, name);
+            watchlists.add(watchlist);
+            return watchlist;
+        } catch (SQLException e) {
+            System.err.println("Error creating watchlist: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    public boolean deleteList(Watchlist watchlist) {
+        try {
+            dbManager.deleteWatchlist(watchlist.getId());
+            watchlists.remove(watchlist);
+            if (active == watchlist) {
+                active = null;
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error deleting watchlist: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Add symbols to a list; on the visible list, new ones are fetched unless cached
+     */
+    public boolean addSymbols(Watchlist watchlist, List<String> symbols) {
+        List<String> added = new ArrayList<>();
+        for (String symbol : symbols) {
+            String normalized = symbol.trim().toUpperCase();
+            if (!normalized.isEmpty() && !watchlist.contains(normalized) && !added.contains(normalized)) {
+                added.add(normalized);
+            }
+        }
+        if (added.isEmpty()) {
+            return true;
+        }
+        try {
+            dbManager.addWatchlistSymbols(watchlist.getId(), added);
+        } catch (SQLException e) {
+            System.err.println("Error adding to watchlist: " + e.getMessage());
+            return false;
+        }
+        watchlist.getSymbols().addAll(added);
+        if (watchlist == active) {
+            fetch(missing(added));
+        }
+        return true;
+    }
+    
+    public boolean removeSymbol(Watchlist watchlist, String symbol) {
+        try {
+            dbManager.removeWatchlistSymbol(watchlist.getId(), symbol);
+            watchlist.getSymbols().remove(symbol);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error removing from watchlist: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Symbols requested from the API so far
+     */
+    public long getFetchedCount() {
+        return fetched.sum();
+    }
+    
+    private List<String> missing(List<String> symbols) {
+        List<String> missing = new ArrayList<>();
+        synchronized (quotes) {
+            for (String symbol : symbols) {
+                if (!quotes.containsKey(symbol)) {
+                    missing.add(symbol);
+                }
+            }
+        }
+        return missing;
+    }
+    
+    private void fetch(List<String> symbols) {
+        if (symbols.isEmpty()) {
+            return;
+        }
+        fetched.add(symbols.size());
+        Map<String, Stock> result = apiClient.fetchMultipleStocks(symbols);
+        synchronized (quotes) {
+            quotes.putAll(result);
+            freshQuotes.putAll(result);
+        }
+    }
+}
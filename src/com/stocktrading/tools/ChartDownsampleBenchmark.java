@@ -0,0 +1,93 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.gui.SeriesDownsampler;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Chart downsampling benchmark.
+ * Builds a 20-year minute-bar random walk, then times the first full view
+ * (which builds the LTTB levels), a pan across the series at a fixed zoom
+ * and a zoom from the full range down to one day, drawing each frame's
+ * points into an off-screen image. Runs headless.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.ChartDownsampleBenchmark [points] [width] [frames]
+ */
+public class ChartDownsampleBenchmark {
+    private static final int HEIGHT = 400;
+    
+    public static void main(String[] args) {
+        int points = args.length > 0 ? Integer.parseInt(args[0]) : 20 * 252 * 390;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 1200;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+        
+        System.out.println("Chart downsample benchmark: " + points + " points, " + width + " px, " + frames + " frames");
+        Random random = new Random(42);
+        double[] prices = new double[points];
+        double price = 100;
+        for (int i = 0; i < points; i++) {
+            price = Math.max(1, price * (1 + random.nextGaussian() * 0.001));
+            prices[i] = price;
+        }
+        SeriesDownsampler series = new SeriesDownsampler(prices);
+        BufferedImage image = new BufferedImage(width, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        
+        long start = System.nanoTime();
+        int drawn = draw(g, series, 0, points, width);
+        System.out.printf("first full view: %.1f ms (%d points drawn, %d levels built)%n",
+                          (System.nanoTime() - start) / 1e6, drawn, series.getLevelCount());
+        
+        // Pan a one-year window across the series
+        int span = Math.min(points, 252 * 390);
+        long[] pan = new long[frames];
+        for (int f = 0; f < frames; f++) {
+            int from = (int) ((long) (points - span) * f / Math.max(1, frames - 1));
+            long t = System.nanoTime();
+            draw(g, series, from, from + span, width);
+            pan[f] = System.nanoTime() - t;
+        }
+        report("pan (1-year window)", pan);
+        
+        // Zoom from everything down to one day around the middle
+        long[] zoom = new long[frames];
+        int middle = points / 2;
+        for (int f = 0; f < frames; f++) {
+            double fraction = Math.pow(390.0 / points, (double) f / Math.max(1, frames - 1));
+            int half = Math.max(2, (int) (points * fraction / 2));
+            long t = System.nanoTime();
+            draw(g, series, middle - half, middle + half, width);
+            zoom[f] = System.nanoTime() - t;
+        }
+        report("zoom (20 years to 1 day)", zoom);
+        g.dispose();
+    }
+    
+    private static int draw(Graphics2D g, SeriesDownsampler series, int from, int to, int width) {
+        int[] view = series.view(from, to, width);
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (int index : view) {
+            min = Math.min(min, series.getValue(index));
+            max = Math.max(max, series.getValue(index));
+        }
+        int[] xs = new int[view.length];
+        int[] ys = new int[view.length];
+        double xScale = (double) width / Math.max(1, to - from);
+        for (int i = 0; i < view.length; i++) {
+            xs[i] = (int) ((view[i] - from) * xScale);
+            ys[i] = (int) ((max - series.getValue(view[i])) / Math.max(1e-9, max - min) * HEIGHT);
+        }
+        g.drawPolyline(xs, ys, view.length);
+        return view.length;
+    }
+    
+    private static void report(String label, long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-25s p50 %.2f ms, p99 %.2f ms, max %.2f ms per frame%n", label + ":",
+                          sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                          sorted[sorted.length - 1] / 1e6);
+    }
+}
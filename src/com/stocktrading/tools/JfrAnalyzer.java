@@ -0,0 +1,170 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.services.LatencyHistogram;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import jdk.jfr.Timespan;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Offline summary of a Flight Recorder file taken with trading.jfc.
+ * Splits the time into stages - quote refreshes, the wait for a fetch
+ * thread, the market data call, each SQL operation, each kind of trade,
+ * UI frames on the EDT, plus the JDK's lock, sleep and GC pause events -
+ * and prints a latency table per stage, largest total first, followed by
+ * the slowest individual application events with their fields.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.JfrAnalyzer recording.jfr [slowest]
+ */
+public class JfrAnalyzer {
+    private static final String PREFIX = "com.stocktrading.";
+    
+    private final Map<String, Stage> stages = new HashMap<>();
+    private final PriorityQueue<RecordedEvent> slowest =
+        new PriorityQueue<>(Comparator.comparing(RecordedEvent::getDuration));
+    private final int keep;
+    private long events;
+    
+    public JfrAnalyzer(int keep) {
+        this.keep = keep;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JfrAnalyzer recording.jfr [slowest]");
+            System.exit(1);
+        }
+        Path file = Paths.get(args[0]);
+        JfrAnalyzer analyzer = new JfrAnalyzer(args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                analyzer.accept(recording.readEvent());
+            }
+        }
+        System.out.println("Recording " + file + ": " + analyzer.events + " events");
+        System.out.print(analyzer.report());
+    }
+    
+    public void accept(RecordedEvent event) {
+        events++;
+        String type = event.getEventType().getName();
+        switch (type) {
+            case PREFIX + "QuoteRefresh":
+                add("quote.refresh", event.getDuration(), event.getInt("received") < event.getInt("requested"));
+                break;
+            case PREFIX + "QuoteFetch":
+                boolean failed = !event.getBoolean("success");
+                add("quote.fetch", event.getDuration(), failed);
+                add("quote.fetch.queue", event.getDuration("queueTime"), false);
+                add("quote.fetch.api", event.getDuration("apiTime"), failed);
+                break;
+            case PREFIX + "SqlStatement":
+                add("sql." + event.getString("operation"), event.getDuration(), !event.getBoolean("success"));
+                break;
+            case PREFIX + "Trade":
+                add("trade." + event.getString("operation"), event.getDuration(), !event.getBoolean("success"));
+                break;
+            case PREFIX + "UiFlush":
+                add("ui.flush", event.getDuration(), false);
+                break;
+            case "jdk.JavaMonitorEnter":
+                add("jvm.monitorEnter", event.getDuration(), false);
+                return;
+            case "jdk.ThreadSleep":
+                add("jvm.sleep", event.getDuration(), false);
+                return;
+            case "jdk.GCPhasePause":
+                add("jvm.gcPause", event.getDuration(), false);
+                return;
+            default:
+                return;
+        }
+        if (keep > 0) {
+            slowest.add(event);
+            if (slowest.size() > keep) {
+                slowest.poll();
+            }
+        }
+    }
+    
+    private void add(String stage, Duration duration, boolean failed) {
+        Stage s = stages.computeIfAbsent(stage, Stage::new);
+        s.histogram.record(duration.toNanos());
+        s.totalNanos += duration.toNanos();
+        if (failed) {
+            s.histogram.recordError();
+        }
+    }
+    
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        List<Stage> ordered = new ArrayList<>(stages.values());
+        ordered.sort(Comparator.comparingLong((Stage s) -> s.totalNanos).reversed());
+        out.append(String.format("%n%-32s %10s %7s %11s %11s %11s %11s %11s %11s%n", "stage", "count", "errors",
+                                 "total", "mean", "p50", "p99", "p99.9", "max"));
+        for (Stage stage : ordered) {
+            LatencyHistogram.Snapshot s = stage.histogram.snapshot();
+            out.append(String.format("%-32s %10d %7d %11s %11s %11s %11s %11s %11s%n", stage.name, s.getCount(),
+                                     s.getErrors(), format(stage.totalNanos), format(s.getMean()), format(s.getP50()),
+                                     format(s.getP99()), format(s.getP999()), format(s.getMax())));
+        }
+        if (ordered.isEmpty()) {
+            out.append("(no stock trading events; was the recording started with settings=trading.jfc?)")
+               .append(System.lineSeparator());
+        }
+        
+        if (!slowest.isEmpty()) {
+            List<RecordedEvent> top = new ArrayList<>(slowest);
+            top.sort(Comparator.comparing(RecordedEvent::getDuration, Comparator.reverseOrder()));
+            out.append(String.format("%nSlowest %d events%n", top.size()));
+            for (RecordedEvent event : top) {
+                out.append(String.format("%11s  %-14s %-20s %s%n", format(event.getDuration().toNanos()),
+                                         event.getEventType().getName().substring(PREFIX.length()),
+                                         event.getThread() != null ? event.getThread().getJavaName() : "-",
+                                         fields(event)));
+            }
+        }
+        return out.toString();
+    }
+    
+    // The event's own fields, name=value
+    private static String fields(RecordedEvent event) {
+        StringBuilder out = new StringBuilder();
+        event.getFields().forEach(field -> {
+            String name = field.getName();
+            if (!name.equals("startTime") && !name.equals("duration") && !name.equals("eventThread") &&
+                !name.equals("stackTrace")) {
+                Object value = field.getAnnotation(Timespan.class) != null ?
+                    format(event.getDuration(name).toNanos()) : event.getValue(name);
+                out.append(out.length() > 0 ? " " : "").append(name).append('=').append(value);
+            }
+        });
+        return out.toString();
+    }
+    
+    private static String format(double nanos) {
+        if (nanos < 1e3) {
+            return String.format("%.0f ns", nanos);
+        } else if (nanos < 1e6) {
+            return String.format("%.1f us", nanos / 1e3);
+        } else if (nanos < 1e9) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+        return String.format("%.2f s", nanos / 1e9);
+    }
+    
+    private static class Stage {
+        final String name;
+        final LatencyHistogram histogram;
+        long totalNanos;
+        
+        Stage(String name) {
+            this.name = name;
+            this.histogram = new LatencyHistogram(name);
+        }
+    }
+}
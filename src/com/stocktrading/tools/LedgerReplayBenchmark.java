@@ -0,0 +1,208 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.models.Money;
+import com.stocktrading.models.PortfolioState;
+import com.stocktrading.models.User;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Ledger replay benchmark for PortfolioState.
+ * In memory mode, folds a pregenerated stream of BUY/SELL events into a
+ * portfolio state, then round-trips the result through its binary snapshot
+ * form. In sqlite mode, writes the same events to a scratch SQLite database
+ * and times the loads through DatabaseManager: a full replay from the
+ * portfolio's opening snapshot, reading every event back through JDBC, and
+ * then the normal load from the latest snapshot.
+ *
+ * Usage: java -cp bin:sqlite-jdbc.jar com.stocktrading.tools.LedgerReplayBenchmark
+ *            [events] [symbols] [rounds] [memory|sqlite]
+ */
+public class LedgerReplayBenchmark {
+    private static final long TARGET_MILLIS_PER_MILLION = 1_000;
+    private static final long INITIAL_CASH = Money.ofWhole(1_000_000_000);
+    // After every event; replay then reads the whole ledger past the opening snapshot
+    private static final LocalDateTime END_OF_LEDGER = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int symbols = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String mode = args.length > 3 ? args[3].toLowerCase() : "memory";
+        if (!mode.equals("memory") && !mode.equals("sqlite")) {
+            System.err.println("Unknown mode '" + mode + "', expected memory or sqlite");
+            System.exit(1);
+        }
+        
+        System.out.println("Ledger replay benchmark (" + mode + "): " + events + " events over " + symbols +
+                           " symbols x " + rounds + " rounds");
+        Ledger ledger = new Ledger(events, symbols);
+        double best = mode.equals("sqlite") ? replayFromDatabase(ledger, rounds) : replayInMemory(ledger, rounds);
+        if (best < 0) {
+            System.exit(1);
+        }
+        double target = TARGET_MILLIS_PER_MILLION * (events / 1_000_000.0);
+        System.out.printf("best: %.1f ms (target %.0f ms) %s%n", best, target, best <= target ? "PASS" : "FAIL");
+    }
+    
+    private static double replayInMemory(Ledger ledger, int rounds) {
+        int events = ledger.types.length;
+        double best = Double.MAX_VALUE;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            PortfolioState state = ledger.replay();
+            long replayed = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            byte[] snapshot = state.toBytes();
+            PortfolioState restored = PortfolioState.fromBytes(snapshot);
+            long roundTrip = System.nanoTime() - start;
+            
+            double millis = replayed / 1e6;
+            best = Math.min(best, millis);
+            System.out.printf("round %d: replay %.1f ms (%.0f events/sec), snapshot %d bytes in %.2f ms, cash $%s%s%n",
+                              round, millis, events * 1e9 / replayed, snapshot.length, roundTrip / 1e6,
+                              Money.format(restored.getCashBalance()),
+                              restored.getCashBalance() == state.getCashBalance() ? "" : " MISMATCH");
+        }
+        return best;
+    }
+    
+    // Best full replay in milliseconds, or -1 if the database could not be used
+    private static double replayFromDatabase(Ledger ledger, int rounds) throws Exception {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            System.err.println("SQLite driver not found; add sqlite-jdbc.jar to the classpath");
+            return -1;
+        }
+        File file = File.createTempFile("ledger-replay", ".db");
+        file.deleteOnExit();
+        String url = "jdbc:sqlite:" + file.getPath();
+        DatabaseManager dbManager = new DatabaseManager(url);
+        try {
+            int userId = dbManager.createUser(new User("ledger", "-", "Ledger Replay", "ledger@example.com"));
+            int portfolioId = dbManager.createPortfolio(userId, INITIAL_CASH);
+            long start = System.nanoTime();
+            try (Connection connection = DriverManager.getConnection(url)) {
+                ledger.write(connection, portfolioId);
+            }
+            System.out.printf("wrote %d events to %s in %.1f s%n", ledger.types.length, file,
+                              (System.nanoTime() - start) / 1e9);
+            
+            int events = ledger.types.length;
+            long expectedCash = ledger.replay().getCashBalance();
+            double best = Double.MAX_VALUE;
+            for (int round = 1; round <= rounds; round++) {
+                start = System.nanoTime();
+                PortfolioState state = dbManager.getPortfolioStateAsOf(portfolioId, END_OF_LEDGER);
+                long replayed = System.nanoTime() - start;
+                
+                double millis = replayed / 1e6;
+                best = Math.min(best, millis);
+                System.out.printf("round %d: full replay %.1f ms (%.0f events/sec), %d events applied, cash $%s%s%n",
+                                  round, millis, events * 1e9 / replayed, state.getEventsApplied(),
+                                  Money.format(state.getCashBalance()),
+                                  state.getCashBalance() == expectedCash ? "" : " MISMATCH");
+            }
+            
+            // The first load after the writes stores a snapshot at the end of the ledger
+            dbManager.getPortfolioState(portfolioId);
+            double snapshotBest = Double.MAX_VALUE;
+            for (int round = 1; round <= rounds; round++) {
+                start = System.nanoTime();
+                dbManager.getPortfolioState(portfolioId);
+                snapshotBest = Math.min(snapshotBest, (System.nanoTime() - start) / 1e6);
+            }
+            System.out.printf("load from latest snapshot: best %.2f ms%n", snapshotBest);
+            return best;
+        } catch (SQLException e) {
+            System.err.println("Database error: " + e.getMessage());
+            return -1;
+        } finally {
+            dbManager.close();
+            for (String suffix : new String[] {"", "-wal", "-shm"}) {
+                new File(file.getPath() + suffix).delete();
+            }
+        }
+    }
+    
+    /**
+     * Pregenerated events in the shape replay reads them from the transactions table
+     */
+    private static class Ledger {
+        final String[] types;
+        final String[] symbols;
+        final int[] quantities;
+        final long[] prices;
+        
+        Ledger(int events, int symbolCount) {
+            Random random = new Random(42);
+            String[] names = new String[symbolCount];
+            for (int i = 0; i < symbolCount; i++) {
+                names[i] = "SYM" + i;
+            }
+            types = new String[events];
+            symbols = new String[events];
+            quantities = new int[events];
+            prices = new long[events];
+            
+            int[] held = new int[symbolCount];
+            for (int i = 0; i < events; i++) {
+                int s = random.nextInt(symbolCount);
+                int quantity = 1 + random.nextInt(100);
+                boolean sell = held[s] > 0 && random.nextInt(100) < 45;
+                if (sell) {
+                    quantity = Math.min(quantity, held[s]);
+                    held[s] -= quantity;
+                } else {
+                    held[s] += quantity;
+                }
+                types[i] = sell ? "SELL" : "BUY";
+                // Fresh String per event, as a JDBC driver would return
+                symbols[i] = new String(names[s]);
+                quantities[i] = quantity;
+                prices[i] = Money.ofWhole(50) + random.nextInt(10_000) * Money.CENT;
+            }
+        }
+        
+        PortfolioState replay() {
+            PortfolioState state = new PortfolioState(Money.ofWhole(1_000_000_000));
+            for (int i = 0; i < types.length; i++) {
+                state.apply(i + 1, types[i], symbols[i], quantities[i], prices[i]);
+            }
+            return state;
+        }
+        
+        // The events as transactions rows, in one JDBC batch and one commit, bypassing the
+        // per-write snapshotting so the ledger has no snapshot past the opening one
+        void write(Connection connection, int portfolioId) throws SQLException {
+            String timestamp = LocalDateTime.now().toString();
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                     "INSERT INTO transactions (portfolio_id, type, symbol, quantity, price, timestamp) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < types.length; i++) {
+                    pstmt.setInt(1, portfolioId);
+                    pstmt.setString(2, types[i]);
+                    pstmt.setString(3, symbols[i]);
+                    pstmt.setInt(4, quantities[i]);
+                    pstmt.setLong(5, prices[i]);
+                    pstmt.setString(6, timestamp);
+                    pstmt.addBatch();
+                    if (i % 10_000 == 9_999) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
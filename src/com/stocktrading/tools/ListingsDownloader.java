@@ -0,0 +1,117 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.api.StockAPIClient;
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Builds listings.csv, the symbol list behind the dashboard search box.
+ * Reads the NASDAQ Trader symbol directories - nasdaqlisted.txt for Nasdaq
+ * and otherlisted.txt for NYSE, NYSE American, NYSE Arca and Cboe - which
+ * are pipe-delimited with a header line and a "File Creation Time" trailer,
+ * and writes one symbol,name,weight line per listing. Test issues are
+ * skipped; ETFs and warrants, rights and units rank below common stock.
+ * Sources can be URLs or local copies of the same files, for machines
+ * without internet access. The dashboard rebuilds its search index the
+ * next time it starts after the file changes.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.ListingsDownloader [source...]
+ */
+public class ListingsDownloader {
+    private static final String[] DEFAULT_SOURCES = {
+        "https://www.nasdaqtrader.com/dynamic/SymDir/nasdaqlisted.txt",
+        "https://www.nasdaqtrader.com/dynamic/SymDir/otherlisted.txt"
+    };
+    private static final int TIMEOUT_MILLIS = 30_000;
+    private static final float ETF_WEIGHT = 0.5f;
+    private static final float DERIVATIVE_WEIGHT = 0.2f;
+    
+    public static void main(String[] args) throws IOException {
+        String[] sources = args.length > 0 ? args : DEFAULT_SOURCES;
+        Map<String, String> lines = new TreeMap<>(); // by symbol; the first source wins
+        for (String source : sources) {
+            int before = lines.size();
+            try (BufferedReader reader = open(source)) {
+                read(reader, lines);
+            } catch (IOException e) {
+                System.err.println("Error reading " + source + ": " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println(source + ": " + (lines.size() - before) + " listings");
+        }
+        if (lines.isEmpty()) {
+            System.err.println("No listings found; keeping the existing " + StockAPIClient.LISTINGS_FILE);
+            System.exit(1);
+        }
+        
+        File target = StockAPIClient.LISTINGS_FILE;
+        File temp = new File(target.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            out.println("symbol,name,weight");
+            for (String line : lines.values()) {
+                out.println(line);
+            }
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Wrote " + lines.size() + " listings to " + target);
+    }
+    
+    private static BufferedReader open(String source) throws IOException {
+        if (!source.startsWith("http://") && !source.startsWith("https://")) {
+            return new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8));
+        }
+        HttpURLConnection connection = (HttpURLConnection) new URL(source).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException("HTTP " + connection.getResponseCode());
+        }
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+    
+    // One symbol directory; columns are located by header name since the two files differ
+    static void read(BufferedReader reader, Map<String, String> lines) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IOException("Empty file");
+        }
+        List<String> columns = Arrays.asList(header.split("\\|"));
+        int symbolColumn = columns.indexOf("Symbol") >= 0 ? columns.indexOf("Symbol") : columns.indexOf("ACT Symbol");
+        int nameColumn = columns.indexOf("Security Name");
+        int etfColumn = columns.indexOf("ETF");
+        int testColumn = columns.indexOf("Test Issue");
+        if (symbolColumn < 0 || nameColumn < 0) {
+            throw new IOException("Not a symbol directory: " + header);
+        }
+        
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("File Creation Time")) {
+                break;
+            }
+            String[] fields = line.split("\\|", -1);
+            if (fields.length <= Math.max(symbolColumn, nameColumn) ||
+                (testColumn >= 0 && testColumn < fields.length && fields[testColumn].equals("Y"))) {
+                continue;
+            }
+            String symbol = fields[symbolColumn].trim().toUpperCase();
+            // Commas would split the record and quotes are not escaped by the reader
+            String name = fields[nameColumn].trim().replace(',', ' ').replace('"', '\'').replaceAll("\\s+", " ");
+            if (symbol.isEmpty() || name.isEmpty() || lines.containsKey(symbol)) {
+                continue;
+            }
+            float weight = 1;
+            if (etfColumn >= 0 && etfColumn < fields.length && fields[etfColumn].equals("Y")) {
+                weight = ETF_WEIGHT;
+            } else if (name.matches("(?i).*\\b(warrants?|rights?|units?)\\b.*")) {
+                weight = DERIVATIVE_WEIGHT;
+            }
+            lines.put(symbol, symbol + "," + name + "," + weight);
+        }
+    }
+}
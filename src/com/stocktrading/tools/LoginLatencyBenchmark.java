@@ -0,0 +1,102 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.models.Money;
+import com.stocktrading.models.Portfolio;
+import com.stocktrading.models.Transaction;
+import com.stocktrading.models.User;
+import com.stocktrading.services.AuthenticationService;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Login latency benchmark.
+ * Seeds a scratch database with users and transaction history, then times
+ * the old sequential login (user lookup, full portfolio and history load)
+ * against the current one: the time until login returns and the time until
+ * the background portfolio and history loads have both completed.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.LoginLatencyBenchmark [users] [transactions] [rounds]
+ */
+public class LoginLatencyBenchmark {
+    private static final String PASSWORD = "secret";
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "META", "NVDA", "JPM", "V", "WMT"};
+    
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int transactions = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        
+        System.out.println("Login latency benchmark: " + users + " users x " + transactions +
+                           " transactions, " + rounds + " rounds");
+        File file = File.createTempFile("login-bench", ".db");
+        file.deleteOnExit();
+        DatabaseManager dbManager = new DatabaseManager("jdbc:sqlite:" + file.getPath());
+        try {
+            seed(dbManager, users, transactions);
+            AuthenticationService authService = new AuthenticationService(dbManager);
+            
+            long[] sequential = new long[users * rounds];
+            long[] returned = new long[users * rounds];
+            long[] loaded = new long[users * rounds];
+            int n = 0;
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < users; i++, n++) {
+                    String username = "user" + i;
+                    
+                    // Before: everything loaded on the calling thread
+                    long start = System.nanoTime();
+                    User user = dbManager.getUserByUsername(username);
+                    if (user != null && user.getPassword().equals(PASSWORD)) {
+                        user.setPortfolio(dbManager.getPortfolioByUserId(user.getId()));
+                    }
+                    sequential[n] = System.nanoTime() - start;
+                    
+                    // After: return on the credential check, load in the background
+                    start = System.nanoTime();
+                    user = authService.login(username, PASSWORD);
+                    returned[n] = System.nanoTime() - start;
+                    user.getPortfolioLoad().join();
+                    user.getHistoryLoad().join();
+                    loaded[n] = System.nanoTime() - start;
+                    authService.logout(user);
+                }
+            }
+            report("sequential login (before)", sequential);
+            report("login returns (after)", returned);
+            report("portfolio + history loaded (after)", loaded);
+            authService.getSessionStore().shutdown();
+        } finally {
+            dbManager.close();
+            file.delete();
+        }
+    }
+    
+    private static void seed(DatabaseManager dbManager, int users, int transactions) throws Exception {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            int userId = dbManager.createUser(new User("user" + i, PASSWORD, "User " + i, "user" + i + "@example.com"));
+            Portfolio portfolio = dbManager.loadPortfolio(userId);
+            for (int t = 0; t < transactions; t += 2) {
+                // Round trips, so the replayed position stays valid
+                String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+                int quantity = 1 + random.nextInt(10);
+                long price = Money.of(50 + random.nextInt(200));
+                dbManager.saveTransaction(portfolio.getId(), new Transaction("BUY", symbol, quantity, price));
+                dbManager.saveTransaction(portfolio.getId(), new Transaction("SELL", symbol, quantity, price));
+            }
+        }
+        System.out.printf("seeded in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+    
+    private static void report(String label, long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-36s p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", label,
+                          sorted[sorted.length / 2] / 1e6,
+                          sorted[(int) (sorted.length * 0.99)] / 1e6,
+                          sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,82 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.services.PasswordHasher;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Login storm benchmark for the PasswordHasher.
+ * Calibrates the hash cost to the target latency, then fires every user's
+ * login at once: cold (each verification runs the KDF), warm (repeat logins
+ * served by the verification cache) and overloaded (a queue smaller than the
+ * burst, which sheds the excess instead of queueing it).
+ *
+ * Usage: java -cp bin com.stocktrading.tools.LoginStormBenchmark [users] [targetMillis] [warmRounds]
+ */
+public class LoginStormBenchmark {
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        long targetMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int warmRounds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        
+        int iterations = PasswordHasher.calibrate(targetMillis);
+        System.out.println("Login storm benchmark: " + users + " users, " + threads + " hash threads, " +
+                           iterations + " iterations (target " + targetMillis + " ms)");
+        
+        String[] passwords = new String[users];
+        String[] stored = new String[users];
+        PasswordHasher setup = new PasswordHasher(iterations, threads, users);
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            passwords[i] = "password-" + i;
+            stored[i] = setup.hash(passwords[i]).join();
+        }
+        System.out.printf("single hash: %.1f ms%n", (System.nanoTime() - start) / 1e6 / users);
+        setup.shutdown();
+        
+        // Fresh hasher, so nothing is cached yet
+        PasswordHasher hasher = new PasswordHasher(iterations, threads, users);
+        storm("cold", hasher, passwords, stored, 1);
+        storm("warm (cached)", hasher, passwords, stored, warmRounds);
+        hasher.shutdown();
+        
+        PasswordHasher small = new PasswordHasher(iterations, threads, Math.max(1, users / 4));
+        storm("overloaded queue", small, passwords, stored, 1);
+        small.shutdown();
+    }
+    
+    private static void storm(String label, PasswordHasher hasher, String[] passwords, String[] stored, int rounds) {
+        int count = passwords.length * rounds;
+        long[] latencies = new long[count];
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CompletableFuture<?>[] logins = new CompletableFuture<?>[count];
+        
+        long start = System.nanoTime();
+        for (int n = 0; n < count; n++) {
+            int i = n % passwords.length;
+            int slot = n;
+            long submitted = System.nanoTime();
+            logins[n] = hasher.verify(passwords[i], stored[i]).handle((match, error) -> {
+                latencies[slot] = System.nanoTime() - submitted;
+                if (error != null) {
+                    rejected.incrementAndGet();
+                } else if (!match) {
+                    failed.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        CompletableFuture.allOf(logins).join();
+        long elapsed = System.nanoTime() - start;
+        
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-17s %8.0f logins/sec, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d rejected, %d wrong%n",
+                          label + ":", (count - rejected.get()) * 1e9 / elapsed,
+                          sorted[count / 2] / 1e6, sorted[(int) (count * 0.99)] / 1e6,
+                          sorted[count - 1] / 1e6, rejected.get(), failed.get());
+    }
+}
@@ -0,0 +1,118 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.services.LatencyHistogram;
+import com.stocktrading.services.Metrics;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.*;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency metrics benchmark.
+ * Checks the histogram percentiles against exact ones over a skewed
+ * sample, then measures what a timed call costs on top of the call itself:
+ * two nanoTime reads plus record(), from one thread and from several
+ * threads sharing one histogram. Finishes by reading a histogram back
+ * through the platform MBean server, the way a JMX console would.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.MetricsOverheadBenchmark [samples] [threads] [rounds]
+ */
+public class MetricsOverheadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        
+        System.out.println("Metrics benchmark: " + samples + " samples, " + threads + " threads, " + rounds + " rounds");
+        checkAccuracy(Math.min(samples, 2_000_000));
+        
+        LatencyHistogram histogram = Metrics.histogram("bench.record");
+        for (int round = 1; round <= rounds; round++) {
+            histogram.reset();
+            double baseline = nanosPerCall(samples, null);
+            double timed = nanosPerCall(samples, histogram);
+            double contended = contended(samples, threads, histogram);
+            System.out.printf("round %d: nanoTime pair %.1f ns, + record %.1f ns (%.1f ns overhead), " +
+                              "%d threads on one histogram %.1f ns/record%n",
+                              round, baseline, timed, timed - baseline, threads, contended);
+        }
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.stocktrading:type=Latency,name=" + ObjectName.quote("bench.record"));
+        System.out.printf("JMX %s: count %s, p99 %s us%n", name, server.getAttribute(name, "Count"),
+                          server.getAttribute(name, "P99Micros"));
+        System.out.print(Metrics.report());
+    }
+    
+    // Log-normal latencies around 50 us with a long tail, against exact percentiles
+    private static void checkAccuracy(int count) {
+        Random random = new Random(42);
+        long[] values = new long[count];
+        LatencyHistogram histogram = new LatencyHistogram("accuracy");
+        for (int i = 0; i < count; i++) {
+            values[i] = (long) Math.exp(Math.log(50_000) + 1.2 * random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        System.out.printf("accuracy: p50 %s, p99 %s, p99.9 %s, max %s%n",
+                          error(snapshot.getP50(), exact(values, 0.50)), error(snapshot.getP99(), exact(values, 0.99)),
+                          error(snapshot.getP999(), exact(values, 0.999)), error(snapshot.getMax(), values[count - 1]));
+    }
+    
+    private static long exact(long[] sorted, double quantile) {
+        return sorted[(int) Math.ceil(quantile * sorted.length) - 1];
+    }
+    
+    private static String error(long reported, long exact) {
+        return String.format("%d ns vs %d ns (%+.2f%%)", reported, exact, 100.0 * (reported - exact) / exact);
+    }
+    
+    private static double nanosPerCall(int count, LatencyHistogram histogram) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long t = System.nanoTime();
+            if (histogram != null) {
+                histogram.recordSince(t);
+            } else {
+                sink += System.nanoTime() - t;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (double) elapsed / count;
+    }
+    
+    private static double contended(int count, int threads, LatencyHistogram histogram) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        int perThread = count / threads;
+        Future<?>[] futures = new Future<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            futures[t] = pool.submit(() -> {
+                ready.countDown();
+                go.await();
+                for (int i = 0; i < perThread; i++) {
+                    histogram.recordSince(System.nanoTime());
+                }
+                return null;
+            });
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return (double) elapsed / ((long) perThread * threads);
+    }
+}
@@ -0,0 +1,115 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.api.StockAPIClient;
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.models.*;
+import com.stocktrading.services.RiskEngine;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Nightly firm-wide risk run over every portfolio in the database.
+ * Writes risk-report-DATE.csv (one row per portfolio) and risk-report-DATE.txt
+ * (firm-wide summary) to the output directory. Portfolios are rebuilt from
+ * the ledger one at a time as the engine asks for them.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.NightlyRiskReport [outputDir] [days] [confidence]
+ */
+public class NightlyRiskReport {
+    public static void main(String[] args) throws IOException {
+        File outputDir = new File(args.length > 0 ? args[0] : ".");
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        double confidence = args.length > 2 ? Double.parseDouble(args[2]) : 0.99;
+        
+        DatabaseManager dbManager = new DatabaseManager();
+        StockAPIClient apiClient = new StockAPIClient();
+        try {
+            List<Integer> portfolioIds = dbManager.getPortfolioIds();
+            Map<String, List<Double>> history = new HashMap<>();
+            for (String symbol : dbManager.getHeldSymbols()) {
+                history.put(symbol, apiClient.fetchHistoricalPrices(symbol, days + 1));
+            }
+            ReturnMatrix matrix = ReturnMatrix.fromPrices(history);
+            RiskEngine engine = new RiskEngine(matrix, defaultScenarios(), confidence);
+            
+            String date = LocalDate.now().toString();
+            File detailsFile = new File(outputDir, "risk-report-" + date + ".csv");
+            RiskReport report;
+            try (Writer details = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(detailsFile), StandardCharsets.UTF_8))) {
+                report = engine.run(new LedgerPortfolios(dbManager, portfolioIds.iterator()), details);
+            }
+            
+            File summaryFile = new File(outputDir, "risk-report-" + date + ".txt");
+            try (Writer summary = new OutputStreamWriter(new FileOutputStream(summaryFile), StandardCharsets.UTF_8)) {
+                summary.write(report.toString());
+            }
+            System.out.print(report);
+            System.out.println("Wrote " + detailsFile + " and " + summaryFile);
+        } catch (SQLException e) {
+            System.err.println("Risk report failed: " + e.getMessage());
+        } finally {
+            apiClient.shutdown();
+            dbManager.close();
+        }
+    }
+    
+    static List<StressScenario> defaultScenarios() {
+        List<StressScenario> scenarios = new ArrayList<>();
+        scenarios.add(new StressScenario("Market -10%", -0.10));
+        scenarios.add(new StressScenario("Market crash -30%", -0.30));
+        scenarios.add(new StressScenario("Tech selloff", -0.03)
+            .shock("AAPL", -0.25).shock("GOOGL", -0.25).shock("MSFT", -0.25).shock("AMZN", -0.25)
+            .shock("META", -0.30).shock("NVDA", -0.35).shock("TSLA", -0.35));
+        scenarios.add(new StressScenario("Financials shock", -0.02).shock("JPM", -0.25).shock("V", -0.15));
+        return scenarios;
+    }
+    
+    /**
+     * Loads each portfolio from the ledger only when the engine reaches it
+     */
+    private static class LedgerPortfolios implements Iterator<Portfolio> {
+        private final DatabaseManager dbManager;
+        private final Iterator<Integer> ids;
+        private Portfolio next;
+        
+        LedgerPortfolios(DatabaseManager dbManager, Iterator<Integer> ids) {
+            this.dbManager = dbManager;
+            this.ids = ids;
+            advance();
+        }
+        
+        private void advance() {
+            next = null;
+            while (next == null && ids.hasNext()) {
+                int id = ids.next();
+                try {
+                    PortfolioState state = dbManager.getPortfolioState(id);
+                    if (state != null) {
+                        next = state.toPortfolio(id);
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Skipping portfolio " + id + ": " + e.getMessage());
+                }
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public Portfolio next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Portfolio current = next;
+            advance();
+            return current;
+        }
+    }
+}
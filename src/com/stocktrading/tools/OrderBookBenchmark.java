@@ -0,0 +1,117 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.models.Money;
+import com.stocktrading.models.Order;
+import com.stocktrading.services.OrderBook;
+import java.util.Random;
+
+/**
+ * Single-threaded throughput benchmark for OrderBook.
+ * Replays a pregenerated mix of limit adds, cancels, replaces and
+ * aggressive IOC/market orders against one symbol and reports events/sec.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.OrderBookBenchmark [events] [rounds]
+ */
+public class OrderBookBenchmark {
+    private static final double TARGET_EVENTS_PER_SECOND = 1_000_000;
+    
+    private static final int ADD = 0;
+    private static final int CANCEL = 1;
+    private static final int REPLACE = 2;
+    private static final int AGGRESS = 3;
+    
+    public static void main(String[] args) {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        
+        System.out.println("OrderBook benchmark: " + events + " events x " + rounds + " rounds");
+        double best = 0;
+        for (int round = 1; round <= rounds; round++) {
+            Workload workload = new Workload(events, round);
+            long[] fills = new long[1];
+            OrderBook book = new OrderBook("BENCH", (taker, maker, price, qty) -> fills[0]++);
+            
+            long start = System.nanoTime();
+            workload.replay(book);
+            long elapsed = System.nanoTime() - start;
+            
+            double rate = events * 1e9 / elapsed;
+            best = Math.max(best, rate);
+            System.out.printf("round %d: %.0f events/sec, %d fills, %d resting%n",
+                              round, rate, fills[0], book.getRestingOrderCount());
+        }
+        System.out.printf("best: %.0f events/sec (target %.0f) %s%n", best, TARGET_EVENTS_PER_SECOND,
+                          best >= TARGET_EVENTS_PER_SECOND ? "PASS" : "FAIL");
+    }
+    
+    /**
+     * Pregenerated event stream so generation cost is excluded from timing
+     */
+    private static class Workload {
+        final int[] kinds;
+        final Order[] orders;
+        final long[] targetIds;
+        final long[] prices;
+        final int[] quantities;
+        
+        Workload(int events, long seed) {
+            Random random = new Random(seed);
+            kinds = new int[events];
+            orders = new Order[events];
+            targetIds = new long[events];
+            prices = new long[events];
+            quantities = new int[events];
+            
+            long nextId = 1;
+            long[] live = new long[events];
+            int liveCount = 0;
+            long mid = Money.ofWhole(100);
+            
+            for (int i = 0; i < events; i++) {
+                int roll = random.nextInt(100);
+                Order.Side side = random.nextBoolean() ? Order.Side.BUY : Order.Side.SELL;
+                if (roll < 60 || liveCount == 0) {
+                    // Passive limit order up to 50 cents away from mid
+                    long offset = (1 + random.nextInt(50)) * Money.CENT;
+                    long price = side == Order.Side.BUY ? mid - offset : mid + offset;
+                    long id = nextId++;
+                    kinds[i] = ADD;
+                    orders[i] = new Order(id, 1, "BENCH", side, Order.Type.LIMIT, price, 1 + random.nextInt(500));
+                    live[liveCount++] = id;
+                } else if (roll < 85) {
+                    int index = random.nextInt(liveCount);
+                    kinds[i] = CANCEL;
+                    targetIds[i] = live[index];
+                    live[index] = live[--liveCount];
+                } else if (roll < 90) {
+                    kinds[i] = REPLACE;
+                    targetIds[i] = live[random.nextInt(liveCount)];
+                    prices[i] = mid + (random.nextInt(100) - 50) * Money.CENT;
+                    quantities[i] = 1 + random.nextInt(500);
+                } else {
+                    Order.Type type = random.nextBoolean() ? Order.Type.IOC : Order.Type.MARKET;
+                    long price = side == Order.Side.BUY ? mid + 10 * Money.CENT : mid - 10 * Money.CENT;
+                    kinds[i] = AGGRESS;
+                    orders[i] = new Order(nextId++, 2, "BENCH", side, type, price, 1 + random.nextInt(1000));
+                }
+            }
+        }
+        
+        void replay(OrderBook book) {
+            for (int i = 0; i < kinds.length; i++) {
+                switch (kinds[i]) {
+                    case ADD:
+                    case AGGRESS:
+                        book.submit(orders[i]);
+                        break;
+                    case CANCEL:
+                        book.cancel(targetIds[i]);
+                        break;
+                    default:
+                        book.replace(targetIds[i], prices[i], quantities[i]);
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.api.Json;
+import com.stocktrading.api.TradingServer;
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.services.AuthenticationService;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load client for the headless server (Main --server).
+ * Registers and logs in a pool of users, then runs every client as a
+ * closed loop - send, wait for the answer, send the next - over a mix of
+ * portfolio reads, quotes, predictions and small market orders, and
+ * reports requests/sec and latency percentiles per endpoint. Quotes and
+ * predictions block on the (simulated) market data API inside the server,
+ * so this is what the thread-per-request executor has to absorb.
+ *
+ * Without a URL an in-process server is started on a free port.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.ServerLoadBenchmark [clients] [seconds] [url]
+ */
+public class ServerLoadBenchmark {
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "META", "NVDA", "JPM", "V", "WMT"};
+    private static final int MAX_USERS = 100;
+    private static final int SETUP_CONCURRENCY = 16;
+    private static final long WARMUP_SECONDS = 2;
+    
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        
+        TradingServer embedded = null;
+        if (args.length <= 2) {
+            DatabaseManager dbManager = new DatabaseManager();
+            embedded = new TradingServer(0, dbManager, new AuthenticationService(dbManager));
+            embedded.start();
+        }
+        String baseUrl = embedded != null ? "http://localhost:" + embedded.getPort() : args[2];
+        HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread t = new Thread(r, "load-client");
+                t.setDaemon(true);
+                return t;
+            }))
+            .build();
+        String health = http.send(get(baseUrl, "/api/health", null), HttpResponse.BodyHandlers.ofString()).body();
+        System.out.println("Server load benchmark: " + clients + " clients for " + seconds + " s against " +
+                           baseUrl + " " + health);
+        
+        // Users are shared between clients; each client has its own session
+        int users = Math.min(clients, MAX_USERS);
+        long start = System.nanoTime();
+        runLimited(users, i -> http.sendAsync(post(baseUrl, "/api/register", null,
+            Json.object("username", "load" + i, "password", "load-pass-" + i, "email", "load" + i + "@example.com")),
+            HttpResponse.BodyHandlers.discarding()));
+        String[] tokens = new String[clients];
+        runLimited(clients, i -> http.sendAsync(post(baseUrl, "/api/login", null,
+            Json.object("username", "load" + (i % users), "password", "load-pass-" + (i % users))),
+            HttpResponse.BodyHandlers.ofString()).thenAccept(response -> {
+                if (response.statusCode() == 200) {
+                    tokens[i] = Json.parseObject(response.body()).get("token");
+                }
+            }));
+        long loggedIn = Arrays.stream(tokens).filter(Objects::nonNull).count();
+        System.out.printf("setup: %d users, %d of %d clients logged in (%.1f s)%n",
+                          users, loggedIn, clients, (System.nanoTime() - start) / 1e9);
+        if (loggedIn == 0) {
+            System.err.println("No client could log in; is the database available?");
+            System.exit(1);
+        }
+        
+        Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+        long begin = System.nanoTime();
+        long measureFrom = begin + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        List<CompletableFuture<Void>> loops = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            if (tokens[i] != null) {
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                sendNext(http, baseUrl, tokens[i], new Random(i), recorders, measureFrom, end, done);
+                loops.add(done);
+            }
+        }
+        CompletableFuture.allOf(loops.toArray(new CompletableFuture<?>[0])).join();
+        
+        Recorder total = new Recorder();
+        for (Recorder recorder : recorders.values()) {
+            total.addAll(recorder);
+        }
+        System.out.printf("%-10s %9.0f req/s  %s%n", "all", total.count / (double) seconds, total.summary());
+        for (Map.Entry<String, Recorder> entry : new TreeMap<>(recorders).entrySet()) {
+            Recorder recorder = entry.getValue();
+            System.out.printf("%-10s %9.0f req/s  %s%n", entry.getKey(), recorder.count / (double) seconds,
+                              recorder.summary());
+        }
+        if (embedded != null) {
+            embedded.stop(0);
+        }
+        System.exit(0);
+    }
+    
+    private interface Call {
+        CompletableFuture<?> start(int index);
+    }
+    
+    // Run count calls with at most SETUP_CONCURRENCY in flight
+    private static void runLimited(int count, Call call) throws InterruptedException {
+        Semaphore permits = new Semaphore(SETUP_CONCURRENCY);
+        AtomicLong failures = new AtomicLong();
+        for (int i = 0; i < count; i++) {
+            permits.acquire();
+            call.start(i).whenComplete((result, error) -> {
+                if (error != null) {
+                    failures.incrementAndGet();
+                }
+                permits.release();
+            });
+        }
+        permits.acquire(SETUP_CONCURRENCY);
+        if (failures.get() > 0) {
+            System.err.println(failures.get() + " setup requests failed");
+        }
+    }
+    
+    // One step of a client's closed loop; the response callback sends the next request
+    private static void sendNext(HttpClient http, String baseUrl, String token, Random random,
+                                 Map<String, Recorder> recorders, long measureFrom, long end,
+                                 CompletableFuture<Void> done) {
+        if (System.nanoTime() >= end) {
+            done.complete(null);
+            return;
+        }
+        // 50% portfolio, 25% quote, 15% prediction, 10% order
+        int pick = random.nextInt(100);
+        String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+        String endpoint;
+        HttpRequest request;
+        if (pick < 50) {
+            endpoint = "portfolio";
+            request = get(baseUrl, "/api/portfolio", token);
+        } else if (pick < 75) {
+            endpoint = "quote";
+            request = get(baseUrl, "/api/quote?symbol=" + symbol, token);
+        } else if (pick < 90) {
+            endpoint = "predict";
+            request = get(baseUrl, "/api/predict?symbol=" + symbol, token);
+        } else {
+            endpoint = "order";
+            request = post(baseUrl, "/api/orders", token,
+                           Json.object("symbol", symbol, "side", random.nextBoolean() ? "BUY" : "SELL", "quantity", 1));
+        }
+        long sent = System.nanoTime();
+        http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long now = System.nanoTime();
+            if (sent >= measureFrom && now < end) {
+                // An order refused for lack of cash or shares (409) is still a served request
+                boolean ok = error == null && (response.statusCode() < 400 || response.statusCode() == 409);
+                recorders.computeIfAbsent(endpoint, e -> new Recorder()).add(now - sent, ok);
+            }
+            sendNext(http, baseUrl, token, random, recorders, measureFrom, end, done);
+        });
+    }
+    
+    private static HttpRequest get(String baseUrl, String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.GET().build();
+    }
+    
+    private static HttpRequest post(String baseUrl, String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+    
+    /**
+     * Latencies of one endpoint, in nanoseconds
+     */
+    private static class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        
+        synchronized void add(long nanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+        
+        synchronized void addAll(Recorder other) {
+            synchronized (other) {
+                for (int i = 0; i < other.count; i++) {
+                    add(other.latencies[i], true);
+                }
+                errors += other.errors;
+            }
+        }
+        
+        synchronized String summary() {
+            if (count == 0) {
+                return "no requests";
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return String.format("%8d requests, %d errors; p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms",
+                                 count, errors, sorted[count / 2] / 1e6, sorted[(int) (count * 0.99)] / 1e6,
+                                 sorted[(int) (count * 0.999)] / 1e6, sorted[count - 1] / 1e6);
+        }
+    }
+}
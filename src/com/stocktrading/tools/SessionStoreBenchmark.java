@@ -0,0 +1,98 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.models.Session;
+import com.stocktrading.services.SessionStore;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Session store benchmark.
+ * Opens the given number of sessions, then has worker threads validate
+ * random tokens (with some logout/login churn) for a fixed time, and
+ * finally times a sweep over the full store and one that expires everything.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.SessionStoreBenchmark [sessions] [threads] [seconds]
+ */
+public class SessionStoreBenchmark {
+    private static final int CHURN_PER_THOUSAND = 20; // logout + login per 1000 operations
+    
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        
+        System.out.println("Session store benchmark: " + sessionCount + " sessions, " + threads +
+                           " threads x " + seconds + " s");
+        long idleMillis = 60_000;
+        SessionStore store = new SessionStore(idleMillis, 600_000, 3_600_000);
+        AtomicReferenceArray<String> tokens = new AtomicReferenceArray<>(sessionCount);
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < sessionCount; i++) {
+            tokens.set(i, store.create(i, "user" + i).getToken());
+        }
+        long created = System.nanoTime() - start;
+        System.out.printf("create: %.0f ms (%.0f sessions/sec)%n", created / 1e6, sessionCount * 1e9 / created);
+        
+        AtomicLong lookups = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+        AtomicLong churns = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long ops = 0;
+                long missed = 0;
+                long churned = 0;
+                while ((ops & 1023) != 0 || System.nanoTime() < deadline) {
+                    int slot = random.nextInt(sessionCount);
+                    if (random.nextInt(1000) < CHURN_PER_THOUSAND) {
+                        // Log out and back in with a fresh token
+                        String old = tokens.get(slot);
+                        Session fresh = store.create(slot, "user" + slot);
+                        if (tokens.compareAndSet(slot, old, fresh.getToken())) {
+                            store.invalidate(old);
+                        } else {
+                            store.invalidate(fresh.getToken());
+                        }
+                        churned++;
+                    } else if (store.get(tokens.get(slot)) == null) {
+                        missed++; // raced with a churn on the same slot
+                    }
+                    ops++;
+                }
+                lookups.addAndGet(ops - churned);
+                misses.addAndGet(missed);
+                churns.addAndGet(churned);
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        long total = lookups.get() + churns.get();
+        System.out.printf("mixed: %.2f M ops/sec (%d lookups, %d logout/login, %d raced misses), %.0f ns/op per thread%n",
+                          total * 1e3 / elapsed, lookups.get(), churns.get(), misses.get(),
+                          (double) elapsed * threads / total);
+        System.out.println("live sessions: " + store.size());
+        
+        start = System.nanoTime();
+        int removed = store.sweep();
+        System.out.printf("sweep, none expired: %.1f ms (%d removed)%n", (System.nanoTime() - start) / 1e6, removed);
+        store.shutdown();
+        
+        // Everything idle past a short timeout
+        SessionStore expiring = new SessionStore(50, 600_000, 3_600_000);
+        for (int i = 0; i < sessionCount; i++) {
+            expiring.create(i, "user" + i);
+        }
+        Thread.sleep(100);
+        start = System.nanoTime();
+        removed = expiring.sweep();
+        System.out.printf("sweep, all expired: %.1f ms (%d removed, %d left)%n", (System.nanoTime() - start) / 1e6,
+                          removed, expiring.size());
+        expiring.shutdown();
+    }
+}
@@ -0,0 +1,111 @@
+package com.stocktrading.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time-to-first-frame benchmark for the GUI.
+ * Launches the application repeatedly in fresh JVMs with
+ * -Dstartup.exitAfterFirstFrame=true and reads the time to first frame
+ * each one prints, plus the wall time until its services were warm and it
+ * exited. Runs without class data sharing, with the JDK's default archive,
+ * and with the application archive from cds.sh when it exists (that one
+ * runs from stocktrading.jar, the classpath the archive was made with), then
+ * appends the medians to startup-times.csv so runs can be compared over
+ * time. Needs a display.
+ *
+ * Usage: java -cp bin:sqlite-jdbc.jar com.stocktrading.tools.StartupBenchmark [runs] [archive]
+ */
+public class StartupBenchmark {
+    private static final Pattern FIRST_FRAME = Pattern.compile("Time to first frame: (\\d+) ms");
+    private static final File HISTORY = new File("startup-times.csv");
+    private static final long RUN_TIMEOUT_SECONDS = 60;
+    private static final String ARCHIVE_CLASSPATH = "stocktrading.jar" + File.pathSeparator + "sqlite-jdbc.jar";
+    
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        File archive = new File(args.length > 1 ? args[1] : "app.jsa");
+        
+        String classpath = System.getProperty("java.class.path");
+        Map<String, List<String>> configs = new LinkedHashMap<>();
+        configs.put("no CDS", Arrays.asList("-Xshare:off", "-cp", classpath));
+        configs.put("JDK CDS", Arrays.asList("-Xshare:auto", "-cp", classpath));
+        if (archive.isFile()) {
+            configs.put("AppCDS", Arrays.asList("-XX:SharedArchiveFile=" + archive.getPath(), "-cp", ARCHIVE_CLASSPATH));
+        } else {
+            System.out.println("No " + archive + " - run cds.sh to measure the application archive");
+        }
+        
+        System.out.println("Startup benchmark: " + runs + " runs per configuration");
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        boolean newHistory = !HISTORY.isFile();
+        try (PrintWriter history = new PrintWriter(new FileWriter(HISTORY, true))) {
+            if (newHistory) {
+                history.println("timestamp,java,config,runs,first_frame_p50_ms,first_frame_min_ms,ready_p50_ms");
+            }
+            for (Map.Entry<String, List<String>> config : configs.entrySet()) {
+                long[] firstFrame = new long[runs];
+                long[] ready = new long[runs];
+                launch(config.getValue()); // warm the OS file cache
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    firstFrame[i] = launch(config.getValue());
+                    ready[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (firstFrame[i] < 0) {
+                        System.err.println(config.getKey() + ": the application did not report a first frame");
+                        System.exit(1);
+                    }
+                }
+                Arrays.sort(firstFrame);
+                Arrays.sort(ready);
+                System.out.printf("%-8s first frame p50 %4d ms, min %4d ms, max %4d ms; services warm p50 %4d ms%n",
+                                  config.getKey(), firstFrame[runs / 2], firstFrame[0], firstFrame[runs - 1], ready[runs / 2]);
+                history.printf("%s,%s,%s,%d,%d,%d,%d%n", timestamp, System.getProperty("java.version"), config.getKey(),
+                               runs, firstFrame[runs / 2], firstFrame[0], ready[runs / 2]);
+            }
+        }
+        System.out.println("Appended to " + HISTORY);
+    }
+    
+    // One application start; its reported time to first frame, or -1
+    private static long launch(List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmOptions);
+        command.add("-Dstartup.exitAfterFirstFrame=true");
+        command.add("com.stocktrading.Main");
+        File output = File.createTempFile("startup", ".log");
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(output).start();
+            if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return -1;
+            }
+            long firstFrame = -1;
+            try (BufferedReader reader = new BufferedReader(new FileReader(output))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = FIRST_FRAME.matcher(line);
+                    if (matcher.find()) {
+                        firstFrame = Long.parseLong(matcher.group(1));
+                    } else if (process.exitValue() != 0) {
+                        System.err.println("  " + line);
+                    }
+                }
+            }
+            return firstFrame;
+        } finally {
+            output.delete();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.models.Listing;
+import com.stocktrading.services.SymbolIndex;
+import java.io.File;
+import java.util.*;
+
+/**
+ * Symbol search benchmark.
+ * Builds a SymbolIndex over synthetic listings, writes and reloads the
+ * index file, then replays queries one keystroke at a time the way the
+ * dashboard search box does and reports the latency per keystroke.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.SymbolSearchBenchmark [listings] [queries]
+ */
+public class SymbolSearchBenchmark {
+    private static final String[] WORDS = {
+        "American", "Global", "United", "First", "National", "Pacific", "Atlantic", "General", "Advanced",
+        "Digital", "Energy", "Financial", "Health", "Systems", "Technologies", "Pharmaceuticals", "Holdings",
+        "Industries", "Resources", "Networks", "Capital", "Therapeutics", "Semiconductor", "Software",
+        "Materials", "Motors", "Foods", "Realty", "Bancorp", "Communications", "Solutions", "Group"};
+    private static final String[] SUFFIXES = {"Inc", "Corp", "Ltd", "plc", "Co", "Holdings Inc"};
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        Random random = new Random(42);
+        List<Listing> listings = generate(count, random);
+        System.out.println("Symbol search benchmark: " + count + " listings, " + queries + " queries");
+        
+        long start = System.nanoTime();
+        SymbolIndex built = SymbolIndex.build(listings);
+        long buildNanos = System.nanoTime() - start;
+        
+        File file = File.createTempFile("symbols", ".idx");
+        file.deleteOnExit();
+        start = System.nanoTime();
+        built.save(file);
+        long saveNanos = System.nanoTime() - start;
+        
+        SymbolIndex.load(file); // warm the loading path once
+        start = System.nanoTime();
+        SymbolIndex index = SymbolIndex.load(file);
+        long loadNanos = System.nanoTime() - start;
+        System.out.printf("build %.0f ms, save %.0f ms, load %.1f ms (%d KB on disk)%n",
+                          buildNanos / 1e6, saveNanos / 1e6, loadNanos / 1e6, file.length() / 1024);
+        
+        // Each query is typed one character at a time: a symbol, a name word or "word word"
+        List<String> typed = new ArrayList<>();
+        for (int q = 0; q < queries; q++) {
+            Listing listing = listings.get(random.nextInt(count));
+            String[] words = listing.getName().split(" ");
+            String query;
+            switch (q % 3) {
+                case 0: query = listing.getSymbol().toLowerCase(); break;
+                case 1: query = words[random.nextInt(words.length)]; break;
+                default: query = words[0] + " " + words[1].substring(0, Math.min(3, words[1].length())); break;
+            }
+            for (int i = 1; i <= query.length(); i++) {
+                typed.add(query.substring(0, i));
+            }
+        }
+        for (int i = 0; i < Math.min(typed.size(), 50_000); i++) {
+            index.search(typed.get(i), 10); // warm-up
+        }
+        long[] latencies = new long[typed.size()];
+        long hits = 0;
+        for (int i = 0; i < typed.size(); i++) {
+            long t = System.nanoTime();
+            hits += index.search(typed.get(i), 10).size();
+            latencies[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%d keystrokes, %.1f results each: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                          latencies.length, (double) hits / latencies.length, latencies[latencies.length / 2] / 1e3,
+                          latencies[(int) (latencies.length * 0.99)] / 1e3,
+                          latencies[(int) (latencies.length * 0.999)] / 1e3, latencies[latencies.length - 1] / 1e3);
+        System.out.println("sample \"gl\": " + index.search("gl", 5));
+    }
+    
+    private static List<Listing> generate(int count, Random random) {
+        List<Listing> listings = new ArrayList<>(count);
+        Set<String> symbols = new HashSet<>();
+        while (listings.size() < count) {
+            int length = 1 + random.nextInt(5);
+            StringBuilder symbol = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                symbol.append((char) ('A' + random.nextInt(26)));
+            }
+            if (!symbols.add(symbol.toString())) {
+                continue;
+            }
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " +
+                          SUFFIXES[random.nextInt(SUFFIXES.length)];
+            // Market caps are heavy-tailed
+            float weight = (float) Math.exp(random.nextGaussian() * 2);
+            listings.add(new Listing(symbol.toString(), name, weight));
+        }
+        return listings;
+    }
+}
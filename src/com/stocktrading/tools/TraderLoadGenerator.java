@@ -0,0 +1,297 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.api.StockAPIClient;
+import com.stocktrading.database.DatabaseManager;
+import com.stocktrading.models.Portfolio;
+import com.stocktrading.models.Stock;
+import com.stocktrading.models.User;
+import com.stocktrading.services.*;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless load generator for the trading services.
+ * Registers N synthetic traders through AuthenticationService on a scratch
+ * SQLite database, logs them all in, then runs each trader as a closed loop
+ * on its own virtual thread (a platform thread before Java 21), picking
+ * operations from a weighted mix:
+ *
+ *   buy        quote, then a 1-10 share market buy
+ *   sell       quote, then a 1 share market sell of a held symbol (a buy while nothing is held)
+ *   portfolio  full portfolio load from the database
+ *   predict    quote, then trend, next price and confidence
+ *
+ * Reports throughput, latency percentiles and error rate per operation,
+ * then the per-call Metrics breakdown (db.*, trade.*, predict.*, api.*).
+ * Synthetic users are hashed at the minimum PBKDF2 cost so setup stays short.
+ *
+ * Usage: java -cp bin:sqlite-jdbc.jar com.stocktrading.tools.TraderLoadGenerator
+ *            [users] [seconds] [mix] [thinkMillis]
+ *   mix: comma-separated op=weight, default buy=25,sell=15,portfolio=40,predict=20
+ */
+public class TraderLoadGenerator {
+    private static final String[] SYMBOLS = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA", "META", "NVDA", "JPM", "V", "WMT"};
+    private static final String DEFAULT_MIX = "buy=25,sell=15,portfolio=40,predict=20";
+    private static final List<String> OPERATIONS = Arrays.asList("buy", "sell", "portfolio", "predict");
+    private static final int HASH_ITERATIONS = 10_000;
+    private static final String PASSWORD = "load-pass";
+    private static final long WARMUP_SECONDS = 2;
+    
+    private final DatabaseManager dbManager;
+    private final AuthenticationService authService;
+    private final PortfolioManagementService portfolioService;
+    private final TrendPredictionService predictor = new TrendPredictionService();
+    private final StockAPIClient apiClient = new StockAPIClient();
+    private final ExecutorService traders = newTraderExecutor();
+    private final Map<String, Result> results = new ConcurrentHashMap<>();
+    
+    public TraderLoadGenerator(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.authService = new AuthenticationService(dbManager, new SessionStore(),
+            new PasswordHasher(HASH_ITERATIONS, Runtime.getRuntime().availableProcessors(), 100_000));
+        this.portfolioService = new PortfolioManagementService(dbManager);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String mix = args.length > 2 ? args[2] : DEFAULT_MIX;
+        long thinkMillis = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        
+        File file = File.createTempFile("trader-load", ".db");
+        file.deleteOnExit();
+        DatabaseManager dbManager = new DatabaseManager("jdbc:sqlite:" + file.getPath());
+        TraderLoadGenerator generator = new TraderLoadGenerator(dbManager);
+        try {
+            System.out.println("Trader load: " + users + " users for " + seconds + " s, mix " + mix +
+                               ", think " + thinkMillis + " ms, database " + file);
+            generator.run(users, seconds, parseMix(mix), thinkMillis);
+        } finally {
+            generator.shutdown();
+            dbManager.close();
+            for (String suffix : new String[] {"", "-wal", "-shm"}) {
+                new File(file.getPath() + suffix).delete();
+            }
+        }
+        System.exit(0);
+    }
+    
+    // "buy=25,sell=15" -> cumulative weights in OPERATIONS order
+    static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.size()];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            int op = OPERATIONS.indexOf(kv[0].trim().toLowerCase());
+            if (kv.length != 2 || op < 0) {
+                throw new IllegalArgumentException("Bad mix entry '" + part + "', expected one of " + OPERATIONS + "=weight");
+            }
+            weights[op] = Integer.parseInt(kv[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("Mix has no positive weights: " + mix);
+        }
+        return weights;
+    }
+    
+    public void run(int users, int seconds, int[] mix, long thinkMillis) throws Exception {
+        // Setup: register and log in every trader, concurrently
+        long start = System.nanoTime();
+        List<Future<User>> logins = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String username = "trader" + i;
+            logins.add(traders.submit(() -> {
+                timed("register", () -> authService.register(username, PASSWORD, username + "@example.com"));
+                User[] user = new User[1];
+                timed("login", () -> {
+                    user[0] = authService.login(username, PASSWORD);
+                    return user[0] != null && user[0].getPortfolioLoad().join() != null;
+                });
+                return user[0];
+            }));
+        }
+        List<User> loggedIn = new ArrayList<>();
+        for (Future<User> login : logins) {
+            User user = login.get();
+            if (user != null && user.getPortfolio() != null) {
+                loggedIn.add(user);
+            }
+        }
+        System.out.printf("setup: %d of %d traders logged in (%.1f s, %s threads)%n", loggedIn.size(), users,
+                          (System.nanoTime() - start) / 1e9, traders instanceof ThreadPoolExecutor ? "platform" : "virtual");
+        report(Arrays.asList("register", "login"), (System.nanoTime() - start) / 1e9);
+        if (loggedIn.isEmpty()) {
+            System.err.println("No trader could log in; is the SQLite driver on the classpath?");
+            return;
+        }
+        results.clear();
+        
+        // Run: one closed loop per trader; only operations started after the warm-up count
+        long begin = System.nanoTime();
+        long measureFrom = begin + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<?>> loops = new ArrayList<>();
+        for (User user : loggedIn) {
+            loops.add(traders.submit(() -> trade(user, new Random(user.getId()), mix, thinkMillis, measureFrom, end)));
+        }
+        TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+        Metrics.reset();
+        for (Future<?> loop : loops) {
+            loop.get();
+        }
+        System.out.println();
+        report(OPERATIONS, seconds);
+        System.out.println();
+        System.out.print(Metrics.report());
+    }
+    
+    private Void trade(User user, Random random, int[] mix, long thinkMillis, long measureFrom, long end)
+            throws InterruptedException {
+        Portfolio portfolio = user.getPortfolio();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            int pick = random.nextInt(mix[mix.length - 1]);
+            int op = 0;
+            while (pick >= mix[op]) {
+                op++;
+            }
+            String symbol = SYMBOLS[random.nextInt(SYMBOLS.length)];
+            String operation = OPERATIONS.get(op);
+            if (operation.equals("sell")) {
+                List<String> held = new ArrayList<>(portfolio.getHoldings().keySet());
+                if (held.isEmpty()) {
+                    operation = "buy";
+                } else {
+                    symbol = held.get(random.nextInt(held.size()));
+                }
+            }
+            boolean measured = now >= measureFrom;
+            String target = symbol;
+            switch (operation) {
+                case "buy":
+                    int quantity = 1 + random.nextInt(10);
+                    run(measured, "buy", () -> {
+                        Stock stock = quote(target);
+                        return stock != null && portfolioService.buyStock(portfolio, stock, quantity);
+                    });
+                    break;
+                case "sell":
+                    run(measured, "sell", () -> quote(target) != null && portfolioService.sellStock(portfolio, target, 1));
+                    break;
+                case "portfolio":
+                    run(measured, "portfolio", () -> dbManager.loadPortfolio(user.getId()) != null);
+                    break;
+                default:
+                    run(measured, "predict", () -> {
+                        Stock stock = quote(target);
+                        if (stock == null) {
+                            return false;
+                        }
+                        List<Double> prices = stock.getHistoricalPrices();
+                        predictor.predictTrend(prices);
+                        predictor.predictNextPrice(stock);
+                        predictor.getConfidenceScore(prices);
+                        return true;
+                    });
+                    break;
+            }
+            if (thinkMillis > 0) {
+                Thread.sleep(thinkMillis);
+            }
+        }
+        return null;
+    }
+    
+    private Stock quote(String symbol) {
+        Stock stock = apiClient.fetchStockData(symbol);
+        if (stock != null) {
+            portfolioService.updateMarketPrice(symbol, stock.getCurrentPrice());
+        }
+        return stock;
+    }
+    
+    private interface Operation {
+        boolean call() throws Exception;
+    }
+    
+    private void run(boolean measured, String name, Operation operation) {
+        if (measured) {
+            timed(name, operation);
+        } else {
+            try {
+                operation.call();
+            } catch (Exception e) {
+                // warm-up
+            }
+        }
+    }
+    
+    // An exception or a false result counts as an error
+    private void timed(String name, Operation operation) {
+        Result result = results.computeIfAbsent(name, Result::new);
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = operation.call();
+        } catch (Exception e) {
+            ok = false;
+            result.lastError = e.toString();
+        }
+        result.histogram.recordSince(start);
+        if (!ok) {
+            result.histogram.recordError();
+        }
+    }
+    
+    private void report(List<String> names, double seconds) {
+        System.out.printf("%-10s %10s %9s %7s %7s %11s %11s %11s %11s%n", "operation", "count", "ops/s", "errors",
+                          "error%", "p50", "p99", "p99.9", "max");
+        for (String name : names) {
+            Result result = results.get(name);
+            if (result == null) {
+                continue;
+            }
+            LatencyHistogram.Snapshot s = result.histogram.snapshot();
+            System.out.printf("%-10s %10d %9.0f %7d %6.2f%% %8.1f ms %8.1f ms %8.1f ms %8.1f ms%n", name, s.getCount(),
+                              s.getCount() / seconds, s.getErrors(), s.getCount() > 0 ? 100.0 * s.getErrors() / s.getCount() : 0,
+                              s.getP50() / 1e6, s.getP99() / 1e6, s.getP999() / 1e6, s.getMax() / 1e6);
+            if (result.lastError != null) {
+                System.out.println("           last error: " + result.lastError);
+            }
+        }
+    }
+    
+    public void shutdown() {
+        traders.shutdownNow();
+        apiClient.shutdown();
+        authService.getSessionStore().shutdown();
+    }
+    
+    // A virtual thread per trader where available (Java 21+), else a platform thread per trader
+    private static ExecutorService newTraderExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "trader");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+    
+    /**
+     * Latencies and errors of one operation type
+     */
+    private static class Result {
+        final LatencyHistogram histogram;
+        volatile String lastError;
+        
+        Result(String name) {
+            this.histogram = new LatencyHistogram(name);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.stocktrading.tools;
+
+import com.stocktrading.gui.UpdateScheduler;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+/**
+ * UI tick load benchmark.
+ * Streams price ticks at a fixed rate onto the EDT, first with one
+ * invokeLater per tick and then through the UpdateScheduler, where each
+ * update stands in for a cell repaint. A probe posted every 10 ms measures
+ * how long an input event would wait for the EDT. Runs headless.
+ *
+ * Usage: java -cp bin com.stocktrading.tools.UiTickBenchmark [symbols] [ticksPerSecond] [seconds] [hz]
+ */
+public class UiTickBenchmark {
+    private static final long UPDATE_COST_NANOS = 20_000; // simulated repaint of one cell
+    private static final long PROBE_INTERVAL_MILLIS = 10;
+    
+    public static void main(String[] args) throws Exception {
+        int symbols = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int ticksPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int hz = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        
+        System.out.println("UI tick benchmark: " + symbols + " symbols, " + ticksPerSecond + " ticks/sec for " +
+                           seconds + " s, " + (UPDATE_COST_NANOS / 1000) + " us per update, scheduler at " + hz + " Hz");
+        double[] shown = new double[symbols];
+        
+        run("invokeLater per tick", symbols, ticksPerSecond, seconds,
+            (symbol, price) -> SwingUtilities.invokeLater(() -> repaint(shown, symbol, price)));
+        
+        UpdateScheduler scheduler = new UpdateScheduler(hz);
+        run("coalescing scheduler", symbols, ticksPerSecond, seconds,
+            (symbol, price) -> scheduler.schedule("quote:" + symbol, () -> repaint(shown, symbol, price)));
+        Thread.sleep(2 * 1000 / hz);
+        System.out.println("  " + scheduler.getStats());
+        scheduler.stop();
+    }
+    
+    private interface TickSink {
+        void tick(int symbol, double price);
+    }
+    
+    private static void run(String label, int symbols, int ticksPerSecond, int seconds, TickSink sink)
+            throws Exception {
+        long[] probeDelays = new long[(int) (seconds * 1000 / PROBE_INTERVAL_MILLIS) + 1];
+        int[] probes = {0};
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long nextProbe = start;
+        long sent = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            // Catch up to the target rate
+            long due = (now - start) * ticksPerSecond / 1_000_000_000L;
+            for (; sent < due; sent++) {
+                sink.tick(random.nextInt(symbols), 100 + random.nextDouble());
+            }
+            if (now >= nextProbe && probes[0] < probeDelays.length) {
+                long posted = now;
+                int slot = probes[0]++;
+                SwingUtilities.invokeLater(() -> probeDelays[slot] = System.nanoTime() - posted);
+                nextProbe += TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MILLIS);
+            }
+            Thread.onSpinWait();
+        }
+        long produced = System.nanoTime() - start;
+        SwingUtilities.invokeAndWait(() -> { });
+        long drained = System.nanoTime() - start - produced;
+        
+        long[] sorted = Arrays.copyOf(probeDelays, probes[0]);
+        Arrays.sort(sorted);
+        System.out.printf("%-21s %d ticks, EDT backlog drained %.0f ms after the stream; input delay p50 %.1f ms, " +
+                          "p99 %.1f ms, max %.1f ms%n", label + ":", sent, drained / 1e6,
+                          sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                          sorted[sorted.length - 1] / 1e6);
+    }
+    
+    private static void repaint(double[] shown, int symbol, double price) {
+        shown[symbol] = price;
+        long until = System.nanoTime() + UPDATE_COST_NANOS;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+}